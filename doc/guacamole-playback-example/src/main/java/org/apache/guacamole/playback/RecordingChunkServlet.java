@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.playback;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.guacamole.GuacamoleException;
+
+/**
+ * Servlet which serves the portion of a Guacamole session recording covering
+ * a requested range of time, allowing playback to begin at any point within
+ * a long recording without first downloading and parsing everything before
+ * it. Each recording is indexed once, on first request, unless an index
+ * written by RecordingIndexer is already present.
+ *
+ * Requests must specify the name of the recording within the "recording"
+ * parameter. If the "start" and/or "end" parameters are given (in
+ * milliseconds relative to the start of the recording), the recording data
+ * covering all frames within that range is returned. Otherwise, a JSON
+ * summary of the recording is returned.
+ *
+ * Recordings contain no keyframes, so a range beginning after the start of
+ * the recording lacks the display state established by earlier frames. Such
+ * a range can only be played on top of a display which has already played
+ * everything before it. The example player therefore requests consecutive
+ * ranges in order, downloading only as far as playback or a seek requires.
+ */
+public class RecordingChunkServlet extends HttpServlet {
+
+    /**
+     * The name of the servlet init parameter specifying the directory
+     * containing all recordings. If omitted, recordings are read from the
+     * root of the web application, which is possible only if the web
+     * application has been deployed as a directory.
+     */
+    public static final String RECORDING_PATH_PARAMETER = "recording-path";
+
+    /**
+     * The maximum number of recording indexes to keep in memory. Once this
+     * limit is reached, the index of the least-recently requested recording
+     * is discarded.
+     */
+    private static final int MAX_CACHED_INDEXES = 32;
+
+    /**
+     * The directory containing all recordings.
+     */
+    private File recordingPath;
+
+    /**
+     * Indexes of the most recently requested recordings, by canonical file.
+     */
+    private final Map<File, RecordingIndex> indexes = Collections.synchronizedMap(
+            new LinkedHashMap<File, RecordingIndex>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, RecordingIndex> eldest) {
+            return size() > MAX_CACHED_INDEXES;
+        }
+
+    });
+
+    @Override
+    public void init() throws ServletException {
+
+        // Default to the root of the web application, if it has one
+        String path = getInitParameter(RECORDING_PATH_PARAMETER);
+        if (path == null) {
+            path = getServletContext().getRealPath("/");
+            if (path == null)
+                throw new ServletException("The web application is not "
+                        + "deployed as a directory, so recordings cannot be "
+                        + "read from it. Please set the \""
+                        + RECORDING_PATH_PARAMETER + "\" init parameter to "
+                        + "the directory containing all recordings.");
+        }
+
+        try {
+            recordingPath = new File(path).getCanonicalFile();
+        }
+        catch (IOException e) {
+            throw new ServletException("Invalid recording path.", e);
+        }
+
+    }
+
+    /**
+     * Returns the recording file having the given name, refusing any name
+     * which would refer to a file outside the recording directory.
+     *
+     * @param name
+     *     The name of the requested recording.
+     *
+     * @return
+     *     The requested recording file, or null if no such recording exists.
+     *
+     * @throws IOException
+     *     If the canonical path of the requested file cannot be determined.
+     */
+    private File getRecording(String name) throws IOException {
+
+        if (name == null)
+            return null;
+
+        File recording = new File(recordingPath, name).getCanonicalFile();
+        if (!recordingPath.equals(recording.getParentFile()) || !recording.isFile())
+            return null;
+
+        return recording;
+
+    }
+
+    /**
+     * Returns an up-to-date index of the given recording, reading or building
+     * the index as necessary.
+     *
+     * @param recording
+     *     The recording whose index should be returned.
+     *
+     * @return
+     *     An index of the given recording.
+     *
+     * @throws IOException
+     *     If the recording cannot be read.
+     *
+     * @throws GuacamoleException
+     *     If the recording contains invalid instructions.
+     */
+    private RecordingIndex getIndex(File recording)
+            throws IOException, GuacamoleException {
+
+        // Use cached index if recording is unchanged
+        RecordingIndex index = indexes.get(recording);
+        if (index != null && index.isCurrent(recording))
+            return index;
+
+        // Use index written ahead of time, if present and unchanged
+        File indexFile = RecordingIndexer.getIndexFile(recording);
+        if (indexFile.isFile()) {
+            try {
+                index = RecordingIndex.read(indexFile);
+            }
+            catch (IOException e) {
+                log("Ignoring unreadable index \"" + indexFile + "\".", e);
+                index = null;
+            }
+        }
+
+        // Otherwise, scan the recording
+        if (index == null || !index.isCurrent(recording))
+            index = RecordingIndex.build(recording);
+
+        indexes.put(recording, index);
+        return index;
+
+    }
+
+    /**
+     * Parses the given timestamp parameter value.
+     *
+     * @param value
+     *     The value of the timestamp parameter, or null if the parameter was
+     *     omitted.
+     *
+     * @param defaultValue
+     *     The value to return if the parameter was omitted.
+     *
+     * @return
+     *     The parsed timestamp, or the given default value if the parameter
+     *     was omitted.
+     *
+     * @throws NumberFormatException
+     *     If the parameter value is not a valid integer.
+     */
+    private static long parseTimestamp(String value, long defaultValue) {
+
+        if (value == null)
+            return defaultValue;
+
+        return Long.parseLong(value);
+
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request,
+            HttpServletResponse response) throws ServletException, IOException {
+
+        File recording = getRecording(request.getParameter("recording"));
+        if (recording == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        RecordingIndex index;
+        try {
+            index = getIndex(recording);
+        }
+        catch (GuacamoleException e) {
+            throw new ServletException("Unable to index recording.", e);
+        }
+
+        String startParameter = request.getParameter("start");
+        String endParameter = request.getParameter("end");
+
+        // Without a range, describe the recording
+        if (startParameter == null && endParameter == null) {
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write("{\"duration\":" + index.getDuration()
+                    + ",\"frames\":" + index.getFrameCount()
+                    + ",\"length\":" + index.getLength() + "}");
+            return;
+        }
+
+        // Locate requested range of frames
+        long startOffset;
+        long endOffset;
+        try {
+            startOffset = index.getOffset(parseTimestamp(startParameter, 0));
+            endOffset = endParameter == null ? index.getLength()
+                    : index.getOffset(parseTimestamp(endParameter, 0));
+        }
+        catch (NumberFormatException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        long length = Math.max(0, endOffset - startOffset);
+
+        response.setContentType("application/octet-stream");
+        response.setHeader("Content-Length", Long.toString(length));
+
+        // Copy requested range directly from the recording
+        try (RandomAccessFile file = new RandomAccessFile(recording, "r")) {
+
+            FileChannel channel = file.getChannel();
+            OutputStream output = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(output);
+
+            long position = startOffset;
+            while (position < endOffset) {
+                long transferred = channel.transferTo(position, endOffset - position, target);
+                if (transferred <= 0)
+                    break;
+                position += transferred;
+            }
+
+            output.flush();
+
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.playback;
+
+/**
+ * A single frame of a Guacamole session recording, ending with a "sync"
+ * instruction.
+ */
+public class RecordingFrame {
+
+    /**
+     * The time at which this frame was rendered, in milliseconds relative to
+     * the first frame of the recording.
+     */
+    private final long timestamp;
+
+    /**
+     * The byte offset within the recording immediately following the "sync"
+     * instruction which ends this frame.
+     */
+    private final long offset;
+
+    /**
+     * Creates a new RecordingFrame having the given timestamp and offset.
+     *
+     * @param timestamp
+     *     The time at which the frame was rendered, in milliseconds relative
+     *     to the first frame of the recording.
+     *
+     * @param offset
+     *     The byte offset within the recording immediately following the
+     *     "sync" instruction which ends the frame.
+     */
+    public RecordingFrame(long timestamp, long offset) {
+        this.timestamp = timestamp;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the time at which this frame was rendered, in milliseconds
+     * relative to the first frame of the recording.
+     *
+     * @return
+     *     The time at which this frame was rendered, in milliseconds relative
+     *     to the first frame of the recording.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the byte offset within the recording immediately following
+     * the "sync" instruction which ends this frame.
+     *
+     * @return
+     *     The byte offset within the recording immediately following the
+     *     "sync" instruction which ends this frame.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+}
@@ -0,0 +1,474 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.playback;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleServerException;
+import org.apache.guacamole.protocol.GuacamoleInstruction;
+import org.apache.guacamole.protocol.GuacamoleParser;
+
+/**
+ * Index of the frames within a Guacamole session recording, mapping the
+ * timestamp of each "sync" instruction to its byte offset within the
+ * recording. Once built, the portion of the recording covering any range of
+ * time can be located with a binary search, without parsing the recording
+ * again.
+ */
+public class RecordingIndex {
+
+    /**
+     * Value identifying a file as a recording index.
+     */
+    private static final int MAGIC = 0x47494458;
+
+    /**
+     * The version of the recording index file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The number of characters to read from the recording at once. This must
+     * be larger than the maximum length of any instruction.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * The opcode of the instruction which ends each frame.
+     */
+    private static final String SYNC_OPCODE = "sync";
+
+    /**
+     * The length of the indexed recording, in bytes, at the time it was
+     * indexed.
+     */
+    private final long length;
+
+    /**
+     * The last modification time of the indexed recording at the time it was
+     * indexed, in milliseconds since the epoch.
+     */
+    private final long lastModified;
+
+    /**
+     * The number of frames within the indexed recording.
+     */
+    private final int frameCount;
+
+    /**
+     * The timestamp of each frame, in milliseconds relative to the first
+     * frame. Only the first frameCount entries are meaningful.
+     */
+    private final long[] timestamps;
+
+    /**
+     * The byte offset immediately following the end of each frame. Only the
+     * first frameCount entries are meaningful.
+     */
+    private final long[] offsets;
+
+    /**
+     * Creates a new RecordingIndex containing the given frames.
+     *
+     * @param length
+     *     The length of the indexed recording, in bytes.
+     *
+     * @param lastModified
+     *     The last modification time of the indexed recording, in
+     *     milliseconds since the epoch.
+     *
+     * @param frameCount
+     *     The number of frames within the indexed recording.
+     *
+     * @param timestamps
+     *     The relative timestamp of each frame, in milliseconds, in
+     *     increasing order.
+     *
+     * @param offsets
+     *     The byte offset immediately following the end of each frame, in
+     *     increasing order.
+     */
+    private RecordingIndex(long length, long lastModified, int frameCount,
+            long[] timestamps, long[] offsets) {
+        this.length = length;
+        this.lastModified = lastModified;
+        this.frameCount = frameCount;
+        this.timestamps = timestamps;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns the number of bytes required to represent the given characters
+     * as UTF-8. Each half of a surrogate pair is counted as two bytes, such
+     * that the pair as a whole is counted as four.
+     *
+     * @param buffer
+     *     The buffer containing the characters.
+     *
+     * @param offset
+     *     The offset of the first character.
+     *
+     * @param length
+     *     The number of characters.
+     *
+     * @return
+     *     The number of bytes required to represent the given characters as
+     *     UTF-8.
+     */
+    private static long getEncodedLength(char[] buffer, int offset, int length) {
+
+        long encodedLength = 0;
+        for (int i = offset; i < offset + length; i++) {
+
+            char c = buffer[i];
+
+            if (c < 0x80)
+                encodedLength += 1;
+            else if (c < 0x800 || Character.isSurrogate(c))
+                encodedLength += 2;
+            else
+                encodedLength += 3;
+
+        }
+
+        return encodedLength;
+
+    }
+
+    /**
+     * Parses the given recording from beginning to end, building an index of
+     * all frames within the recording. Any incomplete instruction at the end
+     * of the recording is ignored.
+     *
+     * @param recording
+     *     The recording to index.
+     *
+     * @return
+     *     A new index of all frames within the given recording.
+     *
+     * @throws IOException
+     *     If the recording cannot be read.
+     *
+     * @throws GuacamoleException
+     *     If the recording contains invalid instructions.
+     */
+    public static RecordingIndex build(File recording)
+            throws IOException, GuacamoleException {
+
+        long length = recording.length();
+        long lastModified = recording.lastModified();
+
+        long[] timestamps = new long[1024];
+        long[] offsets = new long[1024];
+        int frameCount = 0;
+        long firstTimestamp = 0;
+
+        GuacamoleParser parser = new GuacamoleParser();
+        char[] buffer = new char[BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        long byteOffset = 0;
+
+        try (Reader reader = new InputStreamReader(new BufferedInputStream(
+                new FileInputStream(recording)), StandardCharsets.UTF_8)) {
+
+            for (;;) {
+
+                // Parse all complete instructions within buffer
+                int parsed;
+                while (start < end && (parsed = parser.append(buffer, start, end - start)) != 0) {
+
+                    byteOffset += getEncodedLength(buffer, start, parsed);
+                    start += parsed;
+
+                    if (!parser.hasNext())
+                        continue;
+
+                    // Record end of each frame
+                    GuacamoleInstruction instruction = parser.next();
+                    if (!SYNC_OPCODE.equals(instruction.getOpcode()))
+                        continue;
+
+                    List<String> args = instruction.getArgs();
+                    if (args.isEmpty())
+                        throw new GuacamoleServerException("Recording contains "
+                                + "\"sync\" instruction without timestamp.");
+
+                    long timestamp;
+                    try {
+                        timestamp = Long.parseLong(args.get(0));
+                    }
+                    catch (NumberFormatException e) {
+                        throw new GuacamoleServerException("Recording contains "
+                                + "\"sync\" instruction with invalid timestamp.", e);
+                    }
+
+                    if (frameCount == 0)
+                        firstTimestamp = timestamp;
+
+                    if (frameCount == timestamps.length) {
+                        timestamps = Arrays.copyOf(timestamps, frameCount * 2);
+                        offsets = Arrays.copyOf(offsets, frameCount * 2);
+                    }
+
+                    // Never allow timestamps to go backwards, such that the
+                    // index remains searchable
+                    long relativeTimestamp = timestamp - firstTimestamp;
+                    if (frameCount > 0)
+                        relativeTimestamp = Math.max(relativeTimestamp, timestamps[frameCount - 1]);
+
+                    timestamps[frameCount] = relativeTimestamp;
+                    offsets[frameCount] = byteOffset;
+                    frameCount++;
+
+                }
+
+                // Move any partial instruction to start of buffer
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+
+                if (end == buffer.length)
+                    throw new GuacamoleServerException("Recording contains "
+                            + "an instruction which is too long.");
+
+                // Read more data, stopping at end of recording
+                int read = reader.read(buffer, end, buffer.length - end);
+                if (read == -1)
+                    break;
+
+                end += read;
+
+            }
+
+        }
+
+        return new RecordingIndex(length, lastModified, frameCount,
+                timestamps, offsets);
+
+    }
+
+    /**
+     * Reads a previously-written index from the given file.
+     *
+     * @param file
+     *     The file containing the index.
+     *
+     * @return
+     *     The index read from the given file.
+     *
+     * @throws IOException
+     *     If the file cannot be read or is not a valid index.
+     */
+    public static RecordingIndex read(File file) throws IOException {
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+
+            if (input.readInt() != MAGIC || input.readInt() != VERSION)
+                throw new IOException("Not a recording index: " + file);
+
+            long length = input.readLong();
+            long lastModified = input.readLong();
+            int frameCount = input.readInt();
+
+            long[] timestamps = new long[frameCount];
+            long[] offsets = new long[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                timestamps[i] = input.readLong();
+                offsets[i] = input.readLong();
+            }
+
+            return new RecordingIndex(length, lastModified, frameCount,
+                    timestamps, offsets);
+
+        }
+
+    }
+
+    /**
+     * Writes this index to the given file, such that it may later be read
+     * with read() rather than rebuilt.
+     *
+     * @param file
+     *     The file to write.
+     *
+     * @throws IOException
+     *     If the file cannot be written.
+     */
+    public void write(File file) throws IOException {
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(length);
+            output.writeLong(lastModified);
+            output.writeInt(frameCount);
+
+            for (int i = 0; i < frameCount; i++) {
+                output.writeLong(timestamps[i]);
+                output.writeLong(offsets[i]);
+            }
+
+        }
+
+    }
+
+    /**
+     * Returns whether this index still describes the given recording, based
+     * on the recording's length and modification time.
+     *
+     * @param recording
+     *     The recording to test.
+     *
+     * @return
+     *     true if this index still describes the given recording, false if
+     *     the recording has changed since it was indexed.
+     */
+    public boolean isCurrent(File recording) {
+        return recording.length() == length
+            && recording.lastModified() == lastModified;
+    }
+
+    /**
+     * Returns the length of the indexed recording, in bytes.
+     *
+     * @return
+     *     The length of the indexed recording, in bytes.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the number of frames within the indexed recording.
+     *
+     * @return
+     *     The number of frames within the indexed recording.
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the frame having the given index.
+     *
+     * @param index
+     *     The index of the frame to return, which must be less than the
+     *     value returned by getFrameCount().
+     *
+     * @return
+     *     The frame having the given index.
+     */
+    public RecordingFrame getFrame(int index) {
+
+        if (index < 0 || index >= frameCount)
+            throw new IndexOutOfBoundsException("No such frame: " + index);
+
+        return new RecordingFrame(timestamps[index], offsets[index]);
+
+    }
+
+    /**
+     * Returns the duration of the indexed recording, in milliseconds.
+     *
+     * @return
+     *     The duration of the indexed recording, in milliseconds, or zero if
+     *     the recording contains no frames.
+     */
+    public long getDuration() {
+
+        if (frameCount == 0)
+            return 0;
+
+        return timestamps[frameCount - 1];
+
+    }
+
+    /**
+     * Returns the number of frames having a timestamp strictly less than the
+     * given timestamp.
+     *
+     * @param timestamp
+     *     The timestamp to search for, in milliseconds relative to the first
+     *     frame.
+     *
+     * @return
+     *     The number of frames having a timestamp strictly less than the
+     *     given timestamp.
+     */
+    private int countFramesBefore(long timestamp) {
+
+        int low = 0;
+        int high = frameCount;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+
+    }
+
+    /**
+     * Returns the byte offset at which the first frame having a timestamp
+     * greater than or equal to the given timestamp begins. Consecutive calls
+     * with increasing timestamps therefore divide the recording into
+     * contiguous, non-overlapping chunks, each containing only complete
+     * frames.
+     *
+     * @param timestamp
+     *     The timestamp to search for, in milliseconds relative to the first
+     *     frame.
+     *
+     * @return
+     *     The byte offset at which the first frame having a timestamp greater
+     *     than or equal to the given timestamp begins.
+     */
+    public long getOffset(long timestamp) {
+
+        int frames = countFramesBefore(timestamp);
+        if (frames == 0)
+            return 0;
+
+        return offsets[frames - 1];
+
+    }
+
+}
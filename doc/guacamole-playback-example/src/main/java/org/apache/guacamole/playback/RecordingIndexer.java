@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.playback;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.guacamole.GuacamoleException;
+
+/**
+ * Command-line utility which indexes Guacamole session recordings ahead of
+ * time, writing each index alongside its recording such that it need not be
+ * built when the recording is first played.
+ */
+public class RecordingIndexer {
+
+    /**
+     * The suffix appended to the filename of a recording to produce the
+     * filename of its index.
+     */
+    public static final String INDEX_SUFFIX = ".idx";
+
+    /**
+     * Returns the file which contains (or would contain) the index of the
+     * given recording.
+     *
+     * @param recording
+     *     The recording whose index file should be returned.
+     *
+     * @return
+     *     The file which contains or would contain the index of the given
+     *     recording.
+     */
+    public static File getIndexFile(File recording) {
+        return new File(recording.getPath() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Indexes each recording named on the command line, writing each index
+     * alongside its recording.
+     *
+     * @param args
+     *     The paths of all recordings to index.
+     *
+     * @throws IOException
+     *     If a recording cannot be read or its index cannot be written.
+     *
+     * @throws GuacamoleException
+     *     If a recording contains invalid instructions.
+     */
+    public static void main(String[] args)
+            throws IOException, GuacamoleException {
+
+        if (args.length == 0) {
+            System.err.println("Usage: RecordingIndexer RECORDING...");
+            System.exit(1);
+        }
+
+        for (String path : args) {
+
+            File recording = new File(path);
+            long start = System.currentTimeMillis();
+
+            RecordingIndex index = RecordingIndex.build(recording);
+            index.write(getIndexFile(recording));
+
+            System.out.println(path + ": " + index.getFrameCount()
+                    + " frames, " + index.getDuration() + " ms, indexed in "
+                    + (System.currentTimeMillis() - start) + " ms");
+
+        }
+
+    }
+
+}
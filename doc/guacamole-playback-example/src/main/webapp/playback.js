@@ -20,12 +20,286 @@
 (function initExamplePlayer() {
 
     /**
-     * The URL of the Guacamole session recording which should be played back.
+     * The URL of the Guacamole session recording which should be played back,
+     * as served by the recording servlet. Without a time range, this URL
+     * returns a JSON summary of the recording. Ranges of the recording are
+     * requested by adding "start" and "end" parameters, in milliseconds.
      *
      * @constant
      * @type String
      */
-    var RECORDING_URL = 'recording.guac';
+    var RECORDING_URL = 'recording?recording=recording.guac';
+
+    /**
+     * The amount of recording time to request at once, in milliseconds.
+     *
+     * @constant
+     * @type Number
+     */
+    var CHUNK_DURATION = 60000;
+
+    /**
+     * The amount of recording time to download beyond the current playback
+     * position, in milliseconds. Nothing further is downloaded until playback
+     * or a seek moves closer to the end of the downloaded data.
+     *
+     * @constant
+     * @type Number
+     */
+    var LOOKAHEAD_DURATION = 5 * CHUNK_DURATION;
+
+    /**
+     * Tunnel which downloads a session recording from the recording servlet
+     * one chunk of time at a time, in order, only as far as requested via
+     * loadUntil(). As recordings contain no keyframes, each chunk can be
+     * played only on top of everything before it, and chunks are thus never
+     * skipped. Seeking forward within a long recording therefore downloads
+     * only the portion of the recording preceding the new position, and each
+     * chunk is located by the servlet using the recording index rather than
+     * by reading the recording from the beginning.
+     *
+     * @constructor
+     * @augments Guacamole.Tunnel
+     * @param {String} url
+     *     The URL of the recording, as served by the recording servlet.
+     */
+    var ChunkedRecordingTunnel = function ChunkedRecordingTunnel(url) {
+
+        /**
+         * Reference to this ChunkedRecordingTunnel.
+         *
+         * @private
+         */
+        var tunnel = this;
+
+        /**
+         * The current, in-progress HTTP request. If no request is currently
+         * in progress, this will be null.
+         *
+         * @private
+         * @type XMLHttpRequest
+         */
+        var xhr = null;
+
+        /**
+         * The Guacamole protocol parser shared by all chunks. Chunks always
+         * end on frame boundaries, but sharing the parser ensures nothing is
+         * lost even if they did not.
+         *
+         * @private
+         * @type Guacamole.Parser
+         */
+        var parser = null;
+
+        /**
+         * The duration of the entire recording, in milliseconds, or null if
+         * the summary of the recording has not yet been received.
+         *
+         * @private
+         * @type Number
+         */
+        var duration = null;
+
+        /**
+         * The timestamp at which the next chunk begins, in milliseconds.
+         *
+         * @private
+         * @type Number
+         */
+        var loaded = 0;
+
+        /**
+         * Whether the final chunk of the recording has been received.
+         *
+         * @private
+         * @type Boolean
+         */
+        var complete = false;
+
+        /**
+         * The timestamp up to which the recording should be downloaded, in
+         * milliseconds.
+         *
+         * @private
+         * @type Number
+         */
+        var target = LOOKAHEAD_DURATION;
+
+        /**
+         * Sends a GET request to the given URL, invoking the given callback
+         * with the XMLHttpRequest as response data arrives and once the
+         * request has completed.
+         *
+         * @private
+         * @param {String} requestUrl
+         *     The URL to request.
+         *
+         * @param {Function} received
+         *     The callback to invoke as data is received.
+         */
+        var request = function request(requestUrl, received) {
+
+            var current = xhr = new XMLHttpRequest();
+            current.open('GET', requestUrl);
+            current.responseType = 'text';
+
+            current.onreadystatechange = function readyStateChanged() {
+                if (xhr === current && current.readyState >= 3)
+                    received(current);
+            };
+
+            current.onerror = function httpError() {
+
+                if (xhr !== current)
+                    return;
+
+                if (tunnel.onerror)
+                    tunnel.onerror(new Guacamole.Status(
+                        Guacamole.Status.Code.fromHTTPCode(current.status),
+                        current.statusText));
+
+                tunnel.disconnect();
+
+            };
+
+            current.send(null);
+
+        };
+
+        /**
+         * Requests the next chunk of the recording, unless a request is
+         * already in progress or the recording has been downloaded as far as
+         * requested.
+         *
+         * @private
+         */
+        var loadNextChunk = function loadNextChunk() {
+
+            if (xhr || duration === null || complete || loaded >= target)
+                return;
+
+            // Request the next range of time, including any trailing data if
+            // this is the final chunk
+            var start = loaded;
+            var end = start + CHUNK_DURATION;
+            var last = end > duration;
+
+            var chunkUrl = url + '&start=' + start;
+            if (!last)
+                chunkUrl += '&end=' + end;
+
+            var offset = 0;
+            request(chunkUrl, function chunkReceived(current) {
+
+                // Parse only the portion of data which is newly received
+                var buffer = current.responseText;
+                if (offset < buffer.length) {
+                    parser.receive(buffer.substring(offset));
+                    offset = buffer.length;
+                }
+
+                // Continue with next chunk once this chunk is complete
+                if (current.readyState === 4) {
+                    xhr = null;
+                    loaded = end;
+                    complete = last;
+                    loadNextChunk();
+                }
+
+            });
+
+        };
+
+        /**
+         * Returns the duration of the entire recording, as reported by the
+         * recording servlet.
+         *
+         * @returns {Number}
+         *     The duration of the entire recording in milliseconds, or null
+         *     if not yet known.
+         */
+        this.getDuration = function getDuration() {
+            return duration;
+        };
+
+        /**
+         * Requests that the recording be downloaded at least up to the given
+         * timestamp. Downloading continues in the background.
+         *
+         * @param {Number} timestamp
+         *     The timestamp to download up to, in milliseconds relative to
+         *     the start of the recording.
+         */
+        this.loadUntil = function loadUntil(timestamp) {
+            target = Math.max(target, timestamp);
+            loadNextChunk();
+        };
+
+        /**
+         * Fired once the duration of the entire recording is known.
+         *
+         * @event
+         * @param {Number} duration
+         *     The duration of the entire recording, in milliseconds.
+         */
+        this.onduration = null;
+
+        this.sendMessage = function sendMessage(elements) {
+            // Do nothing
+        };
+
+        this.connect = function connect(data) {
+
+            // Ensure any existing connection is killed
+            tunnel.disconnect();
+            tunnel.setState(Guacamole.Tunnel.State.CONNECTING);
+
+            loaded = 0;
+            complete = false;
+            duration = null;
+
+            // Invoke tunnel's oninstruction handler for each parsed instruction
+            parser = new Guacamole.Parser();
+            parser.oninstruction = function instructionReceived(opcode, args) {
+                if (tunnel.oninstruction)
+                    tunnel.oninstruction(opcode, args);
+            };
+
+            // Determine the duration of the recording before requesting any
+            // chunks
+            request(url, function summaryReceived(current) {
+
+                if (current.readyState !== 4)
+                    return;
+
+                xhr = null;
+                duration = JSON.parse(current.responseText).duration;
+                tunnel.setState(Guacamole.Tunnel.State.OPEN);
+
+                if (tunnel.onduration)
+                    tunnel.onduration(duration);
+
+                loadNextChunk();
+
+            });
+
+        };
+
+        this.disconnect = function disconnect() {
+
+            // Abort and dispose of XHR if a request is in progress
+            if (xhr) {
+                xhr.abort();
+                xhr = null;
+            }
+
+            tunnel.setState(Guacamole.Tunnel.State.CLOSED);
+
+        };
+
+    };
+
+    ChunkedRecordingTunnel.prototype = new Guacamole.Tunnel();
 
     /**
      * The element representing the session recording player.
@@ -82,9 +356,9 @@
      * The tunnel which should be used to download the Guacamole session
      * recording.
      *
-     * @type Guacamole.Tunnel
+     * @type ChunkedRecordingTunnel
      */
-    var tunnel = new Guacamole.StaticHTTPTunnel(RECORDING_URL);
+    var tunnel = new ChunkedRecordingTunnel(RECORDING_URL);
 
     /**
      * Guacamole.SessionRecording instance to be used to playback the session
@@ -101,6 +375,15 @@
      */
     var recordingDisplay = recording.getDisplay();
 
+    /**
+     * The position of the seek which is waiting for the recording to be
+     * downloaded up to that position, in milliseconds, or null if no such
+     * seek is pending.
+     *
+     * @type Number
+     */
+    var pendingSeek = null;
+
     /**
      * Converts the given number to a string, adding leading zeroes as necessary
      * to reach a specific minimum length.
@@ -179,6 +462,7 @@
 
     // Resume playback when cancel button is clicked
     cancelSeek.onclick = function cancelSeekOperation(e) {
+        pendingSeek = null;
         recording.play();
         player.className = '';
         e.stopPropagation();
@@ -196,32 +480,63 @@
 
     };
 
-    // Update slider and status when playback position changes
+    /**
+     * Seeks to the given position within the recording, which must already
+     * have been downloaded.
+     *
+     * @param {Number} millis
+     *     The position to seek to, in milliseconds.
+     */
+    var seekTo = function seekTo(millis) {
+        recording.seek(millis, function seekComplete() {
+
+            // Seek has completed
+            player.className = '';
+
+        });
+    };
+
+    // Update slider and status when playback position changes, keeping the
+    // recording downloaded a little beyond the current position
     recording.onseek = function positionChanged(millis) {
         position.textContent = formatTime(millis);
         positionSlider.value = millis;
+        tunnel.loadUntil(millis + LOOKAHEAD_DURATION);
     };
 
-    // Update slider and status when duration changes
-    recording.onprogress = function durationChanged(millis) {
+    // Update slider and status once the full duration is known
+    tunnel.onduration = function durationKnown(millis) {
         duration.textContent = formatTime(millis);
         positionSlider.max = millis;
     };
 
+    // Perform any pending seek once enough of the recording is available
+    recording.onprogress = function downloadProgressed(millis) {
+        if (pendingSeek !== null && (millis >= pendingSeek
+                    || millis >= tunnel.getDuration())) {
+            seekTo(pendingSeek);
+            pendingSeek = null;
+        }
+    };
+
     // Seek within recording if slider is moved
     positionSlider.onchange = function sliderPositionChanged() {
 
-        // Request seek
-        recording.seek(positionSlider.value, function seekComplete() {
-
-            // Seek has completed
-            player.className = '';
-
-        });
+        var millis = parseInt(positionSlider.value);
 
         // Seek is in progress
         player.className = 'seeking';
 
+        // Seek immediately if the requested position is already available,
+        // otherwise download only as much as that position requires
+        pendingSeek = null;
+        if (millis <= recording.getDuration())
+            seekTo(millis);
+        else {
+            pendingSeek = millis;
+            tunnel.loadUntil(millis + LOOKAHEAD_DURATION);
+        }
+
     };
 
 })();
@@ -21,6 +21,7 @@ package org.apache.guacamole.auth.jdbc;
 
 import com.google.inject.Injector;
 import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionRecordWriter;
 import org.apache.guacamole.net.auth.AbstractAuthenticationProvider;
 import org.apache.guacamole.net.auth.Credentials;
 import org.apache.guacamole.net.auth.UserContext;
@@ -42,6 +43,18 @@ public abstract class InjectedAuthenticationProvider extends AbstractAuthenticat
      */
     private final AuthenticationProviderService authProviderService;
 
+    /**
+     * The service writing connection history records, which must be flushed
+     * when this AuthenticationProvider is shut down.
+     */
+    private final ConnectionRecordWriter connectionRecordWriter;
+
+    /**
+     * The service exposing metrics via JMX, which must stop doing so when
+     * this AuthenticationProvider is shut down.
+     */
+    private final JDBCManagementService managementService;
+
     /**
      * Creates a new AuthenticationProvider that delegates all calls to an
      * underlying AuthenticationProviderService. The behavior of the
@@ -67,6 +80,8 @@ public abstract class InjectedAuthenticationProvider extends AbstractAuthenticat
 
         Injector injector = injectorProvider.get();
         authProviderService = injector.getInstance(authProviderServiceClass);
+        connectionRecordWriter = injector.getInstance(ConnectionRecordWriter.class);
+        managementService = injector.getInstance(JDBCManagementService.class);
 
     }
 
@@ -90,4 +105,10 @@ public abstract class InjectedAuthenticationProvider extends AbstractAuthenticat
                 authenticatedUser, credentials);
     }
 
+    @Override
+    public void shutdown() {
+        connectionRecordWriter.shutdown();
+        managementService.shutdown();
+    }
+
 }
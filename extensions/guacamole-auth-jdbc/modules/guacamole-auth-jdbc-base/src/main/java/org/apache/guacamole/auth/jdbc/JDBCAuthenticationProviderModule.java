@@ -20,6 +20,10 @@
 package org.apache.guacamole.auth.jdbc;
 
 import com.google.inject.Scopes;
+import org.apache.guacamole.auth.jdbc.base.ChangeTracker;
+import org.apache.guacamole.auth.jdbc.base.ChangeTrackingInterceptor;
+import org.apache.guacamole.auth.jdbc.datasource.ReplicaRoutingInterceptor;
+import org.apache.guacamole.auth.jdbc.datasource.RoutingDataSourceProvider;
 import org.apache.guacamole.auth.jdbc.user.ModeledUserContext;
 import org.apache.guacamole.auth.jdbc.connectiongroup.RootConnectionGroup;
 import org.apache.guacamole.auth.jdbc.connectiongroup.ModeledConnectionGroup;
@@ -27,12 +31,14 @@ import org.apache.guacamole.auth.jdbc.connectiongroup.ConnectionGroupDirectory;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionDirectory;
 import org.apache.guacamole.auth.jdbc.connection.ModeledGuacamoleConfiguration;
 import org.apache.guacamole.auth.jdbc.connection.ModeledConnection;
+import org.apache.guacamole.auth.jdbc.permission.PermissionSnapshotService;
 import org.apache.guacamole.auth.jdbc.permission.SystemPermissionSet;
 import org.apache.guacamole.auth.jdbc.user.ModeledUser;
 import org.apache.guacamole.auth.jdbc.user.UserDirectory;
 import org.apache.guacamole.auth.jdbc.connectiongroup.ConnectionGroupMapper;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionMapper;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionRecordMapper;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionRecordWriter;
 import org.apache.guacamole.auth.jdbc.permission.SystemPermissionMapper;
 import org.apache.guacamole.auth.jdbc.user.UserMapper;
 import org.apache.guacamole.auth.jdbc.connectiongroup.ConnectionGroupService;
@@ -61,6 +67,9 @@ import org.apache.guacamole.auth.jdbc.activeconnection.ActiveConnectionService;
 import org.apache.guacamole.auth.jdbc.activeconnection.TrackedActiveConnection;
 import org.apache.guacamole.auth.jdbc.base.EntityMapper;
 import org.apache.guacamole.auth.jdbc.base.EntityService;
+import org.apache.guacamole.auth.jdbc.base.GroupClosureService;
+import org.apache.guacamole.auth.jdbc.base.SearchIndexMapper;
+import org.apache.guacamole.auth.jdbc.base.SearchIndexService;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionParameterMapper;
 import org.apache.guacamole.auth.jdbc.permission.SharingProfilePermissionMapper;
 import org.apache.guacamole.auth.jdbc.permission.SharingProfilePermissionService;
@@ -79,6 +88,7 @@ import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileDirectory;
 import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileMapper;
 import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileParameterMapper;
 import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileService;
+import org.apache.guacamole.auth.jdbc.tunnel.ConnectionCache;
 import org.apache.guacamole.auth.jdbc.tunnel.RestrictedGuacamoleTunnelService;
 import org.apache.guacamole.auth.jdbc.user.PasswordRecordMapper;
 import org.apache.guacamole.auth.jdbc.user.UserRecordMapper;
@@ -90,7 +100,6 @@ import org.apache.guacamole.auth.jdbc.usergroup.UserGroupMemberUserMapper;
 import org.apache.guacamole.auth.jdbc.usergroup.UserGroupParentUserGroupMapper;
 import org.apache.guacamole.auth.jdbc.usergroup.UserGroupService;
 import org.mybatis.guice.MyBatisModule;
-import org.mybatis.guice.datasource.builtin.PooledDataSourceProvider;
 import org.apache.guacamole.auth.jdbc.user.UserParentUserGroupMapper;
 
 /**
@@ -121,7 +130,7 @@ public class JDBCAuthenticationProviderModule extends MyBatisModule {
     protected void initialize() {
         
         // Datasource
-        bindDataSourceProviderType(PooledDataSourceProvider.class);
+        bindDataSourceProviderType(RoutingDataSourceProvider.class);
         
         // Transaction factory
         bindTransactionFactoryType(JdbcTransactionFactory.class);
@@ -135,6 +144,7 @@ public class JDBCAuthenticationProviderModule extends MyBatisModule {
         addMapperClass(ConnectionParameterMapper.class);
         addMapperClass(EntityMapper.class);
         addMapperClass(PasswordRecordMapper.class);
+        addMapperClass(SearchIndexMapper.class);
         addMapperClass(SystemPermissionMapper.class);
         addMapperClass(SharingProfileMapper.class);
         addMapperClass(SharingProfileParameterMapper.class);
@@ -149,6 +159,12 @@ public class JDBCAuthenticationProviderModule extends MyBatisModule {
         addMapperClass(UserPermissionMapper.class);
         addMapperClass(UserRecordMapper.class);
         
+        // Track changes made through MyBatis
+        addInterceptorClass(ChangeTrackingInterceptor.class);
+
+        // Send queries outside of transactions to the read replica, if any
+        addInterceptorClass(ReplicaRoutingInterceptor.class);
+
         // Bind core implementations of guacamole-ext classes
         bind(ActiveConnectionDirectory.class);
         bind(ActiveConnectionPermissionSet.class);
@@ -177,16 +193,23 @@ public class JDBCAuthenticationProviderModule extends MyBatisModule {
         // Bind services
         bind(ActiveConnectionService.class);
         bind(ActiveConnectionPermissionService.class);
+        bind(ChangeTracker.class);
+        bind(ConnectionCache.class);
         bind(ConnectionGroupPermissionService.class);
         bind(ConnectionGroupService.class);
         bind(ConnectionPermissionService.class);
+        bind(ConnectionRecordWriter.class);
         bind(ConnectionSharingService.class);
         bind(ConnectionService.class);
         bind(EntityService.class);
+        bind(GroupClosureService.class);
+        bind(JDBCManagementService.class);
         bind(GuacamoleTunnelService.class).to(RestrictedGuacamoleTunnelService.class);
         bind(PasswordEncryptionService.class).to(SHA256PasswordEncryptionService.class);
         bind(PasswordPolicyService.class);
+        bind(PermissionSnapshotService.class);
         bind(SaltService.class).to(SecureRandomSaltService.class);
+        bind(SearchIndexService.class);
         bind(SharedConnectionMap.class).to(HashSharedConnectionMap.class).in(Scopes.SINGLETON);
         bind(ShareKeyGenerator.class).to(SecureRandomShareKeyGenerator.class).in(Scopes.SINGLETON);
         bind(SharingProfilePermissionService.class);
@@ -55,6 +55,180 @@ public abstract class JDBCEnvironment extends LocalEnvironment {
      */
     public abstract boolean isUserRequired() throws GuacamoleException;
 
+    /**
+     * Returns whether changes made to the database through this instance of
+     * the web application should be tracked, allowing clients to be told
+     * cheaply that data is unchanged. This must only be enabled if this is
+     * the only instance of the web application using the database and the
+     * database is not modified by any other process, as changes made
+     * elsewhere are not detected.
+     *
+     * @return
+     *     true if changes to the database should be tracked, false
+     *     otherwise.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract boolean isChangeTrackingEnabled() throws GuacamoleException;
+
+    /**
+     * Returns the maximum amount of time that a snapshot of a user's
+     * effective permissions may be used before being rebuilt, in seconds.
+     * Snapshots are always rebuilt when permissions or group memberships are
+     * changed through this instance of the web application, thus this limit
+     * only bounds how long changes made elsewhere, such as by other instances
+     * sharing the same database, may go unnoticed. Zero disables snapshots
+     * entirely, such that every permission check queries the database.
+     *
+     * @return
+     *     The maximum lifetime of a permission snapshot, in seconds, or zero
+     *     if permission snapshots are disabled.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract int getPermissionSnapshotLifetime() throws GuacamoleException;
+
+    /**
+     * Returns whether effective group memberships should be read from the
+     * guacamole_user_group_closure table, which is maintained by the web
+     * application as memberships change, rather than being computed by
+     * traversing group memberships with each query. The table is rebuilt the
+     * first time it is used after the web application starts, thus changes
+     * to group memberships made outside of Guacamole are only taken into
+     * account after a restart.
+     *
+     * @return
+     *     true if the group membership closure table should be used, false
+     *     otherwise.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract boolean isGroupClosureEnabled() throws GuacamoleException;
+
+    /**
+     * Returns the maximum number of connection history records which may be
+     * queued for writing in the background. History records are written in
+     * batches by a dedicated thread, and are written directly by the thread
+     * closing the connection only if the queue is full. If zero, history
+     * records are always written directly.
+     *
+     * @return
+     *     The maximum number of queued connection history records, or zero if
+     *     history records should not be queued.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract int getHistoryQueueSize() throws GuacamoleException;
+
+    /**
+     * Returns the maximum amount of time that the parameters of connections
+     * and sharing profiles, and the members of balancing groups, may be cached
+     * for the sake of establishing connections, in seconds. Cached data is
+     * discarded immediately after any change made through this instance of the
+     * web application, thus this only limits how long changes made by other
+     * instances or processes may go unnoticed. If zero, this data is never
+     * cached.
+     *
+     * @return
+     *     The maximum lifetime of cached connection data, in seconds, or zero
+     *     if connection data should not be cached.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract int getConnectionCacheLifetime() throws GuacamoleException;
+
+    /**
+     * Returns the JDBC URL of a read-only replica of the database, if any.
+     * If specified, queries which are not part of a transaction are sent to
+     * the replica, unless data has recently been changed through this
+     * instance of the web application. The replica is accessed using the same
+     * driver and credentials as the primary database.
+     *
+     * @return
+     *     The JDBC URL of the read-only replica, or null if all queries should
+     *     be sent to the primary database.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract String getReplicaURL() throws GuacamoleException;
+
+    /**
+     * Returns the amount of time that all queries should be sent to the
+     * primary database after data is changed through this instance of the web
+     * application, in seconds, such that changes are read back consistently
+     * despite replication lag. This value is only relevant if a read-only
+     * replica has been specified.
+     *
+     * @return
+     *     The amount of time after each change that queries should not be sent
+     *     to the read-only replica, in seconds.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract int getReplicaLag() throws GuacamoleException;
+
+    /**
+     * Returns the maximum number of connections to the database which may
+     * be open and in use at any one time. Requests for a connection beyond
+     * this limit must wait for a connection to be returned to the pool.
+     *
+     * @return
+     *     The maximum number of active connections within the pool.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract int getMaxPoolConnections() throws GuacamoleException;
+
+    /**
+     * Returns the maximum number of unused connections to the database which
+     * should be kept open for future use. Connections returned to the pool
+     * beyond this limit are closed.
+     *
+     * @return
+     *     The maximum number of idle connections within the pool.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract int getMaxIdlePoolConnections() throws GuacamoleException;
+
+    /**
+     * Returns the maximum amount of time to wait for a connection to the
+     * database to become available when all connections within the pool are
+     * in use, in milliseconds. If zero, requests wait indefinitely.
+     *
+     * @return
+     *     The maximum amount of time to wait for a connection from the pool,
+     *     in milliseconds, or zero to wait indefinitely.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract int getPoolCheckoutTimeout() throws GuacamoleException;
+
+    /**
+     * Returns the number of prepared statements which the JDBC driver should
+     * cache for each connection, preparing those statements on the database
+     * server such that they need not be parsed again. If zero, the default
+     * behavior of the JDBC driver is used.
+     *
+     * @return
+     *     The number of prepared statements to cache per connection, or zero
+     *     to use the default behavior of the JDBC driver.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the property.
+     */
+    public abstract int getStatementCacheSize() throws GuacamoleException;
+
     /**
      * Returns the maximum number of concurrent connections to allow overall.
      * As this limit applies globally (independent of which connection is in
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service which exposes the internal state of the JDBC authentication
+ * provider as MBeans of the platform MBean server, such that it can be
+ * monitored via JMX. All MBeans are registered within the
+ * "org.apache.guacamole.auth.jdbc" domain and are distinguished by type and
+ * by the JDBCEnvironment of the database in use, allowing multiple database
+ * extensions to be installed at once.
+ */
+@Singleton
+public class JDBCManagementService {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(JDBCManagementService.class);
+
+    /**
+     * The domain of all MBeans registered by this service.
+     */
+    private static final String DOMAIN = "org.apache.guacamole.auth.jdbc";
+
+    /**
+     * The environment of the Guacamole server.
+     */
+    @Inject
+    private JDBCEnvironment environment;
+
+    /**
+     * The names of all MBeans registered by this service and not yet
+     * unregistered.
+     */
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+    /**
+     * Registers the given object as an MBean of the given type. If
+     * registration fails, a warning is logged, but the failure is otherwise
+     * ignored.
+     *
+     * @param type
+     *     The type of the MBean, such as the simple name of the class being
+     *     exposed.
+     *
+     * @param mbean
+     *     The object to register, which must be a compliant MBean.
+     */
+    public void register(String type, Object mbean) {
+        register(type, null, mbean);
+    }
+
+    /**
+     * Registers the given object as an MBean of the given type, distinguished
+     * from other MBeans of the same type by the given name. If registration
+     * fails, a warning is logged, but the failure is otherwise ignored.
+     *
+     * @param type
+     *     The type of the MBean, such as the simple name of the class being
+     *     exposed.
+     *
+     * @param name
+     *     The name distinguishing the MBean from other MBeans of the same
+     *     type, or null if there is only one MBean of the given type.
+     *
+     * @param mbean
+     *     The object to register, which must be a compliant MBean.
+     */
+    public synchronized void register(String type, String name, Object mbean) {
+
+        try {
+
+            String objectName = DOMAIN + ":type=" + type
+                    + ",environment=" + environment.getClass().getSimpleName();
+
+            if (name != null)
+                objectName += ",name=" + name;
+
+            ObjectName registeredName = new ObjectName(objectName);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, registeredName);
+            registered.add(registeredName);
+
+        }
+        catch (JMException e) {
+            logger.warn("Metrics for \"{}\" will not be available: {}",
+                    type, e.getMessage());
+            logger.debug("Unable to register MBean.", e);
+        }
+
+    }
+
+    /**
+     * Unregisters all MBeans registered by this service. This function
+     * should be invoked when the web application shuts down, such that the
+     * MBeans do not outlive the extension.
+     */
+    public synchronized void shutdown() {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            }
+            catch (JMException e) {
+                logger.debug("Unable to unregister MBean \"{}\".", name, e);
+            }
+        }
+
+        registered.clear();
+
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.auth.jdbc.base;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.JDBCEnvironment;
+
+/**
+ * Tracks changes to data exposed by this extension, such as changes to the
+ * database or to the set of active connections, producing a version stamp
+ * which changes whenever any such data may have changed. Tracking only takes
+ * place if enabled within guacamole.properties, as changes made by other
+ * instances of the web application cannot be detected.
+ */
+@Singleton
+public class ChangeTracker {
+
+    /**
+     * Random value unique to this instance of the extension, included in
+     * every version stamp such that stamps from before a restart are never
+     * mistaken for current stamps.
+     */
+    private final String instance =
+            Long.toHexString(new SecureRandom().nextLong());
+
+    /**
+     * The number of changes made so far.
+     */
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * The number of changes made so far which may have affected the
+     * permissions of any user, including changes to group membership.
+     * Unlike the overall version stamp, this is always maintained, as it
+     * determines whether cached permissions remain valid.
+     */
+    private final AtomicLong permissionChanges = new AtomicLong();
+
+    /**
+     * The value of System.nanoTime() at the time of the most recent change
+     * which may have affected permissions. This is only meaningful if
+     * permissionChanges is non-zero.
+     */
+    private volatile long lastPermissionChange;
+
+    /**
+     * Whether changes are being tracked.
+     */
+    private final boolean enabled;
+
+    /**
+     * Creates a new ChangeTracker which tracks changes only if enabled within
+     * guacamole.properties.
+     *
+     * @param environment
+     *     The environment of the Guacamole server.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read.
+     */
+    @Inject
+    public ChangeTracker(JDBCEnvironment environment) throws GuacamoleException {
+        enabled = environment.isChangeTrackingEnabled();
+    }
+
+    /**
+     * Records that data may have changed.
+     */
+    public void changed() {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Records that data which may affect the permissions of any user may have
+     * changed. This implies a change to data in general.
+     */
+    public void permissionsChanged() {
+        lastPermissionChange = System.nanoTime();
+        permissionChanges.incrementAndGet();
+        changed();
+    }
+
+    /**
+     * Returns whether any change which may have affected permissions, and
+     * thus any change to data other than history records, was made within
+     * the given amount of time.
+     *
+     * @param duration
+     *     The amount of time to check, in milliseconds.
+     *
+     * @return
+     *     true if data other than history records may have changed within the
+     *     given amount of time, false otherwise.
+     */
+    public boolean isPermissionChangeRecent(long duration) {
+        return permissionChanges.get() != 0
+                && System.nanoTime() - lastPermissionChange
+                    < TimeUnit.MILLISECONDS.toNanos(duration);
+    }
+
+    /**
+     * Returns a version number which changes whenever data which may affect
+     * the permissions of any user may have changed. As only history records
+     * are considered incapable of affecting permissions, this version also
+     * reflects changes to any other data, such as connection parameters.
+     * Unlike getVersion(), this
+     * version is maintained regardless of whether change tracking is enabled,
+     * but is only meaningful within this instance of the extension.
+     *
+     * @return
+     *     The current permission version.
+     */
+    public long getPermissionVersion() {
+        return permissionChanges.get();
+    }
+
+    /**
+     * Returns an opaque version stamp which changes whenever data may have
+     * changed.
+     *
+     * @return
+     *     The current version stamp, or null if changes are not being
+     *     tracked.
+     */
+    public String getVersion() {
+
+        if (!enabled)
+            return null;
+
+        return instance + "-" + changes.get();
+
+    }
+
+}
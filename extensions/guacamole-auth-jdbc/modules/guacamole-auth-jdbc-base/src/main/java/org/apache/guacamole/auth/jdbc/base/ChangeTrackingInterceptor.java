@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.auth.jdbc.base;
+
+import com.google.inject.Inject;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Properties;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionRecordMapper;
+import org.apache.guacamole.auth.jdbc.user.PasswordRecordMapper;
+import org.apache.guacamole.auth.jdbc.user.UserRecordMapper;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+
+/**
+ * MyBatis interceptor which notifies the ChangeTracker of every statement
+ * which modifies the database. As a change is not visible to other
+ * transactions until committed, the ChangeTracker is notified both when the
+ * statement executes and when the transaction containing it is committed or
+ * rolled back, such that no version stamp can be associated with data read
+ * before the change became visible. Statements which may affect permissions
+ * or group membership are additionally reported as such, invalidating any
+ * cached permissions.
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "update",
+            args = { MappedStatement.class, Object.class }),
+    @Signature(type = Executor.class, method = "commit",
+            args = { boolean.class }),
+    @Signature(type = Executor.class, method = "rollback",
+            args = { boolean.class })
+})
+public class ChangeTrackingInterceptor implements Interceptor {
+
+    /**
+     * The names of all mappers whose statements only ever record history,
+     * and thus never affect permissions. These statements are executed far
+     * more frequently than any other modification.
+     */
+    private static final Collection<String> HISTORY_MAPPERS = Arrays.asList(
+        ConnectionRecordMapper.class.getName(),
+        PasswordRecordMapper.class.getName(),
+        UserRecordMapper.class.getName()
+    );
+
+    /**
+     * Whether the transaction associated with the current thread has
+     * modified the database. If the database has been modified, this is
+     * Boolean.TRUE if permissions may have been affected, and Boolean.FALSE
+     * otherwise. If the database has not been modified, this is null.
+     */
+    private final ThreadLocal<Boolean> modified = new ThreadLocal<Boolean>();
+
+    /**
+     * The tracker to notify of changes.
+     */
+    @Inject
+    private ChangeTracker changeTracker;
+
+    /**
+     * Returns whether the given statement may affect the permissions of any
+     * user, including through changes to group membership or the deletion of
+     * objects.
+     *
+     * @param statement
+     *     The statement which modifies the database.
+     *
+     * @return
+     *     true if the given statement may affect permissions, false
+     *     otherwise.
+     */
+    private static boolean affectsPermissions(MappedStatement statement) {
+
+        // Statement IDs are the fully-qualified mapper name followed by the
+        // name of the mapper method
+        String id = statement.getId();
+        int separator = id.lastIndexOf('.');
+        return separator == -1
+                || !HISTORY_MAPPERS.contains(id.substring(0, separator));
+
+    }
+
+    /**
+     * Notifies the ChangeTracker of a modification to the database.
+     *
+     * @param permissions
+     *     Whether the modification may have affected permissions.
+     */
+    private void notifyChanged(boolean permissions) {
+        if (permissions)
+            changeTracker.permissionsChanged();
+        else
+            changeTracker.changed();
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+
+        // Record modifications as they are made
+        if (invocation.getMethod().getName().equals("update")) {
+
+            boolean permissions = affectsPermissions(
+                    (MappedStatement) invocation.getArgs()[0]);
+
+            if (permissions || modified.get() == null)
+                modified.set(permissions);
+
+            notifyChanged(permissions);
+            return invocation.proceed();
+
+        }
+
+        // Record modifications again once they have become visible
+        try {
+            return invocation.proceed();
+        }
+        finally {
+            Boolean permissions = modified.get();
+            if (permissions != null) {
+                modified.remove();
+                notifyChanged(permissions);
+            }
+        }
+
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        if (target instanceof Executor)
+            return Plugin.wrap(target, this);
+        return target;
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        // No properties
+    }
+
+}
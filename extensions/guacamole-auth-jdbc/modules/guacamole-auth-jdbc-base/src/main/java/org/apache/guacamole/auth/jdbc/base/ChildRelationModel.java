@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.auth.jdbc.base;
+
+/**
+ * The relationship between an object and its parent, such as a connection and
+ * the connection group containing it, or a sharing profile and its primary
+ * connection, as represented in the database.
+ */
+public class ChildRelationModel {
+
+    /**
+     * The identifier of the child object.
+     */
+    private String identifier;
+
+    /**
+     * The identifier of the parent object, or null if the parent is the root
+     * connection group.
+     */
+    private String parentIdentifier;
+
+    /**
+     * Returns the identifier of the child object.
+     *
+     * @return
+     *     The identifier of the child object.
+     */
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * Sets the identifier of the child object.
+     *
+     * @param identifier
+     *     The identifier of the child object.
+     */
+    public void setIdentifier(String identifier) {
+        this.identifier = identifier;
+    }
+
+    /**
+     * Returns the identifier of the parent object, or null if the parent is
+     * the root connection group.
+     *
+     * @return
+     *     The identifier of the parent object, or null if the parent is the
+     *     root connection group.
+     */
+    public String getParentIdentifier() {
+        return parentIdentifier;
+    }
+
+    /**
+     * Sets the identifier of the parent object.
+     *
+     * @param parentIdentifier
+     *     The identifier of the parent object, or null if the parent is the
+     *     root connection group.
+     */
+    public void setParentIdentifier(String parentIdentifier) {
+        this.parentIdentifier = parentIdentifier;
+    }
+
+}
@@ -77,4 +77,88 @@ public interface EntityMapper {
             @Param("effectiveGroups") Collection<String> effectiveGroups,
             @Param("recursive") boolean recursive);
 
+    /**
+     * Returns the set of all group identifiers of which the given entity is a
+     * member, taking into account the given collection of known group
+     * memberships which are not necessarily defined within the database. Unlike
+     * selectEffectiveGroupIdentifiers(), inherited memberships are read from
+     * the guacamole_user_group_closure table in a single pass, and thus that
+     * table must be up-to-date.
+     *
+     * @param entity
+     *     The entity whose effective groups should be returned.
+     *
+     * @param effectiveGroups
+     *     The identifiers of any known effective groups that should be taken
+     *     into account, such as those defined externally to the database.
+     *
+     * @return
+     *     The set of identifiers of all groups that the given entity is a
+     *     member of, including those where membership is inherited through
+     *     membership in other groups.
+     */
+    Set<String> selectClosureGroupIdentifiers(@Param("entity") EntityModel entity,
+            @Param("effectiveGroups") Collection<String> effectiveGroups);
+
+    /**
+     * Locks the single row of the guacamole_user_group_closure_lock table
+     * until the current transaction ends, blocking until any other
+     * transaction holding that lock has ended. Every transaction which
+     * modifies the guacamole_user_group_closure table must first acquire
+     * this lock.
+     *
+     * @return
+     *     The ID of the locked row, or null if the row is missing and thus
+     *     no lock could be acquired.
+     */
+    Integer lockGroupClosure();
+
+    /**
+     * Deletes the rows of the guacamole_user_group_closure table describing
+     * the effective groups of the given users, or all rows if no users are
+     * given.
+     *
+     * @param users
+     *     The usernames of the users whose rows should be deleted, or null if
+     *     all rows should be deleted. If non-null, this collection must not be
+     *     empty.
+     *
+     * @return
+     *     The number of rows deleted.
+     */
+    int deleteGroupClosure(@Param("users") Collection<String> users);
+
+    /**
+     * Inserts rows into the guacamole_user_group_closure table describing the
+     * direct memberships of the given users within enabled groups, or of all
+     * entities if no users are given. The rows being inserted must not
+     * already exist.
+     *
+     * @param users
+     *     The usernames of the users whose rows should be inserted, or null if
+     *     rows should be inserted for all entities. If non-null, this
+     *     collection must not be empty.
+     *
+     * @return
+     *     The number of rows inserted.
+     */
+    int insertDirectGroupClosure(@Param("users") Collection<String> users);
+
+    /**
+     * Inserts rows into the guacamole_user_group_closure table describing
+     * memberships which are inherited through exactly one more level of
+     * enabled groups than those already present, for the given users or for
+     * all entities if no users are given. Repeating this until no rows are
+     * inserted completes the closure.
+     *
+     * @param users
+     *     The usernames of the users whose rows should be inserted, or null if
+     *     rows should be inserted for all entities. If non-null, this
+     *     collection must not be empty.
+     *
+     * @return
+     *     The number of rows inserted.
+     */
+    int insertIndirectGroupClosure(@Param("users") Collection<String> users);
+
 }
@@ -44,6 +44,12 @@ public class EntityService {
     @Inject
     private EntityMapper entityMapper;
 
+    /**
+     * Service which maintains the group membership closure table.
+     */
+    @Inject
+    private GroupClosureService groupClosureService;
+
     /**
      * The current SQL session used by MyBatis.
      */
@@ -76,6 +82,13 @@ public class EntityService {
     public Set<String> retrieveEffectiveGroups(ModeledPermissions<? extends EntityModel> entity,
             Collection<String> effectiveGroups) {
 
+        // Read all effective groups in a single pass if the closure table is
+        // in use
+        if (groupClosureService.isEnabled()) {
+            groupClosureService.ensureBuilt();
+            return entityMapper.selectClosureGroupIdentifiers(entity.getModel(), effectiveGroups);
+        }
+
         // Retrieve the effective user groups of the given entity, recursively if possible
         boolean recursive = environment.isRecursiveQuerySupported(sqlSession);
         Set<String> identifiers = entityMapper.selectEffectiveGroupIdentifiers(entity.getModel(), effectiveGroups, recursive);
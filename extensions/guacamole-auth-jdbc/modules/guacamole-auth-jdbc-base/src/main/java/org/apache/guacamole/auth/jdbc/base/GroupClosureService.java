@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.base;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Collection;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.JDBCEnvironment;
+import org.mybatis.guice.transactional.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service which maintains the guacamole_user_group_closure table, which
+ * contains one row for every enabled group of which each entity is
+ * effectively a member, whether directly or through other groups. If use of
+ * the table is disabled within guacamole.properties, all functions of this
+ * service do nothing.
+ *
+ * <p>Every transaction which modifies the closure table, or which modifies
+ * group memberships in a way that requires the closure table to be updated,
+ * first locks the single row of the guacamole_user_group_closure_lock table
+ * via lock(). Concurrent updates, including those made by other instances of
+ * the web application sharing the same database, are thus applied one at a
+ * time, and each sees the memberships committed by the last.
+ */
+@Singleton
+public class GroupClosureService {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(GroupClosureService.class);
+
+    /**
+     * Mapper for entities and their effective groups.
+     */
+    @Inject
+    private EntityMapper entityMapper;
+
+    /**
+     * Whether the group membership closure table is in use.
+     */
+    private final boolean enabled;
+
+    /**
+     * Whether the closure table has been rebuilt since this instance of the
+     * web application started. Until it is rebuilt, the table may not
+     * reflect changes made outside of this instance.
+     */
+    private volatile boolean built = false;
+
+    /**
+     * Creates a new GroupClosureService which maintains the closure table
+     * only if enabled within guacamole.properties.
+     *
+     * @param environment
+     *     The environment of the Guacamole server.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read.
+     */
+    @Inject
+    public GroupClosureService(JDBCEnvironment environment)
+            throws GuacamoleException {
+        enabled = environment.isGroupClosureEnabled();
+    }
+
+    /**
+     * Returns whether the group membership closure table is in use.
+     *
+     * @return
+     *     true if effective groups should be read from the closure table,
+     *     false otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Locks the closure table until the current transaction ends, blocking
+     * until any other transaction holding the lock has ended. This function
+     * must be invoked within a transaction, and should be invoked before that
+     * transaction makes any change to group memberships, such that the lock
+     * is always acquired before any rows it protects.
+     */
+    public void lock() {
+
+        if (!enabled)
+            return;
+
+        if (entityMapper.lockGroupClosure() == null)
+            logger.warn("The guacamole_user_group_closure_lock table is empty. "
+                    + "Concurrent updates to the group membership closure "
+                    + "will not be serialized.");
+
+    }
+
+    /**
+     * Replaces the rows of the closure table for the given users, or for all
+     * entities, with rows computed from the current group memberships. Each
+     * pass extends the closure by one level of group nesting.
+     *
+     * @param users
+     *     The usernames of the users whose rows should be replaced, or null
+     *     to replace all rows. If non-null, this collection must not be
+     *     empty.
+     */
+    @Transactional
+    protected void fill(Collection<String> users) {
+
+        lock();
+        entityMapper.deleteGroupClosure(users);
+
+        int inserted = entityMapper.insertDirectGroupClosure(users);
+        while (inserted > 0)
+            inserted = entityMapper.insertIndirectGroupClosure(users);
+
+    }
+
+    /**
+     * Rebuilds the closure table if it has not yet been rebuilt since this
+     * instance of the web application started. This function must be
+     * invoked prior to reading the closure table.
+     */
+    public void ensureBuilt() {
+
+        if (!enabled || built)
+            return;
+
+        synchronized (this) {
+
+            if (built)
+                return;
+
+            long start = System.currentTimeMillis();
+            fill(null);
+            built = true;
+
+            logger.info("Group membership closure rebuilt in {} ms.",
+                    System.currentTimeMillis() - start);
+
+        }
+
+    }
+
+    /**
+     * Updates the closure table to reflect changes to the group memberships
+     * of the given users. The groups of which those users are members must
+     * not themselves have changed.
+     *
+     * @param users
+     *     The usernames of the users whose memberships have changed.
+     */
+    @Transactional
+    public void updateUsers(Collection<String> users) {
+
+        if (!enabled || users.isEmpty())
+            return;
+
+        ensureBuilt();
+        fill(users);
+
+    }
+
+    /**
+     * Rebuilds the closure table in its entirety to reflect changes which
+     * may affect the effective groups of any number of entities, such as
+     * changes to the memberships of groups within other groups, or groups
+     * being disabled, enabled or deleted. Renaming a group requires no
+     * rebuild, as the closure table refers to groups only by ID.
+     */
+    @Transactional
+    public void rebuild() {
+
+        if (!enabled)
+            return;
+
+        ensureBuilt();
+        fill(null);
+
+    }
+
+}
@@ -70,4 +70,15 @@ public class ModeledActivityRecord implements ActivityRecord {
         return false;
     }
 
+    @Override
+    public String getIdentifier() {
+
+        Integer recordID = model.getRecordID();
+        if (recordID == null)
+            return null;
+
+        return recordID.toString();
+
+    }
+
 }
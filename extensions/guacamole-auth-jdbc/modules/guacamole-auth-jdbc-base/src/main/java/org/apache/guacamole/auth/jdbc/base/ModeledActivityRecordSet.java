@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import org.apache.guacamole.GuacamoleClientException;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.net.auth.ActivityRecord;
 import org.apache.guacamole.net.auth.ActivityRecordSet;
@@ -64,6 +65,13 @@ public abstract class ModeledActivityRecordSet<RecordType extends ActivityRecord
     private final List<ActivityRecordSortPredicate> sortPredicates =
             new ArrayList<ActivityRecordSortPredicate>();
 
+    /**
+     * The ID of the record after which returned records should begin, in
+     * the order defined by the sort predicates and by record ID, or null if
+     * records should begin with the first matching record.
+     */
+    private Integer afterRecordID = null;
+
     /**
      * Retrieves the history records matching the given criteria. Retrieves up
      * to <code>limit</code> history records matching the given terms and sorted
@@ -84,6 +92,11 @@ public abstract class ModeledActivityRecordSet<RecordType extends ActivityRecord
      * @param limit
      *     The maximum number of records that should be returned.
      *
+     * @param afterRecordID
+     *     The ID of the record after which returned records should begin, in
+     *     the order defined by the given sort predicates and by record ID, or
+     *     null if records should begin with the first matching record.
+     *
      * @return
      *     A collection of all history records matching the given criteria.
      *
@@ -94,13 +107,13 @@ public abstract class ModeledActivityRecordSet<RecordType extends ActivityRecord
             AuthenticatedUser user,
             Set<ActivityRecordSearchTerm> requiredContents,
             List<ActivityRecordSortPredicate> sortPredicates,
-            int limit) throws GuacamoleException;
+            int limit, Integer afterRecordID) throws GuacamoleException;
 
     @Override
     public Collection<RecordType> asCollection()
             throws GuacamoleException {
         return retrieveHistory(getCurrentUser(), requiredContents,
-                sortPredicates, limit);
+                sortPredicates, limit, afterRecordID);
     }
 
     @Override
@@ -129,4 +142,20 @@ public abstract class ModeledActivityRecordSet<RecordType extends ActivityRecord
 
     }
 
+    @Override
+    public ModeledActivityRecordSet<RecordType> after(String identifier)
+            throws GuacamoleException {
+
+        try {
+            afterRecordID = Integer.valueOf(identifier);
+        }
+        catch (NumberFormatException e) {
+            throw new GuacamoleClientException("Invalid record identifier: \""
+                    + identifier + "\"", e);
+        }
+
+        return this;
+
+    }
+
 }
@@ -27,6 +27,8 @@ import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.auth.jdbc.activeconnection.ActiveConnectionPermissionService;
 import org.apache.guacamole.auth.jdbc.permission.ConnectionGroupPermissionService;
 import org.apache.guacamole.auth.jdbc.permission.ConnectionPermissionService;
+import org.apache.guacamole.auth.jdbc.permission.PermissionSnapshot;
+import org.apache.guacamole.auth.jdbc.permission.PermissionSnapshotService;
 import org.apache.guacamole.auth.jdbc.permission.SharingProfilePermissionService;
 import org.apache.guacamole.auth.jdbc.permission.UserGroupPermissionService;
 import org.apache.guacamole.auth.jdbc.permission.UserPermissionService;
@@ -94,6 +96,12 @@ public abstract class ModeledPermissions<ModelType extends EntityModel>
     @Inject
     private UserGroupPermissionService userGroupPermissionService;
 
+    /**
+     * Service for retrieving the permission snapshot of the current user.
+     */
+    @Inject
+    private PermissionSnapshotService permissionSnapshotService;
+
     /**
      * Returns whether the underlying entity is a user. Entities may be either
      * users or user groups.
@@ -226,9 +234,22 @@ public abstract class ModeledPermissions<ModelType extends EntityModel>
 
         // If this user is the currently-authenticated user, include any
         // additional effective groups declared by the authentication system
-        if (authenticatedUser.getIdentifier().equals(getIdentifier()))
-            effectiveGroups = entityService.retrieveEffectiveGroups(this,
-                    authenticatedUser.getEffectiveUserGroups());
+        if (authenticatedUser.getIdentifier().equals(getIdentifier())) {
+
+            // Use the groups of the current user's permission snapshot, if
+            // available, such that permission checks can be answered by that
+            // snapshot
+            PermissionSnapshot snapshot = isUser()
+                    ? permissionSnapshotService.getPermissionSnapshot(authenticatedUser)
+                    : null;
+
+            if (snapshot != null)
+                effectiveGroups = snapshot.getEffectiveGroups();
+            else
+                effectiveGroups = entityService.retrieveEffectiveGroups(this,
+                        authenticatedUser.getEffectiveUserGroups());
+
+        }
 
         // Otherwise, just include effective groups from the database
         else
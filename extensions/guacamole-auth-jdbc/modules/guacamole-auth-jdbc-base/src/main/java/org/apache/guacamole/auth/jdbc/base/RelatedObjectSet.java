@@ -27,6 +27,7 @@ import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.GuacamoleSecurityException;
 import org.apache.guacamole.net.auth.permission.ObjectPermission;
 import org.apache.guacamole.net.auth.permission.ObjectPermissionSet;
+import org.mybatis.guice.transactional.Transactional;
 
 /**
  * A database implementation of RelatedObjectSet which provides access to a
@@ -122,6 +123,46 @@ public abstract class RelatedObjectSet<ParentObjectType extends ModeledDirectory
     protected abstract ObjectPermissionSet getChildObjectEffectivePermissionSet()
             throws GuacamoleException;
 
+    /**
+     * Invoked before relations are added to or removed from this set, within
+     * the same transaction. By default, this function does nothing.
+     *
+     * @param parent
+     *     The object on the parent side of the one-to-many relationship
+     *     represented by this RelatedObjectSet.
+     *
+     * @param identifiers
+     *     The identifiers of all objects on the child side of the one-to-many
+     *     relation which are about to be changed.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while preparing for the change.
+     */
+    protected void beforeChange(ParentObjectType parent, Set<String> identifiers)
+            throws GuacamoleException {
+        // Do nothing by default
+    }
+
+    /**
+     * Invoked after relations have been added to or removed from this set,
+     * within the same transaction. By default, this function does nothing.
+     *
+     * @param parent
+     *     The object on the parent side of the one-to-many relationship
+     *     represented by this RelatedObjectSet.
+     *
+     * @param identifiers
+     *     The identifiers of all objects on the child side of the one-to-many
+     *     relation which were changed.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while handling the change.
+     */
+    protected void afterChange(ParentObjectType parent, Set<String> identifiers)
+            throws GuacamoleException {
+        // Do nothing by default
+    }
+
     /**
      * Returns whether the current user has permission to alter the status of
      * the relation between the parent object and the given child objects.
@@ -175,6 +216,7 @@ public abstract class RelatedObjectSet<ParentObjectType extends ModeledDirectory
     }
 
     @Override
+    @Transactional
     public void addObjects(Set<String> identifiers) throws GuacamoleException {
 
         // Nothing to do if nothing provided
@@ -182,8 +224,11 @@ public abstract class RelatedObjectSet<ParentObjectType extends ModeledDirectory
             return;
 
         // Create relations only if permission is granted
-        if (canAlterRelation(identifiers))
+        if (canAlterRelation(identifiers)) {
+            beforeChange(parent, identifiers);
             getObjectRelationMapper().insert(parent.getModel(), identifiers);
+            afterChange(parent, identifiers);
+        }
 
         // User lacks permission to add user groups
         else
@@ -192,6 +237,7 @@ public abstract class RelatedObjectSet<ParentObjectType extends ModeledDirectory
     }
 
     @Override
+    @Transactional
     public void removeObjects(Set<String> identifiers) throws GuacamoleException {
 
         // Nothing to do if nothing provided
@@ -199,8 +245,11 @@ public abstract class RelatedObjectSet<ParentObjectType extends ModeledDirectory
             return;
 
         // Delete relations only if permission is granted
-        if (canAlterRelation(identifiers))
+        if (canAlterRelation(identifiers)) {
+            beforeChange(parent, identifiers);
             getObjectRelationMapper().delete(parent.getModel(), identifiers);
+            afterChange(parent, identifiers);
+        }
 
         // User lacks permission to remove user groups
         else
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.base;
+
+/**
+ * Mapper which determines whether the database provides the indexes required
+ * to search history records for substrings without scanning the names of all
+ * users and connections.
+ */
+public interface SearchIndexMapper {
+
+    /**
+     * Returns whether all indexes required for indexed substring searches of
+     * user and connection names are present. Databases which do not support
+     * such indexes, or which use them transparently for any substring search,
+     * may always return false.
+     *
+     * @return
+     *     true if the search queries of history record mappers may rely on
+     *     the presence of the required indexes, false otherwise.
+     */
+    boolean isSearchIndexed();
+
+}
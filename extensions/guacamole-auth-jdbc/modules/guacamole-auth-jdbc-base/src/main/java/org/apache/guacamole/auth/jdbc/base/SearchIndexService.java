@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.base;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service which determines whether history searches may take advantage of
+ * the indexes created by the optional search index schema scripts. The
+ * database is checked only once, when history is first searched.
+ */
+@Singleton
+public class SearchIndexService {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    /**
+     * Mapper for determining whether search indexes are present.
+     */
+    @Inject
+    private SearchIndexMapper searchIndexMapper;
+
+    /**
+     * Whether search indexes are present, or null if the database has not yet
+     * been checked.
+     */
+    private volatile Boolean indexed;
+
+    /**
+     * Queries the database to determine whether search indexes are present.
+     * If the database cannot be queried, indexes are assumed to be absent.
+     *
+     * @return
+     *     true if search indexes are present, false otherwise.
+     */
+    private boolean checkIndexed() {
+
+        try {
+
+            boolean present = searchIndexMapper.isSearchIndexed();
+            if (present)
+                logger.info("History searches will use the search indexes "
+                        + "present within the database.");
+            else
+                logger.debug("Search indexes are not present within the "
+                        + "database. History searches will scan all users "
+                        + "and connections.");
+
+            return present;
+
+        }
+        catch (PersistenceException e) {
+            logger.warn("Unable to determine whether search indexes are "
+                    + "present. History searches will scan all users and "
+                    + "connections: {}", e.getMessage());
+            logger.debug("Unable to check for search indexes.", e);
+            return false;
+        }
+
+    }
+
+    /**
+     * Returns whether history searches may rely on the presence of search
+     * indexes within the database.
+     *
+     * @return
+     *     true if history searches may rely on the presence of search
+     *     indexes, false otherwise.
+     */
+    public boolean isIndexed() {
+
+        Boolean current = indexed;
+        if (current == null) {
+            current = checkIndexed();
+            indexed = current;
+        }
+
+        return current;
+
+    }
+
+}
@@ -20,7 +20,9 @@
 package org.apache.guacamole.auth.jdbc.connection;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import org.apache.guacamole.auth.jdbc.base.ChildRelationModel;
 import org.apache.guacamole.auth.jdbc.base.ModeledDirectoryObjectMapper;
 import org.apache.guacamole.auth.jdbc.user.UserModel;
 import org.apache.ibatis.annotations.Param;
@@ -91,5 +93,42 @@ public interface ConnectionMapper extends ModeledDirectoryObjectMapper<Connectio
      */
     ConnectionModel selectOneByName(@Param("parentIdentifier") String parentIdentifier,
             @Param("name") String name);
-    
+
+    /**
+     * Selects the identifier of every connection, along with the identifier of
+     * its parent connection group, regardless of whether the connections are
+     * readable by any particular user. This should only be called on behalf of
+     * a system administrator. If relations are needed by a non-administrative
+     * user who must have explicit read rights, use
+     * selectReadableParentRelations() instead.
+     *
+     * @return
+     *     A List containing the relation between every connection and its
+     *     parent connection group.
+     */
+    List<ChildRelationModel> selectParentRelations();
+
+    /**
+     * Selects the identifier of every connection that is explicitly readable by
+     * the given user, along with the identifier of its parent connection group.
+     * If relations are needed by a system administrator (who, by definition,
+     * does not need explicit read rights), use selectParentRelations() instead.
+     *
+     * @param user
+     *    The user whose permissions should determine whether a relation is
+     *    returned.
+     *
+     * @param effectiveGroups
+     *     The identifiers of all groups that should be taken into account
+     *     when determining the permissions effectively granted to the user. If
+     *     no groups are given, only permissions directly granted to the user
+     *     will be used.
+     *
+     * @return
+     *     A List containing the relation between every readable connection and
+     *     its parent connection group.
+     */
+    List<ChildRelationModel> selectReadableParentRelations(@Param("user") UserModel user,
+            @Param("effectiveGroups") Collection<String> effectiveGroups);
+
 }
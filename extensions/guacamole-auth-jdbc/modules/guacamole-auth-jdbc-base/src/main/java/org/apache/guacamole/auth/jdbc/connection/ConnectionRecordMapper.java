@@ -56,6 +56,18 @@ public interface ConnectionRecordMapper {
      */
     int insert(@Param("record") ConnectionRecordModel record);
 
+    /**
+     * Inserts all of the given connection records using a single statement.
+     *
+     * @param records
+     *     The connection records to insert. This collection must not be
+     *     empty.
+     *
+     * @return
+     *     The number of rows inserted.
+     */
+    int insertBatch(@Param("records") Collection<ConnectionRecordModel> records);
+
     /**
      * Searches for up to <code>limit</code> connection records that contain
      * the given terms, sorted by the given predicates, regardless of whether
@@ -74,12 +86,23 @@ public interface ConnectionRecordMapper {
      * @param limit
      *     The maximum number of records that should be returned.
      *
+     * @param afterRecordID
+     *     The ID of the record after which returned records should begin, in
+     *     the order defined by the given sort predicates and by record ID, or
+     *     null if records should begin with the first matching record.
+     *
+     * @param indexed
+     *     Whether the search indexes created by the optional search index
+     *     schema scripts are present and may be used to match search terms.
+     *
      * @return
      *     The results of the search performed with the given parameters.
      */
     List<ConnectionRecordModel> search(@Param("terms") Collection<ActivityRecordSearchTerm> terms,
             @Param("sortPredicates") List<ActivityRecordSortPredicate> sortPredicates,
-            @Param("limit") int limit);
+            @Param("limit") int limit,
+            @Param("afterRecordID") Integer afterRecordID,
+            @Param("indexed") boolean indexed);
 
     /**
      * Searches for up to <code>limit</code> connection records that contain
@@ -102,12 +125,21 @@ public interface ConnectionRecordMapper {
      * @param limit
      *     The maximum number of records that should be returned.
      *
+     * @param afterRecordID
+     *     The ID of the record after which returned records should begin, in
+     *     the order defined by the given sort predicates and by record ID, or
+     *     null if records should begin with the first matching record.
+     *
      * @param effectiveGroups
      *     The identifiers of all groups that should be taken into account
      *     when determining the permissions effectively granted to the user. If
      *     no groups are given, only permissions directly granted to the user
      *     will be used.
      *
+     * @param indexed
+     *     Whether the search indexes created by the optional search index
+     *     schema scripts are present and may be used to match search terms.
+     *
      * @return
      *     The results of the search performed with the given parameters.
      */
@@ -115,6 +147,8 @@ public interface ConnectionRecordMapper {
             @Param("terms") Collection<ActivityRecordSearchTerm> terms,
             @Param("sortPredicates") List<ActivityRecordSortPredicate> sortPredicates,
             @Param("limit") int limit,
-            @Param("effectiveGroups") Collection<String> effectiveGroups);
+            @Param("afterRecordID") Integer afterRecordID,
+            @Param("effectiveGroups") Collection<String> effectiveGroups,
+            @Param("indexed") boolean indexed);
 
 }
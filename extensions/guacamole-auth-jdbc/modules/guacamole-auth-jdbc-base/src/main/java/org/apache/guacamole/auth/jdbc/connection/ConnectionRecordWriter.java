@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.connection;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.JDBCEnvironment;
+import org.apache.guacamole.auth.jdbc.JDBCManagementService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service which writes connection history records to the database. Unless
+ * disabled, records are queued and written in batches by a dedicated thread,
+ * such that the many records produced when large numbers of users disconnect
+ * at once do not each require their own transaction on the thread closing
+ * the connection. If the queue is full, or the service has been shut down,
+ * records are written immediately instead.
+ */
+@Singleton
+public class ConnectionRecordWriter implements ConnectionRecordWriterMBean {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionRecordWriter.class);
+
+    /**
+     * The maximum number of records to write using a single statement. This
+     * must be small enough that the parameters of the resulting statement
+     * remain within the limits of all supported databases.
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * The number of times writing a batch of records is attempted before
+     * each record is instead written individually.
+     */
+    private static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * The amount of time to wait before the first retry of a batch which
+     * failed due to a transient error, in milliseconds. The delay doubles
+     * with each subsequent retry.
+     */
+    private static final long RETRY_DELAY = 500;
+
+    /**
+     * The amount of time to wait for new records before checking whether the
+     * service has been shut down, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 1000;
+
+    /**
+     * The maximum amount of time to wait for queued records to be written
+     * when the service is shut down, in milliseconds.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 30000;
+
+    /**
+     * Mapper for writing connection history.
+     */
+    private final ConnectionRecordMapper connectionRecordMapper;
+
+    /**
+     * The queue of records awaiting writing, or null if records are always
+     * written immediately.
+     */
+    private final BlockingQueue<QueuedRecord> queue;
+
+    /**
+     * The thread writing queued records, or null if records are always
+     * written immediately.
+     */
+    private final Thread writerThread;
+
+    /**
+     * Whether this service has been shut down.
+     */
+    private volatile boolean shutdown = false;
+
+    /**
+     * The total number of records written.
+     */
+    private final AtomicLong writtenRecords = new AtomicLong();
+
+    /**
+     * The total number of records which could not be written.
+     */
+    private final AtomicLong failedRecords = new AtomicLong();
+
+    /**
+     * The total number of retried batches.
+     */
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * A connection history record awaiting writing, along with the time that
+     * it was queued.
+     */
+    private static class QueuedRecord {
+
+        /**
+         * The record to write.
+         */
+        private final ConnectionRecordModel record;
+
+        /**
+         * The value of System.nanoTime() when the record was queued.
+         */
+        private final long queued = System.nanoTime();
+
+        /**
+         * Creates a new QueuedRecord for the given record, queued at the
+         * current time.
+         *
+         * @param record
+         *     The record to write.
+         */
+        public QueuedRecord(ConnectionRecordModel record) {
+            this.record = record;
+        }
+
+    }
+
+    /**
+     * Creates a new ConnectionRecordWriter, starting the thread which writes
+     * queued records if queueing is enabled.
+     *
+     * @param environment
+     *     The environment of the Guacamole server.
+     *
+     * @param connectionRecordMapper
+     *     The mapper to use to write connection history records.
+     *
+     * @param managementService
+     *     The service to use to expose the state of the queue via JMX.
+     *
+     * @throws GuacamoleException
+     *     If the size of the queue cannot be read from guacamole.properties.
+     */
+    @Inject
+    public ConnectionRecordWriter(JDBCEnvironment environment,
+            ConnectionRecordMapper connectionRecordMapper,
+            JDBCManagementService managementService)
+            throws GuacamoleException {
+
+        this.connectionRecordMapper = connectionRecordMapper;
+
+        // Write records immediately if queueing is disabled
+        int queueSize = environment.getHistoryQueueSize();
+        if (queueSize <= 0) {
+            queue = null;
+            writerThread = null;
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<QueuedRecord>(queueSize);
+        writerThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                writeQueuedRecords();
+            }
+
+        }, "connection-history-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        managementService.register("ConnectionRecordWriter", this);
+
+    }
+
+    /**
+     * Writes the given connection history record to the database. Depending
+     * on configuration and the state of the queue, the record may be written
+     * later by a dedicated thread.
+     *
+     * @param record
+     *     The record to write.
+     */
+    public void write(ConnectionRecordModel record) {
+
+        // Queue record if possible
+        if (queue != null && !shutdown && queue.offer(new QueuedRecord(record)))
+            return;
+
+        // Otherwise, write immediately
+        connectionRecordMapper.insert(record);
+        writtenRecords.incrementAndGet();
+
+    }
+
+    /**
+     * Repeatedly writes batches of queued records until this service is shut
+     * down and no records remain. This function is invoked only by the
+     * writer thread.
+     */
+    private void writeQueuedRecords() {
+
+        List<QueuedRecord> batch = new ArrayList<QueuedRecord>(MAX_BATCH_SIZE);
+        while (true) {
+
+            // Wait for at least one record
+            QueuedRecord first;
+            try {
+                first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // Stop only once shut down and all records are written
+            if (first == null) {
+                if (shutdown)
+                    return;
+                continue;
+            }
+
+            // Write the record along with any others already queued
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            writeBatch(batch);
+            batch.clear();
+
+        }
+
+    }
+
+    /**
+     * Returns whether the given failure is likely to be transient, such that
+     * retrying the same operation may succeed.
+     *
+     * @param failure
+     *     The failure to test.
+     *
+     * @return
+     *     true if the failure is likely transient, false otherwise.
+     */
+    private static boolean isTransient(Throwable failure) {
+
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+
+            if (cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException)
+                return true;
+
+            // Connection failures (class 08) and transaction rollbacks due
+            // to serialization failures or deadlock (class 40)
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && (state.startsWith("08") || state.startsWith("40")))
+                    return true;
+            }
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Writes the given batch of queued records using a single statement,
+     * retrying if the write fails due to a transient error. If the batch
+     * still cannot be written, each record is written individually, such
+     * that a single invalid record does not prevent others from being
+     * written.
+     *
+     * @param batch
+     *     The records to write.
+     */
+    private void writeBatch(List<QueuedRecord> batch) {
+
+        List<ConnectionRecordModel> records = new ArrayList<ConnectionRecordModel>(batch.size());
+        for (QueuedRecord queued : batch)
+            records.add(queued.record);
+
+        long delay = RETRY_DELAY;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+
+            try {
+                connectionRecordMapper.insertBatch(records);
+                writtenRecords.addAndGet(records.size());
+                return;
+            }
+            catch (RuntimeException e) {
+
+                // Retry only transient failures
+                if (!isTransient(e) || attempt == MAX_ATTEMPTS || shutdown) {
+                    logger.debug("Unable to write batch of connection history "
+                            + "records.", e);
+                    break;
+                }
+
+                logger.debug("Retrying batch of connection history records "
+                        + "in {} ms: {}", delay, e.getMessage());
+                retries.incrementAndGet();
+
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                delay *= 2;
+
+            }
+
+        }
+
+        // Fall back to writing each record individually
+        for (ConnectionRecordModel record : records) {
+            try {
+                connectionRecordMapper.insert(record);
+                writtenRecords.incrementAndGet();
+            }
+            catch (RuntimeException e) {
+                failedRecords.incrementAndGet();
+                logger.error("Connection history record for user \"{}\" could "
+                        + "not be written: {}", record.getUsername(), e.getMessage());
+                logger.debug("Unable to write connection history record.", e);
+            }
+        }
+
+    }
+
+    /**
+     * Shuts down this service, waiting for all queued records to be written.
+     * Records written after this service has shut down are written
+     * immediately.
+     */
+    public void shutdown() {
+
+        if (queue == null || shutdown)
+            return;
+
+        shutdown = true;
+
+        // Wait for writer thread to finish writing queued records
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Write any records which remain due to timeout or races with
+        // shutdown
+        List<QueuedRecord> remaining = new ArrayList<QueuedRecord>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            logger.debug("Writing {} remaining connection history records.",
+                    remaining.size());
+            for (int i = 0; i < remaining.size(); i += MAX_BATCH_SIZE)
+                writeBatch(remaining.subList(i, Math.min(i + MAX_BATCH_SIZE, remaining.size())));
+        }
+
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    @Override
+    public long getLag() {
+
+        if (queue == null)
+            return 0;
+
+        QueuedRecord oldest = queue.peek();
+        if (oldest == null)
+            return 0;
+
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.queued);
+
+    }
+
+    @Override
+    public long getWrittenRecords() {
+        return writtenRecords.get();
+    }
+
+    @Override
+    public long getFailedRecords() {
+        return failedRecords.get();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.get();
+    }
+
+}
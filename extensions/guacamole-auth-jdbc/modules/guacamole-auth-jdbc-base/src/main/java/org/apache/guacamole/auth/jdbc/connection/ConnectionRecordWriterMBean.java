@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.connection;
+
+/**
+ * Management interface exposing the state of a ConnectionRecordWriter via
+ * JMX.
+ */
+public interface ConnectionRecordWriterMBean {
+
+    /**
+     * Returns the number of connection history records currently queued and
+     * not yet written.
+     *
+     * @return
+     *     The number of queued connection history records.
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns the amount of time that the oldest queued connection history
+     * record has been waiting to be written, in milliseconds.
+     *
+     * @return
+     *     The age of the oldest queued connection history record, in
+     *     milliseconds, or zero if no records are queued.
+     */
+    long getLag();
+
+    /**
+     * Returns the total number of connection history records written since
+     * the web application started.
+     *
+     * @return
+     *     The total number of connection history records written.
+     */
+    long getWrittenRecords();
+
+    /**
+     * Returns the total number of connection history records which could not
+     * be written and were discarded.
+     *
+     * @return
+     *     The total number of connection history records discarded.
+     */
+    long getFailedRecords();
+
+    /**
+     * Returns the total number of times that writing a batch of connection
+     * history records was retried due to a transient error.
+     *
+     * @return
+     *     The total number of retried batches.
+     */
+    long getRetries();
+
+}
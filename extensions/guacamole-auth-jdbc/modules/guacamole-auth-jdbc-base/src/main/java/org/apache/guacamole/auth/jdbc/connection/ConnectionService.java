@@ -24,6 +24,7 @@ import com.google.inject.Provider;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,7 @@ import org.apache.guacamole.GuacamoleSecurityException;
 import org.apache.guacamole.auth.jdbc.base.ActivityRecordSearchTerm;
 import org.apache.guacamole.auth.jdbc.base.ActivityRecordSortPredicate;
 import org.apache.guacamole.auth.jdbc.base.ModeledChildDirectoryObjectService;
+import org.apache.guacamole.auth.jdbc.base.SearchIndexService;
 import org.apache.guacamole.auth.jdbc.permission.ConnectionPermissionMapper;
 import org.apache.guacamole.auth.jdbc.permission.ObjectPermissionMapper;
 import org.apache.guacamole.net.GuacamoleTunnel;
@@ -78,6 +80,13 @@ public class ConnectionService extends ModeledChildDirectoryObjectService<Modele
     @Inject
     private ConnectionRecordMapper connectionRecordMapper;
 
+    /**
+     * Service for determining whether history searches may use search
+     * indexes.
+     */
+    @Inject
+    private SearchIndexService searchIndexService;
+
     /**
      * Provider for creating connections.
      */
@@ -418,9 +427,16 @@ public class ConnectionService extends ModeledChildDirectoryObjectService<Modele
             // Retrieve history
             List<ConnectionRecordModel> models = connectionRecordMapper.select(identifier);
 
-            // Get currently-active connections
+            // Get currently-active connections, most recent first
             List<ConnectionRecord> records = new ArrayList<ConnectionRecord>(tunnelService.getActiveConnections(connection));
-            Collections.reverse(records);
+            Collections.sort(records, new Comparator<ConnectionRecord>() {
+
+                @Override
+                public int compare(ConnectionRecord a, ConnectionRecord b) {
+                    return b.getStartDate().compareTo(a.getStartDate());
+                }
+
+            });
 
             // Add past connections from model objects
             for (ConnectionRecordModel model : models)
@@ -456,6 +472,11 @@ public class ConnectionService extends ModeledChildDirectoryObjectService<Modele
      * @param limit
      *     The maximum number of records that should be returned.
      *
+     * @param afterRecordID
+     *     The ID of the record after which returned records should begin, in
+     *     the order defined by the given sort predicates and by record ID, or
+     *     null if records should begin with the first matching record.
+     *
      * @return
      *     The connection history of the given connection, including any
      *     active connections.
@@ -465,21 +486,23 @@ public class ConnectionService extends ModeledChildDirectoryObjectService<Modele
      */
     public List<ConnectionRecord> retrieveHistory(ModeledAuthenticatedUser user,
             Collection<ActivityRecordSearchTerm> requiredContents,
-            List<ActivityRecordSortPredicate> sortPredicates, int limit)
-            throws GuacamoleException {
+            List<ActivityRecordSortPredicate> sortPredicates, int limit,
+            Integer afterRecordID) throws GuacamoleException {
 
         List<ConnectionRecordModel> searchResults;
 
         // Bypass permission checks if the user is a system admin
         if (user.getUser().isAdministrator())
             searchResults = connectionRecordMapper.search(requiredContents,
-                    sortPredicates, limit);
+                    sortPredicates, limit, afterRecordID,
+                    searchIndexService.isIndexed());
 
         // Otherwise only return explicitly readable history records
         else
             searchResults = connectionRecordMapper.searchReadable(
                     user.getUser().getModel(), requiredContents, sortPredicates,
-                    limit, user.getEffectiveUserGroups());
+                    limit, afterRecordID, user.getEffectiveUserGroups(),
+                    searchIndexService.isIndexed());
 
         return getObjectInstances(searchResults);
 
@@ -21,6 +21,11 @@ package org.apache.guacamole.auth.jdbc.connectiongroup;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import org.apache.guacamole.auth.jdbc.user.ModeledAuthenticatedUser;
@@ -30,11 +35,16 @@ import org.apache.guacamole.GuacamoleClientException;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.GuacamoleSecurityException;
 import org.apache.guacamole.GuacamoleUnsupportedException;
+import org.apache.guacamole.auth.jdbc.base.ChildRelationModel;
 import org.apache.guacamole.auth.jdbc.base.ModeledChildDirectoryObjectService;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionMapper;
 import org.apache.guacamole.auth.jdbc.permission.ConnectionGroupPermissionMapper;
 import org.apache.guacamole.auth.jdbc.permission.ObjectPermissionMapper;
+import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileMapper;
+import org.apache.guacamole.auth.jdbc.user.UserModel;
 import org.apache.guacamole.net.GuacamoleTunnel;
 import org.apache.guacamole.net.auth.ConnectionGroup;
+import org.apache.guacamole.net.auth.ConnectionGroupDescendants;
 import org.apache.guacamole.net.auth.permission.ObjectPermission;
 import org.apache.guacamole.net.auth.permission.ObjectPermissionSet;
 import org.apache.guacamole.net.auth.permission.SystemPermission;
@@ -54,6 +64,18 @@ public class ConnectionGroupService extends ModeledChildDirectoryObjectService<M
     @Inject
     private ConnectionGroupMapper connectionGroupMapper;
 
+    /**
+     * Mapper for accessing connections.
+     */
+    @Inject
+    private ConnectionMapper connectionMapper;
+
+    /**
+     * Mapper for accessing sharing profiles.
+     */
+    @Inject
+    private SharingProfileMapper sharingProfileMapper;
+
     /**
      * Mapper for manipulating connection group permissions.
      */
@@ -230,6 +252,126 @@ public class ConnectionGroupService extends ModeledChildDirectoryObjectService<M
 
     }
 
+    /**
+     * Sorts the given relations into sets of child identifiers by the
+     * identifier of their parent. Relations having a null parent are stored
+     * under the identifier of the root connection group.
+     *
+     * @param relations
+     *     The relations to sort.
+     *
+     * @return
+     *     A map of parent identifier to the identifiers of all children of
+     *     that parent.
+     */
+    private Map<String, Set<String>> getChildren(Collection<ChildRelationModel> relations) {
+
+        Map<String, Set<String>> children = new HashMap<String, Set<String>>();
+        for (ChildRelationModel relation : relations) {
+
+            String parent = relation.getParentIdentifier();
+            if (parent == null)
+                parent = RootConnectionGroup.IDENTIFIER;
+
+            Set<String> siblings = children.get(parent);
+            if (siblings == null) {
+                siblings = new HashSet<String>();
+                children.put(parent, siblings);
+            }
+
+            siblings.add(relation.getIdentifier());
+
+        }
+
+        return children;
+
+    }
+
+    /**
+     * Returns the identifiers of all connection groups, connections, and
+     * sharing profiles beneath the connection group having the given
+     * identifier that the user has read access to. Only objects within
+     * readable connection groups are included, exactly as if the tree were
+     * walked one level at a time. Regardless of the depth of the tree, only
+     * one query is issued for each type of object.
+     *
+     * Permission to read the connection group having the given identifier is
+     * NOT checked.
+     *
+     * @param user
+     *     The user retrieving the identifiers.
+     *
+     * @param identifier
+     *     The identifier of the connection group whose descendants should be
+     *     retrieved.
+     *
+     * @return
+     *     The identifiers of all readable descendants of the connection group
+     *     having the given identifier.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while reading identifiers.
+     */
+    public ConnectionGroupDescendants getDescendants(ModeledAuthenticatedUser user,
+            String identifier) throws GuacamoleException {
+
+        Map<String, Set<String>> childGroups;
+        Map<String, Set<String>> childConnections;
+        Map<String, Set<String>> childSharingProfiles;
+
+        // Bypass permission checks if the user is a system admin
+        if (user.getUser().isAdministrator()) {
+            childGroups = getChildren(connectionGroupMapper.selectParentRelations());
+            childConnections = getChildren(connectionMapper.selectParentRelations());
+            childSharingProfiles = getChildren(sharingProfileMapper.selectParentRelations());
+        }
+
+        // Otherwise only include explicitly readable objects
+        else {
+            UserModel userModel = user.getUser().getModel();
+            Set<String> effectiveGroups = user.getEffectiveUserGroups();
+            childGroups = getChildren(connectionGroupMapper.selectReadableParentRelations(userModel, effectiveGroups));
+            childConnections = getChildren(connectionMapper.selectReadableParentRelations(userModel, effectiveGroups));
+            childSharingProfiles = getChildren(sharingProfileMapper.selectReadableParentRelations(userModel, effectiveGroups));
+        }
+
+        Set<String> connectionGroupIdentifiers = new HashSet<String>();
+        Set<String> connectionIdentifiers = new HashSet<String>();
+        Set<String> sharingProfileIdentifiers = new HashSet<String>();
+
+        // Walk the tree of groups in memory, guarding against cycles
+        Deque<String> pending = new ArrayDeque<String>();
+        pending.add(identifier);
+        while (!pending.isEmpty()) {
+
+            String parent = pending.remove();
+
+            Set<String> connections = childConnections.get(parent);
+            if (connections != null)
+                connectionIdentifiers.addAll(connections);
+
+            Set<String> groups = childGroups.remove(parent);
+            if (groups != null) {
+                for (String group : groups) {
+                    if (connectionGroupIdentifiers.add(group))
+                        pending.add(group);
+                }
+            }
+
+        }
+
+        // Include the sharing profiles of all included connections
+        for (String connection : connectionIdentifiers) {
+            Set<String> sharingProfiles = childSharingProfiles.get(connection);
+            if (sharingProfiles != null)
+                sharingProfileIdentifiers.addAll(sharingProfiles);
+        }
+
+        return new ConnectionGroupDescendants(connectionGroupIdentifiers,
+                connectionIdentifiers, sharingProfileIdentifiers);
+
+    }
+
     /**
      * Connects to the given connection group as the given user, using the
      * given client information. If the user does not have permission to read
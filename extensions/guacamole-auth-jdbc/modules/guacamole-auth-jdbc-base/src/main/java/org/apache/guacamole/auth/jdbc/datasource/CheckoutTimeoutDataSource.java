@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.datasource;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+
+/**
+ * DataSource which limits the amount of time spent waiting for a connection
+ * from a MyBatis PooledDataSource. A PooledDataSource waits indefinitely for
+ * a connection once all of its connections are in use. This DataSource
+ * instead fails with an SQLTransientConnectionException if no connection
+ * becomes available within the configured timeout, such that requests fail
+ * rather than block while the database is saturated. Time spent waiting and
+ * the number of timeouts are recorded for the sake of monitoring.
+ */
+public class CheckoutTimeoutDataSource implements DataSource {
+
+    /**
+     * The pool providing the connections.
+     */
+    private final PooledDataSource pool;
+
+    /**
+     * The maximum amount of time to wait for a connection, in milliseconds,
+     * or zero to wait indefinitely.
+     */
+    private final long timeout;
+
+    /**
+     * Permits representing the connections of the pool which are not in
+     * use, or null if requests should wait indefinitely.
+     */
+    private final Semaphore available;
+
+    /**
+     * The number of requests which had to wait for a connection.
+     */
+    private final AtomicLong waits = new AtomicLong();
+
+    /**
+     * The total amount of time spent waiting for a connection, in
+     * nanoseconds.
+     */
+    private final AtomicLong waitTime = new AtomicLong();
+
+    /**
+     * The number of requests which failed because no connection became
+     * available within the timeout.
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Creates a new CheckoutTimeoutDataSource which provides connections from
+     * the given pool, waiting no longer than the given timeout.
+     *
+     * @param pool
+     *     The pool providing the connections.
+     *
+     * @param timeout
+     *     The maximum amount of time to wait for a connection, in
+     *     milliseconds, or zero to wait indefinitely.
+     */
+    public CheckoutTimeoutDataSource(PooledDataSource pool, long timeout) {
+        this.pool = pool;
+        this.timeout = timeout;
+        this.available = timeout > 0
+                ? new Semaphore(pool.getPoolMaximumActiveConnections(), true)
+                : null;
+    }
+
+    /**
+     * Returns the pool providing the connections of this DataSource.
+     *
+     * @return
+     *     The pool providing the connections of this DataSource.
+     */
+    public PooledDataSource getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the number of requests which had to wait for a connection
+     * because all connections were in use, not including waits within the
+     * underlying pool.
+     *
+     * @return
+     *     The number of requests which had to wait for a connection.
+     */
+    public long getWaits() {
+        return waits.get();
+    }
+
+    /**
+     * Returns the total amount of time spent waiting for a connection, not
+     * including waits within the underlying pool, in milliseconds.
+     *
+     * @return
+     *     The total amount of time spent waiting for a connection, in
+     *     milliseconds.
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+    }
+
+    /**
+     * Returns the number of requests which failed because no connection
+     * became available within the timeout.
+     *
+     * @return
+     *     The number of requests which timed out.
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Waits for a connection of the pool to become available, failing if
+     * none becomes available within the timeout.
+     *
+     * @throws SQLException
+     *     If no connection becomes available within the timeout, or the
+     *     current thread is interrupted while waiting.
+     */
+    private void acquire() throws SQLException {
+
+        // Avoid timing requests which need not wait at all
+        if (available.tryAcquire())
+            return;
+
+        waits.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            if (!available.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("No connection to "
+                        + "the database became available within " + timeout
+                        + " ms.");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while "
+                    + "waiting for a connection to the database.", e);
+        }
+        finally {
+            waitTime.addAndGet(System.nanoTime() - start);
+        }
+
+    }
+
+    /**
+     * Wraps the given connection such that the permit acquired for it is
+     * released when the connection is closed.
+     *
+     * @param connection
+     *     The connection to wrap.
+     *
+     * @return
+     *     A connection which behaves identically to the given connection,
+     *     but releases its permit when closed.
+     */
+    private Connection wrap(final Connection connection) {
+
+        final AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                CheckoutTimeoutDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+
+                try {
+                    return method.invoke(connection, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+
+                // Release permit only once, even if closed repeatedly
+                finally {
+                    if (method.getName().equals("close")
+                            && closed.compareAndSet(false, true))
+                        available.release();
+                }
+
+            }
+
+        });
+
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        if (available == null)
+            return pool.getConnection();
+
+        acquire();
+
+        // Release permit if no connection could be obtained
+        Connection connection = null;
+        try {
+            connection = wrap(pool.getConnection());
+        }
+        finally {
+            if (connection == null)
+                available.release();
+        }
+
+        return connection;
+
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        return pool.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return pool.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        pool.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        pool.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return pool.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return pool.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+
+        if (iface.isInstance(this))
+            return iface.cast(this);
+
+        return pool.unwrap(iface);
+
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || pool.isWrapperFor(iface);
+    }
+
+}
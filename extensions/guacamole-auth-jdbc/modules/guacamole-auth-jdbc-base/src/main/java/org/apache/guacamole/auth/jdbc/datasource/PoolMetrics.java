@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.datasource;
+
+import org.apache.ibatis.datasource.pooled.PoolState;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+
+/**
+ * PoolMetricsMBean implementation which reports the state of a MyBatis
+ * PooledDataSource, including any time spent waiting for a connection within
+ * the CheckoutTimeoutDataSource wrapping that pool.
+ */
+public class PoolMetrics implements PoolMetricsMBean {
+
+    /**
+     * The DataSource wrapping the pool whose state is reported.
+     */
+    private final CheckoutTimeoutDataSource checkoutDataSource;
+
+    /**
+     * The pool whose state is reported.
+     */
+    private final PooledDataSource dataSource;
+
+    /**
+     * Creates a new PoolMetrics which reports the state of the pool wrapped
+     * by the given DataSource.
+     *
+     * @param checkoutDataSource
+     *     The DataSource wrapping the pool whose state should be reported.
+     */
+    public PoolMetrics(CheckoutTimeoutDataSource checkoutDataSource) {
+        this.checkoutDataSource = checkoutDataSource;
+        this.dataSource = checkoutDataSource.getPool();
+    }
+
+    @Override
+    public String getUrl() {
+        return dataSource.getUrl();
+    }
+
+    @Override
+    public int getMaximumActiveConnections() {
+        return dataSource.getPoolMaximumActiveConnections();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return dataSource.getPoolState().getActiveConnectionCount();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return dataSource.getPoolState().getIdleConnectionCount();
+    }
+
+    @Override
+    public long getRequests() {
+        return dataSource.getPoolState().getRequestCount();
+    }
+
+    @Override
+    public long getWaits() {
+        return dataSource.getPoolState().getHadToWaitCount()
+                + checkoutDataSource.getWaits();
+    }
+
+    @Override
+    public long getAverageWaitTime() {
+
+        long waits = getWaits();
+        if (waits == 0)
+            return 0;
+
+        // Combine waits within the pool with waits prior to checkout
+        PoolState state = dataSource.getPoolState();
+        long poolWaitTime = state.getAverageWaitTime() * state.getHadToWaitCount();
+        return (poolWaitTime + checkoutDataSource.getWaitTime()) / waits;
+
+    }
+
+    @Override
+    public long getTimeouts() {
+        return checkoutDataSource.getTimeouts();
+    }
+
+    @Override
+    public long getAverageRequestTime() {
+        return dataSource.getPoolState().getAverageRequestTime();
+    }
+
+    @Override
+    public long getOverdueConnections() {
+        return dataSource.getPoolState().getClaimedOverdueConnectionCount();
+    }
+
+    @Override
+    public long getBadConnections() {
+        return dataSource.getPoolState().getBadConnectionCount();
+    }
+
+}
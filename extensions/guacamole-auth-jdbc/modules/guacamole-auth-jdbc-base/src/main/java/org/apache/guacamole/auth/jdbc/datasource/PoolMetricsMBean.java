@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.datasource;
+
+/**
+ * Management interface exposing the state of a pool of database connections
+ * via JMX.
+ */
+public interface PoolMetricsMBean {
+
+    /**
+     * Returns the JDBC URL of the database accessed through the pool.
+     *
+     * @return
+     *     The JDBC URL of the database.
+     */
+    String getUrl();
+
+    /**
+     * Returns the maximum number of connections which may be checked out of
+     * the pool at any one time.
+     *
+     * @return
+     *     The maximum number of active connections.
+     */
+    int getMaximumActiveConnections();
+
+    /**
+     * Returns the number of connections currently checked out of the pool.
+     *
+     * @return
+     *     The number of active connections.
+     */
+    int getActiveConnections();
+
+    /**
+     * Returns the number of open connections currently available within the
+     * pool.
+     *
+     * @return
+     *     The number of idle connections.
+     */
+    int getIdleConnections();
+
+    /**
+     * Returns the total number of connections checked out of the pool.
+     *
+     * @return
+     *     The total number of requests for a connection.
+     */
+    long getRequests();
+
+    /**
+     * Returns the total number of requests which had to wait for a
+     * connection because all connections were in use.
+     *
+     * @return
+     *     The total number of requests which waited.
+     */
+    long getWaits();
+
+    /**
+     * Returns the average amount of time that requests which had to wait for
+     * a connection spent waiting, in milliseconds.
+     *
+     * @return
+     *     The average wait time, in milliseconds.
+     */
+    long getAverageWaitTime();
+
+    /**
+     * Returns the average amount of time required to obtain a connection
+     * from the pool, including any waiting, in milliseconds.
+     *
+     * @return
+     *     The average request time, in milliseconds.
+     */
+    long getAverageRequestTime();
+
+    /**
+     * Returns the total number of requests which failed because no
+     * connection became available within the configured checkout timeout.
+     *
+     * @return
+     *     The total number of requests which timed out.
+     */
+    long getTimeouts();
+
+    /**
+     * Returns the total number of connections which were reclaimed from
+     * their holders because they were checked out for longer than allowed.
+     *
+     * @return
+     *     The total number of overdue connections.
+     */
+    long getOverdueConnections();
+
+    /**
+     * Returns the total number of connections which were found to be broken
+     * and were discarded.
+     *
+     * @return
+     *     The total number of bad connections.
+     */
+    long getBadConnections();
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.datasource;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.JDBCEnvironment;
+import org.apache.guacamole.auth.jdbc.base.ChangeTracker;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSessionManager;
+
+/**
+ * MyBatis interceptor which allows queries to be sent to the read-only
+ * replica of the database, if any, where doing so cannot result in stale
+ * data being read back. Queries which are part of a transaction are always
+ * sent to the primary database, as are all queries made shortly after data
+ * other than history records has been changed through this instance of the
+ * web application.
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "query",
+            args = { MappedStatement.class, Object.class, RowBounds.class,
+                ResultHandler.class }),
+    @Signature(type = Executor.class, method = "query",
+            args = { MappedStatement.class, Object.class, RowBounds.class,
+                ResultHandler.class, CacheKey.class, BoundSql.class })
+})
+public class ReplicaRoutingInterceptor implements Interceptor {
+
+    /**
+     * Provider for the SqlSessionManager, used to determine whether the
+     * current thread is within a transaction. A provider is required, as the
+     * SqlSessionManager cannot be created until all interceptors exist.
+     */
+    @Inject
+    private Provider<SqlSessionManager> sqlSessionManagerProvider;
+
+    /**
+     * The tracker of changes made through this instance of the web
+     * application.
+     */
+    @Inject
+    private ChangeTracker changeTracker;
+
+    /**
+     * Whether a read-only replica has been configured.
+     */
+    private final boolean replicaConfigured;
+
+    /**
+     * The amount of time after each change that queries should not be sent
+     * to the read-only replica, in milliseconds.
+     */
+    private final long replicaLag;
+
+    /**
+     * Creates a new ReplicaRoutingInterceptor configured using the given
+     * environment.
+     *
+     * @param environment
+     *     The environment of the Guacamole server.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read.
+     */
+    @Inject
+    public ReplicaRoutingInterceptor(JDBCEnvironment environment)
+            throws GuacamoleException {
+        replicaConfigured = environment.getReplicaURL() != null;
+        replicaLag = TimeUnit.SECONDS.toMillis(environment.getReplicaLag());
+    }
+
+    /**
+     * Returns whether the query about to be made by the current thread may
+     * be sent to the read-only replica.
+     *
+     * @return
+     *     true if the query may be sent to the read-only replica, false
+     *     otherwise.
+     */
+    private boolean isReplicaAllowed() {
+        return replicaConfigured
+                && !sqlSessionManagerProvider.get().isManagedSessionStarted()
+                && !changeTracker.isPermissionChangeRecent(replicaLag);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+
+        boolean previous = RoutingDataSource.setReplicaAllowed(isReplicaAllowed());
+        try {
+            return invocation.proceed();
+        }
+        finally {
+            RoutingDataSource.setReplicaAllowed(previous);
+        }
+
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        if (target instanceof Executor)
+            return Plugin.wrap(target, this);
+        return target;
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        // No properties
+    }
+
+}
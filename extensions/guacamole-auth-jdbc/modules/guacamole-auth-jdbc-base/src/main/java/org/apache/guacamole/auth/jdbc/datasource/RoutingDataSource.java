@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.datasource;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DataSource which provides connections to either a primary database or a
+ * read-only replica of that database. Connections to the replica are
+ * provided only while the current thread has been marked as performing a
+ * read which may be served by the replica. If a connection to the replica
+ * cannot be obtained, a connection to the primary database is provided
+ * instead.
+ */
+public class RoutingDataSource implements DataSource {
+
+    /**
+     * Logger for this class.
+     */
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(RoutingDataSource.class);
+
+    /**
+     * Whether the current thread is performing a read which may be served by
+     * the replica.
+     */
+    private static final ThreadLocal<Boolean> replicaAllowed = new ThreadLocal<Boolean>();
+
+    /**
+     * The DataSource providing connections to the primary database.
+     */
+    private final DataSource primary;
+
+    /**
+     * The DataSource providing connections to the read-only replica.
+     */
+    private final DataSource replica;
+
+    /**
+     * Creates a new RoutingDataSource which provides connections from the
+     * given DataSources.
+     *
+     * @param primary
+     *     The DataSource providing connections to the primary database.
+     *
+     * @param replica
+     *     The DataSource providing connections to the read-only replica.
+     */
+    public RoutingDataSource(DataSource primary, DataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+    }
+
+    /**
+     * Sets whether connections requested by the current thread may be
+     * connections to the replica, returning the previous setting such that
+     * it may be restored.
+     *
+     * @param allowed
+     *     true if connections requested by the current thread may be
+     *     connections to the replica, false otherwise.
+     *
+     * @return
+     *     The previous setting.
+     */
+    public static boolean setReplicaAllowed(boolean allowed) {
+
+        boolean previous = isReplicaAllowed();
+
+        if (allowed)
+            replicaAllowed.set(Boolean.TRUE);
+        else
+            replicaAllowed.remove();
+
+        return previous;
+
+    }
+
+    /**
+     * Returns whether connections requested by the current thread may be
+     * connections to the replica.
+     *
+     * @return
+     *     true if connections requested by the current thread may be
+     *     connections to the replica, false otherwise.
+     */
+    public static boolean isReplicaAllowed() {
+        return replicaAllowed.get() != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        // Use primary unless replica is explicitly allowed
+        if (!isReplicaAllowed())
+            return primary.getConnection();
+
+        // Fall back to primary if replica is unavailable
+        try {
+            return replica.getConnection();
+        }
+        catch (SQLException e) {
+            logger.warn("Read-only replica is unavailable. Using primary "
+                    + "database instead: {}", e.getMessage());
+            logger.debug("Unable to connect to read-only replica.", e);
+            return primary.getConnection();
+        }
+
+    }
+
+    @Override
+    public Connection getConnection(String username, String password)
+            throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+        replica.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+        replica.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+
+        if (iface.isInstance(this))
+            return iface.cast(this);
+
+        return primary.unwrap(iface);
+
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+}
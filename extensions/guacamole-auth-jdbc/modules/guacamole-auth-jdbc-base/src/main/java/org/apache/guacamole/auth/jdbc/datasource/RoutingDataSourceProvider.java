@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.datasource;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+import javax.sql.DataSource;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.JDBCEnvironment;
+import org.apache.guacamole.auth.jdbc.JDBCManagementService;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.mybatis.guice.datasource.builtin.PooledDataSourceProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provider of the DataSource used by MyBatis. The connection pool of the
+ * primary database is configured by PooledDataSourceProvider, as it would be
+ * if bound directly, and is wrapped within a CheckoutTimeoutDataSource which
+ * enforces the configured checkout timeout. If a read-only replica has been
+ * configured, a second pool is created for the replica using the same
+ * settings, driver and credentials, and both are wrapped within a
+ * RoutingDataSource. The state of each pool is exposed via JMX.
+ */
+public class RoutingDataSourceProvider implements Provider<DataSource> {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(RoutingDataSourceProvider.class);
+
+    /**
+     * Provider of the connection pool of the primary database.
+     */
+    @Inject
+    private PooledDataSourceProvider primaryProvider;
+
+    /**
+     * The ClassLoader used to load the JDBC driver.
+     */
+    @Inject
+    @Named("JDBC.driverClassLoader")
+    private ClassLoader driverClassLoader;
+
+    /**
+     * The environment of the Guacamole server.
+     */
+    @Inject
+    private JDBCEnvironment environment;
+
+    /**
+     * Service for exposing the state of each connection pool via JMX.
+     */
+    @Inject
+    private JDBCManagementService managementService;
+
+    /**
+     * Creates a new connection pool for the read-only replica at the given
+     * URL, configured identically to the given connection pool of the
+     * primary database.
+     *
+     * @param primary
+     *     The connection pool of the primary database.
+     *
+     * @param url
+     *     The JDBC URL of the read-only replica.
+     *
+     * @return
+     *     A new connection pool for the read-only replica.
+     */
+    private PooledDataSource createReplica(PooledDataSource primary, String url) {
+
+        PooledDataSource replica = new PooledDataSource(driverClassLoader,
+                primary.getDriver(), url, primary.getDriverProperties());
+
+        replica.setUsername(primary.getUsername());
+        replica.setPassword(primary.getPassword());
+        replica.setDefaultAutoCommit(primary.isAutoCommit());
+        replica.setPoolMaximumActiveConnections(primary.getPoolMaximumActiveConnections());
+        replica.setPoolMaximumIdleConnections(primary.getPoolMaximumIdleConnections());
+        replica.setPoolMaximumCheckoutTime(primary.getPoolMaximumCheckoutTime());
+        replica.setPoolTimeToWait(primary.getPoolTimeToWait());
+        replica.setPoolPingEnabled(primary.isPoolPingEnabled());
+        replica.setPoolPingQuery(primary.getPoolPingQuery());
+        replica.setPoolPingConnectionsNotUsedFor(primary.getPoolPingConnectionsNotUsedFor());
+
+        return replica;
+
+    }
+
+    @Override
+    public DataSource get() {
+
+        // Read checkout timeout and replica URL, if any
+        int checkoutTimeout;
+        String replicaURL;
+        try {
+            checkoutTimeout = environment.getPoolCheckoutTimeout();
+            replicaURL = environment.getReplicaURL();
+        }
+        catch (GuacamoleException e) {
+            logger.error("Unable to read configuration of connection pool. "
+                    + "Default settings will be used: {}", e.getMessage());
+            logger.debug("Unable to read connection pool configuration.", e);
+            checkoutTimeout = 0;
+            replicaURL = null;
+        }
+
+        PooledDataSource primaryPool = (PooledDataSource) primaryProvider.get();
+        CheckoutTimeoutDataSource primary =
+                new CheckoutTimeoutDataSource(primaryPool, checkoutTimeout);
+        managementService.register("DataSource", "primary", new PoolMetrics(primary));
+
+        // Use primary database only if no replica is configured
+        if (replicaURL == null)
+            return primary;
+
+        CheckoutTimeoutDataSource replica = new CheckoutTimeoutDataSource(
+                createReplica(primaryPool, replicaURL), checkoutTimeout);
+        managementService.register("DataSource", "replica", new PoolMetrics(replica));
+
+        logger.info("Queries outside of transactions will be sent to the "
+                + "read-only replica at \"{}\".", replicaURL);
+        return new RoutingDataSource(primary, replica);
+
+    }
+
+}
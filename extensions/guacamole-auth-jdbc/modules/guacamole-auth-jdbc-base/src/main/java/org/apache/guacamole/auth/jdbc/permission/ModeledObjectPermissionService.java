@@ -22,6 +22,7 @@ package org.apache.guacamole.auth.jdbc.permission;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import org.apache.guacamole.auth.jdbc.user.ModeledAuthenticatedUser;
 import org.apache.guacamole.GuacamoleException;
@@ -64,6 +65,37 @@ public abstract class ModeledObjectPermissionService
         
     }
 
+    /**
+     * Returns the identifiers of all objects to which the given user has
+     * effectively been granted each type of permission, as recorded within
+     * the given snapshot. If this service's permissions have not yet been
+     * recorded within the snapshot, they are first read from the database.
+     *
+     * @param user
+     *     The user whose permissions are being checked.
+     *
+     * @param snapshot
+     *     The user's permission snapshot.
+     *
+     * @return
+     *     The identifiers of all objects to which the user has effectively
+     *     been granted each type of permission.
+     */
+    private Map<ObjectPermission.Type, Set<String>> getSnapshotPermissions(
+            ModeledAuthenticatedUser user, PermissionSnapshot snapshot) {
+
+        Map<ObjectPermission.Type, Set<String>> permissions =
+                snapshot.getObjectPermissions(getClass());
+
+        if (permissions == null)
+            permissions = snapshot.putObjectPermissions(getClass(),
+                    getPermissionMapper().select(user.getUser().getModel(),
+                            snapshot.getEffectiveGroups()));
+
+        return permissions;
+
+    }
+
     /**
      * Determines whether the current user has permission to update the given
      * target entity, adding or removing the given permissions. Such permission
@@ -167,10 +199,20 @@ public abstract class ModeledObjectPermissionService
             Set<String> effectiveGroups) throws GuacamoleException {
 
         // Retrieve permissions only if allowed
-        if (canReadPermissions(user, targetEntity))
+        if (canReadPermissions(user, targetEntity)) {
+
+            // Answer from the user's own permission snapshot, if possible
+            PermissionSnapshot snapshot = user.getPermissionSnapshot();
+            if (snapshot != null && snapshot.describes(user, targetEntity, effectiveGroups)) {
+                Set<String> identifiers = getSnapshotPermissions(user, snapshot).get(type);
+                return identifiers != null && identifiers.contains(identifier);
+            }
+
             return getPermissionMapper().selectOne(targetEntity.getModel(),
                     type, identifier, effectiveGroups) != null;
 
+        }
+
         // User cannot read this entity's permissions
         throw new GuacamoleSecurityException("Permission denied.");
         
@@ -192,11 +234,37 @@ public abstract class ModeledObjectPermissionService
             return identifiers;
 
         // Otherwise, return explicitly-retrievable identifiers only if allowed
-        if (canReadPermissions(user, targetEntity))
+        if (canReadPermissions(user, targetEntity)) {
+
+            // Filter in memory using the user's own permission snapshot, if
+            // possible
+            PermissionSnapshot snapshot = user.getPermissionSnapshot();
+            if (snapshot != null && snapshot.describes(user, targetEntity, effectiveGroups)) {
+
+                Map<ObjectPermission.Type, Set<String>> granted =
+                        getSnapshotPermissions(user, snapshot);
+
+                Collection<String> accessible = new HashSet<String>();
+                for (String identifier : identifiers) {
+                    for (ObjectPermission.Type type : permissions) {
+                        Set<String> grantedIdentifiers = granted.get(type);
+                        if (grantedIdentifiers != null && grantedIdentifiers.contains(identifier)) {
+                            accessible.add(identifier);
+                            break;
+                        }
+                    }
+                }
+
+                return accessible;
+
+            }
+
             return getPermissionMapper().selectAccessibleIdentifiers(
                     targetEntity.getModel(), permissions, identifiers,
                     effectiveGroups);
 
+        }
+
         // User cannot read this entity's permissions
         throw new GuacamoleSecurityException("Permission denied.");
 
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.permission;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.guacamole.auth.jdbc.base.ChangeTracker;
+import org.apache.guacamole.auth.jdbc.base.EntityModel;
+import org.apache.guacamole.auth.jdbc.base.ModeledPermissions;
+import org.apache.guacamole.auth.jdbc.user.ModeledAuthenticatedUser;
+import org.apache.guacamole.net.auth.permission.ObjectPermission;
+import org.apache.guacamole.net.auth.permission.SystemPermission;
+
+/**
+ * A snapshot of the permissions effectively granted to the current user of a
+ * session, including the identifiers of all groups through which permissions
+ * are inherited. System permissions are read when the snapshot is built,
+ * while each type of object permission is read only when first needed. A
+ * snapshot is valid only while the permission version of the ChangeTracker
+ * is unchanged and its lifetime has not expired.
+ */
+public class PermissionSnapshot {
+
+    /**
+     * The tracker whose permission version determines whether this snapshot
+     * is still valid.
+     */
+    private final ChangeTracker changeTracker;
+
+    /**
+     * The permission version of the ChangeTracker at the time this snapshot
+     * was built.
+     */
+    private final long version;
+
+    /**
+     * The time after which this snapshot must no longer be used, in
+     * milliseconds since the epoch.
+     */
+    private final long expires;
+
+    /**
+     * The identifiers of all groups of which the user is effectively a
+     * member.
+     */
+    private final Set<String> effectiveGroups;
+
+    /**
+     * All system permissions effectively granted to the user.
+     */
+    private final Set<SystemPermission.Type> systemPermissions;
+
+    /**
+     * The identifiers of all objects to which the user has effectively been
+     * granted each type of permission, stored separately for each service
+     * which manages a distinct type of object. Types of object which have
+     * not yet been checked are absent.
+     */
+    private final ConcurrentMap<Class<?>, Map<ObjectPermission.Type, Set<String>>>
+            objectPermissions = new ConcurrentHashMap<Class<?>, Map<ObjectPermission.Type, Set<String>>>();
+
+    /**
+     * Creates a new PermissionSnapshot containing the given effective groups
+     * and system permissions.
+     *
+     * @param changeTracker
+     *     The tracker whose permission version determines whether this
+     *     snapshot is still valid.
+     *
+     * @param version
+     *     The permission version of the ChangeTracker, read before any of the
+     *     data within this snapshot was retrieved.
+     *
+     * @param expires
+     *     The time after which this snapshot must no longer be used, in
+     *     milliseconds since the epoch.
+     *
+     * @param effectiveGroups
+     *     The identifiers of all groups of which the user is effectively a
+     *     member.
+     *
+     * @param systemPermissions
+     *     All system permissions effectively granted to the user.
+     */
+    public PermissionSnapshot(ChangeTracker changeTracker, long version,
+            long expires, Set<String> effectiveGroups,
+            Set<SystemPermission.Type> systemPermissions) {
+        this.changeTracker = changeTracker;
+        this.version = version;
+        this.expires = expires;
+        this.effectiveGroups = Collections.unmodifiableSet(effectiveGroups);
+        this.systemPermissions = systemPermissions;
+    }
+
+    /**
+     * Returns whether this snapshot may still be used. A snapshot may no
+     * longer be used once anything affecting permissions has changed, or once
+     * its lifetime has expired.
+     *
+     * @return
+     *     true if this snapshot may still be used, false if it must be
+     *     rebuilt.
+     */
+    public boolean isValid() {
+        return version == changeTracker.getPermissionVersion()
+                && System.currentTimeMillis() < expires;
+    }
+
+    /**
+     * Returns the identifiers of all groups of which the user is effectively
+     * a member. The same Set instance is returned by every call, allowing
+     * permission sets created using this Set to be recognized by
+     * describes().
+     *
+     * @return
+     *     An unmodifiable Set of the identifiers of all groups of which the
+     *     user is effectively a member.
+     */
+    public Set<String> getEffectiveGroups() {
+        return effectiveGroups;
+    }
+
+    /**
+     * Returns whether this snapshot describes the permissions effectively
+     * granted to the given entity, as determined using the given effective
+     * groups. Permissions granted directly to an entity, without
+     * inheritance, are never described by a snapshot, nor are any
+     * permissions once the snapshot is no longer valid.
+     *
+     * @param user
+     *     The user whose session this snapshot belongs to.
+     *
+     * @param targetEntity
+     *     The entity whose permissions are being checked.
+     *
+     * @param groups
+     *     The effective groups being used to check the entity's permissions.
+     *
+     * @return
+     *     true if the permissions in question can be answered by this
+     *     snapshot, false otherwise.
+     */
+    public boolean describes(ModeledAuthenticatedUser user,
+            ModeledPermissions<? extends EntityModel> targetEntity,
+            Set<String> groups) {
+        return groups == effectiveGroups && isValid()
+                && targetEntity.isUser(user.getIdentifier());
+    }
+
+    /**
+     * Returns whether the user has effectively been granted the given system
+     * permission.
+     *
+     * @param type
+     *     The type of system permission to check.
+     *
+     * @return
+     *     true if the user has effectively been granted the given system
+     *     permission, false otherwise.
+     */
+    public boolean hasSystemPermission(SystemPermission.Type type) {
+        return systemPermissions.contains(type);
+    }
+
+    /**
+     * Returns the object permissions stored for the given service, if they
+     * have been read.
+     *
+     * @param service
+     *     The class of the service which manages the type of object
+     *     concerned.
+     *
+     * @return
+     *     The identifiers of all objects to which the user has effectively
+     *     been granted each type of permission, or null if the permissions
+     *     managed by the given service have not yet been read.
+     */
+    public Map<ObjectPermission.Type, Set<String>> getObjectPermissions(
+            Class<?> service) {
+        return objectPermissions.get(service);
+    }
+
+    /**
+     * Stores the given object permissions for the given service, returning
+     * the permissions that are ultimately stored. If another thread has
+     * already stored permissions for the same service, those permissions are
+     * returned instead.
+     *
+     * @param service
+     *     The class of the service which manages the type of object
+     *     concerned.
+     *
+     * @param models
+     *     All object permissions effectively granted to the user, as read
+     *     from the database.
+     *
+     * @return
+     *     The identifiers of all objects to which the user has effectively
+     *     been granted each type of permission.
+     */
+    public Map<ObjectPermission.Type, Set<String>> putObjectPermissions(
+            Class<?> service, Collection<ObjectPermissionModel> models) {
+
+        // Index identifiers by permission type
+        Map<ObjectPermission.Type, Set<String>> permissions =
+                new EnumMap<ObjectPermission.Type, Set<String>>(ObjectPermission.Type.class);
+
+        for (ObjectPermissionModel model : models) {
+
+            Set<String> identifiers = permissions.get(model.getType());
+            if (identifiers == null) {
+                identifiers = new HashSet<String>();
+                permissions.put(model.getType(), identifiers);
+            }
+
+            identifiers.add(model.getObjectIdentifier());
+
+        }
+
+        Map<ObjectPermission.Type, Set<String>> existing =
+                objectPermissions.putIfAbsent(service, permissions);
+
+        return existing != null ? existing : permissions;
+
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.permission;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.EnumSet;
+import java.util.Set;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.JDBCEnvironment;
+import org.apache.guacamole.auth.jdbc.base.ChangeTracker;
+import org.apache.guacamole.auth.jdbc.base.EntityService;
+import org.apache.guacamole.auth.jdbc.user.ModeledAuthenticatedUser;
+import org.apache.guacamole.auth.jdbc.user.ModeledUser;
+import org.apache.guacamole.net.auth.permission.SystemPermission;
+
+/**
+ * Service which provides the PermissionSnapshot of the current user of a
+ * session, building a new snapshot whenever the previous snapshot is no
+ * longer valid.
+ */
+@Singleton
+public class PermissionSnapshotService {
+
+    /**
+     * The maximum lifetime of each snapshot, in milliseconds, or zero if
+     * snapshots are disabled.
+     */
+    private final long lifetime;
+
+    /**
+     * Tracker of changes which may affect permissions.
+     */
+    @Inject
+    private ChangeTracker changeTracker;
+
+    /**
+     * Service for retrieving the effective groups of entities.
+     */
+    @Inject
+    private EntityService entityService;
+
+    /**
+     * Mapper for system-level permissions.
+     */
+    @Inject
+    private SystemPermissionMapper systemPermissionMapper;
+
+    /**
+     * Creates a new PermissionSnapshotService which builds snapshots having
+     * the lifetime configured within guacamole.properties.
+     *
+     * @param environment
+     *     The environment of the Guacamole server.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read.
+     */
+    @Inject
+    public PermissionSnapshotService(JDBCEnvironment environment)
+            throws GuacamoleException {
+        lifetime = Math.max(0, environment.getPermissionSnapshotLifetime()) * 1000L;
+    }
+
+    /**
+     * Returns a valid PermissionSnapshot describing the permissions
+     * effectively granted to the given user, building a new snapshot if the
+     * user has no valid snapshot.
+     *
+     * @param user
+     *     The user whose permissions should be described.
+     *
+     * @return
+     *     A valid PermissionSnapshot describing the user's permissions, or
+     *     null if permission snapshots are disabled.
+     */
+    public PermissionSnapshot getPermissionSnapshot(ModeledAuthenticatedUser user) {
+
+        // Reuse existing snapshot if it is still valid
+        PermissionSnapshot snapshot = user.getPermissionSnapshot();
+        if (snapshot != null && snapshot.isValid())
+            return snapshot;
+
+        if (lifetime == 0)
+            return null;
+
+        // Read the version before any data, such that changes made while the
+        // snapshot is being built invalidate the snapshot
+        long version = changeTracker.getPermissionVersion();
+        long expires = System.currentTimeMillis() + lifetime;
+
+        ModeledUser modeledUser = user.getUser();
+        Set<String> effectiveGroups = entityService.retrieveEffectiveGroups(
+                modeledUser, user.getEffectiveUserGroups());
+
+        Set<SystemPermission.Type> systemPermissions =
+                EnumSet.noneOf(SystemPermission.Type.class);
+        for (SystemPermissionModel model : systemPermissionMapper.select(
+                modeledUser.getModel(), effectiveGroups))
+            systemPermissions.add(model.getType());
+
+        snapshot = new PermissionSnapshot(changeTracker, version, expires,
+                effectiveGroups, systemPermissions);
+        user.setPermissionSnapshot(snapshot);
+        return snapshot;
+
+    }
+
+}
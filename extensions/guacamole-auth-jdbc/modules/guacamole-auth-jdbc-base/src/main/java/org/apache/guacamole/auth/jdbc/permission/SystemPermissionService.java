@@ -161,9 +161,17 @@ public class SystemPermissionService
             throws GuacamoleException {
 
         // Retrieve permissions only if allowed
-        if (canReadPermissions(user, targetEntity))
+        if (canReadPermissions(user, targetEntity)) {
+
+            // Answer from the user's own permission snapshot, if possible
+            PermissionSnapshot snapshot = user.getPermissionSnapshot();
+            if (snapshot != null && snapshot.describes(user, targetEntity, effectiveGroups))
+                return snapshot.hasSystemPermission(type);
+
             return getPermissionMapper().selectOne(targetEntity.getModel(), type, effectiveGroups) != null;
 
+        }
+
         // User cannot read this entity's permissions
         throw new GuacamoleSecurityException("Permission denied.");
         
@@ -31,10 +31,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.guacamole.auth.jdbc.base.ChangeTracker;
 import org.apache.guacamole.auth.jdbc.user.ModeledAuthenticatedUser;
 import org.apache.guacamole.auth.jdbc.connection.ModeledConnection;
 import org.apache.guacamole.auth.jdbc.connectiongroup.ModeledConnectionGroup;
-import org.apache.guacamole.auth.jdbc.connection.ConnectionRecordMapper;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionRecordWriter;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionModel;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionRecordModel;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionParameterModel;
@@ -54,10 +55,8 @@ import org.apache.guacamole.protocol.GuacamoleClientInformation;
 import org.apache.guacamole.protocol.GuacamoleConfiguration;
 import org.apache.guacamole.token.TokenFilter;
 import org.mybatis.guice.transactional.Transactional;
-import org.apache.guacamole.auth.jdbc.connection.ConnectionParameterMapper;
 import org.apache.guacamole.auth.jdbc.sharing.connection.SharedConnectionDefinition;
 import org.apache.guacamole.auth.jdbc.sharingprofile.ModeledSharingProfile;
-import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileParameterMapper;
 import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileParameterModel;
 import org.apache.guacamole.auth.jdbc.user.RemoteAuthenticatedUser;
 import org.apache.guacamole.net.auth.GuacamoleProxyConfiguration;
@@ -91,22 +90,23 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
     private Provider<ModeledConnection> connectionProvider;
 
     /**
-     * Mapper for accessing connection parameters.
+     * Cache of the connection data required to establish connections.
      */
     @Inject
-    private ConnectionParameterMapper connectionParameterMapper;
+    private ConnectionCache connectionCache;
 
     /**
-     * Mapper for accessing sharing profile parameters.
+     * Service for writing connection history.
      */
     @Inject
-    private SharingProfileParameterMapper sharingProfileParameterMapper;
+    private ConnectionRecordWriter connectionRecordWriter;
 
     /**
-     * Mapper for accessing connection history.
+     * Tracker which must be notified whenever the set of active connections
+     * changes.
      */
     @Inject
-    private ConnectionRecordMapper connectionRecordMapper;
+    private ChangeTracker changeTracker;
 
     /**
      * Provider for creating active connection records.
@@ -240,7 +240,7 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
         }
 
         // Set parameters from associated data
-        Collection<ConnectionParameterModel> parameters = connectionParameterMapper.select(connection.getIdentifier());
+        Collection<ConnectionParameterModel> parameters = connectionCache.getConnectionParameters(connection.getIdentifier());
         for (ConnectionParameterModel parameter : parameters)
             config.setParameter(parameter.getName(), parameter.getValue());
 
@@ -279,7 +279,7 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
         config.setConnectionID(connectionID);
 
         // Set parameters from associated data
-        Collection<SharingProfileParameterModel> parameters = sharingProfileParameterMapper.select(sharingProfile.getIdentifier());
+        Collection<SharingProfileParameterModel> parameters = connectionCache.getSharingProfileParameters(sharingProfile.getIdentifier());
         for (SharingProfileParameterModel parameter : parameters)
             config.setParameter(parameter.getName(), parameter.getValue());
 
@@ -289,7 +289,8 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
 
     /**
      * Saves the given ActiveConnectionRecord to the database. The end date of
-     * the saved record will be populated with the current time.
+     * the saved record will be populated with the current time. Depending on
+     * configuration, the record may be written in the background.
      *
      * @param record
      *     The record to save.
@@ -310,7 +311,7 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
         recordModel.setEndDate(new Date());
 
         // Insert connection record
-        connectionRecordMapper.insert(recordModel);
+        connectionRecordWriter.write(recordModel);
 
     }
 
@@ -405,6 +406,7 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
 
             // Remove underlying tunnel from list of active tunnels
             activeTunnels.remove(activeConnection.getUUID().toString());
+            changeTracker.changed();
 
             // Get original user
             RemoteAuthenticatedUser user = activeConnection.getUser();
@@ -474,6 +476,7 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
         // Record new active connection
         Runnable cleanupTask = new ConnectionCleanupTask(activeConnection);
         activeTunnels.put(activeConnection.getUUID().toString(), activeConnection);
+        changeTracker.changed();
 
         try {
 
@@ -596,7 +599,7 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
             return Collections.<ModeledConnection>emptyList();
 
         // If group has no children, there are no balanced connections
-        Collection<String> identifiers = connectionMapper.selectIdentifiersWithin(connectionGroup.getIdentifier());
+        Collection<String> identifiers = connectionCache.getConnectionIdentifiersWithin(connectionGroup.getIdentifier());
         if (identifiers.isEmpty())
             return Collections.<ModeledConnection>emptyList();
 
@@ -605,7 +608,7 @@ public abstract class AbstractGuacamoleTunnelService implements GuacamoleTunnelS
             identifiers = getPreferredConnections(user, identifiers);
 
         // Retrieve all children
-        Collection<ConnectionModel> models = connectionMapper.select(identifiers);
+        Collection<ConnectionModel> models = connectionCache.getConnections(identifiers);
         List<ModeledConnection> connections = new ArrayList<ModeledConnection>(models.size());
 
         // Convert each retrieved model to a modeled connection
@@ -21,24 +21,33 @@ package org.apache.guacamole.auth.jdbc.tunnel;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 
 /**
  * Mapping of object identifiers to lists of connection records. Records are
  * added or removed individually, and the overall list of current records
  * associated with a given object can be retrieved at any time. The public
  * methods of this class are all threadsafe.
+ *
+ * The records associated with each identifier are stored within a concurrent
+ * set, which is created and discarded atomically with respect to changes in
+ * its contents. Updates to the records of different identifiers never
+ * contend with each other, and reads never block.
+ *
+ * The price of non-blocking reads is that get() returns a live, weakly
+ * consistent view rather than a snapshot. See get() for what this means for
+ * callers.
  */
 public class ActiveConnectionMultimap {
 
     /**
-     * All active connections to a connection having a given identifier.
+     * All active connections to a connection having a given identifier. Each
+     * set within this map is never empty.
      */
-    private final Map<String, Set<ActiveConnectionRecord>> records =
-            new HashMap<String, Set<ActiveConnectionRecord>>();
+    private final ConcurrentHashMap<String, Set<ActiveConnectionRecord>> records =
+            new ConcurrentHashMap<String, Set<ActiveConnectionRecord>>();
 
     /**
      * Stores the given connection record in the list of active connections
@@ -50,20 +59,26 @@ public class ActiveConnectionMultimap {
      * @param record
      *     The record associated with the active connection.
      */
-    public void put(String identifier, ActiveConnectionRecord record) {
-        synchronized (records) {
-
-            // Get set of active connection records, creating if necessary
-            Set<ActiveConnectionRecord> connections = records.get(identifier);
-            if (connections == null) {
-                connections = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<ActiveConnectionRecord, Boolean>()));
-                records.put(identifier, connections);
+    public void put(String identifier, final ActiveConnectionRecord record) {
+
+        // Add record to the set of active connection records, creating the
+        // set if necessary
+        records.compute(identifier, new BiFunction<String, Set<ActiveConnectionRecord>, Set<ActiveConnectionRecord>>() {
+
+            @Override
+            public Set<ActiveConnectionRecord> apply(String identifier,
+                    Set<ActiveConnectionRecord> connections) {
+
+                if (connections == null)
+                    connections = ConcurrentHashMap.<ActiveConnectionRecord>newKeySet();
+
+                connections.add(record);
+                return connections;
+
             }
 
-            // Add active connection
-            connections.add(record);
+        });
 
-        }
     }
 
     /**
@@ -76,48 +91,62 @@ public class ActiveConnectionMultimap {
      * @param record
      *     The record associated with the active connection.
      */
-    public void remove(String identifier, ActiveConnectionRecord record) {
-        synchronized (records) {
+    public void remove(String identifier, final ActiveConnectionRecord record) {
+
+        // Remove record from the set of active connection records, cleaning
+        // the tracking entry if the set is now empty
+        records.computeIfPresent(identifier, new BiFunction<String, Set<ActiveConnectionRecord>, Set<ActiveConnectionRecord>>() {
+
+            @Override
+            public Set<ActiveConnectionRecord> apply(String identifier,
+                    Set<ActiveConnectionRecord> connections) {
 
-            // Get set of active connection records
-            Set<ActiveConnectionRecord> connections = records.get(identifier);
-            assert(connections != null);
+                connections.remove(record);
+                if (connections.isEmpty())
+                    return null;
 
-            // Remove old record
-            connections.remove(record);
+                return connections;
 
-            // If now empty, clean the tracking entry
-            if (connections.isEmpty())
-                records.remove(identifier);
+            }
+
+        });
 
-        }
     }
 
     /**
      * Returns a collection of active connection records associated with the
-     * object having the given identifier. The collection will be sorted in
-     * insertion order. If there are no such connections, an empty collection is
+     * object having the given identifier. The collection is in no particular
+     * order. If there are no such connections, an empty collection is
      * returned.
      *
+     * The returned collection is a weakly consistent view, not a snapshot.
+     * Iterating over it never throws ConcurrentModificationException, but it
+     * may or may not reflect records added or removed while the iteration is
+     * in progress, and its size() may change between calls. Once every
+     * record for the identifier has been removed, the view is detached and
+     * does not reflect records added afterwards. Callers which require a
+     * stable set of records, for example to compare its size against a
+     * limit and then act on the same records, must copy the collection
+     * first.
+     *
      * @param identifier
      *     The identifier of the object to check.
      *
      * @return
-     *     An immutable collection of records associated with the object having
-     *     the given identifier, or an empty collection if there are no such
-     *     records.
+     *     An unmodifiable view of the records associated with the object
+     *     having the given identifier, or an empty collection if there are no
+     *     such records. The view reflects later changes, and may be iterated
+     *     safely while those changes occur.
      */
     public Collection<ActiveConnectionRecord> get(String identifier) {
-        synchronized (records) {
 
-            // Get set of active connection records
-            Collection<ActiveConnectionRecord> connections = records.get(identifier);
-            if (connections != null)
-                return Collections.unmodifiableCollection(connections);
+        // Get set of active connection records
+        Set<ActiveConnectionRecord> connections = records.get(identifier);
+        if (connections != null)
+            return Collections.unmodifiableSet(connections);
 
-            return Collections.<ActiveConnectionRecord>emptyList();
+        return Collections.<ActiveConnectionRecord>emptyList();
 
-        }
     }
 
 }
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.tunnel;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.JDBCEnvironment;
+import org.apache.guacamole.auth.jdbc.JDBCManagementService;
+import org.apache.guacamole.auth.jdbc.base.ChangeTracker;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionMapper;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionModel;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionParameterMapper;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionParameterModel;
+import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileParameterMapper;
+import org.apache.guacamole.auth.jdbc.sharingprofile.SharingProfileParameterModel;
+
+/**
+ * Cache of the data read from the database each time a connection is
+ * established: the parameters of connections and sharing profiles, the
+ * members of balancing connection groups, and the connections themselves.
+ * Each cached value is stamped with the version of the data it was read
+ * from, as reported by the ChangeTracker, and is ignored once any change is
+ * made to the database through this instance of the web application. Values
+ * are additionally discarded after a configurable lifetime, limiting how
+ * long changes made elsewhere may go unnoticed.
+ */
+@Singleton
+public class ConnectionCache implements ConnectionCacheMBean {
+
+    /**
+     * The maximum number of values cached of each kind.
+     */
+    private static final int MAX_SIZE = 10000;
+
+    /**
+     * Tracker reporting the version of the data within the database.
+     */
+    private final ChangeTracker changeTracker;
+
+    /**
+     * Mapper for accessing connections.
+     */
+    @Inject
+    private ConnectionMapper connectionMapper;
+
+    /**
+     * Mapper for accessing connection parameters.
+     */
+    @Inject
+    private ConnectionParameterMapper connectionParameterMapper;
+
+    /**
+     * Mapper for accessing sharing profile parameters.
+     */
+    @Inject
+    private SharingProfileParameterMapper sharingProfileParameterMapper;
+
+    /**
+     * Cached connections, by identifier, or null if caching is disabled.
+     */
+    private final Cache<String, Entry<ConnectionModel>> connections;
+
+    /**
+     * Cached connection parameters, by connection identifier, or null if
+     * caching is disabled.
+     */
+    private final Cache<String, Entry<Collection<ConnectionParameterModel>>> connectionParameters;
+
+    /**
+     * Cached sharing profile parameters, by sharing profile identifier, or
+     * null if caching is disabled.
+     */
+    private final Cache<String, Entry<Collection<SharingProfileParameterModel>>> sharingProfileParameters;
+
+    /**
+     * Cached identifiers of the connections within each connection group, by
+     * connection group identifier, or null if caching is disabled.
+     */
+    private final Cache<String, Entry<Collection<String>>> groupMembers;
+
+    /**
+     * The total number of cache hits.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The total number of cache misses.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cached value, along with the version of the data it was read from.
+     *
+     * @param <T>
+     *     The type of the cached value.
+     */
+    private static class Entry<T> {
+
+        /**
+         * The version of the data within the database at the time the value
+         * was read, as returned by ChangeTracker.getPermissionVersion().
+         */
+        private final long version;
+
+        /**
+         * The cached value.
+         */
+        private final T value;
+
+        /**
+         * Creates a new Entry containing the given value, read from the
+         * given version of the data within the database.
+         *
+         * @param version
+         *     The version of the data within the database at the time the
+         *     value was read.
+         *
+         * @param value
+         *     The value to cache.
+         */
+        public Entry(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+
+    }
+
+    /**
+     * Creates a new ConnectionCache configured using the properties of the
+     * given environment.
+     *
+     * @param environment
+     *     The environment of the Guacamole server.
+     *
+     * @param changeTracker
+     *     The tracker reporting the version of the data within the database.
+     *
+     * @param managementService
+     *     The service to use to expose the effectiveness of the cache via
+     *     JMX.
+     *
+     * @throws GuacamoleException
+     *     If the lifetime of cached values cannot be read from
+     *     guacamole.properties.
+     */
+    @Inject
+    public ConnectionCache(JDBCEnvironment environment,
+            ChangeTracker changeTracker,
+            JDBCManagementService managementService)
+            throws GuacamoleException {
+
+        this.changeTracker = changeTracker;
+
+        // Do not cache anything if disabled
+        int lifetime = environment.getConnectionCacheLifetime();
+        if (lifetime <= 0) {
+            connections = null;
+            connectionParameters = null;
+            sharingProfileParameters = null;
+            groupMembers = null;
+            return;
+        }
+
+        connections = newCache(lifetime);
+        connectionParameters = newCache(lifetime);
+        sharingProfileParameters = newCache(lifetime);
+        groupMembers = newCache(lifetime);
+
+        managementService.register("ConnectionCache", this);
+
+    }
+
+    /**
+     * Creates a new, empty cache holding at most MAX_SIZE values for no
+     * longer than the given lifetime.
+     *
+     * @param <T>
+     *     The type of values within the cache.
+     *
+     * @param lifetime
+     *     The maximum amount of time that any value may be cached, in
+     *     seconds.
+     *
+     * @return
+     *     A new, empty cache.
+     */
+    private static <T> Cache<String, Entry<T>> newCache(int lifetime) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(MAX_SIZE)
+                .expireAfterWrite(lifetime, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Returns the cached value having the given key, if that value is
+     * present and was read from the given version of the data within the
+     * database. The hit or miss is recorded.
+     *
+     * @param <T>
+     *     The type of values within the cache.
+     *
+     * @param cache
+     *     The cache to read from.
+     *
+     * @param key
+     *     The key of the value to return.
+     *
+     * @param version
+     *     The current version of the data within the database.
+     *
+     * @return
+     *     The cached value, or null if no current value is cached.
+     */
+    private <T> T get(Cache<String, Entry<T>> cache, String key, long version) {
+
+        Entry<T> entry = cache.getIfPresent(key);
+        if (entry != null && entry.version == version) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+
+        misses.incrementAndGet();
+        return null;
+
+    }
+
+    /**
+     * Returns the connections having the given identifiers. Identifiers of
+     * connections which do not exist are ignored. The returned models are
+     * shared and must not be modified.
+     *
+     * @param identifiers
+     *     The identifiers of the connections to return.
+     *
+     * @return
+     *     The connections having the given identifiers.
+     */
+    public Collection<ConnectionModel> getConnections(Collection<String> identifiers) {
+
+        if (connections == null)
+            return connectionMapper.select(identifiers);
+
+        // The version must be read before the data it describes
+        long version = changeTracker.getPermissionVersion();
+
+        // Use cached connections wherever possible
+        List<ConnectionModel> models = new ArrayList<ConnectionModel>(identifiers.size());
+        List<String> missing = new ArrayList<String>();
+        for (String identifier : identifiers) {
+            ConnectionModel model = get(connections, identifier, version);
+            if (model != null)
+                models.add(model);
+            else
+                missing.add(identifier);
+        }
+
+        // Retrieve and cache all remaining connections with one query
+        if (!missing.isEmpty()) {
+            for (ConnectionModel model : connectionMapper.select(missing)) {
+                connections.put(model.getIdentifier(), new Entry<ConnectionModel>(version, model));
+                models.add(model);
+            }
+        }
+
+        return models;
+
+    }
+
+    /**
+     * Returns the parameters of the connection having the given identifier.
+     *
+     * @param identifier
+     *     The identifier of the connection.
+     *
+     * @return
+     *     An unmodifiable collection of the parameters of the connection
+     *     having the given identifier.
+     */
+    public Collection<ConnectionParameterModel> getConnectionParameters(String identifier) {
+
+        if (connectionParameters == null)
+            return connectionParameterMapper.select(identifier);
+
+        // The version must be read before the data it describes
+        long version = changeTracker.getPermissionVersion();
+        Collection<ConnectionParameterModel> parameters = get(connectionParameters, identifier, version);
+        if (parameters == null) {
+            parameters = Collections.unmodifiableCollection(connectionParameterMapper.select(identifier));
+            connectionParameters.put(identifier, new Entry<Collection<ConnectionParameterModel>>(version, parameters));
+        }
+
+        return parameters;
+
+    }
+
+    /**
+     * Returns the parameters of the sharing profile having the given
+     * identifier.
+     *
+     * @param identifier
+     *     The identifier of the sharing profile.
+     *
+     * @return
+     *     An unmodifiable collection of the parameters of the sharing profile
+     *     having the given identifier.
+     */
+    public Collection<SharingProfileParameterModel> getSharingProfileParameters(String identifier) {
+
+        if (sharingProfileParameters == null)
+            return sharingProfileParameterMapper.select(identifier);
+
+        // The version must be read before the data it describes
+        long version = changeTracker.getPermissionVersion();
+        Collection<SharingProfileParameterModel> parameters = get(sharingProfileParameters, identifier, version);
+        if (parameters == null) {
+            parameters = Collections.unmodifiableCollection(sharingProfileParameterMapper.select(identifier));
+            sharingProfileParameters.put(identifier, new Entry<Collection<SharingProfileParameterModel>>(version, parameters));
+        }
+
+        return parameters;
+
+    }
+
+    /**
+     * Returns the identifiers of all connections within the connection group
+     * having the given identifier.
+     *
+     * @param identifier
+     *     The identifier of the connection group.
+     *
+     * @return
+     *     An unmodifiable collection of the identifiers of all connections
+     *     within the connection group having the given identifier.
+     */
+    public Collection<String> getConnectionIdentifiersWithin(String identifier) {
+
+        if (groupMembers == null)
+            return connectionMapper.selectIdentifiersWithin(identifier);
+
+        // The version must be read before the data it describes
+        long version = changeTracker.getPermissionVersion();
+        Collection<String> members = get(groupMembers, identifier, version);
+        if (members == null) {
+            members = Collections.unmodifiableCollection(connectionMapper.selectIdentifiersWithin(identifier));
+            groupMembers.put(identifier, new Entry<Collection<String>>(version, members));
+        }
+
+        return members;
+
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRate() {
+
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        if (total == 0)
+            return 0;
+
+        return (double) hitCount / total;
+
+    }
+
+    @Override
+    public long getSize() {
+
+        if (connections == null)
+            return 0;
+
+        return connections.size() + connectionParameters.size()
+                + sharingProfileParameters.size() + groupMembers.size();
+
+    }
+
+}
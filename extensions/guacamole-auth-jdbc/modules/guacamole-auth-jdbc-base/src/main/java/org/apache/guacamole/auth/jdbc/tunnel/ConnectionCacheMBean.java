@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.tunnel;
+
+/**
+ * Management interface exposing the effectiveness of a ConnectionCache via
+ * JMX.
+ */
+public interface ConnectionCacheMBean {
+
+    /**
+     * Returns the number of lookups which were answered from the cache.
+     *
+     * @return
+     *     The total number of cache hits.
+     */
+    long getHits();
+
+    /**
+     * Returns the number of lookups which required a database query because
+     * the requested data was not cached or was out of date.
+     *
+     * @return
+     *     The total number of cache misses.
+     */
+    long getMisses();
+
+    /**
+     * Returns the fraction of lookups which were answered from the cache.
+     *
+     * @return
+     *     The ratio of cache hits to total lookups, between 0 and 1, or zero
+     *     if no lookups have been performed.
+     */
+    double getHitRate();
+
+    /**
+     * Returns the approximate number of entries currently cached.
+     *
+     * @return
+     *     The approximate number of cached entries.
+     */
+    long getSize();
+
+}
@@ -93,8 +93,9 @@ public interface GuacamoleTunnelService {
     /**
      * Returns a collection containing connection records representing all
      * currently-active connections using the given connection. These records
-     * will have usernames and start dates, but no end date, and will be
-     * sorted in ascending order by start date.
+     * will have usernames and start dates, but no end date, and are in no
+     * particular order. The collection is a weakly consistent view which may
+     * reflect connections made or closed after this function returns.
      *
      * @param connection
      *     The connection to check.
@@ -142,8 +143,10 @@ public interface GuacamoleTunnelService {
     /**
      * Returns a collection containing connection records representing all
      * currently-active connections using the given connection group. These
-     * records will have usernames and start dates, but no end date, and will
-     * be sorted in ascending order by start date.
+     * records will have usernames and start dates, but no end date, and are
+     * in no particular order. The collection is a weakly consistent view
+     * which may reflect connections made or closed after this function
+     * returns.
      *
      * @param connectionGroup
      *     The connection group to check.
@@ -23,8 +23,8 @@ import com.google.common.collect.ConcurrentHashMultiset;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.guacamole.GuacamoleClientTooManyException;
 import org.apache.guacamole.auth.jdbc.connection.ModeledConnection;
@@ -83,6 +83,62 @@ public class RestrictedGuacamoleTunnelService
      */
     private final AtomicInteger totalActiveConnections = new AtomicInteger(0);
 
+    /**
+     * A connection paired with the number of times it was reserved at the
+     * time the WeightedConnection was created. Reading the number of
+     * reservations only once per connection avoids repeatedly re-reading
+     * shared state while sorting candidate connections, and guarantees that
+     * the sort order remains consistent even if that state changes
+     * concurrently.
+     */
+    private class WeightedConnection implements Comparable<WeightedConnection> {
+
+        /**
+         * The connection being considered.
+         */
+        private final ModeledConnection connection;
+
+        /**
+         * The number of active reservations of the connection.
+         */
+        private final int active;
+
+        /**
+         * The weight assigned to the connection.
+         */
+        private final int weight;
+
+        /**
+         * Creates a new WeightedConnection for the given connection, reading
+         * its current number of active reservations.
+         *
+         * @param connection
+         *     The connection being considered.
+         */
+        public WeightedConnection(ModeledConnection connection) {
+            this.connection = connection;
+            this.active = activeConnections.count(connection.getIdentifier());
+            this.weight = connection.getConnectionWeight();
+        }
+
+        @Override
+        public int compareTo(WeightedConnection other) {
+
+            // Calculated weight of connections
+            long calcWeight = (long) active * other.weight;
+            long otherCalcWeight = (long) other.active * weight;
+
+            // If calculated weights are equal, return difference in assigned weight
+            if (calcWeight == otherCalcWeight)
+                return Integer.compare(weight, other.weight);
+
+            // Return different in calculated weights
+            return Long.compare(calcWeight, otherCalcWeight);
+
+        }
+
+    }
+
     /**
      * Attempts to add a single instance of the given value to the given
      * multiset without exceeding the specified maximum number of values. If
@@ -169,53 +225,148 @@ public class RestrictedGuacamoleTunnelService
 
     }
 
+    /**
+     * Returns whether the given connection may be considered when acquiring
+     * a connection from a balancing group. Connections having a weight less
+     * than 1 are disabled, and failover-only connections may be considered
+     * only if explicitly allowed.
+     *
+     * @param connection
+     *     The connection to test.
+     *
+     * @param includeFailoverOnly
+     *     Whether connections which have been designated for use in failover
+     *     situations only (hot spares) may be considered.
+     *
+     * @return
+     *     true if the given connection may be considered, false otherwise.
+     */
+    private boolean isCandidate(ModeledConnection connection,
+            boolean includeFailoverOnly) {
+        return connection.getConnectionWeight() >= 1
+                && (includeFailoverOnly || !connection.isFailoverOnly());
+    }
+
+    /**
+     * Chooses the less-used of two distinct connections selected at random
+     * from the given list ("power of two choices"). Choosing between two
+     * random connections balances usage nearly as well as always choosing
+     * the least-used connection, while requiring the usage of only two
+     * connections to be read.
+     *
+     * @param connections
+     *     The connections to choose from.
+     *
+     * @param includeFailoverOnly
+     *     Whether connections which have been designated for use in failover
+     *     situations only (hot spares) may be chosen.
+     *
+     * @return
+     *     The less-used of the two selected connections which may be
+     *     considered, or null if neither selected connection may be
+     *     considered.
+     */
+    private WeightedConnection chooseConnection(List<ModeledConnection> connections,
+            boolean includeFailoverOnly) {
+
+        int size = connections.size();
+        if (size == 0)
+            return null;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // Select first connection at random
+        int first = random.nextInt(size);
+        WeightedConnection chosen = null;
+        ModeledConnection connection = connections.get(first);
+        if (isCandidate(connection, includeFailoverOnly))
+            chosen = new WeightedConnection(connection);
+
+        // Select a different second connection, keeping whichever is less
+        // used
+        if (size > 1) {
+
+            int second = random.nextInt(size - 1);
+            if (second >= first)
+                second++;
+
+            connection = connections.get(second);
+            if (isCandidate(connection, includeFailoverOnly)) {
+                WeightedConnection other = new WeightedConnection(connection);
+                if (chosen == null || other.compareTo(chosen) < 0)
+                    chosen = other;
+            }
+
+        }
+
+        return chosen;
+
+    }
+
+    /**
+     * Returns the maximum number of concurrent connections allowed across all
+     * connections, as defined by the environment.
+     *
+     * @return
+     *     The maximum number of concurrent connections allowed across all
+     *     connections, or zero if no such limit applies.
+     *
+     * @throws GuacamoleException
+     *     If the limit cannot be read from the environment.
+     */
+    int getAbsoluteMaxConnections() throws GuacamoleException {
+        return environment.getAbsoluteMaxConnections();
+    }
+
     @Override
     protected ModeledConnection acquire(RemoteAuthenticatedUser user,
             List<ModeledConnection> connections, boolean includeFailoverOnly)
             throws GuacamoleException {
 
         // Do not acquire connection unless within overall limits
-        if (!tryIncrement(totalActiveConnections, environment.getAbsoluteMaxConnections()))
+        if (!tryIncrement(totalActiveConnections, getAbsoluteMaxConnections()))
             throw new GuacamoleResourceConflictException("Cannot connect. Overall maximum connections reached.");
 
         // Get username
         String username = user.getIdentifier();
 
-        // Sort connections in ascending order of usage
-        ModeledConnection[] sortedConnections = connections.toArray(new ModeledConnection[connections.size()]);
-        Arrays.sort(sortedConnections, new Comparator<ModeledConnection>() {
-
-            @Override
-            public int compare(ModeledConnection a, ModeledConnection b) {
+        // Attempt to acquire the less-used of two random connections first,
+        // such that all connections need be sorted only if that fails
+        WeightedConnection chosen = chooseConnection(connections, includeFailoverOnly);
+        if (chosen != null) {
 
-                // Active connections
-                int connA = getActiveConnections(a).size();
-                int connB = getActiveConnections(b).size();
+            ModeledConnection connection = chosen.connection;
 
-                // Assigned weight
-                int weightA = a.getConnectionWeight();
-                int weightB = b.getConnectionWeight();
-
-                // Calculated weight of connections
-                int calcWeightA = connA * weightB;
-                int calcWeightB = connB * weightA;
+            // Attempt to aquire connection according to per-user and overall
+            // limits, releasing the seat if the latter cannot be satisfied
+            Seat seat = new Seat(username, connection.getIdentifier());
+            if (tryAdd(activeSeats, seat,
+                    connection.getMaxConnectionsPerUser())) {
 
-                // If calculated weights are equal, return difference in assigned weight
-                if (calcWeightA == calcWeightB)
-                    return (weightA - weightB);
+                if (tryAdd(activeConnections, connection.getIdentifier(),
+                        connection.getMaxConnections()))
+                    return connection;
 
-                // Return different in calculated weights
-                return (calcWeightA - calcWeightB);
+                activeSeats.remove(seat);
 
             }
 
-        });
+        }
+
+        // Otherwise, sort connections in ascending order of usage, reading
+        // the usage of each connection only once
+        WeightedConnection[] sortedConnections = new WeightedConnection[connections.size()];
+        for (int i = 0; i < sortedConnections.length; i++)
+            sortedConnections[i] = new WeightedConnection(connections.get(i));
+        Arrays.sort(sortedConnections);
 
         // Track whether acquire fails due to user-specific limits
         boolean userSpecificFailure = true;
 
         // Return the first unreserved connection
-        for (ModeledConnection connection : sortedConnections) {
+        for (WeightedConnection candidate : sortedConnections) {
+
+            ModeledConnection connection = candidate.connection;
 
             // If connection weight is less than 1 this host is disabled and should not be used.
             if (connection.getConnectionWeight() < 1) {
@@ -23,6 +23,7 @@ import com.google.common.collect.Sets;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import org.apache.guacamole.auth.jdbc.permission.PermissionSnapshot;
 import org.apache.guacamole.net.auth.AuthenticatedUser;
 import org.apache.guacamole.net.auth.AuthenticationProvider;
 import org.apache.guacamole.net.auth.Credentials;
@@ -57,6 +58,13 @@ public class ModeledAuthenticatedUser extends RemoteAuthenticatedUser {
     private final Set<String> preferredConnections =
             Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
+    /**
+     * The most recent snapshot of the permissions effectively granted to this
+     * user, or null if no snapshot has yet been built. The snapshot is not
+     * necessarily still valid.
+     */
+    private volatile PermissionSnapshot permissionSnapshot;
+
     /**
      * Creates a copy of the given AuthenticatedUser which is associated with
      * the data stored in the provided ModeledUser. The AuthenticatedUser need
@@ -160,6 +168,30 @@ public class ModeledAuthenticatedUser extends RemoteAuthenticatedUser {
         preferredConnections.add(identifier);
     }
 
+    /**
+     * Returns the most recent snapshot of the permissions effectively granted
+     * to this user. The returned snapshot is not necessarily still valid, and
+     * should normally be obtained through PermissionSnapshotService instead.
+     *
+     * @return
+     *     The most recent snapshot of this user's permissions, or null if no
+     *     snapshot has yet been built.
+     */
+    public PermissionSnapshot getPermissionSnapshot() {
+        return permissionSnapshot;
+    }
+
+    /**
+     * Replaces the snapshot of the permissions effectively granted to this
+     * user.
+     *
+     * @param permissionSnapshot
+     *     The new snapshot of this user's permissions.
+     */
+    public void setPermissionSnapshot(PermissionSnapshot permissionSnapshot) {
+        this.permissionSnapshot = permissionSnapshot;
+    }
+
     @Override
     public String getIdentifier() {
         return user.getIdentifier();
@@ -172,8 +204,16 @@ public class ModeledAuthenticatedUser extends RemoteAuthenticatedUser {
     
     @Override
     public Set<String> getEffectiveUserGroups() {
+
+        // Avoid querying the database if the groups are already known
+        PermissionSnapshot snapshot = permissionSnapshot;
+        if (snapshot != null && snapshot.isValid())
+            return Sets.union(snapshot.getEffectiveGroups(),
+                    super.getEffectiveUserGroups());
+
         return Sets.union(user.getEffectiveUserGroups(),
                 super.getEffectiveUserGroups());
+
     }
 
 }
@@ -22,6 +22,7 @@ package org.apache.guacamole.auth.jdbc.user;
 
 import org.apache.guacamole.auth.jdbc.connectiongroup.RootConnectionGroup;
 import org.apache.guacamole.auth.jdbc.connectiongroup.ConnectionGroupDirectory;
+import org.apache.guacamole.auth.jdbc.connectiongroup.ConnectionGroupService;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionDirectory;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -31,6 +32,7 @@ import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.auth.jdbc.base.RestrictedObject;
 import org.apache.guacamole.auth.jdbc.activeconnection.ActiveConnectionDirectory;
 import org.apache.guacamole.auth.jdbc.base.ActivityRecordModel;
+import org.apache.guacamole.auth.jdbc.base.ChangeTracker;
 import org.apache.guacamole.auth.jdbc.connection.ConnectionRecordSet;
 import org.apache.guacamole.auth.jdbc.connection.ModeledConnection;
 import org.apache.guacamole.auth.jdbc.connectiongroup.ModeledConnectionGroup;
@@ -45,6 +47,7 @@ import org.apache.guacamole.net.auth.ActivityRecordSet;
 import org.apache.guacamole.net.auth.AuthenticationProvider;
 import org.apache.guacamole.net.auth.Connection;
 import org.apache.guacamole.net.auth.ConnectionGroup;
+import org.apache.guacamole.net.auth.ConnectionGroupDescendants;
 import org.apache.guacamole.net.auth.Directory;
 import org.apache.guacamole.net.auth.SharingProfile;
 import org.apache.guacamole.net.auth.User;
@@ -99,6 +102,18 @@ public class ModeledUserContext extends RestrictedObject
     @Inject
     private ActiveConnectionDirectory activeConnectionDirectory;
 
+    /**
+     * Tracker of changes to the data exposed by this UserContext.
+     */
+    @Inject
+    private ChangeTracker changeTracker;
+
+    /**
+     * Service for retrieving connection groups and their descendants.
+     */
+    @Inject
+    private ConnectionGroupService connectionGroupService;
+
     /**
      * Provider for creating the root group.
      */
@@ -225,6 +240,17 @@ public class ModeledUserContext extends RestrictedObject
 
     }
 
+    @Override
+    public String getDataVersion() {
+        return changeTracker.getVersion();
+    }
+
+    @Override
+    public ConnectionGroupDescendants getConnectionGroupDescendants(
+            String identifier) throws GuacamoleException {
+        return connectionGroupService.getDescendants(getCurrentUser(), identifier);
+    }
+
     @Override
     public Collection<Form> getUserAttributes() {
         return ModeledUser.ATTRIBUTES;
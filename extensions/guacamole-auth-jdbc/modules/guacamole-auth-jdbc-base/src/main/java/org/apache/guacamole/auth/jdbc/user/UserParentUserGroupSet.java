@@ -20,7 +20,10 @@
 package org.apache.guacamole.auth.jdbc.user;
 
 import com.google.inject.Inject;
+import java.util.Collections;
+import java.util.Set;
 import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.base.GroupClosureService;
 import org.apache.guacamole.auth.jdbc.base.ObjectRelationMapper;
 import org.apache.guacamole.auth.jdbc.base.RelatedObjectSet;
 import org.apache.guacamole.net.auth.permission.ObjectPermissionSet;
@@ -39,6 +42,12 @@ public class UserParentUserGroupSet extends RelatedObjectSet<ModeledUser, UserMo
     @Inject
     private UserParentUserGroupMapper userParentUserGroupMapper;
 
+    /**
+     * Service for maintaining the closure of user group memberships.
+     */
+    @Inject
+    private GroupClosureService groupClosureService;
+
     @Override
     protected ObjectRelationMapper<UserModel> getObjectRelationMapper() {
         return userParentUserGroupMapper;
@@ -56,4 +65,27 @@ public class UserParentUserGroupSet extends RelatedObjectSet<ModeledUser, UserMo
         return getCurrentUser().getUser().getEffectivePermissions().getUserGroupPermissions();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The group membership closure is locked, such that it is updated
+     * consistently with this change.
+     */
+    @Override
+    protected void beforeChange(ModeledUser parent, Set<String> identifiers)
+            throws GuacamoleException {
+        groupClosureService.lock();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The group membership closure of each affected user is refreshed.
+     */
+    @Override
+    protected void afterChange(ModeledUser parent, Set<String> identifiers)
+            throws GuacamoleException {
+        groupClosureService.updateUsers(Collections.singleton(parent.getIdentifier()));
+    }
+
 }
@@ -85,12 +85,23 @@ public interface UserRecordMapper {
      * @param limit
      *     The maximum number of records that should be returned.
      *
+     * @param afterRecordID
+     *     The ID of the record after which returned records should begin, in
+     *     the order defined by the given sort predicates and by record ID, or
+     *     null if records should begin with the first matching record.
+     *
+     * @param indexed
+     *     Whether the search indexes created by the optional search index
+     *     schema scripts are present and may be used to match search terms.
+     *
      * @return
      *     The results of the search performed with the given parameters.
      */
     List<ActivityRecordModel> search(@Param("terms") Collection<ActivityRecordSearchTerm> terms,
             @Param("sortPredicates") List<ActivityRecordSortPredicate> sortPredicates,
-            @Param("limit") int limit);
+            @Param("limit") int limit,
+            @Param("afterRecordID") Integer afterRecordID,
+            @Param("indexed") boolean indexed);
 
     /**
      * Searches for up to <code>limit</code> user login records that contain
@@ -113,12 +124,21 @@ public interface UserRecordMapper {
      * @param limit
      *     The maximum number of records that should be returned.
      *
+     * @param afterRecordID
+     *     The ID of the record after which returned records should begin, in
+     *     the order defined by the given sort predicates and by record ID, or
+     *     null if records should begin with the first matching record.
+     *
      * @param effectiveGroups
      *     The identifiers of all groups that should be taken into account
      *     when determining the permissions effectively granted to the user. If
      *     no groups are given, only permissions directly granted to the user
      *     will be used.
      *
+     * @param indexed
+     *     Whether the search indexes created by the optional search index
+     *     schema scripts are present and may be used to match search terms.
+     *
      * @return
      *     The results of the search performed with the given parameters.
      */
@@ -126,6 +146,8 @@ public interface UserRecordMapper {
             @Param("terms") Collection<ActivityRecordSearchTerm> terms,
             @Param("sortPredicates") List<ActivityRecordSortPredicate> sortPredicates,
             @Param("limit") int limit,
-            @Param("effectiveGroups") Collection<String> effectiveGroups);
+            @Param("afterRecordID") Integer afterRecordID,
+            @Param("effectiveGroups") Collection<String> effectiveGroups,
+            @Param("indexed") boolean indexed);
 
 }
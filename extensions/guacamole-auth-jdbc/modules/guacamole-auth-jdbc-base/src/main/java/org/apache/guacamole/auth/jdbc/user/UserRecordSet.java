@@ -47,12 +47,12 @@ public class UserRecordSet extends ModeledActivityRecordSet<ActivityRecord> {
     @Override
     protected Collection<ActivityRecord> retrieveHistory(
             AuthenticatedUser user, Set<ActivityRecordSearchTerm> requiredContents,
-            List<ActivityRecordSortPredicate> sortPredicates, int limit)
-            throws GuacamoleException {
+            List<ActivityRecordSortPredicate> sortPredicates, int limit,
+            Integer afterRecordID) throws GuacamoleException {
 
         // Retrieve history from database
         return userService.retrieveHistory(getCurrentUser(),
-                requiredContents, sortPredicates, limit);
+                requiredContents, sortPredicates, limit, afterRecordID);
 
     }
 
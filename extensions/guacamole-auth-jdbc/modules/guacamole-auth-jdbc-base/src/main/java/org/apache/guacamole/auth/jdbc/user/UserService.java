@@ -39,6 +39,7 @@ import org.apache.guacamole.auth.jdbc.base.ActivityRecordSearchTerm;
 import org.apache.guacamole.auth.jdbc.base.ActivityRecordSortPredicate;
 import org.apache.guacamole.auth.jdbc.base.EntityMapper;
 import org.apache.guacamole.auth.jdbc.base.ModeledActivityRecord;
+import org.apache.guacamole.auth.jdbc.base.SearchIndexService;
 import org.apache.guacamole.auth.jdbc.permission.ObjectPermissionMapper;
 import org.apache.guacamole.auth.jdbc.permission.ObjectPermissionModel;
 import org.apache.guacamole.auth.jdbc.permission.UserPermissionMapper;
@@ -139,6 +140,13 @@ public class UserService extends ModeledDirectoryObjectService<ModeledUser, User
     @Inject
     private UserRecordMapper userRecordMapper;
 
+    /**
+     * Service for determining whether history searches may use search
+     * indexes.
+     */
+    @Inject
+    private SearchIndexService searchIndexService;
+
     /**
      * Provider for creating users.
      */
@@ -613,6 +621,11 @@ public class UserService extends ModeledDirectoryObjectService<ModeledUser, User
      * @param limit
      *     The maximum number of records that should be returned.
      *
+     * @param afterRecordID
+     *     The ID of the record after which returned records should begin, in
+     *     the order defined by the given sort predicates and by record ID, or
+     *     null if records should begin with the first matching record.
+     *
      * @return
      *     The login history of the given user, including any active sessions.
      *
@@ -621,20 +634,22 @@ public class UserService extends ModeledDirectoryObjectService<ModeledUser, User
      */
     public List<ActivityRecord> retrieveHistory(ModeledAuthenticatedUser user,
             Collection<ActivityRecordSearchTerm> requiredContents,
-            List<ActivityRecordSortPredicate> sortPredicates, int limit)
-            throws GuacamoleException {
+            List<ActivityRecordSortPredicate> sortPredicates, int limit,
+            Integer afterRecordID) throws GuacamoleException {
 
         List<ActivityRecordModel> searchResults;
 
         // Bypass permission checks if the user is a system admin
         if (user.getUser().isAdministrator())
             searchResults = userRecordMapper.search(requiredContents,
-                    sortPredicates, limit);
+                    sortPredicates, limit, afterRecordID,
+                    searchIndexService.isIndexed());
 
         // Otherwise only return explicitly readable history records
         else
             searchResults = userRecordMapper.searchReadable(user.getUser().getModel(),
-                    requiredContents, sortPredicates, limit, user.getEffectiveUserGroups());
+                    requiredContents, sortPredicates, limit, afterRecordID,
+                    user.getEffectiveUserGroups(), searchIndexService.isIndexed());
 
         return getObjectInstances(searchResults);
 
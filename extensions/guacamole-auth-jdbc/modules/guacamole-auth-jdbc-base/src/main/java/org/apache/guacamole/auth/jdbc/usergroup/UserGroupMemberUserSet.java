@@ -20,7 +20,9 @@
 package org.apache.guacamole.auth.jdbc.usergroup;
 
 import com.google.inject.Inject;
+import java.util.Set;
 import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.base.GroupClosureService;
 import org.apache.guacamole.auth.jdbc.base.ObjectRelationMapper;
 import org.apache.guacamole.auth.jdbc.base.RelatedObjectSet;
 import org.apache.guacamole.net.auth.permission.ObjectPermissionSet;
@@ -37,6 +39,12 @@ public class UserGroupMemberUserSet extends RelatedObjectSet<ModeledUserGroup, U
     @Inject
     private UserGroupMemberUserMapper userGroupMemberUserMapper;
 
+    /**
+     * Service for maintaining the closure of user group memberships.
+     */
+    @Inject
+    private GroupClosureService groupClosureService;
+
     @Override
     protected ObjectRelationMapper<UserGroupModel> getObjectRelationMapper() {
         return userGroupMemberUserMapper;
@@ -54,4 +62,27 @@ public class UserGroupMemberUserSet extends RelatedObjectSet<ModeledUserGroup, U
         return getCurrentUser().getUser().getEffectivePermissions().getUserPermissions();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The group membership closure is locked, such that it is updated
+     * consistently with this change.
+     */
+    @Override
+    protected void beforeChange(ModeledUserGroup parent, Set<String> identifiers)
+            throws GuacamoleException {
+        groupClosureService.lock();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The group membership closure of each affected user is refreshed.
+     */
+    @Override
+    protected void afterChange(ModeledUserGroup parent, Set<String> identifiers)
+            throws GuacamoleException {
+        groupClosureService.updateUsers(identifiers);
+    }
+
 }
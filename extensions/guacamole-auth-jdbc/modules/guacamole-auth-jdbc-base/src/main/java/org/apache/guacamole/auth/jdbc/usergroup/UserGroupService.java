@@ -26,6 +26,7 @@ import org.apache.guacamole.auth.jdbc.base.ModeledDirectoryObjectService;
 import org.apache.guacamole.GuacamoleClientException;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.auth.jdbc.base.EntityMapper;
+import org.apache.guacamole.auth.jdbc.base.GroupClosureService;
 import org.apache.guacamole.auth.jdbc.permission.ObjectPermissionMapper;
 import org.apache.guacamole.auth.jdbc.permission.UserGroupPermissionMapper;
 import org.apache.guacamole.auth.jdbc.user.ModeledAuthenticatedUser;
@@ -34,6 +35,7 @@ import org.apache.guacamole.net.auth.permission.ObjectPermission;
 import org.apache.guacamole.net.auth.permission.ObjectPermissionSet;
 import org.apache.guacamole.net.auth.permission.SystemPermission;
 import org.apache.guacamole.net.auth.permission.SystemPermissionSet;
+import org.mybatis.guice.transactional.Transactional;
 
 /**
  * Service which provides convenience methods for creating, retrieving, and
@@ -65,6 +67,12 @@ public class UserGroupService extends ModeledDirectoryObjectService<ModeledUserG
     @Inject
     private Provider<ModeledUserGroup> userGroupProvider;
 
+    /**
+     * Service for maintaining the closure of user group memberships.
+     */
+    @Inject
+    private GroupClosureService groupClosureService;
+
     @Override
     protected ModeledDirectoryObjectMapper<UserGroupModel> getObjectMapper() {
         return userGroupMapper;
@@ -180,4 +188,42 @@ public class UserGroupService extends ModeledDirectoryObjectService<ModeledUserG
 
     }
 
+    @Override
+    @Transactional
+    public void updateObject(ModeledAuthenticatedUser user,
+            ModeledUserGroup object) throws GuacamoleException {
+
+        // Lock the group membership closure before any change which may
+        // require it to be rebuilt
+        groupClosureService.lock();
+
+        UserGroupModel model = object.getModel();
+        UserGroupModel existing = userGroupMapper.selectOne(model.getIdentifier());
+
+        super.updateObject(user, object);
+
+        // Disabled groups are excluded from the group membership closure, so
+        // any change in whether the group is disabled affects its members.
+        // The closure refers to groups only by ID, so a rename alone does not
+        // affect it, but the previous state of a renamed group cannot be
+        // found by name and the closure is then rebuilt to be safe.
+        if (existing == null || existing.isDisabled() != model.isDisabled())
+            groupClosureService.rebuild();
+
+    }
+
+    @Override
+    @Transactional
+    public void deleteObject(ModeledAuthenticatedUser user, String identifier)
+            throws GuacamoleException {
+
+        groupClosureService.lock();
+        super.deleteObject(user, identifier);
+
+        // Deleted groups no longer contribute to the effective groups of
+        // their former members
+        groupClosureService.rebuild();
+
+    }
+
 }
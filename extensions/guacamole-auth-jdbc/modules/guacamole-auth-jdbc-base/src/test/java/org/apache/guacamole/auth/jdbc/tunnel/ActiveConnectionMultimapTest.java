@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.auth.jdbc.tunnel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test which verifies that ActiveConnectionMultimap neither loses nor retains
+ * records when many threads add and remove records concurrently.
+ */
+public class ActiveConnectionMultimapTest {
+
+    /**
+     * The number of threads which should concurrently modify the multimap.
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * The number of times each thread should add and remove its record.
+     */
+    private static final int ITERATIONS = 20000;
+
+    /**
+     * The number of distinct identifiers shared by all threads. This is kept
+     * smaller than the number of threads so that the set of records for each
+     * identifier is frequently emptied and recreated while other threads are
+     * adding to it.
+     */
+    private static final int IDENTIFIERS = 3;
+
+    /**
+     * Verifies that basic additions and removals are reflected by get(), and
+     * that the collections returned by get() cannot be modified.
+     */
+    @Test
+    public void testPutRemove() {
+
+        ActiveConnectionMultimap multimap = new ActiveConnectionMultimap();
+        ActiveConnectionRecord first = new ActiveConnectionRecord();
+        ActiveConnectionRecord second = new ActiveConnectionRecord();
+
+        assertTrue(multimap.get("1").isEmpty());
+
+        multimap.put("1", first);
+        multimap.put("1", second);
+        assertEquals(2, multimap.get("1").size());
+        assertTrue(multimap.get("1").contains(first));
+        assertTrue(multimap.get("1").contains(second));
+        assertTrue(multimap.get("2").isEmpty());
+
+        try {
+            multimap.get("1").clear();
+            fail("Collections returned by get() must be unmodifiable.");
+        }
+        catch (UnsupportedOperationException e) {
+            // Expected
+        }
+
+        multimap.remove("1", first);
+        assertEquals(1, multimap.get("1").size());
+        assertTrue(multimap.get("1").contains(second));
+
+        multimap.remove("1", second);
+        assertTrue(multimap.get("1").isEmpty());
+
+        // Removing an absent record must have no effect
+        multimap.remove("1", second);
+        assertTrue(multimap.get("1").isEmpty());
+
+    }
+
+    /**
+     * Verifies that records added and removed concurrently by many threads
+     * sharing a small number of identifiers are never lost while present and
+     * are all gone once removed.
+     *
+     * @throws Exception
+     *     If any thread fails or the test does not complete in time.
+     */
+    @Test
+    public void testConcurrentPutRemove() throws Exception {
+
+        final ActiveConnectionMultimap multimap = new ActiveConnectionMultimap();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+
+            // Each thread repeatedly adds and removes its own record
+            List<Future<Void>> results = new ArrayList<Future<Void>>(THREADS);
+            for (int i = 0; i < THREADS; i++) {
+
+                final String identifier = Integer.toString(i % IDENTIFIERS);
+                results.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+
+                        ActiveConnectionRecord record = new ActiveConnectionRecord();
+                        start.await();
+
+                        for (int j = 0; j < ITERATIONS; j++) {
+
+                            multimap.put(identifier, record);
+
+                            // The record must remain visible until removed,
+                            // regardless of other threads emptying the set
+                            Collection<ActiveConnectionRecord> records = multimap.get(identifier);
+                            assertTrue(records.contains(record));
+
+                            multimap.remove(identifier, record);
+
+                        }
+
+                        return null;
+
+                    }
+
+                }));
+
+            }
+
+            // Release all threads at once, rethrowing any failure
+            start.countDown();
+            for (Future<Void> result : results)
+                result.get(60, TimeUnit.SECONDS);
+
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // No records may remain once every thread has removed its record
+        for (int i = 0; i < IDENTIFIERS; i++)
+            assertTrue(multimap.get(Integer.toString(i)).isEmpty());
+
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.auth.jdbc.tunnel;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleResourceConflictException;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionModel;
+import org.apache.guacamole.auth.jdbc.connection.ModeledConnection;
+import org.apache.guacamole.auth.jdbc.user.RemoteAuthenticatedUser;
+import org.apache.guacamole.net.auth.Credentials;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test which verifies that RestrictedGuacamoleTunnelService balances
+ * connections within a group and respects connection limits. The time taken
+ * to acquire connections is measured separately, by the benchmarks within
+ * guacamole-auth-jdbc-benchmarks.
+ */
+public class RestrictedGuacamoleTunnelServiceTest {
+
+    /**
+     * The service under test.
+     */
+    private RestrictedGuacamoleTunnelService service;
+
+    /**
+     * The user acquiring connections.
+     */
+    private RemoteAuthenticatedUser user;
+
+    /**
+     * Creates a new RestrictedGuacamoleTunnelService which imposes no limits
+     * beyond those defined by each connection, along with a user to acquire
+     * connections.
+     */
+    @Before
+    public void setUp() {
+
+        // The overall connection limit is the only part of the environment
+        // used to acquire and release connections
+        service = new RestrictedGuacamoleTunnelService() {
+
+            @Override
+            int getAbsoluteMaxConnections() {
+                return 0;
+            }
+
+        };
+
+        // Credentials require a request, though none of its data is used
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+                HttpServletRequest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class },
+                new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+
+                });
+
+        user = new RemoteAuthenticatedUser(null,
+                new Credentials("user", "password", request),
+                Collections.<String>emptySet()) {
+
+            @Override
+            public String getIdentifier() {
+                return "user";
+            }
+
+            @Override
+            public void setIdentifier(String identifier) {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+
+    }
+
+    /**
+     * Returns the given number of connections, each having the given maximum
+     * number of concurrent connections and no per-user limit.
+     *
+     * @param count
+     *     The number of connections to create.
+     *
+     * @param maxConnections
+     *     The maximum number of concurrent connections to each connection, or
+     *     zero if no limit applies.
+     *
+     * @return
+     *     A new list of the given number of connections.
+     */
+    private static List<ModeledConnection> createConnections(int count,
+            int maxConnections) {
+
+        List<ModeledConnection> connections = new ArrayList<ModeledConnection>(count);
+        for (int i = 0; i < count; i++) {
+
+            ConnectionModel model = new ConnectionModel();
+            model.setObjectID(i);
+            model.setName("connection-" + i);
+            model.setMaxConnections(maxConnections);
+            model.setMaxConnectionsPerUser(0);
+
+            ModeledConnection connection = new ModeledConnection();
+            connection.setModel(model);
+            connections.add(connection);
+
+        }
+
+        return connections;
+
+    }
+
+    /**
+     * Verifies that connections acquired from a balancing group without
+     * limits are spread evenly across the group.
+     *
+     * @throws GuacamoleException
+     *     If a connection cannot be acquired.
+     */
+    @Test
+    public void testBalancing() throws GuacamoleException {
+
+        final int connectionCount = 100;
+        final int perConnection = 20;
+
+        List<ModeledConnection> connections = createConnections(connectionCount, 0);
+
+        Map<String, Integer> usage = new HashMap<String, Integer>();
+        for (int i = 0; i < connectionCount * perConnection; i++) {
+            String identifier = service.acquire(user, connections, false).getIdentifier();
+            Integer count = usage.get(identifier);
+            usage.put(identifier, count == null ? 1 : count + 1);
+        }
+
+        // Choosing the less-used of two random connections keeps the most
+        // and least used connections close to the average
+        assertEquals(connectionCount, usage.size());
+        for (int count : usage.values()) {
+            assertTrue("Connection overused: " + count, count <= perConnection + 5);
+            assertTrue("Connection underused: " + count, count >= perConnection - 12);
+        }
+
+    }
+
+    /**
+     * Verifies that every connection is eventually used if the connections
+     * chosen at random are full, and that acquiring fails only once all
+     * connections are full.
+     *
+     * @throws GuacamoleException
+     *     If a connection cannot be acquired.
+     */
+    @Test
+    public void testLimits() throws GuacamoleException {
+
+        final int connectionCount = 50;
+        List<ModeledConnection> connections = createConnections(connectionCount, 1);
+
+        List<String> acquired = new ArrayList<String>();
+        for (int i = 0; i < connectionCount; i++) {
+            String identifier = service.acquire(user, connections, false).getIdentifier();
+            assertFalse("Connection acquired twice: " + identifier,
+                    acquired.contains(identifier));
+            acquired.add(identifier);
+        }
+
+        try {
+            service.acquire(user, connections, false);
+            fail("Acquire must fail once all connections are full.");
+        }
+        catch (GuacamoleResourceConflictException e) {
+            // Expected
+        }
+
+        // Releasing a connection must allow exactly that connection to be
+        // acquired again
+        service.release(user, connections.get(7));
+        assertEquals("7", service.acquire(user, connections, false).getIdentifier());
+
+    }
+
+    /**
+     * Verifies that disabled connections are never acquired, and that
+     * failover-only connections are acquired only when allowed.
+     *
+     * @throws GuacamoleException
+     *     If a connection cannot be acquired.
+     */
+    @Test
+    public void testDisabledAndFailover() throws GuacamoleException {
+
+        List<ModeledConnection> connections = createConnections(10, 0);
+        for (int i = 0; i < 5; i++)
+            connections.get(i).getModel().setConnectionWeight(0);
+        for (int i = 5; i < 9; i++)
+            connections.get(i).getModel().setFailoverOnly(true);
+
+        // Only the single normal connection may be used
+        for (int i = 0; i < 100; i++)
+            assertEquals("9", service.acquire(user, connections, false).getIdentifier());
+
+        // Failover-only connections may be used once allowed
+        for (int i = 0; i < 100; i++) {
+            int index = Integer.parseInt(service.acquire(user, connections, true).getIdentifier());
+            assertTrue("Disabled connection acquired: " + index, index >= 5);
+        }
+
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.auth.jdbc.tunnel;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark measuring the throughput of ActiveConnectionMultimap as the
+ * number of threads connecting to and disconnecting from the same objects
+ * grows. Each operation adds a record, reads the records of its identifier,
+ * and removes the record again, as happens whenever a connection is
+ * established and closed. With few identifiers, every thread contends for
+ * the same entries, as when many users connect to one popular connection.
+ *
+ * Running this class directly, rather than through benchmarks.jar, runs the
+ * benchmark once for each thread count from 1 up to the number of available
+ * processors and prints the total throughput and speedup of each:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.apache.guacamole.auth.jdbc.tunnel.ActiveConnectionMultimapBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActiveConnectionMultimapBenchmark {
+
+    /**
+     * The number of distinct identifiers shared by all threads.
+     */
+    @Param({ "1", "100" })
+    public int identifierCount;
+
+    /**
+     * The multimap being measured.
+     */
+    private ActiveConnectionMultimap multimap;
+
+    /**
+     * The number of threads which have started thus far, used to spread
+     * threads evenly across identifiers.
+     */
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * The record and identifier used within a single benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class RecordState {
+
+        /**
+         * The identifier of the object the current thread connects to.
+         */
+        private String identifier;
+
+        /**
+         * The record added and removed by the current thread.
+         */
+        private final ActiveConnectionRecord record = new ActiveConnectionRecord();
+
+        /**
+         * Assigns the identifier used by the current thread.
+         *
+         * @param benchmark
+         *     The benchmark being run.
+         */
+        @Setup
+        public void setUp(ActiveConnectionMultimapBenchmark benchmark) {
+            int thread = benchmark.threadCount.getAndIncrement();
+            identifier = Integer.toString(thread % benchmark.identifierCount);
+        }
+
+    }
+
+    /**
+     * Creates the multimap being measured.
+     */
+    @Setup
+    public void setUp() {
+        multimap = new ActiveConnectionMultimap();
+    }
+
+    /**
+     * Adds a record, reads all records sharing its identifier, and removes
+     * the record.
+     *
+     * @param state
+     *     The record and identifier of the current thread.
+     *
+     * @return
+     *     The number of records read, which must be consumed so that the read
+     *     is not optimized away.
+     */
+    @Benchmark
+    public int putGetRemove(RecordState state) {
+        multimap.put(state.identifier, state.record);
+        Collection<ActiveConnectionRecord> records = multimap.get(state.identifier);
+        multimap.remove(state.identifier, state.record);
+        return records.size();
+    }
+
+    /**
+     * Runs the benchmark with each thread count from 1 up to the number of
+     * available processors, printing the total throughput for each thread
+     * count and its speedup relative to a single thread.
+     *
+     * @param args
+     *     Ignored.
+     *
+     * @throws RunnerException
+     *     If the benchmark cannot be run.
+     */
+    public static void main(String[] args) throws RunnerException {
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        StringBuilder summary = new StringBuilder(String.format(
+                "%-16s %8s %16s %8s%n", "identifierCount", "threads",
+                "ops/ms", "speedup"));
+
+        for (String identifierCount : new String[] { "1", "100" }) {
+
+            double baseline = 0;
+            for (int threads = 1; threads <= processors; threads++) {
+
+                Options options = new OptionsBuilder()
+                        .include(ActiveConnectionMultimapBenchmark.class.getName())
+                        .param("identifierCount", identifierCount)
+                        .threads(threads)
+                        .build();
+
+                double score = 0;
+                for (RunResult result : new Runner(options).run())
+                    score += result.getPrimaryResult().getScore();
+
+                if (threads == 1)
+                    baseline = score;
+
+                summary.append(String.format("%-16s %8d %16.1f %8.2f%n",
+                        identifierCount, threads, score, score / baseline));
+
+            }
+
+        }
+
+        System.out.print(summary);
+
+    }
+
+}
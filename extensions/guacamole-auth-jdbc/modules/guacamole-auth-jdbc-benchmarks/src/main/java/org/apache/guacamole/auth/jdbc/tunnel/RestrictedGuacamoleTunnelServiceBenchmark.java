@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.auth.jdbc.tunnel;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.auth.jdbc.connection.ConnectionModel;
+import org.apache.guacamole.auth.jdbc.connection.ModeledConnection;
+import org.apache.guacamole.auth.jdbc.user.RemoteAuthenticatedUser;
+import org.apache.guacamole.net.auth.Credentials;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark measuring the time taken by RestrictedGuacamoleTunnelService to
+ * acquire and release a connection from a balancing group, both within a
+ * single thread and with every available processor acquiring from the same
+ * group at once. The time taken should not grow with the size of the group.
+ * After building with the "benchmarks" profile, run with:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar RestrictedGuacamoleTunnelServiceBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestrictedGuacamoleTunnelServiceBenchmark {
+
+    /**
+     * The number of connections within the balancing group.
+     */
+    @Param({ "10", "1000", "10000" })
+    public int connectionCount;
+
+    /**
+     * The service being measured.
+     */
+    private RestrictedGuacamoleTunnelService service;
+
+    /**
+     * The connections within the balancing group.
+     */
+    private List<ModeledConnection> connections;
+
+    /**
+     * The number of users created thus far, used to give each benchmark
+     * thread its own user.
+     */
+    private final AtomicInteger userCount = new AtomicInteger();
+
+    /**
+     * The user acquiring connections within a single benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class UserState {
+
+        /**
+         * The user acquiring connections.
+         */
+        private RemoteAuthenticatedUser user;
+
+        /**
+         * Creates the user acquiring connections within the current thread.
+         *
+         * @param benchmark
+         *     The benchmark being run.
+         */
+        @Setup
+        public void setUp(RestrictedGuacamoleTunnelServiceBenchmark benchmark) {
+            user = createUser("user-" + benchmark.userCount.incrementAndGet());
+        }
+
+    }
+
+    /**
+     * Returns a new user having the given username.
+     *
+     * @param username
+     *     The username of the user to create.
+     *
+     * @return
+     *     A new user having the given username.
+     */
+    private static RemoteAuthenticatedUser createUser(final String username) {
+
+        // Credentials require a request, though none of its data is used
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+                HttpServletRequest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class },
+                new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+
+                });
+
+        return new RemoteAuthenticatedUser(null,
+                new Credentials(username, "password", request),
+                Collections.<String>emptySet()) {
+
+            @Override
+            public String getIdentifier() {
+                return username;
+            }
+
+            @Override
+            public void setIdentifier(String identifier) {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+
+    }
+
+    /**
+     * Creates the service being measured and a balancing group of
+     * connectionCount connections, none of which have any limits.
+     */
+    @Setup
+    public void setUp() {
+
+        service = new RestrictedGuacamoleTunnelService() {
+
+            @Override
+            int getAbsoluteMaxConnections() {
+                return 0;
+            }
+
+        };
+
+        connections = new ArrayList<ModeledConnection>(connectionCount);
+        for (int i = 0; i < connectionCount; i++) {
+
+            ConnectionModel model = new ConnectionModel();
+            model.setObjectID(i);
+            model.setName("connection-" + i);
+            model.setMaxConnections(0);
+            model.setMaxConnectionsPerUser(0);
+
+            ModeledConnection connection = new ModeledConnection();
+            connection.setModel(model);
+            connections.add(connection);
+
+        }
+
+    }
+
+    /**
+     * Acquires and releases a connection from the balancing group, without
+     * contention from other threads.
+     *
+     * @param state
+     *     The user acquiring the connection.
+     *
+     * @return
+     *     The connection acquired.
+     *
+     * @throws GuacamoleException
+     *     If a connection cannot be acquired.
+     */
+    @Benchmark
+    @Threads(1)
+    public ModeledConnection acquireRelease(UserState state)
+            throws GuacamoleException {
+        ModeledConnection connection = service.acquire(state.user, connections, false);
+        service.release(state.user, connection);
+        return connection;
+    }
+
+    /**
+     * Acquires and releases a connection from the balancing group while
+     * every other available processor does the same.
+     *
+     * @param state
+     *     The user acquiring the connection.
+     *
+     * @return
+     *     The connection acquired.
+     *
+     * @throws GuacamoleException
+     *     If a connection cannot be acquired.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ModeledConnection acquireReleaseContended(UserState state)
+            throws GuacamoleException {
+        ModeledConnection connection = service.acquire(state.user, connections, false);
+        service.release(state.user, connection);
+        return connection;
+    }
+
+}
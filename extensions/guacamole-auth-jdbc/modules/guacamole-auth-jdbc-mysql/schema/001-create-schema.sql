@@ -194,6 +194,46 @@ CREATE TABLE `guacamole_user_group_member` (
 
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
+--
+-- Table of the effective group memberships of each user, including
+-- memberships inherited through nested groups. This table is maintained
+-- automatically when the "mysql-group-closure" property is enabled.
+--
+
+CREATE TABLE `guacamole_user_group_closure` (
+
+  `member_entity_id` int(11)     NOT NULL,
+  `user_group_id`    int(11)     NOT NULL,
+
+  PRIMARY KEY (`member_entity_id`, `user_group_id`),
+  KEY `user_group_id` (`user_group_id`),
+
+  CONSTRAINT `guacamole_user_group_closure_entity_id`
+    FOREIGN KEY (`member_entity_id`)
+    REFERENCES `guacamole_entity` (`entity_id`) ON DELETE CASCADE,
+
+  CONSTRAINT `guacamole_user_group_closure_user_group_id`
+    FOREIGN KEY (`user_group_id`)
+    REFERENCES `guacamole_user_group` (`user_group_id`) ON DELETE CASCADE
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+--
+-- Single-row table whose row is locked for the duration of any transaction
+-- which modifies guacamole_user_group_closure, such that concurrent updates
+-- by multiple instances of the web application are serialized.
+--
+
+CREATE TABLE `guacamole_user_group_closure_lock` (
+
+  `lock_id` int(11) NOT NULL,
+
+  PRIMARY KEY (`lock_id`)
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+INSERT INTO `guacamole_user_group_closure_lock` (`lock_id`) VALUES (1);
+
 --
 -- Table of sharing profiles. Each sharing profile has a name, associated set
 -- of parameters, and a primary connection. The primary connection is the
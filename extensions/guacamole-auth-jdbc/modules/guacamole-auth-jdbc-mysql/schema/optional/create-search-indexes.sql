@@ -0,0 +1,39 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+--
+-- FULLTEXT indexes allowing history to be searched for users and connections
+-- whose names contain arbitrary substrings without scanning all names. These
+-- indexes use the ngram full-text parser, which is available only in MySQL
+-- 5.7.6 and later, and not in MariaDB, and thus are not created by the
+-- main schema scripts. If present, they are detected and used automatically.
+--
+-- The ngram token size MUST be left at its default value of 2
+-- (ngram_token_size), and stopwords MUST be disabled while the indexes are
+-- created, as any ngram containing a stopword would otherwise be omitted
+-- from the index.
+--
+
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+CREATE FULLTEXT INDEX `guacamole_entity_name_search`
+    ON `guacamole_entity` (`name`) WITH PARSER ngram;
+
+CREATE FULLTEXT INDEX `guacamole_connection_name_search`
+    ON `guacamole_connection` (`connection_name`) WITH PARSER ngram;
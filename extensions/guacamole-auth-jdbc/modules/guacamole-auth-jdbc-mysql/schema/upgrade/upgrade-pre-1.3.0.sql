@@ -0,0 +1,58 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+--
+-- Table of the effective group memberships of each user, including
+-- memberships inherited through nested groups. This table is maintained
+-- automatically when the "mysql-group-closure" property is enabled.
+--
+
+CREATE TABLE `guacamole_user_group_closure` (
+
+  `member_entity_id` int(11)     NOT NULL,
+  `user_group_id`    int(11)     NOT NULL,
+
+  PRIMARY KEY (`member_entity_id`, `user_group_id`),
+  KEY `user_group_id` (`user_group_id`),
+
+  CONSTRAINT `guacamole_user_group_closure_entity_id`
+    FOREIGN KEY (`member_entity_id`)
+    REFERENCES `guacamole_entity` (`entity_id`) ON DELETE CASCADE,
+
+  CONSTRAINT `guacamole_user_group_closure_user_group_id`
+    FOREIGN KEY (`user_group_id`)
+    REFERENCES `guacamole_user_group` (`user_group_id`) ON DELETE CASCADE
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+--
+-- Single-row table whose row is locked for the duration of any transaction
+-- which modifies guacamole_user_group_closure, such that concurrent updates
+-- by multiple instances of the web application are serialized.
+--
+
+CREATE TABLE `guacamole_user_group_closure_lock` (
+
+  `lock_id` int(11) NOT NULL,
+
+  PRIMARY KEY (`lock_id`)
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+INSERT INTO `guacamole_user_group_closure_lock` (`lock_id`) VALUES (1);
@@ -73,11 +73,28 @@ public class MySQLAuthenticationProviderModule implements Module {
         myBatisProperties.setProperty("mybatis.pooled.pingEnabled", "true");
         myBatisProperties.setProperty("mybatis.pooled.pingQuery", "SELECT 1");
 
+        // Size the connection pool
+        myBatisProperties.setProperty("mybatis.pooled.maximumActiveConnections",
+                String.valueOf(environment.getMaxPoolConnections()));
+        myBatisProperties.setProperty("mybatis.pooled.maximumIdleConnections",
+                String.valueOf(environment.getMaxIdlePoolConnections()));
+
         // Use UTF-8 in database
         driverProperties.setProperty("characterEncoding", "UTF-8");
 
         // Allow use of multiple statements within a single query
         driverProperties.setProperty("allowMultiQueries", "true");
+
+        // Cache server-side prepared statements, if enabled (the properties
+        // involved are identical for MySQL Connector/J and MariaDB
+        // Connector/J)
+        int statementCacheSize = environment.getStatementCacheSize();
+        if (statementCacheSize > 0) {
+            driverProperties.setProperty("useServerPrepStmts", "true");
+            driverProperties.setProperty("cachePrepStmts", "true");
+            driverProperties.setProperty("prepStmtCacheSize", String.valueOf(statementCacheSize));
+            driverProperties.setProperty("prepStmtCacheSqlLimit", "8192");
+        }
         
         // Get the MySQL-compatible driver to use.
         mysqlDriver = environment.getMySQLDriver();
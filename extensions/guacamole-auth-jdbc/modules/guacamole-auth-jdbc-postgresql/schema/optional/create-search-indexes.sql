@@ -0,0 +1,39 @@
+--
+-- Licensed to the Apache Software Foundation (ASF) under one
+-- or more contributor license agreements.  See the NOTICE file
+-- distributed with this work for additional information
+-- regarding copyright ownership.  The ASF licenses this file
+-- to you under the Apache License, Version 2.0 (the
+-- "License"); you may not use this file except in compliance
+-- with the License.  You may obtain a copy of the License at
+--
+--   http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing,
+-- software distributed under the License is distributed on an
+-- "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+-- KIND, either express or implied.  See the License for the
+-- specific language governing permissions and limitations
+-- under the License.
+--
+
+--
+-- Trigram indexes allowing history to be searched for users and connections
+-- whose names contain arbitrary substrings without scanning all names. These
+-- indexes require the "pg_trgm" extension, which is part of the PostgreSQL
+-- contrib modules and may need to be installed separately. Prior to
+-- PostgreSQL 13, the extension can only be created by a superuser; from
+-- PostgreSQL 13 onward, any user with CREATE privilege on the database may
+-- create it. As these requirements cannot be assumed, the indexes are not
+-- created by the main schema scripts. If this script cannot be run, history
+-- searches still work, without the benefit of these indexes. If the indexes
+-- are present, they are used automatically.
+--
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX guacamole_entity_name_search
+    ON guacamole_entity USING gin (name gin_trgm_ops);
+
+CREATE INDEX guacamole_connection_name_search
+    ON guacamole_connection USING gin (connection_name gin_trgm_ops);
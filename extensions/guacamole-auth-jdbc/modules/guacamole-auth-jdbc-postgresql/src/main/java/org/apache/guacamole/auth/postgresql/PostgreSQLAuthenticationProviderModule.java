@@ -67,9 +67,23 @@ public class PostgreSQLAuthenticationProviderModule implements Module {
         myBatisProperties.setProperty("mybatis.pooled.pingEnabled", "true");
         myBatisProperties.setProperty("mybatis.pooled.pingQuery", "SELECT 1");
 
+        // Size the connection pool
+        myBatisProperties.setProperty("mybatis.pooled.maximumActiveConnections",
+                String.valueOf(environment.getMaxPoolConnections()));
+        myBatisProperties.setProperty("mybatis.pooled.maximumIdleConnections",
+                String.valueOf(environment.getMaxIdlePoolConnections()));
+
         // Use UTF-8 in database
         driverProperties.setProperty("characterEncoding", "UTF-8");
 
+        // Cache server-side prepared statements, if enabled (statements are
+        // prepared on the server once used as many times as the driver's
+        // "prepareThreshold")
+        int statementCacheSize = environment.getStatementCacheSize();
+        if (statementCacheSize > 0)
+            driverProperties.setProperty("preparedStatementCacheQueries",
+                    String.valueOf(statementCacheSize));
+
     }
 
     @Override
@@ -105,6 +105,166 @@ public class PostgreSQLGuacamoleProperties {
 
     };
 
+    /**
+     * Whether changes made to the database through this instance of the web
+     * application should be tracked, such that clients can be told that data
+     * is unchanged without rebuilding it. This must only be enabled if the
+     * database is not modified by any other Guacamole instance or process.
+     */
+    public static final BooleanGuacamoleProperty
+            POSTGRESQL_TRACK_CHANGES = new BooleanGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-track-changes"; }
+
+    };
+
+    /**
+     * The maximum amount of time that a snapshot of a user's effective
+     * permissions may be used before being rebuilt, in seconds. Snapshots are
+     * rebuilt immediately after any change made through this instance of the
+     * web application, but changes made by other instances sharing the same
+     * database, or made to the database directly, go unnoticed for up to this
+     * long. A revoked permission or group membership may thus remain
+     * effective for that long, and this should only be set if that is
+     * acceptable. By default, snapshots are disabled (zero).
+     */
+    public static final IntegerGuacamoleProperty
+            POSTGRESQL_PERMISSION_SNAPSHOT_LIFETIME =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-permission-snapshot-lifetime"; }
+
+    };
+
+    /**
+     * Whether effective group memberships should be read from the
+     * guacamole_user_group_closure table rather than computed by traversing
+     * nested groups with each query. The table is maintained as memberships
+     * are changed through Guacamole and rebuilt after each restart.
+     */
+    public static final BooleanGuacamoleProperty
+            POSTGRESQL_GROUP_CLOSURE = new BooleanGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-group-closure"; }
+
+    };
+
+    /**
+     * The maximum number of connection history records which may be queued
+     * for writing in the background. Zero disables queueing, such that each
+     * record is written as its connection closes.
+     */
+    public static final IntegerGuacamoleProperty
+            POSTGRESQL_HISTORY_QUEUE_SIZE =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-history-queue-size"; }
+
+    };
+
+    /**
+     * The maximum amount of time that connection parameters and the members
+     * of balancing groups may be cached when establishing connections, in
+     * seconds. The cache is cleared immediately after any change made through
+     * this instance of the web application, thus this only limits how long
+     * changes made by other instances or processes may go unnoticed. Zero
+     * disables caching.
+     */
+    public static final IntegerGuacamoleProperty
+            POSTGRESQL_CONNECTION_CACHE_LIFETIME =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-connection-cache-lifetime"; }
+
+    };
+
+    /**
+     * The JDBC URL of a read-only replica of the database, to which queries
+     * which are not part of a transaction should be sent. The replica is
+     * accessed using the same driver and credentials as the primary database.
+     */
+    public static final StringGuacamoleProperty
+            POSTGRESQL_REPLICA_URL =
+            new StringGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-replica-url"; }
+
+    };
+
+    /**
+     * The amount of time that all queries should be sent to the primary
+     * database after data is changed through this instance of the web
+     * application, in seconds. This should exceed the typical replication lag
+     * of the read-only replica.
+     */
+    public static final IntegerGuacamoleProperty
+            POSTGRESQL_REPLICA_LAG =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-replica-lag"; }
+
+    };
+
+    /**
+     * The maximum number of connections to the database which may be open
+     * and in use at any one time.
+     */
+    public static final IntegerGuacamoleProperty
+            POSTGRESQL_MAX_POOL_CONNECTIONS =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-max-pool-connections"; }
+
+    };
+
+    /**
+     * The maximum number of unused connections to the database which should
+     * be kept open for future use.
+     */
+    public static final IntegerGuacamoleProperty
+            POSTGRESQL_MAX_IDLE_POOL_CONNECTIONS =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-max-idle-pool-connections"; }
+
+    };
+
+    /**
+     * The maximum amount of time to wait for a connection to the database to
+     * become available, in milliseconds. If zero, requests wait indefinitely.
+     */
+    public static final IntegerGuacamoleProperty
+            POSTGRESQL_POOL_CHECKOUT_TIMEOUT =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-pool-checkout-timeout"; }
+
+    };
+
+    /**
+     * The number of server-side prepared statements which the JDBC driver
+     * should cache for each connection. If zero, the default behavior of the
+     * JDBC driver is used.
+     */
+    public static final IntegerGuacamoleProperty
+            POSTGRESQL_STATEMENT_CACHE_SIZE =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "postgresql-statement-cache-size"; }
+
+    };
+
     /**
      * The maximum number of concurrent connections to allow overall. Zero
      * denotes unlimited.
@@ -309,6 +309,54 @@ CREATE TABLE [guacamole_user_group_member] (
 );
 GO
 
+--
+-- Table of the effective group memberships of each user, including
+-- memberships inherited through nested groups. This table is maintained
+-- automatically when the "sqlserver-group-closure" property is enabled.
+--
+
+CREATE TABLE [guacamole_user_group_closure] (
+
+    [member_entity_id] [int] NOT NULL,
+    [user_group_id]    [int] NOT NULL,
+
+    CONSTRAINT [PK_guacamole_user_group_closure]
+        PRIMARY KEY CLUSTERED ([member_entity_id], [user_group_id]),
+
+    CONSTRAINT [FK_guacamole_user_group_closure_member_entity_id]
+        FOREIGN KEY ([member_entity_id])
+        REFERENCES [guacamole_entity] ([entity_id]),
+        -- ON DELETE CASCADE handled by guacamole_delete_entity trigger
+
+    CONSTRAINT [FK_guacamole_user_group_closure_user_group_id]
+        FOREIGN KEY ([user_group_id])
+        REFERENCES [guacamole_user_group] ([user_group_id])
+        ON DELETE CASCADE
+
+);
+
+CREATE NONCLUSTERED INDEX [IX_guacamole_user_group_closure_user_group_id]
+    ON [guacamole_user_group_closure] ([user_group_id]);
+GO
+
+--
+-- Single-row table whose row is locked for the duration of any transaction
+-- which modifies guacamole_user_group_closure, such that concurrent updates
+-- by multiple instances of the web application are serialized.
+--
+
+CREATE TABLE [guacamole_user_group_closure_lock] (
+
+    [lock_id] [int] NOT NULL,
+
+    CONSTRAINT [PK_guacamole_user_group_closure_lock]
+        PRIMARY KEY CLUSTERED ([lock_id])
+
+);
+
+INSERT INTO [guacamole_user_group_closure_lock] ([lock_id]) VALUES (1);
+GO
+
 --
 -- Table of sharing profiles. Each sharing profile has a name, associated set
 -- of parameters, and a primary connection. The primary connection is the
@@ -867,6 +915,9 @@ AS BEGIN
     DELETE FROM [guacamole_user_group_member]
     WHERE [member_entity_id] IN (SELECT [entity_id] FROM DELETED);
 
+    DELETE FROM [guacamole_user_group_closure]
+    WHERE [member_entity_id] IN (SELECT [entity_id] FROM DELETED);
+
     -- Perform original deletion
     DELETE FROM [guacamole_entity]
     WHERE [entity_id] IN (SELECT [entity_id] FROM DELETED);
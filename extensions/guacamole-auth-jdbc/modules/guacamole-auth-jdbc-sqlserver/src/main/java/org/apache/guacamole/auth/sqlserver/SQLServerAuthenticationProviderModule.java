@@ -26,12 +26,19 @@ import java.lang.UnsupportedOperationException;
 import java.util.Properties;
 import org.apache.guacamole.GuacamoleException;
 import org.mybatis.guice.datasource.helper.JdbcHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Guice module which configures SQLServer-specific injections.
  */
 public class SQLServerAuthenticationProviderModule implements Module {
 
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SQLServerAuthenticationProviderModule.class);
+
     /**
      * MyBatis-specific configuration properties.
      */
@@ -73,12 +80,43 @@ public class SQLServerAuthenticationProviderModule implements Module {
         myBatisProperties.setProperty("mybatis.pooled.pingEnabled", "true");
         myBatisProperties.setProperty("mybatis.pooled.pingQuery", "SELECT 1");
 
+        // Size the connection pool
+        myBatisProperties.setProperty("mybatis.pooled.maximumActiveConnections",
+                String.valueOf(environment.getMaxPoolConnections()));
+        myBatisProperties.setProperty("mybatis.pooled.maximumIdleConnections",
+                String.valueOf(environment.getMaxIdlePoolConnections()));
+
         // Use UTF-8 in database
         driverProperties.setProperty("characterEncoding", "UTF-8");
 
         // Capture which driver to use for the connection.
         this.sqlServerDriver = environment.getSQLServerDriver();
 
+        // Cache server-side prepared statements, if enabled and supported by
+        // the driver
+        int statementCacheSize = environment.getStatementCacheSize();
+        if (statementCacheSize > 0) {
+            switch (sqlServerDriver) {
+
+                case JTDS:
+                    driverProperties.setProperty("maxStatements",
+                            String.valueOf(statementCacheSize));
+                    break;
+
+                case MICROSOFT_2005:
+                    driverProperties.setProperty("disableStatementPooling", "false");
+                    driverProperties.setProperty("statementPoolingCacheSize",
+                            String.valueOf(statementCacheSize));
+                    break;
+
+                default:
+                    logger.warn("Prepared statement caching is not supported "
+                            + "for the \"{}\" driver. The statement cache "
+                            + "size will be ignored.", sqlServerDriver);
+
+            }
+        }
+
     }
 
     @Override
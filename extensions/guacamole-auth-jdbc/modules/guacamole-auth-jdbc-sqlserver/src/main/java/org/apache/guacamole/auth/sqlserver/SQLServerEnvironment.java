@@ -53,6 +53,63 @@ public class SQLServerEnvironment extends JDBCEnvironment {
      */
     private static final boolean DEFAULT_USER_REQUIRED = false;
 
+    /**
+     * Whether changes to the database are tracked by default.
+     */
+    private static final boolean DEFAULT_TRACK_CHANGES = false;
+
+    /**
+     * The default maximum lifetime of a permission snapshot, in seconds. Zero
+     * disables snapshots unless explicitly configured.
+     */
+    private static final int DEFAULT_PERMISSION_SNAPSHOT_LIFETIME = 0;
+
+    /**
+     * Whether the group membership closure table is used by default.
+     */
+    private static final boolean DEFAULT_GROUP_CLOSURE = false;
+
+    /**
+     * The default maximum number of queued connection history records.
+     */
+    private static final int DEFAULT_HISTORY_QUEUE_SIZE = 10000;
+
+    /**
+     * The default maximum lifetime of cached connection data, in seconds.
+     */
+    private static final int DEFAULT_CONNECTION_CACHE_LIFETIME = 60;
+
+    /**
+     * The default amount of time that all queries are sent to the primary
+     * database after a change, in seconds.
+     */
+    private static final int DEFAULT_REPLICA_LAG = 5;
+
+    /**
+     * The default maximum number of connections to the database which may be
+     * open and in use at any one time.
+     */
+    private static final int DEFAULT_MAX_POOL_CONNECTIONS = 10;
+
+    /**
+     * The default maximum number of unused connections to the database which
+     * are kept open for future use.
+     */
+    private static final int DEFAULT_MAX_IDLE_POOL_CONNECTIONS = 5;
+
+    /**
+     * The default maximum amount of time to wait for a connection to the
+     * database to become available, in milliseconds. By default, requests wait
+     * indefinitely.
+     */
+    private static final int DEFAULT_POOL_CHECKOUT_TIMEOUT = 0;
+
+    /**
+     * The default number of prepared statements cached for each connection.
+     * By default, the behavior of the JDBC driver is left unchanged.
+     */
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 0;
+
     /**
      * The default value for the maximum number of connections to be
      * allowed to the Guacamole server overall.
@@ -111,6 +168,91 @@ public class SQLServerEnvironment extends JDBCEnvironment {
         );
     }
 
+    @Override
+    public boolean isChangeTrackingEnabled() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_TRACK_CHANGES,
+            DEFAULT_TRACK_CHANGES
+        );
+    }
+
+    @Override
+    public int getPermissionSnapshotLifetime() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_PERMISSION_SNAPSHOT_LIFETIME,
+            DEFAULT_PERMISSION_SNAPSHOT_LIFETIME
+        );
+    }
+
+    @Override
+    public boolean isGroupClosureEnabled() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_GROUP_CLOSURE,
+            DEFAULT_GROUP_CLOSURE
+        );
+    }
+
+    @Override
+    public int getHistoryQueueSize() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_HISTORY_QUEUE_SIZE,
+            DEFAULT_HISTORY_QUEUE_SIZE
+        );
+    }
+
+    @Override
+    public int getConnectionCacheLifetime() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_CONNECTION_CACHE_LIFETIME,
+            DEFAULT_CONNECTION_CACHE_LIFETIME
+        );
+    }
+
+    @Override
+    public String getReplicaURL() throws GuacamoleException {
+        return getProperty(SQLServerGuacamoleProperties.SQLSERVER_REPLICA_URL);
+    }
+
+    @Override
+    public int getReplicaLag() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_REPLICA_LAG,
+            DEFAULT_REPLICA_LAG
+        );
+    }
+
+    @Override
+    public int getMaxPoolConnections() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_MAX_POOL_CONNECTIONS,
+            DEFAULT_MAX_POOL_CONNECTIONS
+        );
+    }
+
+    @Override
+    public int getMaxIdlePoolConnections() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_MAX_IDLE_POOL_CONNECTIONS,
+            DEFAULT_MAX_IDLE_POOL_CONNECTIONS
+        );
+    }
+
+    @Override
+    public int getPoolCheckoutTimeout() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_POOL_CHECKOUT_TIMEOUT,
+            DEFAULT_POOL_CHECKOUT_TIMEOUT
+        );
+    }
+
+    @Override
+    public int getStatementCacheSize() throws GuacamoleException {
+        return getProperty(
+            SQLServerGuacamoleProperties.SQLSERVER_STATEMENT_CACHE_SIZE,
+            DEFAULT_STATEMENT_CACHE_SIZE
+        );
+    }
+
     @Override
     public int getAbsoluteMaxConnections() throws GuacamoleException {
         return getProperty(SQLServerGuacamoleProperties.SQLSERVER_ABSOLUTE_MAX_CONNECTIONS,
@@ -197,6 +197,16 @@ class GuacamoleHTTPTunnelMap {
         return tunnelMap.remove(uuid);
     }
 
+    /**
+     * Returns the number of tunnels currently registered within this map.
+     *
+     * @return
+     *     The number of tunnels currently registered within this map.
+     */
+    public int size() {
+        return tunnelMap.size();
+    }
+
     /**
      * Shuts down this tunnel map, disallowing future tunnels from being
      * registered and reclaiming any resources.
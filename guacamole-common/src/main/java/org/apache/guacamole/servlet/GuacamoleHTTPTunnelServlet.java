@@ -106,6 +106,18 @@ public abstract class GuacamoleHTTPTunnelServlet extends HttpServlet {
         logger.debug("Deregistered tunnel \"{}\".", tunnel.getUUID());
     }
 
+    /**
+     * Returns the number of tunnels currently registered with
+     * registerTunnel() and not yet deregistered, whether explicitly with
+     * deregisterTunnel() or automatically due to inactivity.
+     *
+     * @return
+     *     The number of tunnels currently registered.
+     */
+    public int getTunnelCount() {
+        return tunnels.size();
+    }
+
     /**
      * Returns the tunnel with the given UUID, if it has been registered with
      * registerTunnel() and not yet deregistered with deregisterTunnel().
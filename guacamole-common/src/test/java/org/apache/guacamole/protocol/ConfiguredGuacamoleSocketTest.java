@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.protocol;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.io.GuacamoleReader;
+import org.apache.guacamole.net.InetGuacamoleSocket;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test which verifies the handshake performed by ConfiguredGuacamoleSocket
+ * against FakeGuacdServer.
+ */
+public class ConfiguredGuacamoleSocketTest {
+
+    /**
+     * Verifies that ConfiguredGuacamoleSocket completes the handshake,
+     * negotiating the protocol version and sending the configured parameter
+     * values, and that display updates and echoed input are subsequently
+     * received.
+     *
+     * @throws IOException
+     *     If the fake guacd server cannot be started.
+     *
+     * @throws GuacamoleException
+     *     If the handshake fails or the connection is unexpectedly closed.
+     */
+    @Test
+    public void testHandshake() throws IOException, GuacamoleException {
+
+        FakeGuacdServer server = new FakeGuacdServer(0, 100, 1024);
+        try {
+
+            GuacamoleConfiguration config = new GuacamoleConfiguration();
+            config.setProtocol("vnc");
+            config.setParameter("hostname", "example.net");
+
+            ConfiguredGuacamoleSocket socket = new ConfiguredGuacamoleSocket(
+                    new InetGuacamoleSocket("localhost", server.getPort()),
+                    config);
+
+            try {
+
+                // Verify negotiated handshake
+                assertEquals(GuacamoleProtocolVersion.LATEST, socket.getProtocolVersion());
+                assertTrue(socket.getConnectionID().startsWith("$"));
+
+                List<List<String>> connectArguments = server.getConnectArguments();
+                assertEquals(1, connectArguments.size());
+                assertEquals(Arrays.asList(GuacamoleProtocolVersion.LATEST.toString(),
+                        "example.net", ""), connectArguments.get(0));
+
+                // Verify display updates are received
+                GuacamoleReader reader = socket.getReader();
+                GuacamoleInstruction instruction;
+                do {
+                    instruction = reader.readInstruction();
+                    assertNotNull(instruction);
+                } while (!"sync".equals(instruction.getOpcode()));
+
+                // Verify input is echoed
+                socket.getWriter().writeInstruction(new GuacamoleInstruction("key", "65", "1"));
+                do {
+                    instruction = reader.readInstruction();
+                    assertNotNull(instruction);
+                } while (!"key".equals(instruction.getOpcode()));
+
+                assertEquals(Arrays.asList("65", "1"), instruction.getArgs());
+
+            }
+            finally {
+                socket.close();
+            }
+
+        }
+        finally {
+            server.close();
+        }
+
+    }
+
+}
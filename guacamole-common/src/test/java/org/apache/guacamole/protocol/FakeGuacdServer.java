@@ -0,0 +1,486 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.protocol;
+
+import java.io.BufferedReader;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.io.GuacamoleReader;
+import org.apache.guacamole.io.GuacamoleWriter;
+import org.apache.guacamole.io.ReaderGuacamoleReader;
+import org.apache.guacamole.io.WriterGuacamoleWriter;
+
+/**
+ * Minimal stand-in for guacd which performs the same handshake as a real
+ * guacd ("select", "args", "connect", "ready") and then emits synthetic
+ * display updates at a fixed rate, echoing any "key" or "mouse" instructions
+ * it receives. This allows ConfiguredGuacamoleSocket, and the web
+ * application as a whole, to be exercised without guacd or any remote
+ * desktop servers.
+ *
+ * The server may be run standalone for load testing, with the port, frame
+ * rate, and image size given on the command line.
+ */
+public class FakeGuacdServer implements Closeable {
+
+    /**
+     * The names of the connection parameters requested within the "args"
+     * instruction, following the protocol version.
+     */
+    public static final String[] ARGUMENT_NAMES = { "hostname", "port" };
+
+    /**
+     * The maximum number of bytes of image data to send within a single
+     * "blob" instruction, such that the base64-encoded instruction remains
+     * well within the maximum instruction length.
+     */
+    private static final int MAX_BLOB_SIZE = 4096;
+
+    /**
+     * The characters of the base64 alphabet, in order of value.
+     */
+    private static final char[] BASE64_ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .toCharArray();
+
+    /**
+     * The socket accepting connections from clients.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * The number of frames to send per second to each connected client.
+     */
+    private final int frameRate;
+
+    /**
+     * The base64-encoded blobs of the PNG image sent within each frame.
+     */
+    private final String[] blobs;
+
+    /**
+     * The values received within the "connect" instruction of each
+     * completed handshake, in the order the handshakes completed.
+     */
+    private final List<List<String>> connectArguments =
+            new CopyOnWriteArrayList<List<String>>();
+
+    /**
+     * All currently-connected client sockets.
+     */
+    private final List<Socket> clients = new CopyOnWriteArrayList<Socket>();
+
+    /**
+     * Creates a new FakeGuacdServer listening on the given port. The server
+     * accepts connections immediately.
+     *
+     * @param port
+     *     The port to listen on, or zero to choose any available port.
+     *
+     * @param frameRate
+     *     The number of frames to send per second to each connected client.
+     *     If zero, no frames are sent.
+     *
+     * @param imageSize
+     *     The approximate number of bytes of PNG image data to send within
+     *     each frame. If zero, no image data is sent.
+     *
+     * @throws IOException
+     *     If the server socket cannot be created.
+     */
+    public FakeGuacdServer(int port, int frameRate, int imageSize)
+            throws IOException {
+
+        this.serverSocket = new ServerSocket(port);
+        this.frameRate = frameRate;
+
+        // Generate image once, split into blobs
+        byte[] image = imageSize > 0 ? createImage(imageSize) : new byte[0];
+        blobs = new String[(image.length + MAX_BLOB_SIZE - 1) / MAX_BLOB_SIZE];
+        for (int i = 0; i < blobs.length; i++) {
+            int offset = i * MAX_BLOB_SIZE;
+            int length = Math.min(MAX_BLOB_SIZE, image.length - offset);
+            byte[] blob = new byte[length];
+            System.arraycopy(image, offset, blob, 0, length);
+            blobs[i] = toBase64(blob);
+        }
+
+        Thread acceptor = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+
+        }, "fake-guacd-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+    }
+
+    /**
+     * Returns the standard, padded base64 encoding of the given data.
+     *
+     * @param data
+     *     The data to encode.
+     *
+     * @return
+     *     The base64 encoding of the given data.
+     */
+    private static String toBase64(byte[] data) {
+
+        StringBuilder encoded = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int i = 0; i < data.length; i += 3) {
+
+            // Pack up to three bytes into a single 24-bit group
+            int remaining = Math.min(3, data.length - i);
+            int group = (data[i] & 0xFF) << 16;
+            if (remaining > 1)
+                group |= (data[i + 1] & 0xFF) << 8;
+            if (remaining > 2)
+                group |= data[i + 2] & 0xFF;
+
+            // Emit one character per 6 bits, padding any partial group
+            encoded.append(BASE64_ALPHABET[(group >> 18) & 0x3F]);
+            encoded.append(BASE64_ALPHABET[(group >> 12) & 0x3F]);
+            encoded.append(remaining > 1 ? BASE64_ALPHABET[(group >> 6) & 0x3F] : '=');
+            encoded.append(remaining > 2 ? BASE64_ALPHABET[group & 0x3F] : '=');
+
+        }
+
+        return encoded.toString();
+
+    }
+
+    /**
+     * Returns the port that this server is listening on.
+     *
+     * @return
+     *     The port that this server is listening on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the values received within the "connect" instruction of each
+     * completed handshake, in the order the handshakes completed.
+     *
+     * @return
+     *     The values received within each "connect" instruction.
+     */
+    public List<List<String>> getConnectArguments() {
+        return connectArguments;
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, handling each
+     * connection within its own thread.
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+
+            final Socket client;
+            try {
+                client = serverSocket.accept();
+            }
+            catch (IOException e) {
+                return;
+            }
+
+            clients.add(client);
+            Thread handler = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        handleConnection(client);
+                    }
+                    catch (GuacamoleException e) {
+                        // Client disconnected or misbehaved
+                    }
+                    catch (IOException e) {
+                        // Client disconnected
+                    }
+                    finally {
+                        clients.remove(client);
+                        try {
+                            client.close();
+                        }
+                        catch (IOException e) {
+                            // Ignore
+                        }
+                    }
+                }
+
+            }, "fake-guacd-connection");
+            handler.setDaemon(true);
+            handler.start();
+
+        }
+    }
+
+    /**
+     * Reads the next instruction, failing if it does not have the given
+     * opcode.
+     *
+     * @param reader
+     *     The reader to read from.
+     *
+     * @param opcode
+     *     The expected opcode.
+     *
+     * @return
+     *     The instruction read.
+     *
+     * @throws GuacamoleException
+     *     If the stream ends or the instruction has a different opcode.
+     */
+    private static GuacamoleInstruction expect(GuacamoleReader reader,
+            String opcode) throws GuacamoleException {
+
+        GuacamoleInstruction instruction = reader.readInstruction();
+        if (instruction == null || !opcode.equals(instruction.getOpcode()))
+            throw new GuacamoleException("Expected \"" + opcode + "\".");
+
+        return instruction;
+
+    }
+
+    /**
+     * Performs the handshake with the given client and then serves synthetic
+     * display updates until the client disconnects.
+     *
+     * @param client
+     *     The connected client socket.
+     *
+     * @throws GuacamoleException
+     *     If the client does not follow the handshake or disconnects.
+     *
+     * @throws IOException
+     *     If an I/O error occurs.
+     */
+    private void handleConnection(Socket client)
+            throws GuacamoleException, IOException {
+
+        client.setTcpNoDelay(true);
+
+        GuacamoleReader reader = new ReaderGuacamoleReader(new BufferedReader(
+                new InputStreamReader(client.getInputStream(), "UTF-8")));
+        final GuacamoleWriter writer = new WriterGuacamoleWriter(new BufferedWriter(
+                new OutputStreamWriter(client.getOutputStream(), "UTF-8")));
+
+        // Handshake
+        expect(reader, "select");
+
+        String[] args = new String[ARGUMENT_NAMES.length + 1];
+        args[0] = GuacamoleProtocolVersion.LATEST.toString();
+        System.arraycopy(ARGUMENT_NAMES, 0, args, 1, ARGUMENT_NAMES.length);
+        writer.writeInstruction(new GuacamoleInstruction("args", args));
+
+        // Skip client capabilities ("size", "audio", etc.)
+        GuacamoleInstruction instruction;
+        do {
+            instruction = reader.readInstruction();
+            if (instruction == null)
+                return;
+        } while (!"connect".equals(instruction.getOpcode()));
+
+        connectArguments.add(instruction.getArgs());
+        writer.writeInstruction(new GuacamoleInstruction("ready",
+                "$" + UUID.randomUUID()));
+
+        // Send display updates in background
+        Thread display = null;
+        if (frameRate > 0) {
+            display = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    sendFrames(writer);
+                }
+
+            }, "fake-guacd-display");
+            display.setDaemon(true);
+            display.start();
+        }
+
+        // Echo input until disconnected
+        try {
+            while ((instruction = reader.readInstruction()) != null) {
+
+                String opcode = instruction.getOpcode();
+                if ("disconnect".equals(opcode))
+                    break;
+
+                if ("key".equals(opcode) || "mouse".equals(opcode)) {
+                    synchronized (writer) {
+                        writer.writeInstruction(instruction);
+                    }
+                }
+
+            }
+        }
+        finally {
+            if (display != null)
+                display.interrupt();
+        }
+
+    }
+
+    /**
+     * Returns a valid PNG image of random noise whose encoded size is
+     * approximately the given number of bytes. Random pixels cannot be
+     * compressed, so each pixel occupies roughly three bytes of the encoded
+     * image, and clients must decode the image just as they would a real
+     * screen update.
+     *
+     * @param imageSize
+     *     The approximate size of the encoded image, in bytes. This must be
+     *     greater than zero.
+     *
+     * @return
+     *     The contents of the encoded PNG image.
+     *
+     * @throws IOException
+     *     If the image cannot be encoded.
+     */
+    private static byte[] createImage(int imageSize) throws IOException {
+
+        int pixels = Math.max(1, imageSize / 3);
+        int width = (int) Math.ceil(Math.sqrt(pixels));
+        int height = (pixels + width - 1) / width;
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(0);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                image.setRGB(x, y, random.nextInt(0x1000000));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(imageSize);
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+
+    }
+
+    /**
+     * Sends synthetic frames, each consisting of an image followed by a
+     * "sync" instruction, at the configured frame rate until interrupted or
+     * until writing fails.
+     *
+     * @param writer
+     *     The writer to send frames to.
+     */
+    private void sendFrames(GuacamoleWriter writer) {
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / frameRate;
+        long next = System.nanoTime();
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+
+                synchronized (writer) {
+
+                    if (blobs.length > 0) {
+                        writer.writeInstruction(new GuacamoleInstruction("img",
+                                "1", "14", "0", "image/png", "0", "0"));
+                        for (String blob : blobs)
+                            writer.writeInstruction(new GuacamoleInstruction("blob", "1", blob));
+                        writer.writeInstruction(new GuacamoleInstruction("end", "1"));
+                    }
+
+                    writer.writeInstruction(new GuacamoleInstruction("sync",
+                            Long.toString(System.currentTimeMillis())));
+
+                }
+
+                next += interval;
+                long delay = next - System.nanoTime();
+                if (delay > 0)
+                    TimeUnit.NANOSECONDS.sleep(delay);
+
+            }
+        }
+        catch (GuacamoleException e) {
+            // Client disconnected
+        }
+        catch (InterruptedException e) {
+            // Connection closed
+        }
+
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        serverSocket.close();
+
+        for (Socket client : clients)
+            client.close();
+
+    }
+
+    /**
+     * Runs a FakeGuacdServer until killed.
+     *
+     * @param args
+     *     The port to listen on, the number of frames per second, and the
+     *     approximate number of bytes of PNG image data per frame, in that
+     *     order. Each is
+     *     optional, defaulting to 4822, 30, and 16384 respectively.
+     *
+     * @throws IOException
+     *     If the server socket cannot be created.
+     *
+     * @throws InterruptedException
+     *     If interrupted while running.
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4822;
+        int frameRate = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int imageSize = args.length > 2 ? Integer.parseInt(args[2]) : 16384;
+
+        FakeGuacdServer server = new FakeGuacdServer(port, frameRate, imageSize);
+        System.out.println("Fake guacd listening on port " + server.getPort()
+                + " (" + frameRate + " frames/s, " + imageSize + " bytes/frame)");
+
+        Thread.currentThread().join();
+
+    }
+
+}
@@ -0,0 +1,652 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.servlet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.io.GuacamoleReader;
+import org.apache.guacamole.io.ReaderGuacamoleReader;
+import org.apache.guacamole.protocol.GuacamoleInstruction;
+
+/**
+ * Load generator which opens many HTTP tunnels through a running Guacamole
+ * web application, reporting connection latency, echo latency, throughput,
+ * and, if requested, the resource usage of the server. Combined with
+ * FakeGuacdServer
+ * as the configured guacd, this allows the web tier to be load tested
+ * entirely offline.
+ *
+ * Usage:
+ *
+ *     HTTPTunnelLoadGenerator URL USERNAME PASSWORD CONNECTION [TUNNELS]
+ *         [DURATION] [SERVER_PID]
+ *
+ * where URL is the root of the web application (such as
+ * "http://localhost:8080/guacamole"), CONNECTION is the identifier of the
+ * connection to open, TUNNELS is the number of concurrent tunnels (default
+ * 10), DURATION is the length of the test in seconds (default 30), and
+ * SERVER_PID is the process ID of the servlet container. The data source
+ * may be overridden with the "datasource" system property.
+ *
+ * If SERVER_PID is given and the servlet container runs on the same Linux
+ * machine, its CPU time and resident set size are read from /proc. The
+ * resident set size covers the whole JVM process, including heap which has
+ * been reserved but not used, metaspace, thread stacks and native buffers,
+ * and is not a measure of heap usage. To report the heap usage of the
+ * servlet container, enable remote JMX within the container and set the
+ * "jmx" system property to its service URL, such as
+ * "service:jmx:rmi:///jndi/rmi://localhost:9010/jmxrmi".
+ */
+public class HTTPTunnelLoadGenerator {
+
+    /**
+     * Pattern which extracts the auth token from the response to a
+     * successful authentication request.
+     */
+    private static final Pattern AUTH_TOKEN_PATTERN =
+            Pattern.compile("\"authToken\"\\s*:\\s*\"([^\"]+)\"");
+
+    /**
+     * The interval between echo probes sent along each tunnel, in
+     * milliseconds.
+     */
+    private static final long ECHO_INTERVAL = 1000;
+
+    /**
+     * The assumed number of clock ticks per second reported within
+     * /proc/PID/stat.
+     */
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    /**
+     * The root URL of the web application under test.
+     */
+    private final String baseURL;
+
+    /**
+     * The username to authenticate with.
+     */
+    private final String username;
+
+    /**
+     * The password to authenticate with.
+     */
+    private final String password;
+
+    /**
+     * The identifier of the data source containing the connection.
+     */
+    private final String dataSource;
+
+    /**
+     * The identifier of the connection to open.
+     */
+    private final String connection;
+
+    /**
+     * The time from each connect request until the first instruction was
+     * received, in nanoseconds.
+     */
+    private final List<Long> connectLatencies =
+            Collections.synchronizedList(new ArrayList<Long>());
+
+    /**
+     * The time from each echo probe until the echoed instruction was
+     * received, in nanoseconds.
+     */
+    private final List<Long> echoLatencies =
+            Collections.synchronizedList(new ArrayList<Long>());
+
+    /**
+     * The total number of characters of instruction data received.
+     */
+    private final AtomicLong charactersReceived = new AtomicLong();
+
+    /**
+     * The number of tunnels which failed.
+     */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * Creates a new HTTPTunnelLoadGenerator targeting the given web
+     * application and connection.
+     *
+     * @param baseURL
+     *     The root URL of the web application under test.
+     *
+     * @param username
+     *     The username to authenticate with.
+     *
+     * @param password
+     *     The password to authenticate with.
+     *
+     * @param dataSource
+     *     The identifier of the data source containing the connection.
+     *
+     * @param connection
+     *     The identifier of the connection to open.
+     */
+    public HTTPTunnelLoadGenerator(String baseURL, String username,
+            String password, String dataSource, String connection) {
+        this.baseURL = baseURL;
+        this.username = username;
+        this.password = password;
+        this.dataSource = dataSource;
+        this.connection = connection;
+    }
+
+    /**
+     * URL-encodes the given value as UTF-8.
+     *
+     * @param value
+     *     The value to encode.
+     *
+     * @return
+     *     The URL-encoded value.
+     *
+     * @throws IOException
+     *     If UTF-8 is not supported.
+     */
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+
+    /**
+     * Reads the entirety of the given stream as UTF-8.
+     *
+     * @param input
+     *     The stream to read.
+     *
+     * @return
+     *     The contents of the stream.
+     *
+     * @throws IOException
+     *     If the stream cannot be read.
+     */
+    private static String readFully(InputStream input) throws IOException {
+
+        Reader reader = new InputStreamReader(input, "UTF-8");
+        try {
+            StringBuilder contents = new StringBuilder();
+            char[] buffer = new char[4096];
+            int length;
+            while ((length = reader.read(buffer)) != -1)
+                contents.append(buffer, 0, length);
+            return contents.toString();
+        }
+        finally {
+            reader.close();
+        }
+
+    }
+
+    /**
+     * Sends a POST request having the given body, returning the response
+     * body.
+     *
+     * @param url
+     *     The URL to send the request to.
+     *
+     * @param contentType
+     *     The content type of the request body.
+     *
+     * @param body
+     *     The request body.
+     *
+     * @return
+     *     The response body.
+     *
+     * @throws IOException
+     *     If the request fails.
+     */
+    private static String post(String url, String contentType, String body)
+            throws IOException {
+
+        HttpURLConnection request = (HttpURLConnection) new URL(url).openConnection();
+        request.setRequestMethod("POST");
+        request.setDoOutput(true);
+        request.setRequestProperty("Content-Type", contentType);
+
+        OutputStream output = request.getOutputStream();
+        try {
+            output.write(body.getBytes("UTF-8"));
+        }
+        finally {
+            output.close();
+        }
+
+        if (request.getResponseCode() != HttpURLConnection.HTTP_OK)
+            throw new IOException("Request to " + url + " failed with status "
+                    + request.getResponseCode());
+
+        return readFully(request.getInputStream());
+
+    }
+
+    /**
+     * Authenticates with the web application, returning a new auth token.
+     *
+     * @return
+     *     The auth token of the new session.
+     *
+     * @throws IOException
+     *     If authentication fails.
+     */
+    private String authenticate() throws IOException {
+
+        String response = post(baseURL + "/api/tokens",
+                "application/x-www-form-urlencoded",
+                "username=" + encode(username) + "&password=" + encode(password));
+
+        Matcher matcher = AUTH_TOKEN_PATTERN.matcher(response);
+        if (!matcher.find())
+            throw new IOException("No auth token in response: " + response);
+
+        return matcher.group(1);
+
+    }
+
+    /**
+     * Sends the given instruction along the tunnel having the given UUID.
+     *
+     * @param uuid
+     *     The UUID of the tunnel.
+     *
+     * @param instruction
+     *     The instruction to send.
+     *
+     * @throws IOException
+     *     If the write request fails.
+     */
+    private void write(String uuid, GuacamoleInstruction instruction)
+            throws IOException {
+        post(baseURL + "/tunnel?write:" + uuid, "application/octet-stream",
+                instruction.toString());
+    }
+
+    /**
+     * Opens a tunnel, reads from it until the given deadline while
+     * periodically sending echo probes, and then disconnects.
+     *
+     * @param deadline
+     *     The value of System.nanoTime() at which the tunnel should be
+     *     closed.
+     *
+     * @throws IOException
+     *     If any request fails.
+     *
+     * @throws GuacamoleException
+     *     If the received instruction data cannot be parsed.
+     */
+    private void runTunnel(long deadline) throws IOException, GuacamoleException {
+
+        String token = authenticate();
+
+        // Connect
+        long connectStart = System.nanoTime();
+        String uuid = post(baseURL + "/tunnel?connect",
+                "application/x-www-form-urlencoded",
+                "token=" + encode(token)
+                + "&GUAC_DATA_SOURCE=" + encode(dataSource)
+                + "&GUAC_ID=" + encode(connection)
+                + "&GUAC_TYPE=c&GUAC_WIDTH=1024&GUAC_HEIGHT=768&GUAC_DPI=96"
+                + "&GUAC_IMAGE=image/png").trim();
+
+        Map<String, Long> pendingEchoes = new ConcurrentHashMap<String, Long>();
+        boolean connected = false;
+        int echoSequence = 0;
+        long nextEcho = System.nanoTime();
+        int requestIndex = 0;
+
+        try {
+
+            // Read until deadline, issuing a new read request each time the
+            // previous response ends
+            while (System.nanoTime() < deadline) {
+
+                HttpURLConnection request = (HttpURLConnection) new URL(baseURL
+                        + "/tunnel?read:" + uuid + ":" + requestIndex++).openConnection();
+
+                InputStream input = request.getInputStream();
+                try {
+
+                    GuacamoleReader reader = new ReaderGuacamoleReader(
+                            new BufferedReader(new InputStreamReader(input, "UTF-8")));
+
+                    GuacamoleInstruction instruction;
+                    while (System.nanoTime() < deadline
+                            && (instruction = reader.readInstruction()) != null) {
+
+                        String opcode = instruction.getOpcode();
+
+                        // End of this response
+                        if (opcode.isEmpty())
+                            break;
+
+                        if (!connected) {
+                            connectLatencies.add(System.nanoTime() - connectStart);
+                            connected = true;
+                        }
+
+                        charactersReceived.addAndGet(instruction.toString().length());
+
+                        // Record round trip of echo probes
+                        if ("key".equals(opcode)) {
+                            Long sent = pendingEchoes.remove(instruction.getArgs().get(0));
+                            if (sent != null)
+                                echoLatencies.add(System.nanoTime() - sent);
+                        }
+
+                        // Acknowledge frames, as the JavaScript client does
+                        else if ("sync".equals(opcode))
+                            write(uuid, instruction);
+
+                        // Periodically probe echo latency
+                        if (System.nanoTime() >= nextEcho) {
+                            String keysym = Integer.toString(0x10000 + echoSequence++);
+                            pendingEchoes.put(keysym, System.nanoTime());
+                            write(uuid, new GuacamoleInstruction("key", keysym, "1"));
+                            nextEcho += TimeUnit.MILLISECONDS.toNanos(ECHO_INTERVAL);
+                        }
+
+                    }
+
+                }
+                finally {
+                    input.close();
+                }
+
+            }
+
+        }
+        finally {
+            write(uuid, new GuacamoleInstruction("disconnect"));
+        }
+
+    }
+
+    /**
+     * Reads the user and system CPU time consumed by the given process, as
+     * reported by /proc.
+     *
+     * @param pid
+     *     The ID of the process.
+     *
+     * @return
+     *     The CPU time consumed by the process, in milliseconds.
+     *
+     * @throws IOException
+     *     If /proc cannot be read.
+     */
+    private static long getCPUTime(String pid) throws IOException {
+
+        String stat = readFully(new FileInputStream(new File("/proc/" + pid + "/stat")));
+
+        // Fields following the parenthesized command name are space-delimited,
+        // with utime and stime being the 12th and 13th
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        return ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+
+    }
+
+    /**
+     * Reads the resident set size of the given process, as reported by /proc.
+     * This includes all memory of the process which is resident, not only the
+     * Java heap.
+     *
+     * @param pid
+     *     The ID of the process.
+     *
+     * @return
+     *     The "VmRSS" line of /proc/PID/status, or "unknown" if not present.
+     *
+     * @throws IOException
+     *     If /proc cannot be read.
+     */
+    private static String getResidentMemory(String pid) throws IOException {
+
+        String status = readFully(new FileInputStream(new File("/proc/" + pid + "/status")));
+        for (String line : status.split("\n")) {
+            if (line.startsWith("VmRSS:"))
+                return line.substring(6).trim();
+        }
+
+        return "unknown";
+
+    }
+
+    /**
+     * Reads the current heap usage of the JVM exposing the given JMX service.
+     *
+     * @param serviceURL
+     *     The URL of the JMX service of the servlet container.
+     *
+     * @return
+     *     A human-readable summary of the used, committed and maximum heap
+     *     of the servlet container.
+     *
+     * @throws IOException
+     *     If the JMX service cannot be reached.
+     */
+    private static String getHeapUsage(String serviceURL) throws IOException {
+
+        JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(serviceURL));
+        try {
+
+            MemoryMXBean memory = ManagementFactory.newPlatformMXBeanProxy(
+                    connector.getMBeanServerConnection(),
+                    ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+
+            MemoryUsage heap = memory.getHeapMemoryUsage();
+            return String.format("%d MiB used, %d MiB committed, %s max",
+                    heap.getUsed() >> 20, heap.getCommitted() >> 20,
+                    heap.getMax() < 0 ? "no" : (heap.getMax() >> 20) + " MiB");
+
+        }
+        finally {
+            connector.close();
+        }
+
+    }
+
+    /**
+     * Returns the given percentile of the given latencies, in milliseconds.
+     *
+     * @param sorted
+     *     The latencies, in nanoseconds, sorted in ascending order.
+     *
+     * @param percentile
+     *     The percentile to return, between 0 and 100.
+     *
+     * @return
+     *     The given percentile of the given latencies, in milliseconds.
+     */
+    private static double percentile(List<Long> sorted, double percentile) {
+
+        if (sorted.isEmpty())
+            return 0;
+
+        int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1000000.0;
+
+    }
+
+    /**
+     * Formats a summary of the given latencies.
+     *
+     * @param latencies
+     *     The latencies to summarize, in nanoseconds.
+     *
+     * @return
+     *     A human-readable summary of the given latencies.
+     */
+    private static String summarize(List<Long> latencies) {
+
+        List<Long> sorted;
+        synchronized (latencies) {
+            sorted = new ArrayList<Long>(latencies);
+        }
+        Collections.sort(sorted);
+
+        return String.format("n=%d p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms",
+                sorted.size(), percentile(sorted, 50), percentile(sorted, 90),
+                percentile(sorted, 99), percentile(sorted, 100));
+
+    }
+
+    /**
+     * Runs the given number of concurrent tunnels for the given duration,
+     * printing a summary of the results.
+     *
+     * @param tunnels
+     *     The number of concurrent tunnels to open.
+     *
+     * @param duration
+     *     The length of the test, in seconds.
+     *
+     * @param serverPID
+     *     The process ID of the servlet container, or null if the CPU time
+     *     and resident set size of the server should not be reported.
+     *
+     * @param jmxURL
+     *     The URL of the JMX service of the servlet container, or null if
+     *     the heap usage of the server should not be reported.
+     *
+     * @throws IOException
+     *     If server resource usage cannot be read.
+     *
+     * @throws InterruptedException
+     *     If interrupted while waiting for tunnels to complete.
+     */
+    public void run(int tunnels, int duration, String serverPID,
+            String jmxURL) throws IOException, InterruptedException {
+
+        long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(duration);
+        long cpuStart = serverPID != null ? getCPUTime(serverPID) : 0;
+
+        final CountDownLatch finished = new CountDownLatch(tunnels);
+        for (int i = 0; i < tunnels; i++) {
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        runTunnel(deadline);
+                    }
+                    catch (Exception e) {
+                        failures.incrementAndGet();
+                        System.err.println("Tunnel failed: " + e);
+                    }
+                    finally {
+                        finished.countDown();
+                    }
+                }
+
+            }, "tunnel-" + i).start();
+        }
+
+        finished.await();
+        double elapsed = (System.nanoTime() - start) / 1000000000.0;
+
+        System.out.println("Tunnels:    " + tunnels + " (" + failures.get() + " failed)");
+        System.out.println("Connect:    " + summarize(connectLatencies));
+        System.out.println("Echo:       " + summarize(echoLatencies));
+        System.out.println(String.format("Throughput: %.1f KiB/s",
+                charactersReceived.get() / 1024.0 / elapsed));
+
+        if (serverPID != null) {
+            long cpuTime = getCPUTime(serverPID) - cpuStart;
+            System.out.println(String.format("Server CPU: %.1f%% of one core",
+                    cpuTime / 10.0 / elapsed));
+            System.out.println("Server RSS: " + getResidentMemory(serverPID)
+                    + " (whole process, not heap)");
+        }
+
+        if (jmxURL != null)
+            System.out.println("Server heap: " + getHeapUsage(jmxURL));
+
+    }
+
+    /**
+     * Runs the load generator with the given command-line arguments.
+     *
+     * @param args
+     *     The command-line arguments, as described in the class
+     *     documentation.
+     *
+     * @throws IOException
+     *     If server resource usage cannot be read.
+     *
+     * @throws InterruptedException
+     *     If interrupted while waiting for tunnels to complete.
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+
+        if (args.length < 4) {
+            System.err.println("Usage: HTTPTunnelLoadGenerator URL USERNAME "
+                    + "PASSWORD CONNECTION [TUNNELS] [DURATION] [SERVER_PID]");
+            System.exit(1);
+        }
+
+        int tunnels = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        int duration = args.length > 5 ? Integer.parseInt(args[5]) : 30;
+        String serverPID = args.length > 6 ? args[6] : null;
+
+        HTTPTunnelLoadGenerator generator = new HTTPTunnelLoadGenerator(
+                args[0], args[1], args[2],
+                System.getProperty("datasource", "default"), args[3]);
+
+        generator.run(tunnels, duration, serverPID,
+                System.getProperty("jmx"));
+
+    }
+
+}
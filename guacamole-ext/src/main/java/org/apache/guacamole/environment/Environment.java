@@ -162,4 +162,26 @@ public interface Environment {
     public GuacamoleProxyConfiguration getDefaultGuacamoleProxyConfiguration()
             throws GuacamoleException;
 
+    /**
+     * Registers the given listener to be notified whenever this Environment
+     * reloads guacamole.properties. By default, Environments never reload
+     * guacamole.properties, and this function has no effect.
+     *
+     * @param listener
+     *     The listener to notify when guacamole.properties is reloaded.
+     */
+    default void addPropertiesListener(GuacamolePropertiesListener listener) {
+    }
+
+    /**
+     * Unregisters the given listener, such that it is no longer notified when
+     * this Environment reloads guacamole.properties. If the listener is not
+     * registered, this function has no effect.
+     *
+     * @param listener
+     *     The listener to unregister.
+     */
+    default void removePropertiesListener(GuacamolePropertiesListener listener) {
+    }
+
 }
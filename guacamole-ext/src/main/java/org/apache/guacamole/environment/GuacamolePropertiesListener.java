@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.environment;
+
+/**
+ * A listener which is notified when the contents of guacamole.properties
+ * have been reloaded. Environments only reload guacamole.properties if
+ * explicitly configured to do so.
+ */
+public interface GuacamolePropertiesListener {
+
+    /**
+     * Invoked after the given Environment has reloaded guacamole.properties.
+     * All values subsequently returned by the Environment reflect the new
+     * contents of guacamole.properties. This function is invoked from a
+     * background thread, and implementations must not block.
+     *
+     * @param environment
+     *     The Environment which has reloaded guacamole.properties.
+     */
+    void propertiesChanged(Environment environment);
+
+}
@@ -25,8 +25,12 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.GuacamoleServerException;
@@ -86,9 +90,36 @@ public class LocalEnvironment implements Environment {
         };
 
     /**
-     * All properties read from guacamole.properties.
+     * A property that determines whether guacamole.properties is watched for
+     * changes and automatically reloaded.
      */
-    private final Properties properties;
+    private static final BooleanGuacamoleProperty ENABLE_PROPERTIES_RELOAD =
+        new BooleanGuacamoleProperty() {
+            @Override
+            public String getName() {
+                return "enable-properties-reload";
+            }
+        };
+
+    /**
+     * Placeholder stored within the cache of parsed property values to
+     * represent a property having no value.
+     */
+    private static final Object NO_VALUE = new Object();
+
+    /**
+     * The current contents of guacamole.properties, along with all property
+     * values parsed from those contents. This is replaced atomically in its
+     * entirety whenever guacamole.properties is reloaded.
+     */
+    private volatile PropertySnapshot snapshot;
+
+    /**
+     * All listeners which must be notified when guacamole.properties is
+     * reloaded.
+     */
+    private final List<GuacamolePropertiesListener> listeners =
+            new CopyOnWriteArrayList<GuacamolePropertiesListener>();
 
     /**
      * The location of GUACAMOLE_HOME, which may not truly exist.
@@ -101,18 +132,177 @@ public class LocalEnvironment implements Environment {
     private final Map<String, ProtocolInfo> availableProtocols;
 
     /**
-     * Flag indicating whether environment variables can override properties.
+     * The Jackson parser for parsing JSON files.
      */
-    private final boolean environmentPropertiesEnabled;
+    private static final ObjectMapper mapper = new ObjectMapper();
 
     /**
-     * The Jackson parser for parsing JSON files.
+     * The unique combination of property class and name which determines how
+     * the value of a property is parsed, used as the key of cached property
+     * values. Property objects are not used as keys directly, as equivalent
+     * property objects may be created repeatedly.
      */
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static class PropertyKey {
+
+        /**
+         * The class of the property.
+         */
+        private final Class<?> propertyClass;
+
+        /**
+         * The name of the property.
+         */
+        private final String name;
+
+        /**
+         * Creates a new PropertyKey representing the given property.
+         *
+         * @param property
+         *     The property to represent.
+         */
+        public PropertyKey(GuacamoleProperty<?> property) {
+            this.propertyClass = property.getClass();
+            this.name = property.getName();
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * propertyClass.hashCode() + name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+
+            if (!(object instanceof PropertyKey))
+                return false;
+
+            PropertyKey key = (PropertyKey) object;
+            return propertyClass == key.propertyClass && name.equals(key.name);
+
+        }
+
+    }
+
+    /**
+     * An immutable snapshot of the contents of guacamole.properties, along
+     * with a cache of all property values parsed from those contents.
+     */
+    private static class PropertySnapshot {
+
+        /**
+         * All properties read from guacamole.properties.
+         */
+        private final Properties properties;
+
+        /**
+         * Flag indicating whether environment variables can override
+         * properties.
+         */
+        private final boolean environmentPropertiesEnabled;
+
+        /**
+         * All property values parsed thus far, with properties having no
+         * value represented by NO_VALUE.
+         */
+        private final ConcurrentMap<PropertyKey, Object> values =
+                new ConcurrentHashMap<PropertyKey, Object>();
+
+        /**
+         * Creates a new PropertySnapshot containing the given properties.
+         *
+         * @param properties
+         *     All properties read from guacamole.properties.
+         *
+         * @throws GuacamoleException
+         *     If the value of the property controlling whether environment
+         *     variables can override properties cannot be parsed.
+         */
+        public PropertySnapshot(Properties properties) throws GuacamoleException {
+            this.properties = properties;
+            this.environmentPropertiesEnabled = environmentPropertiesEnabled(properties);
+        }
+
+        /**
+         * Gets the string value for a property name.
+         *
+         * The value may come from either the OS environment (if property
+         * override is enabled) or the Properties collection that was loaded
+         * from guacamole.properties. When checking the environment for the
+         * named property, the name is first transformed by converting all
+         * hyphens to underscores and converting the string to upper case
+         * letter, in accordance with common convention for environment
+         * strings.
+         *
+         * @param name
+         *     The name of the property value to retrieve.
+         *
+         * @return
+         *     The corresponding value for the property. If property override
+         *     is enabled and the value is found in the OS environment, the
+         *     value from the environment is returned. Otherwise, the value
+         *     from guacamole.properties, if any, is returned.
+         */
+        private String getPropertyValue(String name) {
+
+            // Check for corresponding environment variable if overrides enabled
+            if (environmentPropertiesEnabled) {
+
+                // Transform the name according to common convention
+                final String envName = name.replace('-', '_').toUpperCase();
+                final String envValue = System.getenv(envName);
+
+                if (envValue != null) {
+                    return envValue;
+                }
+            }
+
+            return properties.getProperty(name);
+        }
+
+        /**
+         * Returns the parsed value of the given property, parsing the value
+         * only if it has not already been parsed for this snapshot. Values
+         * which fail to parse are not cached, such that the failure is
+         * reported each time.
+         *
+         * @param <Type>
+         *     The type that the given property is parsed into.
+         *
+         * @param property
+         *     The property to read.
+         *
+         * @return
+         *     The parsed value of the property, or null if the property has
+         *     no value.
+         *
+         * @throws GuacamoleException
+         *     If the value of the property cannot be parsed.
+         */
+        @SuppressWarnings("unchecked")
+        public <Type> Type getValue(GuacamoleProperty<Type> property)
+                throws GuacamoleException {
+
+            PropertyKey key = new PropertyKey(property);
+
+            // Values are cached by property class and name, thus the cached
+            // value necessarily has the type produced by that class
+            Object cached = values.get(key);
+            if (cached != null)
+                return cached == NO_VALUE ? null : (Type) cached;
+
+            Type value = property.parseValue(getPropertyValue(property.getName()));
+            values.putIfAbsent(key, value == null ? NO_VALUE : value);
+            return value;
+
+        }
+
+    }
 
     /**
      * Creates a new Environment, initializing that environment based on the
      * location of GUACAMOLE_HOME and the contents of guacamole.properties.
+     * If so configured, guacamole.properties is additionally watched for
+     * changes and reloaded automatically.
      * 
      * @throws GuacamoleException If an error occurs while determining the
      *                            environment of this Guacamole instance.
@@ -124,43 +314,122 @@ public class LocalEnvironment implements Environment {
         logger.info("GUACAMOLE_HOME is \"{}\".", guacHome.getAbsolutePath());
 
         // Read properties
-        properties = new Properties();
+        Properties properties;
         try {
+            properties = readProperties();
+        }
+        catch (IOException e) {
+            logger.warn("The guacamole.properties file within GUACAMOLE_HOME cannot be read: {}", e.getMessage());
+            logger.debug("Error reading guacamole.properties.", e);
+            properties = new Properties();
+        }
 
-            InputStream stream = null;
+        // Read all protocols
+        availableProtocols = readProtocols();
 
-            // If not a directory, load from classpath
-            if (!guacHome.isDirectory())
-                stream = LocalEnvironment.class.getResourceAsStream("/guacamole.properties");
+        // Cache parsed values only until guacamole.properties is reloaded
+        snapshot = new PropertySnapshot(properties);
 
-            // Otherwise, try to load from file
-            else {
-                File propertiesFile = new File(guacHome, "guacamole.properties");
-                if (propertiesFile.exists())
-                    stream = new FileInputStream(propertiesFile);
+        // Watch for changes to guacamole.properties only if requested
+        if (guacHome.isDirectory() && getProperty(ENABLE_PROPERTIES_RELOAD, false)) {
+            try {
+                PropertiesWatcher.getInstance().watch(this, guacHome);
             }
-
-            // Load properties from stream, if any, always closing stream when done
-            if (stream != null) {
-                try { properties.load(stream); }
-                finally { stream.close(); }
+            catch (IOException e) {
+                logger.warn("Changes to guacamole.properties will not be "
+                        + "automatically reloaded: {}", e.getMessage());
+                logger.debug("Unable to watch guacamole.properties.", e);
             }
+        }
 
-            // Notify if we're proceeding without guacamole.properties
-            else
-                logger.info("No guacamole.properties file found within GUACAMOLE_HOME or the classpath. Using defaults.");
+    }
+
+    /**
+     * Reads all properties from guacamole.properties within GUACAMOLE_HOME
+     * or, if GUACAMOLE_HOME is not a directory, from the classpath.
+     *
+     * @return
+     *     All properties read from guacamole.properties, which will be empty
+     *     if no such file exists.
+     *
+     * @throws IOException
+     *     If guacamole.properties exists but cannot be read.
+     */
+    private Properties readProperties() throws IOException {
+
+        Properties properties = new Properties();
+        InputStream stream = null;
+
+        // If not a directory, load from classpath
+        if (!guacHome.isDirectory())
+            stream = LocalEnvironment.class.getResourceAsStream("/guacamole.properties");
+
+        // Otherwise, try to load from file
+        else {
+            File propertiesFile = new File(guacHome, "guacamole.properties");
+            if (propertiesFile.exists())
+                stream = new FileInputStream(propertiesFile);
+        }
 
+        // Load properties from stream, if any, always closing stream when done
+        if (stream != null) {
+            try { properties.load(stream); }
+            finally { stream.close(); }
+        }
+
+        // Notify if we're proceeding without guacamole.properties
+        else
+            logger.info("No guacamole.properties file found within GUACAMOLE_HOME or the classpath. Using defaults.");
+
+        return properties;
+
+    }
+
+    /**
+     * Rereads guacamole.properties, atomically replacing all property values
+     * and notifying all registered listeners. If guacamole.properties cannot
+     * be read or is invalid, the current property values are retained.
+     */
+    void reload() {
+
+        try {
+            snapshot = new PropertySnapshot(readProperties());
         }
         catch (IOException e) {
-            logger.warn("The guacamole.properties file within GUACAMOLE_HOME cannot be read: {}", e.getMessage());
-            logger.debug("Error reading guacamole.properties.", e);
+            logger.warn("The guacamole.properties file within GUACAMOLE_HOME "
+                    + "cannot be reloaded: {}", e.getMessage());
+            logger.debug("Error reloading guacamole.properties.", e);
+            return;
+        }
+        catch (GuacamoleException e) {
+            logger.warn("The reloaded guacamole.properties file is invalid "
+                    + "and will be ignored: {}", e.getMessage());
+            logger.debug("Error parsing reloaded guacamole.properties.", e);
+            return;
         }
 
-        // Read all protocols
-        availableProtocols = readProtocols();
+        // Notify listeners, isolating each from the failures of others
+        for (GuacamolePropertiesListener listener : listeners) {
+            try {
+                listener.propertiesChanged(this);
+            }
+            catch (RuntimeException e) {
+                logger.warn("A listener failed to handle the reloading of "
+                        + "guacamole.properties: {}", e.getMessage());
+                logger.debug("Listener failed.", e);
+            }
+        }
 
-        // Should environment variables override configuration properties?
-        environmentPropertiesEnabled = environmentPropertiesEnabled(properties);
+    }
+
+    @Override
+    public void addPropertiesListener(GuacamolePropertiesListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removePropertiesListener(GuacamolePropertiesListener listener) {
+        listeners.remove(listener);
     }
 
     /**
@@ -348,45 +617,9 @@ public class LocalEnvironment implements Environment {
         return guacHome;
     }
 
-    /**
-     * Gets the string value for a property name.
-     *
-     * The value may come from either the OS environment (if property override
-     * is enabled) or the Properties collection that was loaded from
-     * guacamole.properties. When checking the environment for the named
-     * property, the name is first transformed by converting all hyphens to
-     * underscores and converting the string to upper case letter, in accordance
-     * with common convention for environment strings.
-     *
-     * @param name
-     *     The name of the property value to retrieve.
-     *
-     * @return
-     *     The corresponding value for the property. If property override
-     *     is enabled and the value is found in the OS environment, the value
-     *     from the environment is returned. Otherwise, the value from
-     *     guacamole.properties, if any, is returned.
-     */
-    private String getPropertyValue(String name) {
-
-        // Check for corresponding environment variable if overrides enabled
-        if (environmentPropertiesEnabled) {
-
-            // Transform the name according to common convention
-            final String envName = name.replace('-', '_').toUpperCase();
-            final String envValue = System.getenv(envName);
-
-            if (envValue != null) {
-                return envValue;
-            }
-        }
-
-        return properties.getProperty(name);
-    }
-
     @Override
     public <Type> Type getProperty(GuacamoleProperty<Type> property) throws GuacamoleException {
-        return property.parseValue(getPropertyValue(property.getName()));
+        return snapshot.getValue(property);
     }
 
     @Override
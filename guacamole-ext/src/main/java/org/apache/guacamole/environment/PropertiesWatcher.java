@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.environment;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the GUACAMOLE_HOME directories of LocalEnvironments for changes to
+ * guacamole.properties, requesting that each affected LocalEnvironment reload
+ * its properties. A single background thread and WatchService are shared by
+ * all LocalEnvironments, as each extension typically creates its own
+ * LocalEnvironment. LocalEnvironments are only weakly referenced, and
+ * watching them does not prevent their garbage collection. The background
+ * thread and WatchService must be released with shutdown() when the web
+ * application is undeployed.
+ */
+public class PropertiesWatcher implements Runnable {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(PropertiesWatcher.class);
+
+    /**
+     * The name of the file whose changes should result in reloading.
+     */
+    private static final String PROPERTIES_FILENAME = "guacamole.properties";
+
+    /**
+     * The amount of time to wait after a change is detected before
+     * reloading, in milliseconds, such that the several events produced by a
+     * single save of the file result in only one reload, and such that the
+     * file is not read while partially written.
+     */
+    private static final long SETTLE_TIME = 250;
+
+    /**
+     * The single shared instance of this class, or null if no
+     * LocalEnvironment has yet requested that its properties be watched.
+     */
+    private static PropertiesWatcher instance;
+
+    /**
+     * The WatchService receiving events for all watched directories.
+     */
+    private final WatchService watchService;
+
+    /**
+     * The background thread which handles all events.
+     */
+    private final Thread thread;
+
+    /**
+     * All watched directories, indexed by the WatchKey representing the
+     * registration of that directory with the WatchService.
+     */
+    private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+    /**
+     * All LocalEnvironments which must be reloaded upon changes to
+     * guacamole.properties within each watched directory. Access to this map
+     * must be synchronized on this PropertiesWatcher.
+     */
+    private final Map<Path, List<WeakReference<LocalEnvironment>>> environments =
+            new HashMap<Path, List<WeakReference<LocalEnvironment>>>();
+
+    /**
+     * Creates a new PropertiesWatcher, starting the background thread which
+     * handles all events.
+     *
+     * @throws IOException
+     *     If the WatchService cannot be created.
+     */
+    private PropertiesWatcher() throws IOException {
+
+        watchService = FileSystems.getDefault().newWatchService();
+
+        thread = new Thread(this, "guacamole-properties-watcher");
+        thread.setDaemon(true);
+        thread.start();
+
+    }
+
+    /**
+     * Returns the single shared instance of PropertiesWatcher, creating that
+     * instance if necessary.
+     *
+     * @return
+     *     The single shared instance of PropertiesWatcher.
+     *
+     * @throws IOException
+     *     If the PropertiesWatcher must be created but cannot be.
+     */
+    static synchronized PropertiesWatcher getInstance() throws IOException {
+
+        if (instance == null)
+            instance = new PropertiesWatcher();
+
+        return instance;
+
+    }
+
+    /**
+     * Stops watching all directories, closing the shared WatchService and
+     * stopping the background thread which handles its events. If no
+     * LocalEnvironment has requested that its properties be watched, this
+     * function has no effect. Any LocalEnvironment requesting that its
+     * properties be watched after this function is invoked will cause a new
+     * WatchService and thread to be created.
+     */
+    public static synchronized void shutdown() {
+
+        if (instance == null)
+            return;
+
+        try {
+            instance.watchService.close();
+        }
+        catch (IOException e) {
+            logger.warn("Unable to stop watching for changes to {}: {}",
+                    PROPERTIES_FILENAME, e.getMessage());
+            logger.debug("Unable to close WatchService.", e);
+        }
+
+        // Stop the background thread, even if it is waiting for events to
+        // settle rather than waiting on the WatchService
+        instance.thread.interrupt();
+        instance = null;
+
+    }
+
+    /**
+     * Begins watching guacamole.properties within the given directory,
+     * reloading the given LocalEnvironment whenever that file changes.
+     *
+     * @param environment
+     *     The LocalEnvironment to reload.
+     *
+     * @param directory
+     *     The directory containing guacamole.properties.
+     *
+     * @throws IOException
+     *     If the directory cannot be watched.
+     */
+    synchronized void watch(LocalEnvironment environment, File directory)
+            throws IOException {
+
+        Path path = directory.toPath().toAbsolutePath().normalize();
+
+        List<WeakReference<LocalEnvironment>> watching = environments.get(path);
+        if (watching == null) {
+
+            WatchKey key = path.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+
+            directories.put(key, path);
+            watching = new ArrayList<WeakReference<LocalEnvironment>>();
+            environments.put(path, watching);
+
+        }
+
+        watching.add(new WeakReference<LocalEnvironment>(environment));
+
+    }
+
+    /**
+     * Returns all LocalEnvironments which have not yet been garbage
+     * collected and which are watching the given directory, discarding any
+     * references to LocalEnvironments which have been garbage collected.
+     *
+     * @param path
+     *     The watched directory.
+     *
+     * @return
+     *     All LocalEnvironments watching the given directory.
+     */
+    private synchronized List<LocalEnvironment> getEnvironments(Path path) {
+
+        List<LocalEnvironment> live = new ArrayList<LocalEnvironment>();
+
+        List<WeakReference<LocalEnvironment>> watching = environments.get(path);
+        if (watching == null)
+            return live;
+
+        Iterator<WeakReference<LocalEnvironment>> references = watching.iterator();
+        while (references.hasNext()) {
+            LocalEnvironment environment = references.next().get();
+            if (environment == null)
+                references.remove();
+            else
+                live.add(environment);
+        }
+
+        return live;
+
+    }
+
+    /**
+     * Returns the directory associated with the given WatchKey.
+     *
+     * @param key
+     *     The WatchKey to look up.
+     *
+     * @return
+     *     The directory associated with the given WatchKey, or null if the
+     *     key is not known.
+     */
+    private synchronized Path getDirectory(WatchKey key) {
+        return directories.get(key);
+    }
+
+    /**
+     * Stops tracking the given WatchKey, which is no longer valid, along with
+     * all LocalEnvironments watching its directory.
+     *
+     * @param key
+     *     The WatchKey which is no longer valid.
+     */
+    private synchronized void forget(WatchKey key) {
+        Path path = directories.remove(key);
+        if (path != null)
+            environments.remove(path);
+    }
+
+    @Override
+    public void run() {
+
+        try {
+            for (;;) {
+
+                WatchKey key = watchService.take();
+
+                // Allow related events to accumulate
+                Thread.sleep(SETTLE_TIME);
+
+                // Determine whether guacamole.properties was affected
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path
+                            && ((Path) context).getFileName().toString().equals(PROPERTIES_FILENAME))
+                        changed = true;
+                }
+
+                Path directory = getDirectory(key);
+
+                if (!key.reset()) {
+                    logger.warn("Directory \"{}\" can no longer be watched for "
+                            + "changes to {}.", directory, PROPERTIES_FILENAME);
+                    forget(key);
+                }
+
+                // Reload all environments reading the changed file
+                if (changed && directory != null) {
+                    logger.info("Reloading {} from \"{}\".", PROPERTIES_FILENAME, directory);
+                    for (LocalEnvironment environment : getEnvironments(directory))
+                        environment.reload();
+                }
+
+            }
+        }
+        catch (InterruptedException e) {
+            logger.debug("Watching of {} interrupted.", PROPERTIES_FILENAME, e);
+        }
+        catch (ClosedWatchServiceException e) {
+            logger.debug("Watching of {} stopped.", PROPERTIES_FILENAME, e);
+        }
+
+    }
+
+}
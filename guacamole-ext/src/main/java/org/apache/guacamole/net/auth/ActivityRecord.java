@@ -75,4 +75,21 @@ public interface ActivityRecord {
      */
     public boolean isActive();
 
+    /**
+     * Returns an identifier which uniquely identifies this record among all
+     * other records of the same type, such as for the sake of resuming a
+     * paginated listing of records from this record. Identifiers are opaque
+     * and need only be meaningful to the implementation that produced them.
+     *
+     * <p>The default implementation returns null, indicating that the record
+     * has no such identifier.
+     *
+     * @return
+     *     An identifier which uniquely identifies this record, or null if
+     *     this record has no such identifier.
+     */
+    default String getIdentifier() {
+        return null;
+    }
+
 }
@@ -21,6 +21,7 @@ package org.apache.guacamole.net.auth;
 
 import java.util.Collection;
 import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleUnsupportedException;
 
 /**
  * A set of all available records related to a type of activity which has a
@@ -125,4 +126,37 @@ public interface ActivityRecordSet<RecordType extends ActivityRecord> {
     ActivityRecordSet<RecordType> sort(SortableProperty property, boolean desc)
             throws GuacamoleException;
 
+    /**
+     * Returns the subset of records which follow the record having the given
+     * identifier, as returned by {@link ActivityRecord#getIdentifier()}, in
+     * the order defined by the sort criteria of this set. Records which share
+     * the same value of every sort property are additionally ordered by
+     * their identifiers, such that a set of records may be paged through
+     * without omitting or repeating any record by repeatedly requesting the
+     * records after the last record received, using the same search and sort
+     * criteria each time. This function may also affect the contents of the
+     * current ActivityRecordSet. The contents of the current
+     * ActivityRecordSet should NOT be relied upon after this function is
+     * called.
+     *
+     * <p>The default implementation throws GuacamoleUnsupportedException,
+     * indicating that pagination is not supported.
+     *
+     * @param identifier
+     *     The identifier of the last record received.
+     *
+     * @return
+     *     The subset of records which follow the record having the given
+     *     identifier.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while restricting the current subset, or if
+     *     pagination is not supported by the implementation.
+     */
+    default ActivityRecordSet<RecordType> after(String identifier)
+            throws GuacamoleException {
+        throw new GuacamoleUnsupportedException("Pagination of activity "
+                + "records is not supported.");
+    }
+
 }
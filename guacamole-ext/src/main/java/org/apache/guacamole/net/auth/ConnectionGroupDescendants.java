@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.net.auth;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The identifiers of all objects beneath a particular connection group,
+ * including connection groups and connections at any depth and the sharing
+ * profiles of those connections. Only objects which would be reachable by
+ * walking the tree level by level, using the child identifiers exposed by
+ * each connection group and connection, are included.
+ */
+public class ConnectionGroupDescendants {
+
+    /**
+     * The identifiers of all descendant connection groups.
+     */
+    private final Set<String> connectionGroupIdentifiers;
+
+    /**
+     * The identifiers of all descendant connections.
+     */
+    private final Set<String> connectionIdentifiers;
+
+    /**
+     * The identifiers of all sharing profiles associated with descendant
+     * connections.
+     */
+    private final Set<String> sharingProfileIdentifiers;
+
+    /**
+     * Creates a new ConnectionGroupDescendants containing the given
+     * identifiers.
+     *
+     * @param connectionGroupIdentifiers
+     *     The identifiers of all descendant connection groups.
+     *
+     * @param connectionIdentifiers
+     *     The identifiers of all descendant connections.
+     *
+     * @param sharingProfileIdentifiers
+     *     The identifiers of all sharing profiles associated with descendant
+     *     connections.
+     */
+    public ConnectionGroupDescendants(Set<String> connectionGroupIdentifiers,
+            Set<String> connectionIdentifiers,
+            Set<String> sharingProfileIdentifiers) {
+        this.connectionGroupIdentifiers = connectionGroupIdentifiers;
+        this.connectionIdentifiers = connectionIdentifiers;
+        this.sharingProfileIdentifiers = sharingProfileIdentifiers;
+    }
+
+    /**
+     * Returns the identifiers of all descendant connection groups.
+     *
+     * @return
+     *     An unmodifiable set of the identifiers of all descendant connection
+     *     groups.
+     */
+    public Set<String> getConnectionGroupIdentifiers() {
+        return Collections.unmodifiableSet(connectionGroupIdentifiers);
+    }
+
+    /**
+     * Returns the identifiers of all descendant connections.
+     *
+     * @return
+     *     An unmodifiable set of the identifiers of all descendant
+     *     connections.
+     */
+    public Set<String> getConnectionIdentifiers() {
+        return Collections.unmodifiableSet(connectionIdentifiers);
+    }
+
+    /**
+     * Returns the identifiers of all sharing profiles associated with
+     * descendant connections.
+     *
+     * @return
+     *     An unmodifiable set of the identifiers of all sharing profiles
+     *     associated with descendant connections.
+     */
+    public Set<String> getSharingProfileIdentifiers() {
+        return Collections.unmodifiableSet(sharingProfileIdentifiers);
+    }
+
+}
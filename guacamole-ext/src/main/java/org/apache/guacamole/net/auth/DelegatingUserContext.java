@@ -122,6 +122,40 @@ public class DelegatingUserContext implements UserContext {
         return userContext.getRootConnectionGroup();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>As the functions of a DelegatingUserContext may be overridden to
+     * expose data which differs from that of the wrapped UserContext, the
+     * version stamp of the wrapped UserContext is not exposed by default,
+     * and this implementation returns null. Implementations which do not
+     * alter the data exposed by the wrapped UserContext may override this
+     * function to return the result of the wrapped UserContext's
+     * getDataVersion().
+     */
+    @Override
+    public String getDataVersion() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>As the functions of a DelegatingUserContext may be overridden to
+     * expose objects which differ from those of the wrapped UserContext, the
+     * descendants retrieved by the wrapped UserContext are not exposed by
+     * default, and this implementation returns null, requiring the tree to be
+     * walked through the directories of this DelegatingUserContext.
+     * Implementations which do not alter the objects exposed by the wrapped
+     * UserContext may override this function to return the result of the
+     * wrapped UserContext's getConnectionGroupDescendants().
+     */
+    @Override
+    public ConnectionGroupDescendants getConnectionGroupDescendants(
+            String identifier) throws GuacamoleException {
+        return null;
+    }
+
     @Override
     public Collection<Form> getUserAttributes() {
         return userContext.getUserAttributes();
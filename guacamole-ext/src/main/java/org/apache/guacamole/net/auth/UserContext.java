@@ -200,6 +200,54 @@ public interface UserContext {
      */
     ConnectionGroup getRootConnectionGroup() throws GuacamoleException;
 
+    /**
+     * Returns an opaque version stamp which changes whenever any object,
+     * permission, or active connection exposed by this UserContext may have
+     * changed. If the version stamp is unchanged, clients may safely assume
+     * that any data previously retrieved through this UserContext is still
+     * current, without retrieving that data again.
+     *
+     * <p>The default implementation returns null, indicating that changes are
+     * not tracked.
+     *
+     * @return
+     *     An opaque version stamp for all data exposed by this UserContext,
+     *     or null if changes are not tracked.
+     */
+    default String getDataVersion() {
+        return null;
+    }
+
+    /**
+     * Retrieves the identifiers of all connection groups, connections, and
+     * sharing profiles beneath the connection group having the given
+     * identifier, in a single operation. This is an optional optimization
+     * allowing the entire tree of objects to be retrieved without walking
+     * the tree one level at a time. The identifiers returned must be exactly
+     * those which would be found by such a walk, using the child identifiers
+     * exposed by each visible connection group and connection. Permission to
+     * read the connection group having the given identifier is not checked.
+     *
+     * <p>The default implementation returns null, indicating that this
+     * optimization is not supported.
+     *
+     * @param identifier
+     *     The identifier of the connection group whose descendants should be
+     *     retrieved.
+     *
+     * @return
+     *     The identifiers of all descendants of the given connection group,
+     *     or null if this UserContext does not support retrieving all
+     *     descendants at once.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the identifiers.
+     */
+    default ConnectionGroupDescendants getConnectionGroupDescendants(
+            String identifier) throws GuacamoleException {
+        return null;
+    }
+
     /**
      * Retrieves a collection of all attributes applicable to users. This
      * collection will contain only those attributes which the current user has
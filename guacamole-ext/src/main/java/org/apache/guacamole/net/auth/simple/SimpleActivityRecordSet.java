@@ -59,4 +59,15 @@ public class SimpleActivityRecordSet<RecordType extends ActivityRecord>
         return this;
     }
 
+    @Override
+    public ActivityRecordSet<RecordType> after(String identifier)
+            throws GuacamoleException {
+
+        // No records follow any record of an empty set. A new set is returned
+        // such that subclasses which do contain records, but do not support
+        // pagination, cannot return the same page forever.
+        return new SimpleActivityRecordSet<RecordType>();
+
+    }
+
 }
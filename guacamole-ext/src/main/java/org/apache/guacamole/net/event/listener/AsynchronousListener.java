@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.net.event.listener;
+
+import java.util.List;
+import org.apache.guacamole.GuacamoleException;
+
+/**
+ * A Listener which receives events asynchronously, after the action which
+ * triggered the event has been allowed to proceed. Events are queued and
+ * delivered in order on a thread dedicated to the listener, such that a slow
+ * listener does not delay the request which produced the event. As delivery
+ * is asynchronous, an AsynchronousListener cannot veto any event, and
+ * exceptions thrown while handling events are logged and otherwise ignored.
+ * If events are produced faster than the listener can handle them and the
+ * queue of pending events is full, further events are dropped.
+ */
+public interface AsynchronousListener extends Listener {
+
+    /**
+     * Notifies the recipient that several events have occurred, in the order
+     * given. Events are delivered in batches whenever more than one event is
+     * pending, allowing listeners which write to a slow destination to do so
+     * efficiently. By default, each event is simply passed to
+     * handleEvent() in order.
+     *
+     * @param events
+     *     The events that have occurred, in the order that they occurred.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while handling the events. The error will be
+     *     logged, and any events remaining in the batch are not redelivered.
+     */
+    default void handleEvents(List<Object> events) throws GuacamoleException {
+        for (Object event : events)
+            handleEvent(event);
+    }
+
+}
@@ -28,6 +28,9 @@ import org.apache.guacamole.GuacamoleException;
  * are notified in the order in which they are declared in the manifest and
  * continues until either all listeners have been notified or with the first
  * listener that throws a GuacamoleException or other runtime exception.
+ * Listeners which never need to veto an event may instead implement
+ * {@link AsynchronousListener} to be notified without delaying the request
+ * that produced the event.
  */
 public interface Listener {
 
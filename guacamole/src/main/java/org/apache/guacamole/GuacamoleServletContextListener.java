@@ -29,12 +29,18 @@ import java.util.List;
 import javax.servlet.ServletContextEvent;
 import org.apache.guacamole.environment.Environment;
 import org.apache.guacamole.environment.LocalEnvironment;
+import org.apache.guacamole.environment.PropertiesWatcher;
 import org.apache.guacamole.extension.ExtensionModule;
+import org.apache.guacamole.extension.ExtensionTiming;
 import org.apache.guacamole.log.LogModule;
+import org.apache.guacamole.metrics.MetricsService;
 import org.apache.guacamole.net.auth.AuthenticationProvider;
 import org.apache.guacamole.rest.RESTServiceModule;
+import org.apache.guacamole.rest.auth.AuthenticationProviderInvoker;
 import org.apache.guacamole.rest.auth.HashTokenSessionMap;
 import org.apache.guacamole.rest.auth.TokenSessionMap;
+import org.apache.guacamole.rest.event.ListenerService;
+import org.apache.guacamole.tunnel.recording.SessionRecordingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,6 +71,38 @@ public class GuacamoleServletContextListener extends GuiceServletContextListener
     @Inject
     private List<AuthenticationProvider> authProviders;
 
+    /**
+     * The startup timing of all loaded extensions, each of which is exposed
+     * via JMX until the web application is shut down.
+     */
+    @Inject
+    private List<ExtensionTiming> extensionTimings;
+
+    /**
+     * Service which records tunnels, if enabled.
+     */
+    @Inject
+    private SessionRecordingService recordingService;
+
+    /**
+     * Service which polls authentication providers concurrently.
+     */
+    @Inject
+    private AuthenticationProviderInvoker authProviderInvoker;
+
+    /**
+     * Service which notifies extension listeners of events.
+     */
+    @Inject
+    private ListenerService listenerService;
+
+    /**
+     * Service which records metrics, exposed via JMX until the web
+     * application is shut down.
+     */
+    @Inject
+    private MetricsService metricsService;
+
     @Override
     public void contextInitialized(ServletContextEvent servletContextEvent) {
 
@@ -97,6 +135,9 @@ public class GuacamoleServletContextListener extends GuiceServletContextListener
         // Inject any annotated members of this class
         injector.injectMembers(this);
 
+        // Expose metrics via JMX
+        metricsService.register();
+
         return injector;
 
     }
@@ -106,16 +147,41 @@ public class GuacamoleServletContextListener extends GuiceServletContextListener
 
         super.contextDestroyed(servletContextEvent);
 
+        // Stop watching for changes to guacamole.properties
+        PropertiesWatcher.shutdown();
+
         // Shutdown TokenSessionMap
         if (sessionMap != null)
             sessionMap.shutdown();
 
+        // Write any remaining session recording data
+        if (recordingService != null)
+            recordingService.shutdown();
+
+        // Stop any threads polling authentication providers
+        if (authProviderInvoker != null)
+            authProviderInvoker.shutdown();
+
+        // Deliver any events still pending for asynchronous listeners
+        if (listenerService != null)
+            listenerService.shutdown();
+
         // Unload all extensions
         if (authProviders != null) {
             for (AuthenticationProvider authProvider : authProviders)
                 authProvider.shutdown();
         }
 
+        // Stop exposing metrics via JMX
+        if (metricsService != null)
+            metricsService.unregister();
+
+        // Stop exposing extension startup timing via JMX
+        if (extensionTimings != null) {
+            for (ExtensionTiming timing : extensionTimings)
+                timing.unregister();
+        }
+
     }
 
 }
@@ -21,6 +21,7 @@ package org.apache.guacamole.extension;
 
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.net.auth.AuthenticatedUser;
 import org.apache.guacamole.net.auth.AuthenticationProvider;
@@ -42,11 +43,31 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
      */
     private Logger logger = LoggerFactory.getLogger(AuthenticationProviderFacade.class);
 
+    /**
+     * The AuthenticationProvider subclass to instantiate.
+     */
+    private final Class<? extends AuthenticationProvider> authProviderClass;
+
+    /**
+     * The timing of the extension providing the authentication provider, to
+     * which the time taken to instantiate the authentication provider should
+     * be added, or null if no such timing is being recorded.
+     */
+    private final ExtensionTiming timing;
+
     /**
      * The underlying authentication provider, or null if the authentication
-     * provider could not be instantiated.
+     * provider could not be instantiated or has not yet been instantiated.
+     * Access to this field must be synchronized on this facade until
+     * initialized is true.
+     */
+    private AuthenticationProvider instance;
+
+    /**
+     * Whether instantiation of the underlying authentication provider has
+     * been attempted.
      */
-    private final AuthenticationProvider authProvider;
+    private volatile boolean initialized = false;
 
     /**
      * The set of identifiers of all authentication providers whose internal
@@ -66,10 +87,11 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
 
     /**
      * Creates a new AuthenticationProviderFacade which delegates all function
-     * calls to an instance of the given AuthenticationProvider subclass. If
-     * an instance of the given class cannot be created, creation of this
-     * facade will still succeed, but its use will result in errors being
-     * logged, and all authentication attempts will fail.
+     * calls to an instance of the given AuthenticationProvider subclass. The
+     * instance is not created until it is first needed or until initialize()
+     * is invoked. If an instance of the given class cannot be created, use
+     * of this facade will result in errors being logged, and all
+     * authentication attempts will fail.
      *
      * @param authProviderClass
      *     The AuthenticationProvider subclass to instantiate.
@@ -82,19 +104,65 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
      *     authentication provider being ignored for that authentication
      *     attempt. By default, errors during authentication halt the
      *     authentication process entirely.
+     *
+     * @param timing
+     *     The timing of the extension providing the authentication provider,
+     *     to which the time taken to instantiate the authentication provider
+     *     should be added, or null if no such timing is being recorded.
      */
     public AuthenticationProviderFacade(
             Class<? extends AuthenticationProvider> authProviderClass,
-            Set<String> tolerateFailures) {
+            Set<String> tolerateFailures, ExtensionTiming timing) {
+        this.authProviderClass = authProviderClass;
         this.tolerateFailures = tolerateFailures;
-        this.authProvider = ProviderFactory.newInstance("authentication provider",
-            authProviderClass);
+        this.timing = timing;
+    }
+
+    /**
+     * Instantiates the underlying authentication provider, if not already
+     * instantiated. If instantiation is already in progress within another
+     * thread, this function blocks until that instantiation completes.
+     *
+     * @return
+     *     The underlying authentication provider, or null if the
+     *     authentication provider could not be instantiated.
+     */
+    public AuthenticationProvider initialize() {
+
+        // Avoid locking once initialized
+        if (initialized)
+            return instance;
+
+        synchronized (this) {
+
+            if (!initialized) {
+
+                long start = System.nanoTime();
+                instance = ProviderFactory.newInstance("authentication provider",
+                    authProviderClass);
+                long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                logger.debug("Authentication provider \"{}\" instantiated in {} ms.",
+                        authProviderClass.getName(), time);
+
+                if (timing != null)
+                    timing.addProviderInitializationTime(time);
+
+                initialized = true;
+
+            }
+
+            return instance;
+
+        }
+
     }
 
     @Override
     public String getIdentifier() {
 
         // Ignore auth attempts if no auth provider could be loaded
+        AuthenticationProvider authProvider = initialize();
         if (authProvider == null) {
             logger.warn("The authentication system could not be loaded. Please check for errors earlier in the logs.");
             return facadeIdentifier;
@@ -109,6 +177,7 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
     public Object getResource() throws GuacamoleException {
 
         // Ignore auth attempts if no auth provider could be loaded
+        AuthenticationProvider authProvider = initialize();
         if (authProvider == null) {
             logger.warn("The authentication system could not be loaded. Please check for errors earlier in the logs.");
             return null;
@@ -178,6 +247,7 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
             throws GuacamoleException {
 
         // Ignore auth attempts if no auth provider could be loaded
+        AuthenticationProvider authProvider = initialize();
         if (authProvider == null) {
             logger.warn("Authentication attempt ignored because the relevant "
                     + "authentication provider could not be loaded. Please "
@@ -245,6 +315,7 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
             Credentials credentials) throws GuacamoleException {
 
         // Ignore auth attempts if no auth provider could be loaded
+        AuthenticationProvider authProvider = initialize();
         if (authProvider == null) {
             logger.warn("Reauthentication attempt ignored because the relevant "
                     + "authentication provider could not be loaded. Please "
@@ -262,6 +333,7 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
             throws GuacamoleException {
 
         // Ignore auth attempts if no auth provider could be loaded
+        AuthenticationProvider authProvider = initialize();
         if (authProvider == null) {
             logger.warn("User data retrieval attempt ignored because the "
                     + "relevant authentication provider could not be loaded. "
@@ -330,6 +402,7 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
             throws GuacamoleException {
 
         // Ignore auth attempts if no auth provider could be loaded
+        AuthenticationProvider authProvider = initialize();
         if (authProvider == null) {
             logger.warn("User data refresh attempt ignored because the "
                     + "relevant authentication provider could not be loaded. "
@@ -348,6 +421,7 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
             Credentials credentials) throws GuacamoleException {
 
         // Do nothing if underlying auth provider could not be loaded
+        AuthenticationProvider authProvider = initialize();
         if (authProvider == null)
             return context;
 
@@ -362,6 +436,7 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
             Credentials credentials) throws GuacamoleException {
 
         // Do nothing if underlying auth provider could not be loaded
+        AuthenticationProvider authProvider = initialize();
         if (authProvider == null)
             return context;
 
@@ -373,8 +448,15 @@ public class AuthenticationProviderFacade implements AuthenticationProvider {
 
     @Override
     public void shutdown() {
-        if (authProvider != null)
-            authProvider.shutdown();
+
+        // Never instantiate the auth provider merely to shut it down
+        synchronized (this) {
+            initialized = true;
+        }
+
+        if (instance != null)
+            instance.shutdown();
+
     }
 
 }
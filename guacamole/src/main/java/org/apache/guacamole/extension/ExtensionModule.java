@@ -27,9 +27,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.guacamole.auth.file.FileAuthenticationProvider;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.GuacamoleServerException;
@@ -37,6 +47,7 @@ import org.apache.guacamole.environment.Environment;
 import org.apache.guacamole.net.auth.AuthenticationProvider;
 import org.apache.guacamole.net.event.listener.Listener;
 import org.apache.guacamole.properties.StringSetProperty;
+import org.apache.guacamole.resource.FingerprintedResource;
 import org.apache.guacamole.resource.Resource;
 import org.apache.guacamole.resource.ResourceServlet;
 import org.apache.guacamole.resource.SequenceResource;
@@ -121,6 +132,12 @@ public class ExtensionModule extends ServletModule {
     private final List<Listener> boundListeners =
             new ArrayList<Listener>();
 
+    /**
+     * The startup timing of each loaded extension, in load order.
+     */
+    private final List<ExtensionTiming> extensionTimings =
+            new ArrayList<ExtensionTiming>();
+
     /**
      * Service for adding and retrieving language resources.
      */
@@ -189,16 +206,20 @@ public class ExtensionModule extends ServletModule {
      *     attempt, with the authentication process proceeding as if that
      *     authentication provider were not present. By default, errors during
      *     authentication halt the authentication process entirely.
+     *
+     * @param timing
+     *     The timing of the extension providing the AuthenticationProvider,
+     *     or null if no such timing is being recorded.
      */
     private void bindAuthenticationProvider(
             Class<? extends AuthenticationProvider> authenticationProvider,
-            Set<String> tolerateFailures) {
+            Set<String> tolerateFailures, ExtensionTiming timing) {
 
         // Bind authentication provider
         logger.debug("[{}] Binding AuthenticationProvider \"{}\".",
                 boundAuthenticationProviders.size(), authenticationProvider.getName());
         boundAuthenticationProviders.add(new AuthenticationProviderFacade(
-                authenticationProvider, tolerateFailures));
+                authenticationProvider, tolerateFailures, timing));
 
     }
 
@@ -219,14 +240,18 @@ public class ExtensionModule extends ServletModule {
      *     attempt, with the authentication process proceeding as if that
      *     authentication provider were not present. By default, errors during
      *     authentication halt the authentication process entirely.
+     *
+     * @param timing
+     *     The timing of the extension providing the AuthenticationProviders,
+     *     or null if no such timing is being recorded.
      */
     private void bindAuthenticationProviders(
             Collection<Class<AuthenticationProvider>> authProviders,
-            Set<String> tolerateFailures) {
+            Set<String> tolerateFailures, ExtensionTiming timing) {
 
         // Bind each authentication provider within extension
         for (Class<AuthenticationProvider> authenticationProvider : authProviders)
-            bindAuthenticationProvider(authenticationProvider, tolerateFailures);
+            bindAuthenticationProvider(authenticationProvider, tolerateFailures, timing);
 
     }
 
@@ -285,6 +310,18 @@ public class ExtensionModule extends ServletModule {
         return Collections.unmodifiableList(boundListeners);
     }
 
+    /**
+     * Returns the startup timing of each loaded extension.
+     *
+     * @return
+     *     A List of the startup timing of each loaded extension, in load
+     *     order. The List is not modifiable.
+     */
+    @Provides
+    public List<ExtensionTiming> getExtensionTimings() {
+        return Collections.unmodifiableList(extensionTimings);
+    }
+
     /**
      * Serves each of the given resources as a language resource. Language
      * resources are served from within the "/translations" directory as JSON
@@ -443,30 +480,43 @@ public class ExtensionModule extends ServletModule {
         // Sort files lexicographically
         Arrays.sort(extensionFiles);
 
-        // Load each extension within the extension directory
-        for (File extensionFile : extensionFiles) {
+        long start = System.nanoTime();
 
-            logger.debug("Loading extension: \"{}\"", extensionFile.getName());
+        // Read and validate all extensions concurrently, as each is
+        // independent of the others
+        List<Future<ExtensionTiming>> loadedExtensions =
+                new ArrayList<Future<ExtensionTiming>>(extensionFiles.length);
+        ExecutorService executor = newExecutor("extension-loader", extensionFiles.length);
+        try {
+            for (File extensionFile : extensionFiles)
+                loadedExtensions.add(executor.submit(new ExtensionLoader(extensionFile)));
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        // Register each extension in order, as both bindings and resources
+        // are order-dependent
+        for (int i = 0; i < extensionFiles.length; i++) {
+
+            File extensionFile = extensionFiles[i];
 
             try {
 
-                // Load extension from file
-                Extension extension = new Extension(getParentClassLoader(), extensionFile);
+                long waitStart = System.nanoTime();
+                ExtensionTiming timing = getLoadedExtension(loadedExtensions.get(i));
+                Extension extension = timing.getExtension();
+                long waitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
 
-                // Validate Guacamole version of extension
-                if (!isCompatible(extension.getGuacamoleVersion())) {
-                    logger.debug("Declared Guacamole version \"{}\" of extension \"{}\" is not compatible with this version of Guacamole.",
-                            extension.getGuacamoleVersion(), extensionFile.getName());
-                    throw new GuacamoleServerException("Extension \"" + extension.getName() + "\" is not "
-                            + "compatible with this version of Guacamole.");
-                }
+                long registrationStart = System.nanoTime();
 
                 // Add any JavaScript / CSS resources
                 javaScriptResources.addAll(extension.getJavaScriptResources().values());
                 cssResources.addAll(extension.getCSSResources().values());
 
                 // Attempt to load all authentication providers
-                bindAuthenticationProviders(extension.getAuthenticationProviderClasses(), toleratedAuthProviders);
+                bindAuthenticationProviders(extension.getAuthenticationProviderClasses(),
+                        toleratedAuthProviders, timing);
 
                 // Attempt to load all listeners
                 bindListeners(extension.getListenerClasses());
@@ -489,8 +539,17 @@ public class ExtensionModule extends ServletModule {
                 if(extension.getLargeIcon()!= null)
                     serve("/images/logo-144.png").with(new ResourceServlet(extension.getLargeIcon()));
 
+                timing.setRegistrationTime(TimeUnit.NANOSECONDS.toMillis(
+                        System.nanoTime() - registrationStart));
+                timing.register();
+                extensionTimings.add(timing);
+
                 // Log successful loading of extension by name
-                logger.info("Extension \"{}\" loaded.", extension.getName());
+                logger.info("Extension \"{}\" loaded (load: {} ms, "
+                        + "registration: {} ms).", extension.getName(),
+                        timing.getLoadTime(), timing.getRegistrationTime());
+                logger.debug("Waited {} ms for extension \"{}\" to finish "
+                        + "loading.", waitTime, extension.getName());
 
             }
             catch (GuacamoleException e) {
@@ -500,8 +559,169 @@ public class ExtensionModule extends ServletModule {
 
         }
 
+        logger.info("{} of {} extension(s) loaded in {} ms.",
+                extensionTimings.size(), extensionFiles.length,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
     }
-    
+
+    /**
+     * Task which reads and validates a single extension .jar file.
+     */
+    private class ExtensionLoader implements Callable<ExtensionTiming> {
+
+        /**
+         * The extension .jar file to load.
+         */
+        private final File extensionFile;
+
+        /**
+         * Creates a new ExtensionLoader which loads the given extension .jar
+         * file.
+         *
+         * @param extensionFile
+         *     The extension .jar file to load.
+         */
+        public ExtensionLoader(File extensionFile) {
+            this.extensionFile = extensionFile;
+        }
+
+        @Override
+        public ExtensionTiming call() throws GuacamoleException {
+
+            logger.debug("Loading extension: \"{}\"", extensionFile.getName());
+            long start = System.nanoTime();
+
+            // Load extension from file
+            Extension extension = new Extension(getParentClassLoader(), extensionFile);
+
+            // Validate Guacamole version of extension
+            if (!isCompatible(extension.getGuacamoleVersion())) {
+                logger.debug("Declared Guacamole version \"{}\" of extension \"{}\" is not compatible with this version of Guacamole.",
+                        extension.getGuacamoleVersion(), extensionFile.getName());
+                throw new GuacamoleServerException("Extension \"" + extension.getName() + "\" is not "
+                        + "compatible with this version of Guacamole.");
+            }
+
+            return new ExtensionTiming(extension, extensionFile.getName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        }
+
+    }
+
+    /**
+     * Waits for the given extension to finish loading, returning the timing
+     * of the loaded extension.
+     *
+     * @param loadedExtension
+     *     The Future representing the extension being loaded.
+     *
+     * @return
+     *     The timing of the loaded extension, from which the extension itself
+     *     may be retrieved.
+     *
+     * @throws GuacamoleException
+     *     If the extension could not be loaded.
+     */
+    private ExtensionTiming getLoadedExtension(Future<ExtensionTiming> loadedExtension)
+            throws GuacamoleException {
+
+        try {
+            return loadedExtension.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GuacamoleServerException("Interrupted while loading extension.", e);
+        }
+        catch (ExecutionException e) {
+
+            Throwable cause = e.getCause();
+            if (cause instanceof GuacamoleException)
+                throw (GuacamoleException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new GuacamoleServerException(cause);
+
+        }
+
+    }
+
+    /**
+     * Creates a new executor whose threads are daemon threads having the
+     * given name prefix, with one thread per available processor but no more
+     * threads than the given number of tasks. Idle threads are not retained.
+     *
+     * @param name
+     *     The prefix to use for the names of the executor's threads.
+     *
+     * @param tasks
+     *     The number of tasks which will be submitted to the executor.
+     *
+     * @return
+     *     A new executor.
+     */
+    private static ExecutorService newExecutor(final String name, int tasks) {
+
+        int threads = Math.max(1, Math.min(tasks,
+                Runtime.getRuntime().availableProcessors()));
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        Thread thread = new Thread(task, name + "-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+
+                });
+
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+
+    }
+
+    /**
+     * Begins instantiating all bound authentication providers in the
+     * background, such that startup of the web application need not wait for
+     * any heavy initialization they perform. Any authentication provider
+     * which is needed before its background instantiation completes is
+     * instead instantiated upon first use, with concurrent users waiting for
+     * that instantiation to complete.
+     */
+    private void initializeAuthenticationProviders() {
+
+        ExecutorService executor = newExecutor("auth-provider-init",
+                boundAuthenticationProviders.size());
+
+        try {
+            for (AuthenticationProvider authProvider : boundAuthenticationProviders) {
+
+                final AuthenticationProviderFacade facade = (AuthenticationProviderFacade) authProvider;
+                executor.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        facade.initialize();
+                    }
+
+                });
+
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+    }
+
     @Override
     protected void configureServlets() {
 
@@ -525,11 +745,25 @@ public class ExtensionModule extends ServletModule {
         loadExtensions(javaScriptResources, cssResources, toleratedAuthProviders);
 
         // Always bind default file-driven auth last
-        bindAuthenticationProvider(FileAuthenticationProvider.class, toleratedAuthProviders);
+        bindAuthenticationProvider(FileAuthenticationProvider.class, toleratedAuthProviders, null);
+
+        // Instantiate authentication providers without blocking startup
+        initializeAuthenticationProviders();
 
         // Dynamically generate app.js and app.css from extensions
-        serve("/app.js").with(new ResourceServlet(new SequenceResource(javaScriptResources)));
-        serve("/app.css").with(new ResourceServlet(new SequenceResource(cssResources)));
+        ResourceServlet javaScriptServlet = new ResourceServlet(new SequenceResource(javaScriptResources));
+        ResourceServlet cssServlet = new ResourceServlet(new SequenceResource(cssResources));
+        serve("/app.js").with(javaScriptServlet);
+        serve("/app.css").with(cssServlet);
+
+        // Reference app.js and app.css from index.html by fingerprint, such
+        // that both may be cached until their contents actually change
+        Map<String, ResourceServlet> appResources = new HashMap<String, ResourceServlet>();
+        appResources.put("app.js", javaScriptServlet);
+        appResources.put("app.css", cssServlet);
+        serve("/", "/index.html").with(new ResourceServlet(new FingerprintedResource(
+                new WebApplicationResource(getServletContext(), "/index.html"),
+                appResources)));
 
         // Dynamically serve all language resources
         for (Map.Entry<String, Resource> entry : languageResourceService.getLanguageResources().entrySet()) {
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.extension;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The time taken by each stage of loading a particular extension, exposed
+ * via JMX under the name "org.apache.guacamole:type=Extension,name=NAMESPACE".
+ */
+public class ExtensionTiming implements ExtensionTimingMBean {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ExtensionTiming.class);
+
+    /**
+     * The extension whose timing is recorded.
+     */
+    private final Extension extension;
+
+    /**
+     * The name of the .jar file containing the extension.
+     */
+    private final String file;
+
+    /**
+     * The time taken to load the extension, in milliseconds.
+     */
+    private final long loadTime;
+
+    /**
+     * The time taken to register the extension, in milliseconds.
+     */
+    private volatile long registrationTime;
+
+    /**
+     * The total time taken to instantiate the authentication providers of the
+     * extension, in milliseconds.
+     */
+    private final AtomicLong providerInitializationTime = new AtomicLong();
+
+    /**
+     * The name under which this object is registered with the platform
+     * MBeanServer, or null if it is not registered.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Creates a new ExtensionTiming for the given extension.
+     *
+     * @param extension
+     *     The extension whose timing is recorded.
+     *
+     * @param file
+     *     The name of the .jar file containing the extension.
+     *
+     * @param loadTime
+     *     The time taken to load the extension, in milliseconds.
+     */
+    public ExtensionTiming(Extension extension, String file, long loadTime) {
+        this.extension = extension;
+        this.file = file;
+        this.loadTime = loadTime;
+    }
+
+    /**
+     * Returns the extension whose timing is recorded.
+     *
+     * @return
+     *     The extension whose timing is recorded.
+     */
+    public Extension getExtension() {
+        return extension;
+    }
+
+    @Override
+    public String getName() {
+        return extension.getName();
+    }
+
+    @Override
+    public String getNamespace() {
+        return extension.getNamespace();
+    }
+
+    @Override
+    public String getFile() {
+        return file;
+    }
+
+    @Override
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    @Override
+    public long getRegistrationTime() {
+        return registrationTime;
+    }
+
+    /**
+     * Sets the time taken to register the extension.
+     *
+     * @param registrationTime
+     *     The time taken to register the extension, in milliseconds.
+     */
+    public void setRegistrationTime(long registrationTime) {
+        this.registrationTime = registrationTime;
+    }
+
+    @Override
+    public long getProviderInitializationTime() {
+        return providerInitializationTime.get();
+    }
+
+    /**
+     * Records the time taken to instantiate one of the authentication
+     * providers of the extension.
+     *
+     * @param time
+     *     The time taken to instantiate the authentication provider, in
+     *     milliseconds.
+     */
+    public void addProviderInitializationTime(long time) {
+        providerInitializationTime.addAndGet(time);
+    }
+
+    /**
+     * Registers this object with the platform MBeanServer, replacing any
+     * object already registered for the same extension, such as by a prior
+     * deployment of the web application. Failures are logged but otherwise
+     * ignored.
+     */
+    public synchronized void register() {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+
+            ObjectName name = new ObjectName("org.apache.guacamole:type=Extension,name="
+                    + ObjectName.quote(extension.getNamespace()));
+
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+
+            server.registerMBean(this, name);
+            objectName = name;
+
+        }
+        catch (MalformedObjectNameException e) {
+            logger.debug("Invalid JMX name for extension \"{}\".", extension.getName(), e);
+        }
+        catch (JMException e) {
+            logger.warn("Startup timing of extension \"{}\" could not be "
+                    + "exposed via JMX: {}", extension.getName(), e.getMessage());
+            logger.debug("Unable to register MBean.", e);
+        }
+
+    }
+
+    /**
+     * Unregisters this object from the platform MBeanServer, if registered.
+     */
+    public synchronized void unregister() {
+
+        if (objectName == null)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch (InstanceNotFoundException e) {
+            logger.debug("MBean for extension \"{}\" already unregistered.", extension.getName(), e);
+        }
+        catch (JMException e) {
+            logger.debug("Unable to unregister MBean.", e);
+        }
+
+        objectName = null;
+
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.extension;
+
+/**
+ * JMX management interface exposing how long each stage of loading a
+ * particular extension took during startup.
+ */
+public interface ExtensionTimingMBean {
+
+    /**
+     * Returns the human-readable name of the extension.
+     *
+     * @return
+     *     The human-readable name of the extension.
+     */
+    String getName();
+
+    /**
+     * Returns the namespace of the extension.
+     *
+     * @return
+     *     The namespace of the extension.
+     */
+    String getNamespace();
+
+    /**
+     * Returns the name of the .jar file containing the extension.
+     *
+     * @return
+     *     The name of the .jar file containing the extension.
+     */
+    String getFile();
+
+    /**
+     * Returns the time taken to read and validate the extension, including
+     * parsing its manifest, creating its classloader, and loading the
+     * classes it declares, in milliseconds. Extensions are loaded
+     * concurrently, so these times may overlap.
+     *
+     * @return
+     *     The time taken to load the extension, in milliseconds.
+     */
+    long getLoadTime();
+
+    /**
+     * Returns the time taken to register the contents of the extension with
+     * the web application, including its listeners, resources, and
+     * translations, in milliseconds.
+     *
+     * @return
+     *     The time taken to register the extension, in milliseconds.
+     */
+    long getRegistrationTime();
+
+    /**
+     * Returns the total time taken to instantiate the authentication
+     * providers of the extension, in milliseconds. Authentication providers
+     * are instantiated in the background after startup, thus this value is
+     * zero until that has completed.
+     *
+     * @return
+     *     The total time taken to instantiate the authentication providers of
+     *     the extension, in milliseconds.
+     */
+    long getProviderInitializationTime();
+
+}
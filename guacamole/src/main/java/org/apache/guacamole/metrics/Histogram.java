@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram having a fixed set of buckets, suitable for recording
+ * from many threads at once. Each bucket is a LongAdder, such that recording
+ * a value never blocks and contended updates are spread across cells rather
+ * than retried against a single shared counter.
+ */
+public class Histogram {
+
+    /**
+     * The upper bounds of each bucket, in seconds. An implicit final bucket
+     * having no upper bound follows the last of these.
+     */
+    private static final double[] BUCKETS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+        0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    /**
+     * The upper bounds of each bucket, in nanoseconds, in the same order as
+     * BUCKETS.
+     */
+    private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++)
+            BUCKET_NANOS[i] = (long) (BUCKETS[i] * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * The number of values recorded within each bucket. Unlike the buckets
+     * of the Prometheus exposition format, these counts are not cumulative.
+     * The final element counts values exceeding the largest bucket bound.
+     */
+    private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+
+    /**
+     * The sum of all recorded values, in nanoseconds.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Creates a new, empty Histogram.
+     */
+    public Histogram() {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+    }
+
+    /**
+     * Records the given duration.
+     *
+     * @param nanos
+     *     The duration to record, in nanoseconds.
+     */
+    public void record(long nanos) {
+
+        int bucket = 0;
+        while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket])
+            bucket++;
+
+        counts[bucket].increment();
+        sum.add(nanos);
+
+    }
+
+    /**
+     * Adds the current state of this histogram to the given metric as
+     * Prometheus-style "_bucket", "_sum", and "_count" samples. As values
+     * may be recorded concurrently, the samples are not guaranteed to be
+     * exactly consistent with each other.
+     *
+     * @param metric
+     *     The metric to add samples to. The type of this metric should be
+     *     Metric.Type.HISTOGRAM.
+     *
+     * @param labels
+     *     The labels to associate with each sample, not including the "le"
+     *     label identifying each bucket. This map is not modified.
+     */
+    public void addTo(Metric metric, Map<String, String> labels) {
+
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+
+            cumulative += counts[i].sum();
+            String bound = (i < BUCKETS.length) ? Double.toString(BUCKETS[i]) : "+Inf";
+
+            metric.addSample("_bucket", Metric.withLabel(labels, "le", bound),
+                    cumulative);
+
+        }
+
+        metric.addSample("_sum", labels, sum.sum() / (double) TimeUnit.SECONDS.toNanos(1));
+        metric.addSample("_count", labels, cumulative);
+
+    }
+
+}
@@ -0,0 +1,427 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single named metric and the samples currently describing its value, as
+ * defined by the Prometheus data model. A simple counter or gauge has a
+ * single sample for each distinct set of labels, while a histogram has
+ * several.
+ */
+public class Metric {
+
+    /**
+     * All types of metric which may be represented by a Metric.
+     */
+    public enum Type {
+
+        /**
+         * A value which only ever increases, such as a number of events.
+         */
+        COUNTER("counter"),
+
+        /**
+         * A value which may arbitrarily increase or decrease, such as the
+         * number of active sessions.
+         */
+        GAUGE("gauge"),
+
+        /**
+         * A distribution of observed values divided among buckets.
+         */
+        HISTOGRAM("histogram");
+
+        /**
+         * The name of this type within the Prometheus text format.
+         */
+        private final String name;
+
+        /**
+         * Creates a new Type having the given name within the Prometheus
+         * text format.
+         *
+         * @param name
+         *     The name of this type within the Prometheus text format.
+         */
+        private Type(String name) {
+            this.name = name;
+        }
+
+    }
+
+    /**
+     * A single sample of a metric.
+     */
+    public static class Sample {
+
+        /**
+         * The full name of this sample, including any suffix.
+         */
+        private final String name;
+
+        /**
+         * The labels associated with this sample.
+         */
+        private final Map<String, String> labels;
+
+        /**
+         * The value of this sample.
+         */
+        private final double value;
+
+        /**
+         * Creates a new Sample having the given name, labels, and value.
+         *
+         * @param name
+         *     The full name of the sample, including any suffix.
+         *
+         * @param labels
+         *     The labels associated with the sample.
+         *
+         * @param value
+         *     The value of the sample.
+         */
+        private Sample(String name, Map<String, String> labels, double value) {
+            this.name = name;
+            this.labels = labels;
+            this.value = value;
+        }
+
+        /**
+         * Returns the full name of this sample, including any suffix, such as
+         * "_count" for the total number of values recorded by a histogram.
+         *
+         * @return
+         *     The full name of this sample.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the labels associated with this sample, in the order they
+         * were specified.
+         *
+         * @return
+         *     An unmodifiable map of all labels associated with this sample.
+         */
+        public Map<String, String> getLabels() {
+            return labels;
+        }
+
+        /**
+         * Returns the value of this sample.
+         *
+         * @return
+         *     The value of this sample.
+         */
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * Returns a unique key identifying this sample among all other
+         * samples, consisting of the sample name and its labels as they
+         * would be written in the Prometheus text format.
+         *
+         * @return
+         *     A unique key identifying this sample.
+         */
+        public String getKey() {
+
+            if (labels.isEmpty())
+                return name;
+
+            StringBuilder key = new StringBuilder(name).append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+
+                if (!first)
+                    key.append(',');
+
+                key.append(label.getKey()).append("=\"")
+                   .append(escape(label.getValue(), true)).append('"');
+                first = false;
+
+            }
+
+            return key.append('}').toString();
+
+        }
+
+    }
+
+    /**
+     * The name of this metric.
+     */
+    private final String name;
+
+    /**
+     * Human-readable text describing this metric.
+     */
+    private final String help;
+
+    /**
+     * The type of this metric.
+     */
+    private final Type type;
+
+    /**
+     * All samples of this metric.
+     */
+    private final List<Sample> samples = new ArrayList<>();
+
+    /**
+     * Creates a new Metric having the given name, description, and type, and
+     * no samples.
+     *
+     * @param name
+     *     The name of the metric, such as "guacamole_sessions".
+     *
+     * @param help
+     *     Human-readable text describing the metric.
+     *
+     * @param type
+     *     The type of the metric.
+     */
+    public Metric(String name, String help, Type type) {
+        this.name = name;
+        this.help = help;
+        this.type = type;
+    }
+
+    /**
+     * Returns a copy of the given labels with an additional label appended.
+     *
+     * @param labels
+     *     The labels to copy.
+     *
+     * @param name
+     *     The name of the label to add.
+     *
+     * @param value
+     *     The value of the label to add.
+     *
+     * @return
+     *     A new map containing all the given labels, followed by the
+     *     additional label.
+     */
+    public static Map<String, String> withLabel(Map<String, String> labels,
+            String name, String value) {
+        Map<String, String> result = new LinkedHashMap<>(labels);
+        result.put(name, value);
+        return result;
+    }
+
+    /**
+     * Adds a sample to this metric.
+     *
+     * @param suffix
+     *     The suffix to append to the name of this metric to produce the
+     *     name of the sample, or an empty string if the sample should have
+     *     the same name as the metric.
+     *
+     * @param labels
+     *     The labels to associate with the sample.
+     *
+     * @param value
+     *     The value of the sample.
+     *
+     * @return
+     *     This Metric.
+     */
+    public Metric addSample(String suffix, Map<String, String> labels,
+            double value) {
+        samples.add(new Sample(name + suffix,
+                Collections.unmodifiableMap(new LinkedHashMap<>(labels)), value));
+        return this;
+    }
+
+    /**
+     * Adds a sample having no labels to this metric.
+     *
+     * @param value
+     *     The value of the sample.
+     *
+     * @return
+     *     This Metric.
+     */
+    public Metric addSample(double value) {
+        return addSample("", Collections.<String, String>emptyMap(), value);
+    }
+
+    /**
+     * Adds a sample having a single label to this metric.
+     *
+     * @param label
+     *     The name of the label.
+     *
+     * @param labelValue
+     *     The value of the label.
+     *
+     * @param value
+     *     The value of the sample.
+     *
+     * @return
+     *     This Metric.
+     */
+    public Metric addSample(String label, String labelValue, double value) {
+        return addSample("", Collections.singletonMap(label, labelValue), value);
+    }
+
+    /**
+     * Returns the name of this metric.
+     *
+     * @return
+     *     The name of this metric.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns human-readable text describing this metric.
+     *
+     * @return
+     *     Human-readable text describing this metric.
+     */
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * Returns the type of this metric.
+     *
+     * @return
+     *     The type of this metric.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns all samples of this metric, in the order they were added.
+     *
+     * @return
+     *     An unmodifiable list of all samples of this metric.
+     */
+    public List<Sample> getSamples() {
+        return Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * Escapes the given text for inclusion within the Prometheus text
+     * format.
+     *
+     * @param text
+     *     The text to escape.
+     *
+     * @param quoted
+     *     Whether the text is a quoted label value, and thus double quotes
+     *     must also be escaped.
+     *
+     * @return
+     *     The escaped text.
+     */
+    private static String escape(String text, boolean quoted) {
+
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+
+            char c = text.charAt(i);
+            switch (c) {
+
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+
+                case '"':
+                    escaped.append(quoted ? "\\\"" : "\"");
+                    break;
+
+                default:
+                    escaped.append(c);
+
+            }
+
+        }
+
+        return escaped.toString();
+
+    }
+
+    /**
+     * Returns the given value formatted for the Prometheus text format.
+     * Integral values are written without a fractional part.
+     *
+     * @param value
+     *     The value to format.
+     *
+     * @return
+     *     The given value, formatted for the Prometheus text format.
+     */
+    private static String format(double value) {
+
+        if (Double.isNaN(value))
+            return "NaN";
+
+        if (Double.isInfinite(value))
+            return value > 0 ? "+Inf" : "-Inf";
+
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+
+        return Double.toString(value);
+
+    }
+
+    /**
+     * Writes this metric and all its samples to the given Writer using the
+     * Prometheus text exposition format.
+     *
+     * @param writer
+     *     The Writer to write this metric to.
+     *
+     * @throws IOException
+     *     If an error occurs while writing.
+     */
+    public void writeTo(Writer writer) throws IOException {
+
+        writer.write("# HELP " + name + " " + escape(help, false) + "\n");
+        writer.write("# TYPE " + name + " " + type.name + "\n");
+
+        for (Sample sample : samples)
+            writer.write(sample.getKey() + " " + format(sample.getValue()) + "\n");
+
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * MBean exposing each sample of each metric recorded by a MetricsService as
+ * a read-only attribute. Attributes are named as the samples would appear in
+ * the Prometheus text format, such as
+ * <code>guacamole_listener_events_total{listener="..."}</code>. As labeled
+ * samples appear as they are first recorded, the set of attributes may grow
+ * over time.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    /**
+     * The service whose metrics should be exposed.
+     */
+    private final MetricsService metricsService;
+
+    /**
+     * Creates a new MetricsMBean which exposes the metrics of the given
+     * service.
+     *
+     * @param metricsService
+     *     The service whose metrics should be exposed.
+     */
+    public MetricsMBean(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * Returns the current value of all samples of all metrics, indexed by
+     * attribute name.
+     *
+     * @return
+     *     A new map of the current value of all samples, indexed by attribute
+     *     name.
+     */
+    private Map<String, Metric.Sample> getSamples() {
+
+        Map<String, Metric.Sample> samples = new LinkedHashMap<>();
+        for (Metric metric : metricsService.getMetrics()) {
+            for (Metric.Sample sample : metric.getSamples())
+                samples.put(sample.getKey(), sample);
+        }
+
+        return samples;
+
+    }
+
+    @Override
+    public Object getAttribute(String attribute)
+            throws AttributeNotFoundException, MBeanException, ReflectionException {
+
+        Metric.Sample sample = getSamples().get(attribute);
+        if (sample == null)
+            throw new AttributeNotFoundException(attribute);
+
+        return sample.getValue();
+
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+
+        Map<String, Metric.Sample> samples = getSamples();
+
+        AttributeList values = new AttributeList();
+        for (String attribute : attributes) {
+            Metric.Sample sample = samples.get(attribute);
+            if (sample != null)
+                values.add(new Attribute(attribute, sample.getValue()));
+        }
+
+        return values;
+
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute)
+            throws AttributeNotFoundException, InvalidAttributeValueException,
+            MBeanException, ReflectionException {
+        throw new AttributeNotFoundException("Metrics are read-only.");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature)
+            throws MBeanException, ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Metric metric : metricsService.getMetrics()) {
+            for (Metric.Sample sample : metric.getSamples())
+                attributes.add(new MBeanAttributeInfo(sample.getKey(),
+                        Double.class.getName(), metric.getHelp(),
+                        true, false, false));
+        }
+
+        return new MBeanInfo(MetricsMBean.class.getName(),
+                "Guacamole web application metrics.",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                null, new MBeanOperationInfo[0], new MBeanNotificationInfo[0]);
+
+    }
+
+}
@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.guacamole.rest.auth.CredentialVerificationCache;
+import org.apache.guacamole.rest.auth.TokenSessionMap;
+import org.apache.guacamole.rest.event.ListenerService;
+import org.apache.guacamole.rest.event.ListenerStatistics;
+import org.apache.guacamole.tunnel.TunnelBandwidthService;
+import org.apache.guacamole.tunnel.http.RestrictedGuacamoleHTTPTunnelServlet;
+import org.apache.guacamole.tunnel.recording.SessionRecordingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service which records metrics describing the operation of the web
+ * application, including REST API latency, authentication outcomes, and the
+ * number of active sessions and tunnels. Recording a value is cheap and never
+ * blocks, relying on LongAdder counters. Current values are available in the
+ * Prometheus text format and via JMX.
+ */
+@Singleton
+public class MetricsService {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MetricsService.class);
+
+    /**
+     * The name under which metrics are registered with the platform
+     * MBeanServer.
+     */
+    private static final String OBJECT_NAME = "org.apache.guacamole:type=Metrics";
+
+    /**
+     * The number of milliseconds in a second, for the sake of converting
+     * millisecond totals into the seconds expected by Prometheus.
+     */
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    /**
+     * A histogram and the labels identifying that histogram among others of
+     * the same metric.
+     */
+    private static class LabeledHistogram extends Histogram {
+
+        /**
+         * The labels identifying this histogram.
+         */
+        private final Map<String, String> labels;
+
+        /**
+         * Creates a new, empty LabeledHistogram identified by the given
+         * labels.
+         *
+         * @param labels
+         *     The labels identifying the new histogram.
+         */
+        public LabeledHistogram(Map<String, String> labels) {
+            this.labels = labels;
+        }
+
+    }
+
+    /**
+     * The duration of each REST API request, grouped by HTTP method and
+     * resource. Keys are the HTTP method and resource template separated by
+     * a space.
+     */
+    private final ConcurrentMap<String, LabeledHistogram> requestDurations =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The duration of each operation invoked against each
+     * AuthenticationProvider, grouped by the identifier of the provider.
+     */
+    private final ConcurrentMap<String, LabeledHistogram> authProviderDurations =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The number of successful authentication attempts.
+     */
+    private final LongAdder authSuccesses = new LongAdder();
+
+    /**
+     * The number of failed authentication attempts.
+     */
+    private final LongAdder authFailures = new LongAdder();
+
+    /**
+     * The number of tunnels currently open, regardless of the transport used.
+     */
+    private final LongAdder activeTunnels = new LongAdder();
+
+    /**
+     * The map of all active sessions.
+     */
+    @Inject
+    private TokenSessionMap tokenSessionMap;
+
+    /**
+     * Provider of the servlet handling tunnels which use HTTP. A provider is
+     * used as that servlet depends, indirectly, on this service.
+     */
+    @Inject
+    private Provider<RestrictedGuacamoleHTTPTunnelServlet> httpTunnelServlet;
+
+    /**
+     * Service which enforces tunnel bandwidth limits.
+     */
+    @Inject
+    private TunnelBandwidthService bandwidthService;
+
+    /**
+     * Service which writes session recordings.
+     */
+    @Inject
+    private SessionRecordingService recordingService;
+
+    /**
+     * Cache of recently-verified credentials.
+     */
+    @Inject
+    private CredentialVerificationCache credentialCache;
+
+    /**
+     * Service for dispatching events to listeners.
+     */
+    @Inject
+    private ListenerService listenerService;
+
+    /**
+     * The name under which this service is registered with the platform
+     * MBeanServer, or null if it is not registered.
+     */
+    private ObjectName objectName;
+
+    /**
+     * Adds a new histogram to the given map under the given key, unless a
+     * histogram has already been stored under that key, such as by another
+     * thread.
+     *
+     * @param histograms
+     *     The map of histograms to add the new histogram to.
+     *
+     * @param key
+     *     The key to store the new histogram under.
+     *
+     * @param labels
+     *     The labels to assign to the new histogram.
+     *
+     * @return
+     *     The histogram now stored under the given key.
+     */
+    private static Histogram addHistogram(
+            ConcurrentMap<String, LabeledHistogram> histograms, String key,
+            Map<String, String> labels) {
+
+        LabeledHistogram histogram = new LabeledHistogram(labels);
+        LabeledHistogram existing = histograms.putIfAbsent(key, histogram);
+        return existing != null ? existing : histogram;
+
+    }
+
+    /**
+     * Records the duration of a single REST API request.
+     *
+     * @param method
+     *     The HTTP method of the request, such as "GET".
+     *
+     * @param resource
+     *     The template of the resource which handled the request, such as
+     *     "/session/data/{dataSource}/users/{username}". Concrete request
+     *     paths should not be used, as each distinct value is tracked
+     *     separately.
+     *
+     * @param nanos
+     *     The duration of the request, in nanoseconds.
+     */
+    public void recordRequest(String method, String resource, long nanos) {
+
+        String key = method + " " + resource;
+
+        // Labels need only be built the first time a resource is requested
+        Histogram histogram = requestDurations.get(key);
+        if (histogram == null) {
+            Map<String, String> labels = new LinkedHashMap<>();
+            labels.put("method", method);
+            labels.put("resource", resource);
+            histogram = addHistogram(requestDurations, key, labels);
+        }
+
+        histogram.record(nanos);
+
+    }
+
+    /**
+     * Records the duration of a single operation invoked against an
+     * AuthenticationProvider, such as authentication or the retrieval of a
+     * UserContext.
+     *
+     * @param identifier
+     *     The identifier of the AuthenticationProvider.
+     *
+     * @param nanos
+     *     The duration of the operation, in nanoseconds.
+     */
+    public void recordAuthenticationProvider(String identifier, long nanos) {
+
+        Histogram histogram = authProviderDurations.get(identifier);
+        if (histogram == null)
+            histogram = addHistogram(authProviderDurations, identifier,
+                    Collections.singletonMap("provider", identifier));
+
+        histogram.record(nanos);
+
+    }
+
+    /**
+     * Records that an authentication attempt has succeeded.
+     */
+    public void authenticationSucceeded() {
+        authSuccesses.increment();
+    }
+
+    /**
+     * Records that an authentication attempt has failed.
+     */
+    public void authenticationFailed() {
+        authFailures.increment();
+    }
+
+    /**
+     * Records that a tunnel has been opened.
+     */
+    public void tunnelOpened() {
+        activeTunnels.increment();
+    }
+
+    /**
+     * Records that a tunnel previously recorded with tunnelOpened() has been
+     * closed.
+     */
+    public void tunnelClosed() {
+        activeTunnels.decrement();
+    }
+
+    /**
+     * Creates a new histogram metric containing the samples of each of the
+     * given histograms.
+     *
+     * @param name
+     *     The name of the metric.
+     *
+     * @param help
+     *     Human-readable text describing the metric.
+     *
+     * @param histograms
+     *     The map of histograms to include in the metric.
+     *
+     * @return
+     *     A new histogram metric containing the samples of each of the given
+     *     histograms.
+     */
+    private static Metric getHistogramMetric(String name, String help,
+            ConcurrentMap<String, LabeledHistogram> histograms) {
+
+        Metric metric = new Metric(name, help, Metric.Type.HISTOGRAM);
+        for (LabeledHistogram histogram : histograms.values())
+            histogram.addTo(metric, histogram.labels);
+
+        return metric;
+
+    }
+
+    /**
+     * Returns the current value of all metrics.
+     *
+     * @return
+     *     A new list containing the current value of all metrics.
+     */
+    public List<Metric> getMetrics() {
+
+        List<Metric> metrics = new ArrayList<>();
+
+        metrics.add(getHistogramMetric("guacamole_http_request_duration_seconds",
+                "Time taken to handle each REST API request.", requestDurations));
+
+        metrics.add(getHistogramMetric("guacamole_auth_provider_duration_seconds",
+                "Time taken by each operation invoked against an "
+                + "authentication provider.", authProviderDurations));
+
+        metrics.add(new Metric("guacamole_authentication_successes_total",
+                "Successful authentication attempts.", Metric.Type.COUNTER)
+                .addSample(authSuccesses.sum()));
+
+        metrics.add(new Metric("guacamole_authentication_failures_total",
+                "Failed authentication attempts.", Metric.Type.COUNTER)
+                .addSample(authFailures.sum()));
+
+        metrics.add(new Metric("guacamole_sessions",
+                "Active user sessions.", Metric.Type.GAUGE)
+                .addSample(tokenSessionMap.size()));
+
+        metrics.add(new Metric("guacamole_tunnels",
+                "Open tunnels, regardless of transport.", Metric.Type.GAUGE)
+                .addSample(activeTunnels.sum()));
+
+        metrics.add(new Metric("guacamole_http_tunnels",
+                "Tunnels registered with the HTTP tunnel.", Metric.Type.GAUGE)
+                .addSample(httpTunnelServlet.get().getTunnelCount()));
+
+        metrics.add(new Metric("guacamole_tunnel_throttled_reads_total",
+                "Tunnel reads delayed due to bandwidth limits.", Metric.Type.COUNTER)
+                .addSample(bandwidthService.getThrottleCount()));
+
+        metrics.add(new Metric("guacamole_tunnel_throttled_seconds_total",
+                "Total time tunnel reads were delayed due to bandwidth limits.",
+                Metric.Type.COUNTER)
+                .addSample(bandwidthService.getThrottleTime() / MILLIS_PER_SECOND));
+
+        metrics.add(new Metric("guacamole_recordings",
+                "Session recordings in progress.", Metric.Type.GAUGE)
+                .addSample(recordingService.getActiveRecordings()));
+
+        metrics.add(new Metric("guacamole_recording_written_bytes_total",
+                "Session recording data written.", Metric.Type.COUNTER)
+                .addSample(recordingService.getWrittenBytes()));
+
+        metrics.add(new Metric("guacamole_recording_dropped_bytes_total",
+                "Session recording data dropped due to slow storage.",
+                Metric.Type.COUNTER)
+                .addSample(recordingService.getDroppedBytes()));
+
+        metrics.add(new Metric("guacamole_credential_cache_hits_total",
+                "Authentication attempts rejected by the rejected-credential cache.",
+                Metric.Type.COUNTER)
+                .addSample(credentialCache.getHits()));
+
+        metrics.add(new Metric("guacamole_credential_cache_misses_total",
+                "Authentication attempts checked against, but not rejected by, "
+                + "the rejected-credential cache.",
+                Metric.Type.COUNTER)
+                .addSample(credentialCache.getMisses()));
+
+        metrics.add(new Metric("guacamole_credential_cache_entries",
+                "Entries within the rejected-credential cache.", Metric.Type.GAUGE)
+                .addSample(credentialCache.getSize()));
+
+        Metric listenerEvents = new Metric("guacamole_listener_events_total",
+                "Events delivered to each listener.", Metric.Type.COUNTER);
+        Metric listenerFailures = new Metric("guacamole_listener_failures_total",
+                "Event deliveries which failed due to an error within the "
+                + "listener.", Metric.Type.COUNTER);
+        Metric listenerTime = new Metric("guacamole_listener_seconds_total",
+                "Total time spent within each listener.", Metric.Type.COUNTER);
+        Metric listenerQueue = new Metric("guacamole_listener_queued_events",
+                "Events awaiting delivery to each listener.", Metric.Type.GAUGE);
+        Metric listenerDropped = new Metric("guacamole_listener_dropped_events_total",
+                "Events not delivered because the listener's queue was full.",
+                Metric.Type.COUNTER);
+
+        for (ListenerStatistics statistics : listenerService.getStatistics()) {
+            String listener = statistics.getName();
+            listenerEvents.addSample("listener", listener, statistics.getEvents());
+            listenerFailures.addSample("listener", listener, statistics.getFailures());
+            listenerTime.addSample("listener", listener, statistics.getTime() / MILLIS_PER_SECOND);
+            listenerQueue.addSample("listener", listener, statistics.getQueueDepth());
+            listenerDropped.addSample("listener", listener, statistics.getDropped());
+        }
+
+        metrics.add(listenerEvents);
+        metrics.add(listenerFailures);
+        metrics.add(listenerTime);
+        metrics.add(listenerQueue);
+        metrics.add(listenerDropped);
+
+        return metrics;
+
+    }
+
+    /**
+     * Writes the current value of all metrics to the given Writer using the
+     * Prometheus text exposition format.
+     *
+     * @param writer
+     *     The Writer to write all metrics to.
+     *
+     * @throws IOException
+     *     If an error occurs while writing.
+     */
+    public void writeMetrics(Writer writer) throws IOException {
+        for (Metric metric : getMetrics())
+            metric.writeTo(writer);
+    }
+
+    /**
+     * Exposes all metrics via the platform MBeanServer, replacing any
+     * metrics already registered, such as by a prior deployment of the web
+     * application. Failures are logged but otherwise ignored.
+     */
+    public synchronized void register() {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+
+            server.registerMBean(new MetricsMBean(this), name);
+            objectName = name;
+
+        }
+        catch (JMException e) {
+            logger.warn("Metrics could not be exposed via JMX: {}", e.getMessage());
+            logger.debug("Unable to register MBean.", e);
+        }
+
+    }
+
+    /**
+     * Stops exposing metrics via the platform MBeanServer, if currently
+     * exposed.
+     */
+    public synchronized void unregister() {
+
+        if (objectName == null)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch (InstanceNotFoundException e) {
+            logger.debug("Metrics MBean already unregistered.", e);
+        }
+        catch (JMException e) {
+            logger.debug("Unable to unregister MBean.", e);
+        }
+
+        objectName = null;
+
+    }
+
+}
@@ -20,6 +20,7 @@
 package org.apache.guacamole.properties;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -52,9 +53,10 @@ public abstract class StringSetProperty implements GuacamoleProperty<Set<String>
         if (values == null)
             return null;
 
-        // Split string into a set of individual values
+        // Split string into a set of individual values, which may be shared
+        // by all callers if the environment caches parsed values
         List<String> valueList = Arrays.asList(DELIMITER_PATTERN.split(values));
-        return new HashSet<String>(valueList);
+        return Collections.unmodifiableSet(new HashSet<String>(valueList));
 
     }
 
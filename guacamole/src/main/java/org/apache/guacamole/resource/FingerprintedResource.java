@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.ServletException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A textual resource whose references to other resources are rewritten to
+ * include the fingerprints of those resources. Each reference of the form
+ * "PATH?v=VALUE" is rewritten such that VALUE is the fingerprint of the
+ * resource served at PATH, allowing that resource to be cached indefinitely
+ * by the client while still being reloaded whenever its contents change.
+ */
+public class FingerprintedResource extends AbstractResource {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(FingerprintedResource.class);
+
+    /**
+     * The size of the buffer to use when reading the contents of the
+     * underlying resource.
+     */
+    private static final int BUFFER_SIZE = 10240;
+
+    /**
+     * The resource whose references should be rewritten.
+     */
+    private final Resource resource;
+
+    /**
+     * All referenced paths, each mapped to the ResourceServlet serving the
+     * resource at that path.
+     */
+    private final Map<String, ResourceServlet> references;
+
+    /**
+     * Creates a new FingerprintedResource which rewrites the references
+     * within the given resource to include the fingerprints of the resources
+     * served by the given servlets.
+     *
+     * @param resource
+     *     The resource whose references should be rewritten. The contents of
+     *     this resource must be UTF-8.
+     *
+     * @param references
+     *     All paths which may be referenced by the given resource, each
+     *     mapped to the ResourceServlet serving the resource at that path.
+     */
+    public FingerprintedResource(Resource resource,
+            Map<String, ResourceServlet> references) {
+        super(resource.getMimeType());
+        this.resource = resource;
+        this.references = references;
+    }
+
+    /**
+     * Reads the entire contents of the given input stream as UTF-8 text,
+     * closing the stream afterwards.
+     *
+     * @param input
+     *     The input stream to read.
+     *
+     * @return
+     *     The entire contents of the given input stream.
+     *
+     * @throws IOException
+     *     If an error occurs while reading the input stream.
+     */
+    private static String read(InputStream input) throws IOException {
+
+        try {
+
+            int length;
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            while ((length = input.read(buffer)) != -1)
+                output.write(buffer, 0, length);
+
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+
+        }
+
+        // Ensure input stream is always closed
+        finally {
+            input.close();
+        }
+
+    }
+
+    /**
+     * Returns the given text with all references to the resources served by
+     * the ResourceServlets of this FingerprintedResource rewritten to include
+     * the fingerprints of those resources.
+     *
+     * @param text
+     *     The text to rewrite.
+     *
+     * @return
+     *     The given text with all references rewritten.
+     *
+     * @throws ServletException
+     *     If any referenced resource cannot be read.
+     */
+    private String rewrite(String text) throws ServletException {
+
+        for (Map.Entry<String, ResourceServlet> reference : references.entrySet()) {
+
+            // Skip resources which do not exist
+            String fingerprint = reference.getValue().getFingerprint();
+            if (fingerprint == null)
+                continue;
+
+            // Replace any version currently present with the fingerprint
+            String prefix = reference.getKey() + "?v=";
+            text = Pattern.compile(Pattern.quote(prefix) + "[^\"'&]*")
+                    .matcher(text)
+                    .replaceAll(Matcher.quoteReplacement(prefix + fingerprint));
+
+        }
+
+        return text;
+
+    }
+
+    @Override
+    public InputStream asStream() {
+
+        InputStream input = resource.asStream();
+        if (input == null)
+            return null;
+
+        try {
+            return new ByteArrayInputStream(
+                    rewrite(read(input)).getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Fall back to the original contents if references cannot be
+        // rewritten, as clients will still revalidate using the ETag
+        catch (IOException e) {
+            logger.warn("Unable to read resource: {}", e.getMessage());
+            logger.debug("Unable to read resource to be fingerprinted.", e);
+            return resource.asStream();
+        }
+        catch (ServletException e) {
+            logger.warn("Unable to fingerprint referenced resources: {}", e.getMessage());
+            logger.debug("Unable to fingerprint resources referenced by resource.", e);
+            return resource.asStream();
+        }
+
+    }
+
+}
@@ -19,9 +19,17 @@
 
 package org.apache.guacamole.resource;
 
+import com.google.common.io.BaseEncoding;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -33,7 +41,16 @@ import org.slf4j.LoggerFactory;
  * Servlet which serves a given resource for all HTTP GET requests. The HEAD
  * method is correctly supported, and HTTP 304 ("Not Modified") responses will
  * be properly returned for GET requests depending on the last time the
- * resource was modified.
+ * resource was modified or on its ETag.
+ *
+ * As the resources served by this servlet do not change while the web
+ * application is running, the contents of the resource are read only once,
+ * when the servlet is initialized, and are served from memory thereafter. A
+ * gzip-compressed copy is kept for textual resources and is served to clients
+ * which accept it. Requests which include the resource's fingerprint (its
+ * ETag) as the "v" query parameter are served with headers allowing the
+ * response to be cached indefinitely. URLs containing this fingerprint are
+ * produced for the web application's index.html by FingerprintedResource.
  */
 public class ResourceServlet extends HttpServlet {
 
@@ -43,16 +60,64 @@ public class ResourceServlet extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(ResourceServlet.class);
 
     /**
-     * The size of the buffer to use when transferring data from the input
-     * stream of a resource to the output stream of a request.
+     * The size of the buffer to use when reading the contents of a resource.
      */
     private static final int BUFFER_SIZE = 10240;
 
+    /**
+     * The name of the query parameter which, if equal to the fingerprint of
+     * the resource, denotes a request which may be cached indefinitely.
+     */
+    private static final String FINGERPRINT_PARAMETER = "v";
+
+    /**
+     * The value of the Cache-Control header for requests which include the
+     * fingerprint of the resource. As any change to the resource results in
+     * a different fingerprint, such responses may be cached for a year (the
+     * maximum recommended by RFC 7234) without revalidation.
+     */
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    /**
+     * All mimetypes other than "text/*" which are worth compressing.
+     */
+    private static final Set<String> COMPRESSIBLE_MIMETYPES =
+            Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+                "application/javascript",
+                "application/json",
+                "application/xml",
+                "image/svg+xml"
+            )));
+
     /**
      * The resource to serve for every GET request.
      */
     private final Resource resource;
 
+    /**
+     * The full contents of the resource, or null if the resource does not
+     * exist. This is populated when the servlet is initialized.
+     */
+    private byte[] content;
+
+    /**
+     * The gzip-compressed contents of the resource, or null if the resource
+     * does not exist or would not benefit from compression. This is
+     * populated when the servlet is initialized.
+     */
+    private byte[] compressedContent;
+
+    /**
+     * A hex string derived from the SHA-256 hash of the contents of the
+     * resource, used both as the basis of its ETag and as its fingerprint.
+     */
+    private String fingerprint;
+
+    /**
+     * Whether the contents of the resource have been read into memory.
+     */
+    private boolean loaded = false;
+
     /**
      * Creates a new ResourceServlet which serves the given Resource for all
      * HTTP GET requests.
@@ -64,57 +129,324 @@ public class ResourceServlet extends HttpServlet {
         this.resource = resource;
     }
 
-    @Override
-    protected void doHead(HttpServletRequest request, HttpServletResponse response)
-            throws ServletException, IOException {
+    /**
+     * Returns whether resources having the given mimetype are likely to
+     * benefit from compression.
+     *
+     * @param mimetype
+     *     The mimetype to test.
+     *
+     * @return
+     *     true if resources having the given mimetype should be compressed,
+     *     false otherwise.
+     */
+    private static boolean isCompressible(String mimetype) {
+        return mimetype != null && (mimetype.startsWith("text/")
+                || COMPRESSIBLE_MIMETYPES.contains(mimetype));
+    }
 
-        // Set last modified and content type headers
-        response.addDateHeader("Last-Modified", resource.getLastModified());
-        response.setContentType(resource.getMimeType());
+    /**
+     * Reads the entire contents of the given resource.
+     *
+     * @param resource
+     *     The resource to read.
+     *
+     * @return
+     *     The entire contents of the resource, or null if the resource does
+     *     not exist.
+     *
+     * @throws IOException
+     *     If an error occurs while reading the resource.
+     */
+    private static byte[] read(Resource resource) throws IOException {
+
+        // Get input stream from resource
+        InputStream input = resource.asStream();
+        if (input == null)
+            return null;
+
+        try {
+
+            int length;
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            // Read resource into memory
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            while ((length = input.read(buffer)) != -1)
+                output.write(buffer, 0, length);
+
+            return output.toByteArray();
+
+        }
+
+        // Ensure input stream is always closed
+        finally {
+            input.close();
+        }
+
+    }
+
+    /**
+     * Returns the gzip-compressed form of the given data.
+     *
+     * @param data
+     *     The data to compress.
+     *
+     * @return
+     *     The gzip-compressed form of the given data.
+     *
+     * @throws IOException
+     *     If an error occurs during compression.
+     */
+    private static byte[] compress(byte[] data) throws IOException {
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 4);
+        GZIPOutputStream gzip = new GZIPOutputStream(output);
+        gzip.write(data);
+        gzip.close();
+
+        return output.toByteArray();
+
+    }
+
+    /**
+     * Reads the contents of the resource into memory, calculating its
+     * fingerprint and compressed form. If the resource has already been read,
+     * this function has no effect.
+     *
+     * @throws ServletException
+     *     If the resource cannot be read or compressed.
+     */
+    private synchronized void load() throws ServletException {
+
+        // Read the resource only once
+        if (loaded)
+            return;
+
+        try {
+            content = read(resource);
+        }
+        catch (IOException e) {
+            throw new ServletException("Unable to read resource.", e);
+        }
+
+        // Nothing further to do if the resource does not exist
+        if (content == null) {
+            loaded = true;
+            return;
+        }
+
+        try {
+            fingerprint = BaseEncoding.base16().lowerCase().encode(
+                    MessageDigest.getInstance("SHA-256").digest(content));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new UnsupportedOperationException("Support for SHA-256 is required.", e);
+        }
+
+        // Keep a compressed copy only if it is actually smaller
+        if (isCompressible(resource.getMimeType())) {
+            try {
+                byte[] compressed = compress(content);
+                if (compressed.length < content.length)
+                    compressedContent = compressed;
+            }
+            catch (IOException e) {
+                throw new ServletException("Unable to compress resource.", e);
+            }
+        }
+
+        loaded = true;
 
     }
 
+    /**
+     * Returns the fingerprint of the resource served by this servlet, reading
+     * the resource if it has not yet been read. The fingerprint changes
+     * whenever the contents of the resource change, and may be included as
+     * the "v" query parameter of requests for the resource to allow the
+     * response to be cached indefinitely.
+     *
+     * @return
+     *     The fingerprint of the resource, or null if the resource does not
+     *     exist.
+     *
+     * @throws ServletException
+     *     If the resource cannot be read.
+     */
+    public synchronized String getFingerprint() throws ServletException {
+        load();
+        return fingerprint;
+    }
+
     @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response)
-            throws ServletException, IOException {
+    public void init() throws ServletException {
+        load();
+    }
 
-        // Get input stream from resource
-        InputStream input = resource.asStream();
+    /**
+     * Returns whether the given request indicates that the client accepts
+     * gzip-compressed responses.
+     *
+     * @param request
+     *     The request to test.
+     *
+     * @return
+     *     true if the client accepts gzip-compressed responses, false
+     *     otherwise.
+     */
+    private static boolean acceptsGzip(HttpServletRequest request) {
+
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null)
+            return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+
+            String[] parameters = coding.trim().split(";");
+            if (!parameters[0].trim().equalsIgnoreCase("gzip"))
+                continue;
+
+            // Honor explicit refusal of gzip ("gzip;q=0")
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    }
+                    catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Returns whether the given ETag is matched by the given value of an
+     * If-None-Match header.
+     *
+     * @param ifNoneMatch
+     *     The value of the If-None-Match header.
+     *
+     * @param etag
+     *     The ETag to test, including its surrounding quotes.
+     *
+     * @return
+     *     true if the header matches the given ETag, false otherwise.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+
+        for (String candidate : ifNoneMatch.split(",")) {
+
+            candidate = candidate.trim();
+            if (candidate.equals("*"))
+                return true;
+
+            // Weak comparison is required for If-None-Match
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+
+            if (candidate.equals(etag))
+                return true;
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Writes the headers describing the resource, returning the contents
+     * that should be sent as the body of the response. If the resource does
+     * not exist, the response status is set to 404 ("Not Found") and null is
+     * returned. If the client already has the resource, the response status
+     * is set to 304 ("Not Modified") and null is returned.
+     *
+     * @param request
+     *     The request being handled.
+     *
+     * @param response
+     *     The response to write headers to.
+     *
+     * @return
+     *     The contents of the resource in the form that should be sent to the
+     *     client, or null if no content should be sent.
+     */
+    private byte[] writeHeaders(HttpServletRequest request,
+            HttpServletResponse response) {
 
         // If resource does not exist, return not found
-        if (input == null) {
+        if (content == null) {
             logger.debug("Resource does not exist: \"{}\"", request.getServletPath());
             response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-            return;
+            return null;
         }
 
-        try {
+        // Select compressed variant only if available and accepted
+        byte[] body = content;
+        String etag = "\"" + fingerprint + "\"";
+        if (compressedContent != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+            if (acceptsGzip(request)) {
+                body = compressedContent;
+                etag = "\"" + fingerprint + "-gzip\"";
+                response.setHeader("Content-Encoding", "gzip");
+            }
+        }
 
-            // Write headers
-            doHead(request, response);
+        // Set last modified, content type, and cache headers
+        long lastModified = resource.getLastModified();
+        response.addDateHeader("Last-Modified", lastModified);
+        response.setContentType(resource.getMimeType());
+        response.setHeader("ETag", etag);
 
-            // If not modified since "If-Modified-Since" header, return not modified
-            long ifModifiedSince = request.getDateHeader("If-Modified-Since");
-            if (resource.getLastModified() - ifModifiedSince < 1000) {
+        if (fingerprint.equals(request.getParameter(FINGERPRINT_PARAMETER)))
+            response.setHeader("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+
+        // If the ETag matches the "If-None-Match" header, return not modified
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (matches(ifNoneMatch, etag)) {
                 logger.debug("Resource not modified: \"{}\"", request.getServletPath());
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                return;
+                return null;
             }
+        }
 
-            int length;
-            byte[] buffer = new byte[BUFFER_SIZE];
+        // Otherwise, if not modified since "If-Modified-Since" header, return
+        // not modified
+        else if (lastModified - request.getDateHeader("If-Modified-Since") < 1000) {
+            logger.debug("Resource not modified: \"{}\"", request.getServletPath());
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
 
-            // Write resource to response body
-            OutputStream output = response.getOutputStream();
-            while ((length = input.read(buffer)) != -1)
-                output.write(buffer, 0, length);
+        response.setContentLength(body.length);
+        return body;
 
-        }
+    }
 
-        // Ensure input stream is always closed
-        finally {
-            input.close();
-        }
+    @Override
+    protected void doHead(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        writeHeaders(request, response);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        // Write resource to response body directly from memory
+        byte[] body = writeHeaders(request, response);
+        if (body != null)
+            response.getOutputStream().write(body);
 
     }
 
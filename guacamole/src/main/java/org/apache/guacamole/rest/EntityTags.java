@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.rest;
+
+import com.google.common.io.BaseEncoding;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleServerException;
+import org.apache.guacamole.net.auth.UserContext;
+import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
+
+/**
+ * Utility methods for REST resources which support conditional requests via
+ * the ETag and If-None-Match headers. Where the UserContext providing the
+ * data tracks changes, the resulting version stamp is used as the ETag,
+ * allowing unchanged data to be acknowledged without being retrieved at all.
+ * Otherwise, the ETag is derived from a hash of the serialized response,
+ * which still avoids resending unchanged data to the client.
+ */
+public class EntityTags {
+
+    /**
+     * Cache control directives for responses having ETags. Responses are
+     * specific to the user's session and must be revalidated before reuse.
+     */
+    private static final CacheControl CACHE_CONTROL = new CacheControl();
+
+    static {
+        CACHE_CONTROL.setPrivate(true);
+        CACHE_CONTROL.setNoCache(true);
+    }
+
+    /**
+     * This class is a utility class and may not be instantiated.
+     */
+    private EntityTags() {
+    }
+
+    /**
+     * Returns an ETag representing the current version of all data exposed
+     * by the given UserContext, if that UserContext tracks changes.
+     *
+     * @param userContext
+     *     The UserContext providing the data being returned.
+     *
+     * @return
+     *     An ETag representing the current version of the data exposed by
+     *     the given UserContext, or null if the UserContext does not track
+     *     changes.
+     */
+    public static EntityTag getVersionTag(UserContext userContext) {
+
+        String version = userContext.getDataVersion();
+        if (version == null)
+            return null;
+
+        return new EntityTag(version);
+
+    }
+
+    /**
+     * Returns a "304 Not Modified" response if the given request's
+     * If-None-Match header matches the given ETag.
+     *
+     * @param request
+     *     The request being handled.
+     *
+     * @param tag
+     *     The ETag of the current version of the requested data, or null if
+     *     no such ETag is available.
+     *
+     * @return
+     *     A "304 Not Modified" response if the client already has the
+     *     current version of the requested data, null otherwise.
+     */
+    public static Response evaluate(Request request, EntityTag tag) {
+
+        if (tag == null)
+            return null;
+
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified == null)
+            return null;
+
+        return notModified.cacheControl(CACHE_CONTROL).build();
+
+    }
+
+    /**
+     * Returns a response containing the given entity and an ETag. If a
+     * version-based ETag is given, that ETag is used as-is. Otherwise, the
+     * entity is serialized and an ETag derived from its content, and a
+     * "304 Not Modified" response is returned if that ETag matches the
+     * request's If-None-Match header. The entity is serialized using the
+     * same ObjectMapper that Jersey would use, and the serialized content is
+     * sent as-is, such that the ETag always matches the response body.
+     *
+     * @param request
+     *     The request being handled.
+     *
+     * @param jsonProvider
+     *     The provider used by Jersey to serialize JSON responses.
+     *
+     * @param tag
+     *     The version-based ETag for the entity, as returned by
+     *     getVersionTag(), or null if no such ETag is available.
+     *
+     * @param entity
+     *     The entity to return.
+     *
+     * @return
+     *     A response containing the given entity and its ETag, or a
+     *     "304 Not Modified" response if the client already has the entity.
+     *
+     * @throws GuacamoleException
+     *     If the entity cannot be serialized.
+     */
+    public static Response respond(Request request,
+            JacksonJsonProvider jsonProvider, EntityTag tag, Object entity)
+            throws GuacamoleException {
+
+        // Version-based ETags need no further work
+        if (tag != null)
+            return Response.ok(entity).tag(tag).cacheControl(CACHE_CONTROL).build();
+
+        // Otherwise, derive the ETag from the content itself
+        byte[] content;
+        try {
+            content = jsonProvider.locateMapper(entity.getClass(),
+                    MediaType.APPLICATION_JSON_TYPE).writeValueAsBytes(entity);
+            tag = new EntityTag(BaseEncoding.base16().encode(
+                    MessageDigest.getInstance("SHA-256").digest(content)));
+        }
+        catch (IOException e) {
+            throw new GuacamoleServerException("Unable to serialize response.", e);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new UnsupportedOperationException("Support for SHA-256 is required.", e);
+        }
+
+        Response notModified = evaluate(request, tag);
+        if (notModified != null)
+            return notModified;
+
+        return Response.ok(content, MediaType.APPLICATION_JSON_TYPE)
+                .tag(tag).cacheControl(CACHE_CONTROL).build();
+
+    }
+
+    /**
+     * Returns a response which streams JSON produced by the given
+     * StreamingOutput. As the content is not known in advance, no ETag can be
+     * derived from it, and the response will have an ETag only if a
+     * version-based ETag is given.
+     *
+     * @param tag
+     *     The version-based ETag for the content, as returned by
+     *     getVersionTag(), or null if no such ETag is available.
+     *
+     * @param output
+     *     The StreamingOutput which will write the JSON content.
+     *
+     * @return
+     *     A response which streams the JSON content written by the given
+     *     StreamingOutput.
+     */
+    public static Response respond(EntityTag tag, StreamingOutput output) {
+
+        Response.ResponseBuilder response = Response.ok(output,
+                MediaType.APPLICATION_JSON_TYPE);
+
+        if (tag != null)
+            response.tag(tag).cacheControl(CACHE_CONTROL);
+
+        return response.build();
+
+    }
+
+}
@@ -26,13 +26,19 @@ import com.google.inject.Scopes;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import com.google.inject.matcher.Matchers;
 import com.google.inject.servlet.ServletModule;
+import com.sun.jersey.api.core.ResourceConfig;
 import com.sun.jersey.guice.spi.container.servlet.GuiceContainer;
+import java.util.HashMap;
+import java.util.Map;
 import org.aopalliance.intercept.MethodInterceptor;
+import org.apache.guacamole.metrics.MetricsService;
 import org.apache.guacamole.rest.activeconnection.ActiveConnectionModule;
 import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
 import org.apache.guacamole.rest.auth.TokenRESTService;
 import org.apache.guacamole.rest.auth.AuthTokenGenerator;
+import org.apache.guacamole.rest.auth.AuthenticationProviderInvoker;
 import org.apache.guacamole.rest.auth.AuthenticationService;
+import org.apache.guacamole.rest.auth.CredentialVerificationCache;
 import org.apache.guacamole.rest.auth.DecorationService;
 import org.apache.guacamole.rest.auth.SecureRandomAuthTokenGenerator;
 import org.apache.guacamole.rest.auth.TokenSessionMap;
@@ -40,6 +46,8 @@ import org.apache.guacamole.rest.connection.ConnectionModule;
 import org.apache.guacamole.rest.connectiongroup.ConnectionGroupModule;
 import org.apache.guacamole.rest.extension.ExtensionRESTService;
 import org.apache.guacamole.rest.language.LanguageRESTService;
+import org.apache.guacamole.rest.metrics.MetricsRESTService;
+import org.apache.guacamole.rest.metrics.RequestMetricsFilter;
 import org.apache.guacamole.rest.patch.PatchRESTService;
 import org.apache.guacamole.rest.session.SessionResourceFactory;
 import org.apache.guacamole.rest.sharingprofile.SharingProfileModule;
@@ -81,8 +89,11 @@ public class RESTServiceModule extends ServletModule {
         // Bind low-level services
         bind(ListenerService.class);
         bind(AuthenticationService.class);
+        bind(AuthenticationProviderInvoker.class);
+        bind(CredentialVerificationCache.class);
         bind(AuthTokenGenerator.class).to(SecureRandomAuthTokenGenerator.class);
         bind(DecorationService.class);
+        bind(MetricsService.class);
 
         // Automatically translate GuacamoleExceptions for REST methods
         bind(RESTExceptionMapper.class);
@@ -92,6 +103,7 @@ public class RESTServiceModule extends ServletModule {
         bind(LanguageRESTService.class);
         bind(PatchRESTService.class);
         bind(TokenRESTService.class);
+        bind(MetricsRESTService.class);
 
         // Root-level resources
         bind(SessionRESTService.class);
@@ -111,7 +123,15 @@ public class RESTServiceModule extends ServletModule {
         // Set up the servlet and JSON mappings
         bind(GuiceContainer.class);
         bind(JacksonJsonProvider.class).in(Scopes.SINGLETON);
-        serve("/api/*").with(GuiceContainer.class);
+
+        // Record the duration of each REST API request
+        Map<String, String> containerParams = new HashMap<>();
+        containerParams.put(ResourceConfig.PROPERTY_CONTAINER_REQUEST_FILTERS,
+                RequestMetricsFilter.class.getName());
+        containerParams.put(ResourceConfig.PROPERTY_CONTAINER_RESPONSE_FILTERS,
+                RequestMetricsFilter.class.getName());
+
+        serve("/api/*").with(GuiceContainer.class, containerParams);
 
         // Serve Webjar JavaScript dependencies
         bind(WebjarsServlet.class).in(Scopes.SINGLETON);
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.rest.activeconnection;
+
+import com.google.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service which records the connection and disconnection of tunnels created
+ * through this instance of the web application, allowing REST clients to be
+ * notified of changes to active connections rather than repeatedly
+ * retrieving all active connections. Changes are identified by the UUID of
+ * the tunnel involved, which is also the identifier of the corresponding
+ * active connection for extensions which track active connections. Only a
+ * bounded number of recent changes are retained; subscribers which fall
+ * too far behind must resynchronize by retrieving all active connections.
+ */
+@Singleton
+public class ActiveConnectionChangeFeed {
+
+    /**
+     * The maximum number of recent changes retained.
+     */
+    private static final int MAX_CHANGES = 1024;
+
+    /**
+     * A single change to the set of active connections.
+     */
+    public static class Change {
+
+        /**
+         * The position of this change within the feed.
+         */
+        private final long position;
+
+        /**
+         * Whether this change represents a new connection (true) or a
+         * disconnection (false).
+         */
+        private final boolean connected;
+
+        /**
+         * The UUID of the tunnel that connected or disconnected.
+         */
+        private final String identifier;
+
+        /**
+         * Creates a new Change representing the connection or disconnection
+         * of the tunnel having the given UUID.
+         *
+         * @param position
+         *     The position of the change within the feed.
+         *
+         * @param connected
+         *     Whether the tunnel connected (true) or disconnected (false).
+         *
+         * @param identifier
+         *     The UUID of the tunnel.
+         */
+        private Change(long position, boolean connected, String identifier) {
+            this.position = position;
+            this.connected = connected;
+            this.identifier = identifier;
+        }
+
+        /**
+         * Returns the position of this change within the feed. Positions
+         * increase by exactly one with each change.
+         *
+         * @return
+         *     The position of this change within the feed.
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Returns whether this change represents a new connection, as
+         * opposed to a disconnection.
+         *
+         * @return
+         *     true if the tunnel connected, false if it disconnected.
+         */
+        public boolean isConnected() {
+            return connected;
+        }
+
+        /**
+         * Returns the UUID of the tunnel that connected or disconnected.
+         *
+         * @return
+         *     The UUID of the tunnel that connected or disconnected.
+         */
+        public String getIdentifier() {
+            return identifier;
+        }
+
+    }
+
+    /**
+     * The most recent changes, oldest first. Access to this deque and to
+     * the current position must be synchronized on this deque.
+     */
+    private final Deque<Change> changes = new ArrayDeque<Change>(MAX_CHANGES);
+
+    /**
+     * The position of the most recent change, or zero if no changes have
+     * yet occurred.
+     */
+    private long position = 0;
+
+    /**
+     * Records the given change, waking all threads waiting for changes.
+     *
+     * @param connected
+     *     Whether the tunnel connected (true) or disconnected (false).
+     *
+     * @param identifier
+     *     The UUID of the tunnel.
+     */
+    private void record(boolean connected, String identifier) {
+        synchronized (changes) {
+
+            if (changes.size() >= MAX_CHANGES)
+                changes.removeFirst();
+
+            changes.addLast(new Change(++position, connected, identifier));
+            changes.notifyAll();
+
+        }
+    }
+
+    /**
+     * Records that the tunnel having the given UUID has connected.
+     *
+     * @param identifier
+     *     The UUID of the tunnel.
+     */
+    public void connected(String identifier) {
+        record(true, identifier);
+    }
+
+    /**
+     * Records that the tunnel having the given UUID has disconnected.
+     *
+     * @param identifier
+     *     The UUID of the tunnel.
+     */
+    public void disconnected(String identifier) {
+        record(false, identifier);
+    }
+
+    /**
+     * Returns the position of the most recent change. Subscribers should
+     * retrieve this position before retrieving the current set of active
+     * connections, such that no change can be missed.
+     *
+     * @return
+     *     The position of the most recent change, or zero if no changes have
+     *     yet occurred.
+     */
+    public long getPosition() {
+        synchronized (changes) {
+            return position;
+        }
+    }
+
+    /**
+     * Returns all changes following the given position, waiting up to the
+     * given amount of time for such changes to occur.
+     *
+     * @param after
+     *     The position of the last change already seen by the caller.
+     *
+     * @param timeout
+     *     The maximum amount of time to wait for changes, in milliseconds.
+     *
+     * @return
+     *     All changes following the given position, which will be empty if
+     *     no changes occurred within the given time, or null if changes
+     *     following the given position are no longer retained and the caller
+     *     must resynchronize.
+     *
+     * @throws InterruptedException
+     *     If the current thread is interrupted while waiting.
+     */
+    public List<Change> await(long after, long timeout)
+            throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        synchronized (changes) {
+
+            // Wait for any change beyond the given position
+            long remaining;
+            while (position <= after
+                    && (remaining = deadline - System.nanoTime()) > 0)
+                TimeUnit.NANOSECONDS.timedWait(changes, remaining);
+
+            // Require resynchronization if changes have been discarded
+            Change oldest = changes.peekFirst();
+            if (oldest != null && oldest.getPosition() > after + 1)
+                return null;
+
+            List<Change> pending = new ArrayList<Change>();
+            for (Change change : changes) {
+                if (change.getPosition() > after)
+                    pending.add(change);
+            }
+
+            return pending;
+
+        }
+
+    }
+
+}
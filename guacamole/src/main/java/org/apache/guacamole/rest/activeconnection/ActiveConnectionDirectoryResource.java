@@ -19,20 +19,42 @@
 
 package org.apache.guacamole.rest.activeconnection;
 
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleSession;
 import org.apache.guacamole.net.auth.ActiveConnection;
 import org.apache.guacamole.net.auth.Directory;
 import org.apache.guacamole.net.auth.Permissions;
 import org.apache.guacamole.net.auth.UserContext;
 import org.apache.guacamole.net.auth.permission.ObjectPermissionSet;
+import org.apache.guacamole.rest.auth.AuthenticationService;
 import org.apache.guacamole.rest.directory.DirectoryObjectResourceFactory;
 import org.apache.guacamole.rest.directory.DirectoryObjectTranslator;
 import org.apache.guacamole.rest.directory.DirectoryResource;
+import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A REST resource which abstracts the operations available on a Directory of
@@ -43,6 +65,72 @@ import org.apache.guacamole.rest.directory.DirectoryResource;
 public class ActiveConnectionDirectoryResource
         extends DirectoryResource<ActiveConnection, APIActiveConnection> {
 
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ActiveConnectionDirectoryResource.class);
+
+    /**
+     * The media type of a stream of server-sent events.
+     */
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    /**
+     * The maximum amount of time to wait between events sent along a change
+     * stream, in milliseconds. If no changes occur within this time, a
+     * comment is sent to keep the connection alive and to detect clients
+     * which have disconnected. Connections already sent to the client are
+     * also checked again at this interval, such that connections which are
+     * no longer readable are removed.
+     */
+    private static final long KEEP_ALIVE_INTERVAL = 15000;
+
+    /**
+     * The maximum amount of time that a change stream remains open, in
+     * milliseconds, even if the session of the client remains valid. Clients
+     * are expected to reconnect.
+     */
+    private static final long MAX_STREAM_DURATION = 300000;
+
+    /**
+     * The amount of time that clients should wait before reconnecting after
+     * a change stream ends, in milliseconds.
+     */
+    private static final long RECONNECT_DELAY = 1000;
+
+    /**
+     * The Directory being exposed by this resource.
+     */
+    private final Directory<ActiveConnection> directory;
+
+    /**
+     * A DirectoryObjectTranslator implementation which handles
+     * ActiveConnections.
+     */
+    private final DirectoryObjectTranslator<ActiveConnection, APIActiveConnection> translator;
+
+    /**
+     * The feed of changes to the active connections of this instance of the
+     * web application.
+     */
+    @Inject
+    private ActiveConnectionChangeFeed changeFeed;
+
+    /**
+     * Service for authenticating users and retrieving their sessions, used to
+     * end change streams once the session of the client is no longer valid.
+     */
+    @Inject
+    private AuthenticationService authenticationService;
+
+    /**
+     * The provider used by Jersey to serialize JSON responses, from which the
+     * ObjectMapper used to serialize the data of each server-sent event is
+     * obtained.
+     */
+    @Inject
+    private JacksonJsonProvider jsonProvider;
+
     /**
      * Creates a new ActiveConnectionDirectoryResource which exposes the
      * operations and subresources available for the given ActiveConnection
@@ -68,6 +156,8 @@ public class ActiveConnectionDirectoryResource
             DirectoryObjectTranslator<ActiveConnection, APIActiveConnection> translator,
             DirectoryObjectResourceFactory<ActiveConnection, APIActiveConnection> resourceFactory) {
         super(userContext, directory, translator, resourceFactory);
+        this.directory = directory;
+        this.translator = translator;
     }
 
     @Override
@@ -76,4 +166,239 @@ public class ActiveConnectionDirectoryResource
         return permissions.getActiveConnectionPermissions();
     }
 
+    /**
+     * Writes a single server-sent event having the given type and JSON
+     * data, flushing the event to the client immediately.
+     *
+     * @param mapper
+     *     The ObjectMapper to use to serialize the data of the event.
+     *
+     * @param output
+     *     The OutputStream to write the event to.
+     *
+     * @param event
+     *     The type of the event.
+     *
+     * @param data
+     *     The object to serialize as the JSON data of the event.
+     *
+     * @throws IOException
+     *     If the event cannot be written.
+     */
+    private static void writeEvent(ObjectMapper mapper, OutputStream output,
+            String event, Object data) throws IOException {
+        String message = "event: " + event + "\n"
+                       + "data: " + mapper.writeValueAsString(data) + "\n\n";
+        output.write(message.getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    /**
+     * Retrieves and translates all readable active connections having the
+     * given identifiers. Permission checks are thus performed by the
+     * underlying Directory once per call, regardless of the number of
+     * identifiers.
+     *
+     * @param identifiers
+     *     The identifiers of the active connections to retrieve.
+     *
+     * @return
+     *     A map of all readable active connections having the given
+     *     identifiers, indexed by identifier.
+     *
+     * @throws GuacamoleException
+     *     If the active connections cannot be retrieved.
+     */
+    private Map<String, APIActiveConnection> getReadable(
+            Collection<String> identifiers) throws GuacamoleException {
+
+        Map<String, APIActiveConnection> readable = new HashMap<String, APIActiveConnection>();
+        for (ActiveConnection activeConnection : directory.getAll(identifiers))
+            readable.put(activeConnection.getIdentifier(),
+                    translator.toExternalObject(activeConnection));
+
+        return readable;
+
+    }
+
+    /**
+     * Returns whether the given authentication token still refers to the
+     * given session. Once the user logs out or the session expires, the
+     * token no longer refers to any session.
+     *
+     * @param authToken
+     *     The authentication token of the client.
+     *
+     * @param session
+     *     The session associated with the authentication token when the
+     *     change stream was opened.
+     *
+     * @return
+     *     true if the given authentication token still refers to the given
+     *     session, false otherwise.
+     */
+    private boolean isSessionValid(String authToken, GuacamoleSession session) {
+
+        try {
+            return authenticationService.getGuacamoleSession(authToken) == session;
+        }
+        catch (GuacamoleException e) {
+            return false;
+        }
+
+    }
+
+    /**
+     * Returns a stream of server-sent events describing changes to the
+     * active connections within this directory, allowing clients to track
+     * active connections without polling. The stream begins with a
+     * "snapshot" event containing all readable active connections, indexed
+     * by identifier. Each subsequent "connect" event contains newly-readable
+     * active connections in the same form, and each "disconnect" event
+     * contains an array of the identifiers of previously-sent active
+     * connections which have ended. If the client falls too far behind, a
+     * new "snapshot" event replaces all prior state. Only connections made
+     * through this instance of the web application produce change events.
+     * The stream ends as soon as the session associated with the given
+     * authentication token is no longer valid.
+     *
+     * @param authToken
+     *     The authentication token of the client, used to verify that the
+     *     session of the client remains valid for the life of the stream.
+     *
+     * @return
+     *     A response containing the stream of server-sent events.
+     *
+     * @throws GuacamoleException
+     *     If the given authentication token is not valid.
+     */
+    @GET
+    @Path("changes")
+    @Produces(EVENT_STREAM)
+    public Response getChanges(@QueryParam("token") final String authToken)
+            throws GuacamoleException {
+
+        final GuacamoleSession session = authenticationService.getGuacamoleSession(authToken);
+        final ObjectMapper mapper = jsonProvider.locateMapper(Map.class,
+                MediaType.APPLICATION_JSON_TYPE);
+
+        StreamingOutput stream = new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) throws IOException {
+
+                long deadline = System.currentTimeMillis() + MAX_STREAM_DURATION;
+                long nextRecheck = System.currentTimeMillis() + KEEP_ALIVE_INTERVAL;
+
+                try {
+
+                    output.write(("retry: " + RECONNECT_DELAY + "\n\n")
+                            .getBytes(StandardCharsets.UTF_8));
+
+                    // Identifiers of all active connections sent to the client
+                    Set<String> visible = null;
+                    long position = 0;
+
+                    while (System.currentTimeMillis() < deadline) {
+
+                        // End the stream once the client has logged out or
+                        // the session has expired
+                        if (!isSessionValid(authToken, session))
+                            break;
+
+                        // Send (or resend) the full set of active connections
+                        // if the client has no prior state
+                        if (visible == null) {
+                            position = changeFeed.getPosition();
+                            Map<String, APIActiveConnection> snapshot =
+                                    getReadable(directory.getIdentifiers());
+                            writeEvent(mapper, output, "snapshot", snapshot);
+                            visible = new HashSet<String>(snapshot.keySet());
+                            continue;
+                        }
+
+                        // Remove any previously-sent connections which are no
+                        // longer readable, such as due to revoked permissions
+                        if (System.currentTimeMillis() >= nextRecheck) {
+                            nextRecheck = System.currentTimeMillis() + KEEP_ALIVE_INTERVAL;
+                            Set<String> revoked = new LinkedHashSet<String>(visible);
+                            revoked.removeAll(getReadable(visible).keySet());
+                            if (!revoked.isEmpty()) {
+                                writeEvent(mapper, output, "disconnect", revoked);
+                                visible.removeAll(revoked);
+                            }
+                        }
+
+                        List<ActiveConnectionChangeFeed.Change> changes =
+                                changeFeed.await(position, KEEP_ALIVE_INTERVAL);
+
+                        // Resynchronize if changes were missed
+                        if (changes == null) {
+                            visible = null;
+                            continue;
+                        }
+
+                        // Keep connection alive if nothing has changed
+                        if (changes.isEmpty()) {
+                            output.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                            output.flush();
+                            continue;
+                        }
+
+                        // Reduce changes to their net effect
+                        Set<String> connected = new LinkedHashSet<String>();
+                        Set<String> disconnected = new LinkedHashSet<String>();
+                        for (ActiveConnectionChangeFeed.Change change : changes) {
+                            String identifier = change.getIdentifier();
+                            if (change.isConnected())
+                                connected.add(identifier);
+                            else if (!connected.remove(identifier))
+                                disconnected.add(identifier);
+                        }
+
+                        position = changes.get(changes.size() - 1).getPosition();
+
+                        // Send only those new connections which are readable
+                        connected.removeAll(visible);
+                        if (!connected.isEmpty()) {
+                            Map<String, APIActiveConnection> readable = getReadable(connected);
+                            if (!readable.isEmpty()) {
+                                writeEvent(mapper, output, "connect", readable);
+                                visible.addAll(readable.keySet());
+                            }
+                        }
+
+                        // Send only disconnects of connections already sent
+                        disconnected.retainAll(visible);
+                        if (!disconnected.isEmpty()) {
+                            writeEvent(mapper, output, "disconnect", disconnected);
+                            visible.removeAll(disconnected);
+                        }
+
+                    }
+
+                }
+
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                // The response has already begun, thus the status can no
+                // longer reflect the failure
+                catch (GuacamoleException e) {
+                    logger.warn("Active connection change stream aborted: {}", e.getMessage());
+                    logger.debug("Unable to retrieve active connections.", e);
+                    throw new IOException(e);
+                }
+
+            }
+
+        };
+
+        return Response.ok(stream, EVENT_STREAM)
+                .header("Cache-Control", "no-cache")
+                .build();
+
+    }
+
 }
@@ -0,0 +1,537 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.rest.auth;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleServerException;
+import org.apache.guacamole.GuacamoleUpstreamTimeoutException;
+import org.apache.guacamole.environment.Environment;
+import org.apache.guacamole.metrics.MetricsService;
+import org.apache.guacamole.net.auth.AuthenticatedUser;
+import org.apache.guacamole.net.auth.AuthenticationProvider;
+import org.apache.guacamole.properties.BooleanGuacamoleProperty;
+import org.apache.guacamole.properties.IntegerGuacamoleProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service which invokes an operation against each of several
+ * AuthenticationProviders concurrently, such as the retrieval of each
+ * provider's UserContext during login. Operations run on a bounded, shared
+ * thread pool, and results are returned in the order of the providers
+ * regardless of the order in which they complete. If the pool is saturated,
+ * operations run on the calling thread, degrading to sequential behavior.
+ */
+@Singleton
+public class AuthenticationProviderInvoker {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(AuthenticationProviderInvoker.class);
+
+    /**
+     * The default number of threads shared by all concurrent
+     * AuthenticationProvider operations.
+     */
+    private static final int DEFAULT_THREADS = 8;
+
+    /**
+     * The default maximum amount of time to wait for any one
+     * AuthenticationProvider operation, in milliseconds. By default, there is
+     * no timeout, as with sequential invocation.
+     */
+    private static final int DEFAULT_TIMEOUT = 0;
+
+    /**
+     * The number of operations which may be queued per thread before
+     * further operations run on the calling thread.
+     */
+    private static final int QUEUE_SIZE_PER_THREAD = 16;
+
+    /**
+     * The number of threads shared by all concurrent AuthenticationProvider
+     * operations. A value of 1 or less disables concurrency entirely.
+     */
+    private final IntegerGuacamoleProperty AUTH_PROVIDER_THREADS =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "auth-provider-threads"; }
+
+    };
+
+    /**
+     * The maximum amount of time to wait for any one AuthenticationProvider
+     * operation, in milliseconds. A value of zero, the default, waits
+     * indefinitely.
+     */
+    private final IntegerGuacamoleProperty AUTH_PROVIDER_TIMEOUT =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "auth-provider-timeout"; }
+
+    };
+
+    /**
+     * Whether AuthenticationProviders which fail or time out should be
+     * skipped, rather than failing the operation as a whole.
+     */
+    private final BooleanGuacamoleProperty SKIP_FAILED_AUTH_PROVIDERS =
+            new BooleanGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "skip-failed-auth-providers"; }
+
+    };
+
+    /**
+     * The executor running concurrent operations, or null if concurrency is
+     * disabled.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The maximum amount of time to wait for any one operation, in
+     * milliseconds, or zero to wait indefinitely.
+     */
+    private final int timeout;
+
+    /**
+     * Whether providers which fail or time out should be skipped.
+     */
+    private final boolean skipFailed;
+
+    /**
+     * Service for recording the time taken by each operation.
+     */
+    @Inject
+    private MetricsService metricsService;
+
+    /**
+     * An operation performed against a single AuthenticationProvider.
+     *
+     * @param <T>
+     *     The type of result produced by the operation.
+     */
+    public interface Operation<T> {
+
+        /**
+         * Performs this operation against the given AuthenticationProvider.
+         *
+         * @param authProvider
+         *     The AuthenticationProvider to perform the operation against.
+         *
+         * @return
+         *     The result of the operation, or null if the
+         *     AuthenticationProvider produced no result.
+         *
+         * @throws GuacamoleException
+         *     If the operation fails.
+         */
+        T invoke(AuthenticationProvider authProvider) throws GuacamoleException;
+
+        /**
+         * Releases a result of this operation which will never be returned by
+         * invokeAll(), such as a result produced after its
+         * AuthenticationProvider timed out, or while another provider was
+         * failing the operation as a whole.
+         *
+         * @param result
+         *     The unused result to release. This will never be null.
+         */
+        void discard(T result);
+
+    }
+
+    /**
+     * A single operation submitted for concurrent execution against one
+     * AuthenticationProvider. The result of an invocation is either collected
+     * by invokeAll() or, if invokeAll() has abandoned the invocation, passed
+     * to Operation.discard(), but never both.
+     *
+     * @param <T>
+     *     The type of result produced by the operation.
+     */
+    private class Invocation<T> implements Callable<T> {
+
+        /**
+         * The AuthenticationProvider to perform the operation against.
+         */
+        private final AuthenticationProvider authProvider;
+
+        /**
+         * The operation to perform.
+         */
+        private final Operation<T> operation;
+
+        /**
+         * Set by whichever of the invocation itself or invokeAll() is first
+         * to finish with the result: the invocation upon producing it, or
+         * invokeAll() upon abandoning the invocation.
+         */
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        /**
+         * The result produced by the operation, or null if the operation has
+         * not yet completed or produced no result.
+         */
+        private volatile T result;
+
+        /**
+         * Whether invokeAll() has abandoned this invocation. This is accessed
+         * only by the thread running invokeAll().
+         */
+        private boolean abandoned;
+
+        /**
+         * The pending result of this invocation.
+         */
+        private Future<T> future;
+
+        /**
+         * Creates a new Invocation of the given operation against the given
+         * AuthenticationProvider.
+         *
+         * @param authProvider
+         *     The AuthenticationProvider to perform the operation against.
+         *
+         * @param operation
+         *     The operation to perform.
+         */
+        public Invocation(AuthenticationProvider authProvider,
+                Operation<T> operation) {
+            this.authProvider = authProvider;
+            this.operation = operation;
+        }
+
+        @Override
+        public T call() throws GuacamoleException {
+
+            T result = this.result = invokeTimed(authProvider, operation);
+
+            // Release the result if it is arriving too late to be used
+            if (!settled.compareAndSet(false, true) && result != null) {
+                logger.debug("Discarding late result of "
+                        + "AuthenticationProvider \"{}\".", getName(authProvider));
+                operation.discard(result);
+            }
+
+            return result;
+
+        }
+
+        /**
+         * Abandons this invocation, such that its result, whenever available,
+         * is discarded rather than returned.
+         */
+        public void abandon() {
+
+            if (abandoned)
+                return;
+
+            abandoned = true;
+            future.cancel(true);
+
+            // If the operation has already produced its result, the result
+            // must be discarded here
+            if (!settled.compareAndSet(false, true) && result != null)
+                operation.discard(result);
+
+        }
+
+    }
+
+    /**
+     * Creates a new AuthenticationProviderInvoker configured using the
+     * properties within guacamole.properties.
+     *
+     * @param environment
+     *     The Guacamole server environment.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read or contains invalid values.
+     */
+    @Inject
+    public AuthenticationProviderInvoker(Environment environment)
+            throws GuacamoleException {
+
+        int threads = environment.getProperty(AUTH_PROVIDER_THREADS, DEFAULT_THREADS);
+        timeout = environment.getProperty(AUTH_PROVIDER_TIMEOUT, DEFAULT_TIMEOUT);
+        skipFailed = environment.getProperty(SKIP_FAILED_AUTH_PROVIDERS, false);
+
+        // Disable concurrency entirely if only one thread is allowed
+        if (threads <= 1) {
+            executor = null;
+            return;
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD),
+                new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        Thread thread = new Thread(task, "auth-provider-"
+                                + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+
+    }
+
+    /**
+     * Returns a human-readable name for the given AuthenticationProvider, for
+     * the sake of logging.
+     *
+     * @param authProvider
+     *     The AuthenticationProvider to name.
+     *
+     * @return
+     *     A human-readable name for the given AuthenticationProvider.
+     */
+    private static String getName(AuthenticationProvider authProvider) {
+        return authProvider.getIdentifier();
+    }
+
+    /**
+     * Performs the given operation against the given AuthenticationProvider
+     * on the current thread, logging and recording the time taken.
+     *
+     * @param <T>
+     *     The type of result produced by the operation.
+     *
+     * @param authProvider
+     *     The AuthenticationProvider to perform the operation against.
+     *
+     * @param operation
+     *     The operation to perform.
+     *
+     * @return
+     *     The result of the operation.
+     *
+     * @throws GuacamoleException
+     *     If the operation fails.
+     */
+    private <T> T invokeTimed(AuthenticationProvider authProvider,
+            Operation<T> operation) throws GuacamoleException {
+
+        long start = System.nanoTime();
+        try {
+            return operation.invoke(authProvider);
+        }
+        finally {
+            long elapsed = System.nanoTime() - start;
+            metricsService.recordAuthenticationProvider(getName(authProvider), elapsed);
+            logger.debug("AuthenticationProvider \"{}\" completed in {} ms.",
+                    getName(authProvider), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+
+    }
+
+    /**
+     * Handles the failure of the given AuthenticationProvider, either
+     * rethrowing the failure or logging that the provider is being skipped,
+     * depending on configuration.
+     *
+     * @param authProvider
+     *     The AuthenticationProvider which failed.
+     *
+     * @param failure
+     *     The failure which occurred.
+     *
+     * @throws GuacamoleException
+     *     If failed providers should not be skipped.
+     */
+    private void handleFailure(AuthenticationProvider authProvider,
+            GuacamoleException failure) throws GuacamoleException {
+
+        if (!skipFailed)
+            throw failure;
+
+        logger.warn("Skipping AuthenticationProvider \"{}\": {}",
+                getName(authProvider), failure.getMessage());
+        logger.debug("AuthenticationProvider failed.", failure);
+
+    }
+
+    /**
+     * Performs the given operation against each of the given
+     * AuthenticationProviders concurrently, returning all non-null results
+     * in the same order as the providers. Depending on configuration, a
+     * provider which fails or does not complete within the configured
+     * timeout either causes this function to fail or is skipped.
+     *
+     * @param <T>
+     *     The type of result produced by the operation.
+     *
+     * @param authProviders
+     *     The AuthenticationProviders to perform the operation against.
+     *
+     * @param operation
+     *     The operation to perform.
+     *
+     * @return
+     *     All non-null results, in the same order as the
+     *     AuthenticationProviders which produced them.
+     *
+     * @throws GuacamoleException
+     *     If any provider fails or times out and failed providers are not
+     *     being skipped.
+     */
+    public <T> List<T> invokeAll(List<AuthenticationProvider> authProviders,
+            final Operation<T> operation) throws GuacamoleException {
+
+        List<T> results = new ArrayList<T>(authProviders.size());
+
+        // Avoid thread handoff where there is nothing to run concurrently
+        if (executor == null || authProviders.size() <= 1) {
+            for (AuthenticationProvider authProvider : authProviders) {
+                try {
+                    T result = invokeTimed(authProvider, operation);
+                    if (result != null)
+                        results.add(result);
+                }
+                catch (GuacamoleException e) {
+                    handleFailure(authProvider, e);
+                }
+            }
+            return results;
+        }
+
+        // Start all operations
+        List<Invocation<T>> invocations = new ArrayList<Invocation<T>>(authProviders.size());
+        for (AuthenticationProvider authProvider : authProviders) {
+            Invocation<T> invocation = new Invocation<T>(authProvider, operation);
+            invocations.add(invocation);
+            invocation.future = executor.submit(invocation);
+        }
+
+        // Collect results in provider order, sharing one deadline
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        int collected = 0;
+        boolean succeeded = false;
+        try {
+
+            for (; collected < invocations.size(); collected++) {
+
+                Invocation<T> invocation = invocations.get(collected);
+                AuthenticationProvider authProvider = invocation.authProvider;
+                Future<T> future = invocation.future;
+
+                try {
+
+                    T result;
+                    if (timeout > 0)
+                        result = future.get(Math.max(0, deadline - System.nanoTime()),
+                                TimeUnit.NANOSECONDS);
+                    else
+                        result = future.get();
+
+                    if (result != null)
+                        results.add(result);
+
+                }
+
+                catch (TimeoutException e) {
+                    invocation.abandon();
+                    handleFailure(authProvider, new GuacamoleUpstreamTimeoutException(
+                            "AuthenticationProvider \"" + getName(authProvider)
+                            + "\" did not respond within " + timeout + " ms.", e));
+                }
+
+                catch (ExecutionException e) {
+
+                    Throwable cause = e.getCause();
+                    if (cause instanceof GuacamoleException)
+                        handleFailure(authProvider, (GuacamoleException) cause);
+                    else if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    else if (cause instanceof Error)
+                        throw (Error) cause;
+                    else
+                        throw new GuacamoleServerException(cause);
+
+                }
+
+            }
+
+            succeeded = true;
+
+        }
+
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GuacamoleServerException("Interrupted while waiting for "
+                    + "AuthenticationProviders.", e);
+        }
+
+        // If the operation as a whole has failed, release all results, both
+        // those already collected and those still pending
+        finally {
+            if (!succeeded) {
+
+                for (T result : results)
+                    operation.discard(result);
+
+                for (int i = collected; i < invocations.size(); i++)
+                    invocations.get(i).abandon();
+
+            }
+        }
+
+        return results;
+
+    }
+
+    /**
+     * Stops all threads used for concurrent AuthenticationProvider
+     * operations.
+     */
+    public void shutdown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+}
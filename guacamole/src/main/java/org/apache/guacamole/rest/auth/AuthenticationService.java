@@ -30,6 +30,7 @@ import org.apache.guacamole.GuacamoleSecurityException;
 import org.apache.guacamole.GuacamoleUnauthorizedException;
 import org.apache.guacamole.GuacamoleSession;
 import org.apache.guacamole.environment.Environment;
+import org.apache.guacamole.metrics.MetricsService;
 import org.apache.guacamole.net.auth.AuthenticatedUser;
 import org.apache.guacamole.net.auth.AuthenticationProvider;
 import org.apache.guacamole.net.auth.Credentials;
@@ -91,6 +92,25 @@ public class AuthenticationService {
     @Inject
     private ListenerService listenerService;
 
+    /**
+     * Service for recording metrics.
+     */
+    @Inject
+    private MetricsService metricsService;
+
+    /**
+     * Service for retrieving data from all AuthenticationProviders
+     * concurrently.
+     */
+    @Inject
+    private AuthenticationProviderInvoker authProviderInvoker;
+
+    /**
+     * Cache of recently-rejected credentials.
+     */
+    @Inject
+    private CredentialVerificationCache credentialCache;
+
     /**
      * Regular expression which matches any IPv4 address.
      */
@@ -171,7 +191,7 @@ public class AuthenticationService {
 
             // Attempt authentication
             try {
-                AuthenticatedUser authenticatedUser = authProvider.authenticateUser(credentials);
+                AuthenticatedUser authenticatedUser = credentialCache.authenticateUser(authProvider, credentials);
                 if (authenticatedUser != null)
                     return authenticatedUser;
             }
@@ -293,12 +313,14 @@ public class AuthenticationService {
                 AuthenticatedUser updatedUser = updateAuthenticatedUser(
                         existingSession.getAuthenticatedUser(), credentials);
                 fireAuthenticationSuccessEvent(updatedUser);
+                metricsService.authenticationSucceeded();
                 return updatedUser;
             }
 
             // Otherwise, attempt authentication as a new user
             AuthenticatedUser authenticatedUser = AuthenticationService.this.authenticateUser(credentials);
             fireAuthenticationSuccessEvent(authenticatedUser);
+            metricsService.authenticationSucceeded();
 
             if (logger.isInfoEnabled())
                 logger.info("User \"{}\" successfully authenticated from {}.",
@@ -312,6 +334,7 @@ public class AuthenticationService {
         // Log and rethrow any authentication errors
         catch (GuacamoleException e) {
 
+            metricsService.authenticationFailed();
             fireAuthenticationFailedEvent(credentials);
 
             // Get request and username for sake of logging
@@ -362,7 +385,7 @@ public class AuthenticationService {
      *     If an error occurs while creating or updating any UserContext.
      */
     private List<DecoratedUserContext> getUserContexts(GuacamoleSession existingSession,
-            AuthenticatedUser authenticatedUser, Credentials credentials)
+            final AuthenticatedUser authenticatedUser, Credentials credentials)
             throws GuacamoleException {
 
         List<DecoratedUserContext> userContexts =
@@ -398,18 +421,28 @@ public class AuthenticationService {
         // Otherwise, create new UserContexts from available AuthenticationProviders
         else {
 
-            // Get UserContexts from each available AuthenticationProvider
-            for (AuthenticationProvider authProvider : authProviders) {
+            // Get UserContexts from each available AuthenticationProvider,
+            // polling all providers concurrently
+            List<UserContext> newUserContexts = authProviderInvoker.invokeAll(authProviders,
+                    new AuthenticationProviderInvoker.Operation<UserContext>() {
 
-                // Generate new UserContext
-                UserContext userContext = authProvider.getUserContext(authenticatedUser);
+                @Override
+                public UserContext invoke(AuthenticationProvider authProvider)
+                        throws GuacamoleException {
+                    return authProvider.getUserContext(authenticatedUser);
+                }
 
-                // Add to available data, if successful
-                if (userContext != null)
-                    userContexts.add(decorationService.decorate(userContext,
-                            authenticatedUser, credentials));
+                @Override
+                public void discard(UserContext userContext) {
+                    userContext.invalidate();
+                }
 
-            }
+            });
+
+            // Decorate each UserContext in the original provider order
+            for (UserContext userContext : newUserContexts)
+                userContexts.add(decorationService.decorate(userContext,
+                        authenticatedUser, credentials));
 
         }
 
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.rest.auth;
+
+import com.google.common.io.BaseEncoding;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleServerException;
+import org.apache.guacamole.environment.Environment;
+import org.apache.guacamole.net.auth.AuthenticatedUser;
+import org.apache.guacamole.net.auth.AuthenticationProvider;
+import org.apache.guacamole.net.auth.Credentials;
+import org.apache.guacamole.net.auth.credentials.GuacamoleInvalidCredentialsException;
+import org.apache.guacamole.properties.IntegerGuacamoleProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Short-lived cache of username/password credentials which were rejected by
+ * each AuthenticationProvider. Rejections are retained for a configurable
+ * amount of time, such that repeated failed logins do not repeatedly query
+ * upstream identity stores. This is a rejection cache only: caching of
+ * successful authentications is deliberately not supported, as each
+ * AuthenticatedUser is bound to the request and session which produced it,
+ * and providers may perform checks which depend on the request. Successful
+ * logins thus always query their providers. Entries are keyed by an
+ * HMAC-SHA256 of the provider, username and password under a random key
+ * unique to this instance of the web application, and no password is
+ * retained in memory by the cache itself. The cache is disabled unless
+ * "rejected-credential-cache-ttl" is set.
+ */
+@Singleton
+public class CredentialVerificationCache {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CredentialVerificationCache.class);
+
+    /**
+     * The default maximum number of entries which may be cached.
+     */
+    private static final int DEFAULT_SIZE = 1024;
+
+    /**
+     * The algorithm used to derive cache keys. As cache keys exist only in
+     * memory and only for a short time, a keyed hash suffices, and no
+     * deliberately-slow password hash is needed.
+     */
+    private static final String KEY_ALGORITHM = "HmacSHA256";
+
+    /**
+     * The length of the random secret used when deriving cache keys, in
+     * bytes.
+     */
+    private static final int SECRET_LENGTH = 32;
+
+    /**
+     * The amount of time that rejected credentials should be remembered, in
+     * seconds. If zero or unset, the cache is disabled.
+     */
+    private final IntegerGuacamoleProperty REJECTED_CREDENTIAL_CACHE_TTL =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "rejected-credential-cache-ttl"; }
+
+    };
+
+    /**
+     * The maximum number of rejected credentials which may be cached. If this
+     * limit is reached, the least-recently used entries are evicted first.
+     */
+    private final IntegerGuacamoleProperty REJECTED_CREDENTIAL_CACHE_SIZE =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "rejected-credential-cache-size"; }
+
+    };
+
+    /**
+     * The amount of time that rejected credentials are retained, in
+     * nanoseconds, or zero if the cache is disabled.
+     */
+    private final long ttl;
+
+    /**
+     * Random secret unique to this instance of the web application, used as
+     * the key of the HMAC from which each cache key is derived.
+     */
+    private final SecretKeySpec secret;
+
+    /**
+     * All cached entries, stored by derived key in least-recently used order.
+     * Access to this map must be synchronized on the map itself.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * The number of authentication attempts satisfied by the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of authentication attempts which required the
+     * AuthenticationProvider to be queried.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The cached rejection of a single set of credentials by a single
+     * AuthenticationProvider.
+     */
+    private static class Entry {
+
+        /**
+         * The username of the rejected credentials.
+         */
+        private final String username;
+
+        /**
+         * The failure produced when the credentials were rejected.
+         */
+        private final GuacamoleInvalidCredentialsException failure;
+
+        /**
+         * The value of System.nanoTime() after which this entry is no longer
+         * valid.
+         */
+        private final long expires;
+
+        /**
+         * Creates a new Entry recording the given rejection.
+         *
+         * @param username
+         *     The username of the rejected credentials.
+         *
+         * @param failure
+         *     The failure produced when the credentials were rejected.
+         *
+         * @param ttl
+         *     The amount of time that this entry should remain valid, in
+         *     nanoseconds.
+         */
+        public Entry(String username,
+                GuacamoleInvalidCredentialsException failure, long ttl) {
+            this.username = username;
+            this.failure = failure;
+            this.expires = System.nanoTime() + ttl;
+        }
+
+        /**
+         * Returns whether this entry is no longer valid.
+         *
+         * @return
+         *     true if this entry has expired, false otherwise.
+         */
+        public boolean isExpired() {
+            return System.nanoTime() - expires > 0;
+        }
+
+    }
+
+    /**
+     * Creates a new CredentialVerificationCache configured using the
+     * properties within guacamole.properties.
+     *
+     * @param environment
+     *     The Guacamole server environment.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read or contains invalid values.
+     */
+    @Inject
+    public CredentialVerificationCache(Environment environment)
+            throws GuacamoleException {
+
+        int ttlSeconds = environment.getProperty(REJECTED_CREDENTIAL_CACHE_TTL, 0);
+        final int maxSize = environment.getProperty(REJECTED_CREDENTIAL_CACHE_SIZE, DEFAULT_SIZE);
+
+        ttl = TimeUnit.SECONDS.toNanos(Math.max(0, ttlSeconds));
+
+        byte[] secretBytes = new byte[SECRET_LENGTH];
+        new SecureRandom().nextBytes(secretBytes);
+        secret = new SecretKeySpec(secretBytes, KEY_ALGORITHM);
+
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+
+        };
+
+        if (isEnabled())
+            logger.info("Rejected credentials will be cached for {} seconds.",
+                    ttlSeconds);
+
+    }
+
+    /**
+     * Returns whether this cache is enabled.
+     *
+     * @return
+     *     true if rejected credentials are cached, false otherwise.
+     */
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * Derives the cache key for the given credentials as verified by the
+     * given AuthenticationProvider.
+     *
+     * @param authProvider
+     *     The AuthenticationProvider verifying the credentials.
+     *
+     * @param credentials
+     *     The credentials being verified. Both the username and password
+     *     must be non-null.
+     *
+     * @return
+     *     The cache key for the given provider and credentials.
+     *
+     * @throws GuacamoleException
+     *     If the key cannot be derived.
+     */
+    private String getKey(AuthenticationProvider authProvider,
+            Credentials credentials) throws GuacamoleException {
+
+        try {
+
+            Mac mac = Mac.getInstance(KEY_ALGORITHM);
+            mac.init(secret);
+
+            mac.update(authProvider.getIdentifier().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(credentials.getUsername().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(credentials.getPassword().getBytes(StandardCharsets.UTF_8));
+
+            return BaseEncoding.base16().encode(mac.doFinal());
+
+        }
+        catch (GeneralSecurityException e) {
+            throw new GuacamoleServerException("Unable to derive credential cache key.", e);
+        }
+
+    }
+
+    /**
+     * Returns the valid cache entry having the given key, removing the entry
+     * if it has expired.
+     *
+     * @param key
+     *     The key of the entry to retrieve.
+     *
+     * @return
+     *     The valid cache entry having the given key, or null if there is no
+     *     such entry.
+     */
+    private Entry getEntry(String key) {
+        synchronized (entries) {
+
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isExpired()) {
+                entries.remove(key);
+                return null;
+            }
+
+            return entry;
+
+        }
+    }
+
+    /**
+     * Stores the given entry under the given key, replacing any existing
+     * entry.
+     *
+     * @param key
+     *     The key to store the entry under.
+     *
+     * @param entry
+     *     The entry to store.
+     */
+    private void putEntry(String key, Entry entry) {
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Authenticates the given credentials using the given
+     * AuthenticationProvider, failing immediately if identical credentials
+     * were recently rejected by that provider. Only credentials having both a
+     * username and password are cached, and only
+     * GuacamoleInvalidCredentialsExceptions are retained. Every other
+     * result, including successful authentication, always queries the
+     * provider, as such results may depend on the request rather than the
+     * credentials.
+     *
+     * @param authProvider
+     *     The AuthenticationProvider to use to authenticate the user.
+     *
+     * @param credentials
+     *     The credentials to authenticate.
+     *
+     * @return
+     *     The AuthenticatedUser produced by the AuthenticationProvider, or
+     *     null if the AuthenticationProvider declined to authenticate the
+     *     user.
+     *
+     * @throws GuacamoleException
+     *     If the credentials are rejected or an error occurs while
+     *     authenticating the user.
+     */
+    public AuthenticatedUser authenticateUser(AuthenticationProvider authProvider,
+            Credentials credentials) throws GuacamoleException {
+
+        // Only username/password authentication can be cached
+        if (!isEnabled() || credentials.getUsername() == null
+                || credentials.getPassword() == null)
+            return authProvider.authenticateUser(credentials);
+
+        String key = getKey(authProvider, credentials);
+
+        // Fail immediately if identical credentials were recently rejected
+        Entry entry = getEntry(key);
+        if (entry != null) {
+            hits.increment();
+            throw new GuacamoleInvalidCredentialsException(
+                    entry.failure.getMessage(),
+                    entry.failure.getCredentialsInfo());
+        }
+
+        misses.increment();
+
+        // Otherwise, query the provider and remember any rejection
+        try {
+            return authProvider.authenticateUser(credentials);
+        }
+        catch (GuacamoleInvalidCredentialsException e) {
+            putEntry(key, new Entry(credentials.getUsername(), e, ttl));
+            throw e;
+        }
+
+    }
+
+    /**
+     * Removes all cached rejections for the user having the given username,
+     * such as when that user's password changes.
+     *
+     * @param username
+     *     The username of the user whose cached rejections should be removed.
+     */
+    public void invalidate(String username) {
+
+        if (!isEnabled() || username == null)
+            return;
+
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (username.equals(iterator.next().username))
+                    iterator.remove();
+            }
+        }
+
+    }
+
+    /**
+     * Returns the number of authentication attempts satisfied by the cache.
+     *
+     * @return
+     *     The number of cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of authentication attempts which required an
+     * AuthenticationProvider to be queried because no cached result was
+     * available.
+     *
+     * @return
+     *     The number of cache misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries currently cached, including any expired
+     * entries which have not yet been removed.
+     *
+     * @return
+     *     The number of cached entries.
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+}
@@ -22,6 +22,7 @@ package org.apache.guacamole.rest.auth;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.net.auth.AuthenticatedUser;
 import org.apache.guacamole.net.auth.AuthenticationProvider;
+import org.apache.guacamole.net.auth.ConnectionGroupDescendants;
 import org.apache.guacamole.net.auth.Credentials;
 import org.apache.guacamole.net.auth.DelegatingUserContext;
 import org.apache.guacamole.net.auth.UserContext;
@@ -358,4 +359,31 @@ public class DecoratedUserContext extends DelegatingUserContext {
         return decoratedUserContext;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A DecoratedUserContext does not itself alter the data exposed by the
+     * UserContext it wraps. If the decorating AuthenticationProvider applied
+     * its own layer of decoration, that layer determines whether a version
+     * stamp is exposed.
+     */
+    @Override
+    public String getDataVersion() {
+        return getDelegateUserContext().getDataVersion();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>A DecoratedUserContext does not itself alter the objects exposed by
+     * the UserContext it wraps. If the decorating AuthenticationProvider
+     * applied its own layer of decoration, that layer determines whether
+     * descendants may be retrieved at once.
+     */
+    @Override
+    public ConnectionGroupDescendants getConnectionGroupDescendants(
+            String identifier) throws GuacamoleException {
+        return getDelegateUserContext().getConnectionGroupDescendants(identifier);
+    }
+
 }
@@ -186,6 +186,11 @@ public class HashTokenSessionMap implements TokenSessionMap {
 
     }
 
+    @Override
+    public int size() {
+        return sessionMap.size();
+    }
+
     @Override
     public void shutdown() {
         executor.shutdownNow();
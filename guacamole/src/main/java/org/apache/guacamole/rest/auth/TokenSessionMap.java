@@ -54,6 +54,13 @@ public interface TokenSessionMap {
      *         represents a currently logged in user, null otherwise.
      */
     public GuacamoleSession remove(String authToken);
+
+    /**
+     * Returns the number of sessions currently stored within this map.
+     *
+     * @return The number of sessions currently stored within this map.
+     */
+    public int size();
     
     /**
      * Shuts down this session map, disallowing future sessions and reclaiming
@@ -70,4 +70,9 @@ public class ConnectionObjectTranslator
 
     }
 
+    @Override
+    public boolean matches(Connection object, String filter) {
+        return super.matches(object, filter) || contains(object.getName(), filter);
+    }
+
 }
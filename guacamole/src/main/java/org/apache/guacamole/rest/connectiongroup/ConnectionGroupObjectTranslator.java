@@ -65,4 +65,9 @@ public class ConnectionGroupObjectTranslator
 
     }
 
+    @Override
+    public boolean matches(ConnectionGroup object, String filter) {
+        return super.matches(object, filter) || contains(object.getName(), filter);
+    }
+
 }
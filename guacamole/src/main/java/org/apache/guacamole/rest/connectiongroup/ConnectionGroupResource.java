@@ -19,6 +19,7 @@
 
 package org.apache.guacamole.rest.connectiongroup;
 
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import java.util.List;
@@ -27,14 +28,20 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.net.auth.ConnectionGroup;
 import org.apache.guacamole.net.auth.Directory;
 import org.apache.guacamole.net.auth.UserContext;
 import org.apache.guacamole.net.auth.permission.ObjectPermission;
+import org.apache.guacamole.rest.EntityTags;
 import org.apache.guacamole.rest.directory.DirectoryObjectResource;
 import org.apache.guacamole.rest.directory.DirectoryObjectTranslator;
+import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
 
 /**
  * A REST resource which abstracts the operations available on an existing
@@ -56,6 +63,13 @@ public class ConnectionGroupResource
      */
     private final ConnectionGroup connectionGroup;
 
+    /**
+     * The provider used by Jersey to serialize JSON responses, used to
+     * serialize responses whose ETags are derived from their content.
+     */
+    @Inject
+    private JacksonJsonProvider jsonProvider;
+
     /**
      * Creates a new ConnectionGroupResource which exposes the operations and
      * subresources available for the given ConnectionGroup.
@@ -85,7 +99,14 @@ public class ConnectionGroupResource
     }
 
     /**
-     * Returns the current connection group along with all descendants.
+     * Returns the current connection group along with all descendants. If the
+     * client already has the current version of the tree, as indicated by the
+     * If-None-Match header, a "304 Not Modified" response is returned
+     * instead.
+     *
+     * @param request
+     *     The request being handled, for the sake of evaluating any
+     *     If-None-Match header.
      *
      * @param permissions
      *     If specified and non-empty, limit the returned list to only those
@@ -94,7 +115,8 @@ public class ConnectionGroupResource
      *     ConnectionGroups are unaffected by this parameter.
      *
      * @return
-     *     The current connection group, including all descendants.
+     *     A response containing the current connection group, including all
+     *     descendants, or a "304 Not Modified" response.
      *
      * @throws GuacamoleException
      *     If a problem is encountered while retrieving the connection group or
@@ -102,16 +124,22 @@ public class ConnectionGroupResource
      */
     @GET
     @Path("tree")
-    public APIConnectionGroup getConnectionGroupTree(
+    public Response getConnectionGroupTree(@Context Request request,
             @QueryParam("permission") List<ObjectPermission.Type> permissions)
             throws GuacamoleException {
 
+        // Skip building the tree entirely if the client's copy is current
+        EntityTag tag = EntityTags.getVersionTag(userContext);
+        Response notModified = EntityTags.evaluate(request, tag);
+        if (notModified != null)
+            return notModified;
+
         // Retrieve the requested tree, filtering by the given permissions
         ConnectionGroupTree tree = new ConnectionGroupTree(userContext,
                 connectionGroup, permissions);
 
         // Return tree as a connection group
-        return tree.getRootAPIConnectionGroup();
+        return EntityTags.respond(request, jsonProvider, tag, tree.getRootAPIConnectionGroup());
 
     }
 
@@ -28,6 +28,7 @@ import java.util.Map;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.net.auth.Connection;
 import org.apache.guacamole.net.auth.ConnectionGroup;
+import org.apache.guacamole.net.auth.ConnectionGroupDescendants;
 import org.apache.guacamole.net.auth.Directory;
 import org.apache.guacamole.net.auth.Permissions;
 import org.apache.guacamole.net.auth.SharingProfile;
@@ -327,6 +328,114 @@ public class ConnectionGroupTree {
 
     }
     
+    /**
+     * Adds all descendants of the root group to the tree, retrieving all
+     * connection groups, connections, and sharing profiles using a single
+     * call to each directory. Objects are then arranged in memory, adding
+     * only those objects which are reachable from the root.
+     *
+     * @param descendants
+     *     The identifiers of all descendants of the root group, as returned
+     *     by the UserContext.
+     *
+     * @param permissions
+     *     If specified and non-empty, limit added connections and sharing
+     *     profiles to only those for which the current user has any of the
+     *     given permissions. Otherwise, all visible objects are added.
+     *     Connection groups are unaffected by this parameter.
+     *
+     * @throws GuacamoleException
+     *     If an error occurs while retrieving the descendants.
+     */
+    private void addAllDescendants(ConnectionGroupDescendants descendants,
+            List<ObjectPermission.Type> permissions)
+        throws GuacamoleException {
+
+        Collection<String> connectionIdentifiers = descendants.getConnectionIdentifiers();
+        Collection<String> sharingProfileIdentifiers = descendants.getSharingProfileIdentifiers();
+
+        // Filter identifiers based on permissions, if requested
+        if (permissions != null && !permissions.isEmpty()) {
+            connectionIdentifiers = connectionPermissions.getAccessibleObjects(
+                    permissions, connectionIdentifiers);
+            sharingProfileIdentifiers = sharingProfilePermissions.getAccessibleObjects(
+                    permissions, sharingProfileIdentifiers);
+        }
+
+        // Retrieve all connection groups, sorted by parent
+        Collection<ConnectionGroup> connectionGroups = Collections.<ConnectionGroup>emptyList();
+        if (!descendants.getConnectionGroupIdentifiers().isEmpty())
+            connectionGroups = connectionGroupDirectory.getAll(descendants.getConnectionGroupIdentifiers());
+
+        Map<String, List<ConnectionGroup>> childGroups = new HashMap<String, List<ConnectionGroup>>();
+        for (ConnectionGroup connectionGroup : connectionGroups) {
+
+            List<ConnectionGroup> siblings = childGroups.get(connectionGroup.getParentIdentifier());
+            if (siblings == null) {
+                siblings = new ArrayList<ConnectionGroup>();
+                childGroups.put(connectionGroup.getParentIdentifier(), siblings);
+            }
+
+            siblings.add(connectionGroup);
+
+        }
+
+        // Retrieve all connections, sorted by parent
+        Collection<Connection> connections = Collections.<Connection>emptyList();
+        if (!connectionIdentifiers.isEmpty())
+            connections = connectionDirectory.getAll(connectionIdentifiers);
+
+        Map<String, List<Connection>> childConnections = new HashMap<String, List<Connection>>();
+        for (Connection connection : connections) {
+
+            List<Connection> siblings = childConnections.get(connection.getParentIdentifier());
+            if (siblings == null) {
+                siblings = new ArrayList<Connection>();
+                childConnections.put(connection.getParentIdentifier(), siblings);
+            }
+
+            siblings.add(connection);
+
+        }
+
+        // Add groups and connections level by level, starting at the root
+        List<String> level = Collections.singletonList(rootAPIGroup.getIdentifier());
+        while (!level.isEmpty()) {
+
+            List<String> nextLevel = new ArrayList<String>();
+            for (String parent : level) {
+
+                List<Connection> children = childConnections.remove(parent);
+                if (children != null)
+                    addConnections(children);
+
+                // Removal from the map ensures each group is visited once,
+                // even if the data describes a cycle
+                List<ConnectionGroup> groups = childGroups.remove(parent);
+                if (groups != null) {
+                    addConnectionGroups(groups);
+                    for (ConnectionGroup group : groups)
+                        nextLevel.add(group.getIdentifier());
+                }
+
+            }
+
+            level = nextLevel;
+
+        }
+
+        // Add sharing profiles of only those connections actually added
+        if (!sharingProfileIdentifiers.isEmpty() && !retrievedConnections.isEmpty()) {
+            Collection<SharingProfile> sharingProfiles = new ArrayList<SharingProfile>();
+            for (SharingProfile sharingProfile : sharingProfileDirectory.getAll(sharingProfileIdentifiers)) {
+                if (retrievedConnections.containsKey(sharingProfile.getPrimaryConnectionIdentifier()))
+                    sharingProfiles.add(sharingProfile);
+            }
+            addSharingProfiles(sharingProfiles);
+        }
+
+    }
+
     /**
      * Creates a new connection group tree using the given connection group as
      * the tree root.
@@ -365,8 +474,13 @@ public class ConnectionGroupTree {
         this.connectionGroupDirectory = userContext.getConnectionGroupDirectory();
         this.sharingProfileDirectory = userContext.getSharingProfileDirectory();
 
-        // Add all descendants
-        addConnectionGroupDescendants(Collections.singleton(root), permissions);
+        // Add all descendants, retrieving everything at once if supported
+        ConnectionGroupDescendants descendants =
+                userContext.getConnectionGroupDescendants(root.getIdentifier());
+        if (descendants != null)
+            addAllDescendants(descendants, permissions);
+        else
+            addConnectionGroupDescendants(Collections.singleton(root), permissions);
         
     }
 
@@ -116,6 +116,47 @@ public abstract class DirectoryObjectTranslator<InternalType extends Identifiabl
     public abstract void filterExternalObject(UserContext userContext,
             ExternalType object) throws GuacamoleException;
 
+    /**
+     * Returns whether the given object matches the given filter string, as
+     * provided by a REST client when listing the contents of a directory. By
+     * default, an object matches if its identifier contains the filter
+     * string, ignoring case. Implementations whose objects have
+     * human-readable names should override this function to additionally
+     * match against those names.
+     *
+     * @param object
+     *     The object to test.
+     *
+     * @param filter
+     *     The filter string provided by the REST client. This string will
+     *     already have been converted to lowercase.
+     *
+     * @return
+     *     true if the given object matches the given filter, false otherwise.
+     */
+    public boolean matches(InternalType object, String filter) {
+        return contains(object.getIdentifier(), filter);
+    }
+
+    /**
+     * Returns whether the given value contains the given filter string,
+     * ignoring case.
+     *
+     * @param value
+     *     The value to test, which may be null.
+     *
+     * @param filter
+     *     The filter string, which must already have been converted to
+     *     lowercase.
+     *
+     * @return
+     *     true if the given value is non-null and contains the given filter
+     *     string, ignoring case, false otherwise.
+     */
+    protected static boolean contains(String value, String filter) {
+        return value != null && value.toLowerCase().contains(filter);
+    }
+
     /**
      * Filters the given map of attribute name/value pairs, producing a new
      * map containing only attributes defined as fields within the given schema.
@@ -19,7 +19,12 @@
 
 package org.apache.guacamole.rest.directory;
 
+import com.google.inject.Inject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,7 +35,12 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import org.apache.guacamole.GuacamoleClientException;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.GuacamoleResourceNotFoundException;
@@ -44,7 +54,15 @@ import org.apache.guacamole.net.auth.permission.ObjectPermissionSet;
 import org.apache.guacamole.net.auth.permission.SystemPermission;
 import org.apache.guacamole.net.auth.permission.SystemPermissionSet;
 import org.apache.guacamole.rest.APIPatch;
+import org.apache.guacamole.rest.EntityTags;
 import org.apache.guacamole.rest.PATCH;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A REST resource which abstracts the operations available on all Guacamole
@@ -68,6 +86,23 @@ import org.apache.guacamole.rest.PATCH;
 @Consumes(MediaType.APPLICATION_JSON)
 public abstract class DirectoryResource<InternalType extends Identifiable, ExternalType> {
 
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryResource.class);
+
+    /**
+     * The name of the only property by which directory listings may be
+     * sorted. Prefixing this name with "-" requests descending order.
+     */
+    private static final String SORT_BY_IDENTIFIER = "identifier";
+
+    /**
+     * The maximum number of objects retrieved from the Directory at once while
+     * producing a directory listing.
+     */
+    private static final int CHUNK_SIZE = 256;
+
     /**
      * The UserContext associated with the Directory being exposed by this
      * DirectoryResource.
@@ -92,6 +127,14 @@ public abstract class DirectoryResource<InternalType extends Identifiable, Exter
      */
     private final DirectoryObjectResourceFactory<InternalType, ExternalType> resourceFactory;
 
+    /**
+     * The provider used by Jersey to serialize JSON responses, from which the
+     * ObjectMapper used to serialize each object of a directory listing is
+     * obtained.
+     */
+    @Inject
+    private JacksonJsonProvider jsonProvider;
+
     /**
      * Creates a new DirectoryResource which exposes the operations available
      * for the given Directory.
@@ -141,26 +184,82 @@ public abstract class DirectoryResource<InternalType extends Identifiable, Exter
 
     /**
      * Returns a map of all objects available within this DirectoryResource,
-     * filtering the returned map by the given permission, if specified.
+     * filtering the returned map by the given permission, if specified. The
+     * map is ordered by identifier and is streamed to the client as objects
+     * are retrieved in chunks, such that memory usage does not depend on the
+     * size of the directory. Large directories may be paged through by
+     * passing the identifier of the last object received as the "after"
+     * parameter of the next request. If the client already has the current
+     * version of the map, as indicated by the If-None-Match header, a
+     * "304 Not Modified" response is returned instead.
+     *
+     * @param request
+     *     The request being handled, for the sake of evaluating any
+     *     If-None-Match header.
      *
      * @param permissions
      *     The set of permissions to filter with. A user must have one or more
      *     of these permissions for the affected objects to appear in the
      *     result. If null, no filtering will be performed.
      *
+     * @param filter
+     *     If specified and non-empty, a string which each returned object must
+     *     match, as determined by the translator for the objects in this
+     *     directory. Matching is case-insensitive.
+     *
+     * @param sort
+     *     The order in which objects should be returned. Either "identifier"
+     *     for ascending order of identifier, or "-identifier" for descending
+     *     order. If null, objects are returned in ascending order.
+     *
+     * @param after
+     *     If specified, the identifier of the last object received by the
+     *     client in a previous request with the same parameters. Only objects
+     *     which follow this identifier in the requested order will be
+     *     returned.
+     *
+     * @param limit
+     *     If specified, the maximum number of objects to return.
+     *
      * @return
-     *     A map of all visible objects. If a permission was specified, this
+     *     A response containing a map of all visible objects, or a
+     *     "304 Not Modified" response. If a permission was specified, this
      *     map will contain only those objects for which the current user has
      *     that permission.
      *
      * @throws GuacamoleException
-     *     If an error is encountered while retrieving the objects.
+     *     If an error is encountered while retrieving the objects, or if the
+     *     requested sort order or limit is invalid.
      */
     @GET
-    public Map<String, ExternalType> getObjects(
-            @QueryParam("permission") List<ObjectPermission.Type> permissions)
+    public Response getObjects(@Context Request request,
+            @QueryParam("permission") List<ObjectPermission.Type> permissions,
+            @QueryParam("filter") String filter,
+            @QueryParam("sort") String sort,
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit)
             throws GuacamoleException {
 
+        // Validate sort order
+        boolean descending;
+        if (sort == null || sort.equals(SORT_BY_IDENTIFIER))
+            descending = false;
+        else if (sort.equals("-" + SORT_BY_IDENTIFIER))
+            descending = true;
+        else
+            throw new GuacamoleClientException("Unsupported sort order: \""
+                    + sort + "\"");
+
+        // Validate limit
+        if (limit != null && limit < 1)
+            throw new GuacamoleClientException("The limit must be positive.");
+
+        // Skip retrieval entirely if the client's copy is current
+        EntityTag tag = EntityTags.getVersionTag(userContext);
+        Response notModified = EntityTags.evaluate(request, tag);
+        if (notModified != null)
+            return notModified;
+
         // An admin user has access to all objects
         Permissions effective = userContext.self().getEffectivePermissions();
         SystemPermissionSet systemPermissions = effective.getSystemPermissions();
@@ -173,12 +272,92 @@ public abstract class DirectoryResource<InternalType extends Identifiable, Exter
             identifiers = objectPermissions.getAccessibleObjects(permissions, identifiers);
         }
 
-        // Translate each retrieved object into the corresponding external object
-        Map<String, ExternalType> apiObjects = new HashMap<String, ExternalType>();
-        for (InternalType object : directory.getAll(identifiers))
-            apiObjects.put(object.getIdentifier(), translator.toExternalObject(object));
+        // Order identifiers, omitting any which precede the given cursor
+        final List<String> ordered = new ArrayList<String>(identifiers.size());
+        for (String identifier : identifiers) {
+            if (after == null || (descending
+                    ? identifier.compareTo(after) < 0
+                    : identifier.compareTo(after) > 0))
+                ordered.add(identifier);
+        }
+
+        if (descending)
+            Collections.sort(ordered, Collections.reverseOrder());
+        else
+            Collections.sort(ordered);
+
+        final String lowercaseFilter = (filter == null || filter.isEmpty())
+                ? null : filter.toLowerCase();
+        final int maxObjects = (limit != null) ? limit : Integer.MAX_VALUE;
+
+        // Serialize objects as Jersey would, but without flushing after each
+        // object, as the output stream is already buffered by the container
+        final ObjectMapper mapper = jsonProvider.locateMapper(Map.class,
+                MediaType.APPLICATION_JSON_TYPE);
+        final SerializationConfig config = mapper.copySerializationConfig()
+                .without(SerializationConfig.Feature.FLUSH_AFTER_WRITE_VALUE);
+
+        // Translate and write each object as it is retrieved
+        return EntityTags.respond(tag, new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) throws IOException {
+
+                JsonGenerator json = mapper.getJsonFactory().createJsonGenerator(
+                        output, JsonEncoding.UTF8);
+
+                try {
+
+                    json.writeStartObject();
+
+                    int written = 0;
+                    for (int start = 0; start < ordered.size()
+                            && written < maxObjects; start += CHUNK_SIZE) {
+
+                        // Retrieve next chunk, restoring requested order
+                        List<String> chunk = ordered.subList(start,
+                                Math.min(start + CHUNK_SIZE, ordered.size()));
+                        Map<String, InternalType> objects = new HashMap<String, InternalType>();
+                        for (InternalType object : directory.getAll(chunk))
+                            objects.put(object.getIdentifier(), object);
+
+                        for (String identifier : chunk) {
+
+                            // Skip objects which have since been deleted or
+                            // which do not match the filter
+                            InternalType object = objects.get(identifier);
+                            if (object == null || (lowercaseFilter != null
+                                    && !translator.matches(object, lowercaseFilter)))
+                                continue;
+
+                            json.writeFieldName(identifier);
+                            mapper.writeValue(json, translator.toExternalObject(object), config);
+
+                            if (++written >= maxObjects)
+                                break;
+
+                        }
+
+                    }
+
+                    json.writeEndObject();
+                    json.flush();
+
+                }
+
+                // The response has already begun, thus the status can no
+                // longer reflect the failure. The JSON is deliberately left
+                // unterminated such that the client cannot mistake the
+                // partial listing for a complete one.
+                catch (GuacamoleException e) {
+                    logger.warn("Directory listing aborted: {}", e.getMessage());
+                    logger.debug("Unable to retrieve objects for directory listing.", e);
+                    throw new IOException(e);
+                }
+
+            }
 
-        return apiObjects;
+        });
 
     }
 
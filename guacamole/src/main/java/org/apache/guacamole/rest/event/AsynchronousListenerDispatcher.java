@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.rest.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.guacamole.net.event.listener.AsynchronousListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers events to a single AsynchronousListener from a bounded queue,
+ * using a thread dedicated to that listener. Pending events are delivered in
+ * batches, in the order they were queued.
+ */
+class AsynchronousListenerDispatcher implements Runnable {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(AsynchronousListenerDispatcher.class);
+
+    /**
+     * The amount of time to wait for new events before checking whether the
+     * dispatcher has been shut down, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    /**
+     * The listener receiving events.
+     */
+    private final AsynchronousListener listener;
+
+    /**
+     * The maximum number of events to deliver in a single batch.
+     */
+    private final int batchSize;
+
+    /**
+     * Events pending delivery to the listener.
+     */
+    private final BlockingQueue<Object> queue;
+
+    /**
+     * Statistics describing delivery of events to the listener.
+     */
+    private final ListenerStatistics statistics;
+
+    /**
+     * The thread delivering events to the listener.
+     */
+    private final Thread thread;
+
+    /**
+     * Whether this dispatcher has been shut down. Once shut down, any
+     * remaining events are delivered and the dispatching thread stops.
+     */
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates and starts a new AsynchronousListenerDispatcher which delivers
+     * events to the given listener.
+     *
+     * @param listener
+     *     The listener to deliver events to.
+     *
+     * @param queueSize
+     *     The maximum number of events which may be pending delivery.
+     *
+     * @param batchSize
+     *     The maximum number of events to deliver in a single batch.
+     */
+    public AsynchronousListenerDispatcher(AsynchronousListener listener,
+            int queueSize, int batchSize) {
+
+        this.listener = listener;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<Object>(queueSize);
+        this.statistics = new ListenerStatistics(listener.getClass().getName(), queue);
+
+        thread = new Thread(this, "guacamole-listener-" + listener.getClass().getSimpleName());
+        thread.setDaemon(true);
+        thread.start();
+
+    }
+
+    /**
+     * Returns statistics describing delivery of events to the listener.
+     *
+     * @return
+     *     Statistics describing delivery of events to the listener.
+     */
+    public ListenerStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Queues the given event for delivery to the listener. If the queue is
+     * full, the event is dropped.
+     *
+     * @param event
+     *     The event to deliver.
+     *
+     * @return
+     *     true if the event was queued, false if it was dropped.
+     */
+    public boolean offer(Object event) {
+
+        if (!shutdown && queue.offer(event))
+            return true;
+
+        statistics.recordDropped();
+        return false;
+
+    }
+
+    /**
+     * Delivers the given batch of events to the listener, logging any
+     * failure.
+     *
+     * @param batch
+     *     The events to deliver.
+     */
+    private void deliver(List<Object> batch) {
+
+        long start = System.nanoTime();
+        boolean failed = false;
+
+        try {
+            listener.handleEvents(batch);
+        }
+        catch (Exception e) {
+            failed = true;
+            logger.warn("Listener \"{}\" failed to handle {} event(s): {}",
+                    statistics.getName(), batch.size(), e.getMessage());
+            logger.debug("Asynchronous listener failed.", e);
+        }
+        finally {
+            statistics.recordDelivery(batch.size(), System.nanoTime() - start, failed);
+        }
+
+    }
+
+    @Override
+    public void run() {
+
+        List<Object> batch = new ArrayList<Object>(batchSize);
+
+        while (!shutdown || !queue.isEmpty()) {
+
+            try {
+
+                // Wait for at least one event
+                Object event = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (event == null)
+                    continue;
+
+                // Include any other pending events in the same batch
+                batch.add(event);
+                queue.drainTo(batch, batchSize - 1);
+                deliver(batch);
+
+            }
+            catch (InterruptedException e) {
+                logger.debug("Listener dispatch interrupted.", e);
+                break;
+            }
+            finally {
+                batch.clear();
+            }
+
+        }
+
+    }
+
+    /**
+     * Stops accepting new events, waiting up to the given amount of time for
+     * any pending events to be delivered.
+     *
+     * @param timeout
+     *     The maximum amount of time to wait, in milliseconds.
+     */
+    public void shutdown(long timeout) {
+
+        shutdown = true;
+
+        try {
+            thread.join(timeout);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            logger.warn("Listener \"{}\" did not finish handling {} pending "
+                    + "event(s) in time.", statistics.getName(), queue.size());
+            thread.interrupt();
+        }
+
+    }
+
+}
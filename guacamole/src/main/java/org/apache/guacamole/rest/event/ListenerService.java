@@ -17,29 +17,149 @@
  *  under the License.
  */
 
+
 package org.apache.guacamole.rest.event;
 
-import java.util.List;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.environment.Environment;
+import org.apache.guacamole.net.event.listener.AsynchronousListener;
 import org.apache.guacamole.net.event.listener.Listener;
+import org.apache.guacamole.properties.IntegerGuacamoleProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A service used to notify listeners registered by extensions when events of
- * interest occur.
+ * interest occur. Listeners are notified synchronously, on the thread that
+ * produced the event, unless they implement AsynchronousListener, in which
+ * case events are queued and delivered on a separate thread.
  */
+@Singleton
 public class ListenerService implements Listener {
 
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ListenerService.class);
+
+    /**
+     * The default maximum number of events which may be pending delivery to
+     * each asynchronous listener.
+     */
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    /**
+     * The default maximum number of events delivered to an asynchronous
+     * listener in a single batch.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    /**
+     * The maximum amount of time to wait for pending events to be delivered
+     * to each asynchronous listener during shutdown, in milliseconds.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+
+    /**
+     * The maximum number of events which may be pending delivery to each
+     * asynchronous listener. Further events are dropped.
+     */
+    private final IntegerGuacamoleProperty LISTENER_QUEUE_SIZE =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "listener-queue-size"; }
+
+    };
+
+    /**
+     * The maximum number of events delivered to an asynchronous listener in a
+     * single batch.
+     */
+    private final IntegerGuacamoleProperty LISTENER_BATCH_SIZE =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "listener-batch-size"; }
+
+    };
+
     /**
      * The collection of registered listeners.
      */
+    private final List<Listener> listeners;
+
+    /**
+     * The dispatcher for each registered listener, in the same order as the
+     * registered listeners, or null for listeners which are notified
+     * synchronously.
+     */
+    private final List<AsynchronousListenerDispatcher> dispatchers;
+
+    /**
+     * Statistics for each registered listener, in the same order as the
+     * registered listeners.
+     */
+    private final List<ListenerStatistics> statistics;
+
+    /**
+     * Creates a new ListenerService which notifies the given listeners,
+     * starting the threads required by any asynchronous listeners.
+     *
+     * @param environment
+     *     The Guacamole server environment.
+     *
+     * @param listeners
+     *     The collection of registered listeners.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read or contains invalid values.
+     */
     @Inject
-    private List<Listener> listeners;
+    public ListenerService(Environment environment, List<Listener> listeners)
+            throws GuacamoleException {
+
+        int queueSize = environment.getProperty(LISTENER_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        int batchSize = environment.getProperty(LISTENER_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+
+        this.listeners = listeners;
+        this.dispatchers = new ArrayList<AsynchronousListenerDispatcher>(listeners.size());
+        this.statistics = new ArrayList<ListenerStatistics>(listeners.size());
+
+        for (Listener listener : listeners) {
+
+            // Queue events for listeners which have opted in to asynchronous
+            // delivery
+            if (listener instanceof AsynchronousListener) {
+                AsynchronousListenerDispatcher dispatcher = new AsynchronousListenerDispatcher(
+                        (AsynchronousListener) listener, queueSize, batchSize);
+                dispatchers.add(dispatcher);
+                statistics.add(dispatcher.getStatistics());
+                logger.debug("Listener \"{}\" will be notified asynchronously.",
+                        listener.getClass().getName());
+            }
+
+            // Notify all other listeners directly
+            else {
+                dispatchers.add(null);
+                statistics.add(new ListenerStatistics(listener.getClass().getName(), null));
+            }
+
+        }
+
+    }
 
     /**
      * Notifies registered listeners than an event has occurred. Notification continues
      * until a given listener throws a GuacamoleException or other runtime exception, or
-     * until all listeners have been notified.
+     * until all listeners have been notified. Asynchronous listeners are only
+     * notified that the event has been queued, and cannot halt notification.
      *
      * @param event
      *      An object that describes the event that has occurred.
@@ -49,8 +169,51 @@ public class ListenerService implements Listener {
      */
     @Override
     public void handleEvent(Object event) throws GuacamoleException {
-        for (final Listener listener : listeners) {
-            listener.handleEvent(event);
+        for (int i = 0; i < listeners.size(); i++) {
+
+            // Queue event for asynchronous listeners
+            AsynchronousListenerDispatcher dispatcher = dispatchers.get(i);
+            if (dispatcher != null) {
+                if (!dispatcher.offer(event))
+                    logger.debug("Event dropped for listener \"{}\" as its "
+                            + "queue is full.", dispatcher.getStatistics().getName());
+                continue;
+            }
+
+            // Notify all other listeners directly, tracking time taken
+            ListenerStatistics listenerStatistics = statistics.get(i);
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                listeners.get(i).handleEvent(event);
+                failed = false;
+            }
+            finally {
+                listenerStatistics.recordDelivery(1, System.nanoTime() - start, failed);
+            }
+
+        }
+    }
+
+    /**
+     * Returns statistics describing the delivery of events to each registered
+     * listener, in the order the listeners are notified.
+     *
+     * @return
+     *     An unmodifiable list of statistics for each registered listener.
+     */
+    public List<ListenerStatistics> getStatistics() {
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * Stops all asynchronous delivery of events, waiting a short time for
+     * any pending events to be delivered.
+     */
+    public void shutdown() {
+        for (AsynchronousListenerDispatcher dispatcher : dispatchers) {
+            if (dispatcher != null)
+                dispatcher.shutdown(SHUTDOWN_TIMEOUT);
         }
     }
 
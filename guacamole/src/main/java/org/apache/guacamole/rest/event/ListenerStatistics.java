@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.rest.event;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics describing the delivery of events to a single Listener.
+ */
+public class ListenerStatistics {
+
+    /**
+     * A human-readable name for the listener, typically its class name.
+     */
+    private final String name;
+
+    /**
+     * The queue of events pending delivery to the listener, or null if events
+     * are delivered synchronously.
+     */
+    private final Queue<?> queue;
+
+    /**
+     * The number of events delivered to the listener.
+     */
+    private final LongAdder events = new LongAdder();
+
+    /**
+     * The number of deliveries which failed due to an exception thrown by
+     * the listener.
+     */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * The total time spent within the listener, in nanoseconds.
+     */
+    private final LongAdder time = new LongAdder();
+
+    /**
+     * The number of events which could not be delivered because the queue of
+     * pending events was full.
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates a new ListenerStatistics for the listener having the given
+     * name.
+     *
+     * @param name
+     *     A human-readable name for the listener.
+     *
+     * @param queue
+     *     The queue of events pending delivery to the listener, or null if
+     *     events are delivered synchronously.
+     */
+    ListenerStatistics(String name, Queue<?> queue) {
+        this.name = name;
+        this.queue = queue;
+    }
+
+    /**
+     * Records the delivery of one or more events to the listener.
+     *
+     * @param count
+     *     The number of events delivered.
+     *
+     * @param nanos
+     *     The time spent within the listener, in nanoseconds.
+     *
+     * @param failed
+     *     Whether the listener threw an exception.
+     */
+    void recordDelivery(int count, long nanos, boolean failed) {
+        events.add(count);
+        time.add(nanos);
+        if (failed)
+            failures.increment();
+    }
+
+    /**
+     * Records that an event was dropped because the queue of pending events
+     * was full.
+     */
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    /**
+     * Returns a human-readable name for the listener.
+     *
+     * @return
+     *     A human-readable name for the listener.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether events are delivered to the listener asynchronously.
+     *
+     * @return
+     *     true if events are delivered asynchronously, false otherwise.
+     */
+    public boolean isAsynchronous() {
+        return queue != null;
+    }
+
+    /**
+     * Returns the number of events delivered to the listener.
+     *
+     * @return
+     *     The number of events delivered to the listener.
+     */
+    public long getEvents() {
+        return events.sum();
+    }
+
+    /**
+     * Returns the number of deliveries which failed due to an exception
+     * thrown by the listener.
+     *
+     * @return
+     *     The number of failed deliveries.
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the total time spent within the listener, in milliseconds.
+     *
+     * @return
+     *     The total time spent within the listener, in milliseconds.
+     */
+    public long getTime() {
+        return TimeUnit.NANOSECONDS.toMillis(time.sum());
+    }
+
+    /**
+     * Returns the average time spent handling each event, in milliseconds.
+     *
+     * @return
+     *     The average time spent handling each event, in milliseconds, or
+     *     zero if no events have been delivered.
+     */
+    public double getAverageTime() {
+        long count = events.sum();
+        if (count == 0)
+            return 0;
+        return time.sum() / 1000000.0 / count;
+    }
+
+    /**
+     * Returns the number of events currently awaiting delivery.
+     *
+     * @return
+     *     The number of events currently awaiting delivery, which is always
+     *     zero for synchronous listeners.
+     */
+    public int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * Returns the number of events which could not be delivered because the
+     * queue of pending events was full.
+     *
+     * @return
+     *     The number of dropped events.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+}
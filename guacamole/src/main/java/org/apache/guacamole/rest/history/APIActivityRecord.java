@@ -27,6 +27,11 @@ import org.apache.guacamole.net.auth.ActivityRecord;
  */
 public class APIActivityRecord {
 
+    /**
+     * The identifier of the record, or null if the record has no identifier.
+     */
+    private final String identifier;
+
     /**
      * The date and time the activity began.
      */
@@ -63,6 +68,7 @@ public class APIActivityRecord {
      *     The record to copy data from.
      */
     public APIActivityRecord(ActivityRecord record) {
+        this.identifier = record.getIdentifier();
         this.startDate  = record.getStartDate();
         this.endDate    = record.getEndDate();
         this.remoteHost = record.getRemoteHost();
@@ -70,6 +76,19 @@ public class APIActivityRecord {
         this.active     = record.isActive();
     }
 
+    /**
+     * Returns the identifier of this record, which may be passed as the
+     * "after" parameter of a subsequent history request to retrieve the
+     * records which follow this record.
+     *
+     * @return
+     *     The identifier of this record, or null if the record has no
+     *     identifier.
+     */
+    public String getIdentifier() {
+        return identifier;
+    }
+
     /**
      * Returns the date and time the activity began.
      *
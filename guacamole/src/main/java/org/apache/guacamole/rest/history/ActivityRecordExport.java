@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.rest.history;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.guacamole.GuacamoleClientException;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleServerException;
+import org.apache.guacamole.net.auth.ActivityRecord;
+import org.apache.guacamole.net.auth.ActivityRecordSet;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A complete export of the history records matching a set of search and sort
+ * criteria, written as the response body of a REST request. Records are
+ * retrieved one page at a time, each page resuming after the last record of
+ * the previous page, and each page is written before the next is retrieved,
+ * such that memory usage does not depend on the size of the history.
+ *
+ * @param <RecordType>
+ *     The type of ActivityRecord being exported.
+ *
+ * @param <ExternalType>
+ *     The type of object used to represent each record within the REST API.
+ */
+abstract class ActivityRecordExport<RecordType extends ActivityRecord,
+        ExternalType extends APIActivityRecord> implements StreamingOutput {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ActivityRecordExport.class);
+
+    /**
+     * The number of records to retrieve with each query.
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * All formats in which history may be exported.
+     */
+    public enum Format {
+
+        /**
+         * Comma-separated values, as defined by RFC 4180, with a header row
+         * naming each column.
+         */
+        CSV("csv", "text/csv; charset=utf-8"),
+
+        /**
+         * Newline-delimited JSON, with each record serialized as a JSON
+         * object on its own line.
+         */
+        NDJSON("ndjson", "application/x-ndjson; charset=utf-8");
+
+        /**
+         * The value of the "format" parameter which selects this format, which
+         * is also used as the file extension of the export.
+         */
+        private final String name;
+
+        /**
+         * The media type of exports using this format.
+         */
+        private final String mediaType;
+
+        /**
+         * Creates a new Format having the given name and media type.
+         *
+         * @param name
+         *     The value of the "format" parameter which selects this format.
+         *
+         * @param mediaType
+         *     The media type of exports using this format.
+         */
+        private Format(String name, String mediaType) {
+            this.name = name;
+            this.mediaType = mediaType;
+        }
+
+        /**
+         * Returns the name of this format, which is also used as the file
+         * extension of the export.
+         *
+         * @return
+         *     The name of this format.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the media type of exports using this format.
+         *
+         * @return
+         *     The media type of exports using this format.
+         */
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * Returns the Format selected by the given value of the "format"
+         * parameter.
+         *
+         * @param name
+         *     The value of the "format" parameter, or null to select the
+         *     default format, CSV.
+         *
+         * @return
+         *     The Format selected by the given parameter value.
+         *
+         * @throws GuacamoleException
+         *     If the given value does not select any known format.
+         */
+        public static Format fromName(String name) throws GuacamoleException {
+
+            if (name == null)
+                return CSV;
+
+            for (Format format : values()) {
+                if (format.name.equals(name))
+                    return format;
+            }
+
+            throw new GuacamoleClientException("Unsupported export format: \""
+                    + name + "\"");
+
+        }
+
+    }
+
+    /**
+     * The format in which history should be exported.
+     */
+    private final Format format;
+
+    /**
+     * The ObjectMapper used to serialize each record of an NDJSON export.
+     */
+    private final ObjectMapper mapper;
+
+    /**
+     * The strings that must each be contained within every exported record.
+     */
+    private final List<String> requiredContents;
+
+    /**
+     * The predicates to apply while sorting the exported records.
+     */
+    private final List<APISortPredicate> sortPredicates;
+
+    /**
+     * Creates a new ActivityRecordExport which exports the records matching
+     * the given criteria in the given format.
+     *
+     * @param format
+     *     The format in which history should be exported.
+     *
+     * @param mapper
+     *     The ObjectMapper to use to serialize each record of an NDJSON
+     *     export, which should be the ObjectMapper used by Jersey.
+     *
+     * @param requiredContents
+     *     The strings that must each be contained within every exported
+     *     record.
+     *
+     * @param sortPredicates
+     *     The predicates to apply while sorting the exported records.
+     */
+    public ActivityRecordExport(Format format, ObjectMapper mapper,
+            List<String> requiredContents,
+            List<APISortPredicate> sortPredicates) {
+        this.format = format;
+        this.mapper = mapper;
+        this.requiredContents = requiredContents;
+        this.sortPredicates = sortPredicates;
+    }
+
+    /**
+     * Returns a new ActivityRecordSet containing all records which may be
+     * exported. As the criteria of each page are applied to the returned
+     * set, a new set must be returned by each call.
+     *
+     * @return
+     *     A new ActivityRecordSet containing all records which may be
+     *     exported.
+     *
+     * @throws GuacamoleException
+     *     If the history cannot be retrieved.
+     */
+    protected abstract ActivityRecordSet<RecordType> getHistory()
+            throws GuacamoleException;
+
+    /**
+     * Converts the given record into the object which represents that record
+     * within the REST API.
+     *
+     * @param record
+     *     The record to convert.
+     *
+     * @return
+     *     The object which represents the given record within the REST API.
+     */
+    protected abstract ExternalType toExternalRecord(RecordType record);
+
+    /**
+     * Returns the names of each column of a CSV export, in order. Subclasses
+     * which export additional data should override this function and
+     * getValues() together.
+     *
+     * @return
+     *     The names of each column of a CSV export.
+     */
+    protected List<String> getColumns() {
+        return new ArrayList<String>(Arrays.asList("identifier", "startDate",
+                "endDate", "username", "remoteHost", "active"));
+    }
+
+    /**
+     * Returns the values of each column of a CSV export for the given record,
+     * in the same order as the names returned by getColumns().
+     *
+     * @param record
+     *     The record whose values should be returned.
+     *
+     * @return
+     *     The values of each column for the given record. Null values are
+     *     written as empty fields.
+     */
+    protected List<Object> getValues(ExternalType record) {
+        return new ArrayList<Object>(Arrays.asList(record.getIdentifier(),
+                record.getStartDate(), record.getEndDate(),
+                record.getUsername(), record.getRemoteHost(),
+                record.isActive()));
+    }
+
+    /**
+     * Writes the given values as a single row of CSV, quoting any values
+     * which contain commas, quotes, or line breaks. Dates are written in
+     * ISO 8601 format, in UTC.
+     *
+     * @param writer
+     *     The Writer to write the row to.
+     *
+     * @param values
+     *     The values to write.
+     *
+     * @throws IOException
+     *     If an error occurs while writing.
+     */
+    private static void writeCSVRow(Writer writer, List<?> values)
+            throws IOException {
+
+        boolean first = true;
+        for (Object value : values) {
+
+            if (!first)
+                writer.write(',');
+            first = false;
+
+            if (value == null)
+                continue;
+
+            String text;
+            if (value instanceof Date)
+                text = ((Date) value).toInstant().toString();
+            else
+                text = value.toString();
+
+            // Quote values which would otherwise be ambiguous
+            if (text.indexOf(',') != -1 || text.indexOf('"') != -1
+                    || text.indexOf('\r') != -1 || text.indexOf('\n') != -1)
+                text = '"' + text.replace("\"", "\"\"") + '"';
+
+            writer.write(text);
+
+        }
+
+        writer.write("\r\n");
+
+    }
+
+    /**
+     * Writes the given record in the format of this export.
+     *
+     * @param writer
+     *     The Writer to write the record to.
+     *
+     * @param record
+     *     The record to write.
+     *
+     * @throws IOException
+     *     If an error occurs while writing.
+     */
+    private void writeRecord(Writer writer, RecordType record)
+            throws IOException {
+
+        ExternalType externalRecord = toExternalRecord(record);
+
+        if (format == Format.CSV)
+            writeCSVRow(writer, getValues(externalRecord));
+        else {
+            writer.write(mapper.writeValueAsString(externalRecord));
+            writer.write('\n');
+        }
+
+    }
+
+    /**
+     * Retrieves the page of records following the record having the given
+     * identifier, along with the first record of the following page, if any,
+     * such that it can be determined whether another page exists without
+     * retrieving it. A set which does not honor limit() may return more.
+     *
+     * @param after
+     *     The identifier of the last record of the previous page, or null if
+     *     the first page should be retrieved.
+     *
+     * @return
+     *     The records of the requested page.
+     *
+     * @throws GuacamoleException
+     *     If the records cannot be retrieved.
+     */
+    private Collection<RecordType> getPage(String after)
+            throws GuacamoleException {
+
+        ActivityRecordSet<RecordType> history = HistoryResource.applyCriteria(
+                getHistory(), requiredContents, sortPredicates);
+
+        if (after != null)
+            history = history.after(after);
+
+        return history.limit(PAGE_SIZE + 1).asCollection();
+
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output,
+                StandardCharsets.UTF_8));
+
+        if (format == Format.CSV)
+            writeCSVRow(writer, getColumns());
+
+        try {
+
+            String after = null;
+            boolean more;
+            do {
+
+                // Another page exists only if exactly one record beyond this
+                // page was returned. Any more than that means the limit was
+                // not honored, and every remaining record has been returned.
+                Collection<RecordType> page = getPage(after);
+                more = (page.size() == PAGE_SIZE + 1);
+
+                int written = 0;
+                for (RecordType record : page) {
+
+                    if (more && written == PAGE_SIZE)
+                        break;
+
+                    writeRecord(writer, record);
+                    after = record.getIdentifier();
+                    written++;
+
+                }
+
+                // A further page can only be retrieved if it can be resumed
+                if (more && after == null)
+                    throw new GuacamoleServerException("History records lack "
+                            + "identifiers and cannot be exported beyond the "
+                            + "first " + PAGE_SIZE + " records.");
+
+            } while (more);
+
+            writer.flush();
+
+        }
+
+        // The response has already begun, thus the status can no longer
+        // reflect the failure. The response is instead aborted such that the
+        // client cannot mistake the partial export for a complete one.
+        catch (GuacamoleException e) {
+            logger.warn("History export aborted: {}", e.getMessage());
+            logger.debug("Unable to retrieve history records for export.", e);
+            throw new IOException(e);
+        }
+
+    }
+
+}
@@ -27,11 +27,15 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.apache.guacamole.GuacamoleClientException;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.net.auth.ActivityRecord;
 import org.apache.guacamole.net.auth.ActivityRecordSet;
 import org.apache.guacamole.net.auth.ConnectionRecord;
 import org.apache.guacamole.net.auth.UserContext;
+import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
+import org.codehaus.jackson.map.ObjectMapper;
 
 /**
  * A REST resource for retrieving and managing the history records of Guacamole
@@ -51,15 +55,130 @@ public class HistoryResource {
      */
     private final UserContext userContext;
 
+    /**
+     * The provider used by Jersey to serialize JSON responses, from which the
+     * ObjectMapper used to serialize NDJSON exports is obtained.
+     */
+    private final JacksonJsonProvider jsonProvider;
+
     /**
      * Creates a new HistoryResource which exposes the connection history
      * associated with the given UserContext.
      *
      * @param userContext
      *     The UserContext whose connection history should be exposed.
+     *
+     * @param jsonProvider
+     *     The provider used by Jersey to serialize JSON responses.
      */
-    public HistoryResource(UserContext userContext) {
+    public HistoryResource(UserContext userContext,
+            JacksonJsonProvider jsonProvider) {
         this.userContext = userContext;
+        this.jsonProvider = jsonProvider;
+    }
+
+    /**
+     * Returns the ObjectMapper used by Jersey to serialize JSON responses,
+     * such that exported records are serialized identically to records
+     * returned by getConnectionHistory() and getUserHistory().
+     *
+     * @return
+     *     The ObjectMapper used by Jersey to serialize JSON responses.
+     */
+    private ObjectMapper getMapper() {
+        return jsonProvider.locateMapper(APIActivityRecord.class,
+                MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    /**
+     * Restricts and sorts the given history according to the given filter
+     * parameters.
+     *
+     * @param <RecordType>
+     *     The type of ActivityRecord within the given history.
+     *
+     * @param history
+     *     The history to restrict and sort.
+     *
+     * @param requiredContents
+     *     The set of strings that each must occur somewhere within the
+     *     records of the returned history. Empty strings are ignored.
+     *
+     * @param sortPredicates
+     *     A list of predicates to apply while sorting the returned history.
+     *
+     * @return
+     *     The given history, restricted and sorted according to the given
+     *     filter parameters.
+     *
+     * @throws GuacamoleException
+     *     If the history cannot be restricted or sorted as requested.
+     */
+    static <RecordType extends ActivityRecord> ActivityRecordSet<RecordType>
+            applyCriteria(ActivityRecordSet<RecordType> history,
+                    List<String> requiredContents,
+                    List<APISortPredicate> sortPredicates)
+            throws GuacamoleException {
+
+        // Restrict to records which contain the specified strings
+        for (String required : requiredContents) {
+            if (!required.isEmpty())
+                history = history.contains(required);
+        }
+
+        // Sort according to specified ordering
+        for (APISortPredicate predicate : sortPredicates)
+            history = history.sort(predicate.getProperty(), predicate.isDescending());
+
+        return history;
+
+    }
+
+    /**
+     * Restricts the given history to a single page of records, beginning
+     * after the record having the given identifier.
+     *
+     * @param <RecordType>
+     *     The type of ActivityRecord within the given history.
+     *
+     * @param history
+     *     The history to restrict.
+     *
+     * @param after
+     *     The identifier of the record immediately preceding the requested
+     *     page, as returned with that record, or null if the first page is
+     *     requested.
+     *
+     * @param limit
+     *     The maximum number of records requested, or null to return the
+     *     maximum allowed number of records. Values larger than the maximum
+     *     allowed are reduced to that maximum.
+     *
+     * @return
+     *     The requested page of the given history.
+     *
+     * @throws GuacamoleException
+     *     If the limit is not positive, or the history cannot be resumed after
+     *     the given record.
+     */
+    private static <RecordType extends ActivityRecord> ActivityRecordSet<RecordType>
+            applyPage(ActivityRecordSet<RecordType> history, String after,
+                    Integer limit) throws GuacamoleException {
+
+        if (limit != null && limit < 1)
+            throw new GuacamoleClientException("The record limit must be a "
+                    + "positive integer.");
+
+        // Resume after the last record of the previous page, if any
+        if (after != null)
+            history = history.after(after);
+
+        // Limit to requested result size, never exceeding the maximum
+        if (limit == null || limit > MAXIMUM_HISTORY_SIZE)
+            limit = MAXIMUM_HISTORY_SIZE;
+
+        return history.limit(limit);
+
     }
 
     /**
@@ -78,6 +197,14 @@ public class HistoryResource {
      *     records, describing the properties involved and the sort order for
      *     those properties.
      *
+     * @param after
+     *     The identifier of the last record of the previous page of results,
+     *     or null if the first page of results should be returned.
+     *
+     * @param limit
+     *     The maximum number of records to return, or null to return the
+     *     maximum allowed number of records.
+     *
      * @return
      *     A list of connection records, describing the start and end times of
      *     various usages of this connection.
@@ -89,24 +216,15 @@ public class HistoryResource {
     @Path("connections")
     public List<APIConnectionRecord> getConnectionHistory(
             @QueryParam("contains") List<String> requiredContents,
-            @QueryParam("order") List<APISortPredicate> sortPredicates)
+            @QueryParam("order") List<APISortPredicate> sortPredicates,
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit)
             throws GuacamoleException {
 
-        // Retrieve overall connection history
-        ActivityRecordSet<ConnectionRecord> history = userContext.getConnectionHistory();
-
-        // Restrict to records which contain the specified strings
-        for (String required : requiredContents) {
-            if (!required.isEmpty())
-                history = history.contains(required);
-        }
-
-        // Sort according to specified ordering
-        for (APISortPredicate predicate : sortPredicates)
-            history = history.sort(predicate.getProperty(), predicate.isDescending());
-
-        // Limit to maximum result size
-        history = history.limit(MAXIMUM_HISTORY_SIZE);
+        // Retrieve requested page of overall connection history
+        ActivityRecordSet<ConnectionRecord> history = applyPage(
+                applyCriteria(userContext.getConnectionHistory(),
+                        requiredContents, sortPredicates), after, limit);
 
         // Convert record set to collection of API connection records
         List<APIConnectionRecord> apiRecords = new ArrayList<APIConnectionRecord>();
@@ -118,6 +236,84 @@ public class HistoryResource {
 
     }
 
+    /**
+     * Exports the complete usage history for all connections, restricted by
+     * optional filter parameters. Unlike getConnectionHistory(), the export
+     * is not limited in size, and is streamed to the client as it is
+     * retrieved.
+     *
+     * @param requiredContents
+     *     The set of strings that each must occur somewhere within the
+     *     exported connection records, as accepted by getConnectionHistory().
+     *
+     * @param sortPredicates
+     *     A list of predicates to apply while sorting the exported connection
+     *     records.
+     *
+     * @param formatName
+     *     The format of the export, either "csv" or "ndjson". If omitted, CSV
+     *     is used.
+     *
+     * @return
+     *     A response whose body is the requested export.
+     *
+     * @throws GuacamoleException
+     *     If the requested format is not supported.
+     */
+    @GET
+    @Path("connections/export")
+    @Produces(MediaType.WILDCARD)
+    public Response exportConnectionHistory(
+            @QueryParam("contains") List<String> requiredContents,
+            @QueryParam("order") List<APISortPredicate> sortPredicates,
+            @QueryParam("format") String formatName)
+            throws GuacamoleException {
+
+        ActivityRecordExport.Format format = ActivityRecordExport.Format.fromName(formatName);
+        ActivityRecordExport<ConnectionRecord, APIConnectionRecord> export =
+                new ActivityRecordExport<ConnectionRecord, APIConnectionRecord>(
+                        format, getMapper(), requiredContents, sortPredicates) {
+
+            @Override
+            protected ActivityRecordSet<ConnectionRecord> getHistory()
+                    throws GuacamoleException {
+                return userContext.getConnectionHistory();
+            }
+
+            @Override
+            protected APIConnectionRecord toExternalRecord(ConnectionRecord record) {
+                return new APIConnectionRecord(record);
+            }
+
+            @Override
+            protected List<String> getColumns() {
+                List<String> columns = super.getColumns();
+                columns.add("connectionIdentifier");
+                columns.add("connectionName");
+                columns.add("sharingProfileIdentifier");
+                columns.add("sharingProfileName");
+                return columns;
+            }
+
+            @Override
+            protected List<Object> getValues(APIConnectionRecord record) {
+                List<Object> values = super.getValues(record);
+                values.add(record.getConnectionIdentifier());
+                values.add(record.getConnectionName());
+                values.add(record.getSharingProfileIdentifier());
+                values.add(record.getSharingProfileName());
+                return values;
+            }
+
+        };
+
+        return Response.ok(export, format.getMediaType())
+                .header("Content-Disposition", "attachment; filename=\"connection-history."
+                        + format.getName() + "\"")
+                .build();
+
+    }
+
     /**
      * Retrieves the login history for all users, restricted by optional filter
      * parameters.
@@ -133,6 +329,14 @@ public class HistoryResource {
      *     records, describing the properties involved and the sort order for
      *     those properties.
      *
+     * @param after
+     *     The identifier of the last record of the previous page of results,
+     *     or null if the first page of results should be returned.
+     *
+     * @param limit
+     *     The maximum number of records to return, or null to return the
+     *     maximum allowed number of records.
+     *
      * @return
      *     A list of user records, describing the start and end times of user
      *     sessions.
@@ -144,24 +348,15 @@ public class HistoryResource {
     @Path("users")
     public List<APIActivityRecord> getUserHistory(
             @QueryParam("contains") List<String> requiredContents,
-            @QueryParam("order") List<APISortPredicate> sortPredicates)
+            @QueryParam("order") List<APISortPredicate> sortPredicates,
+            @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit)
             throws GuacamoleException {
 
-        // Retrieve overall user history
-        ActivityRecordSet<ActivityRecord> history = userContext.getUserHistory();
-
-        // Restrict to records which contain the specified strings
-        for (String required : requiredContents) {
-            if (!required.isEmpty())
-                history = history.contains(required);
-        }
-
-        // Sort according to specified ordering
-        for (APISortPredicate predicate : sortPredicates)
-            history = history.sort(predicate.getProperty(), predicate.isDescending());
-
-        // Limit to maximum result size
-        history = history.limit(MAXIMUM_HISTORY_SIZE);
+        // Retrieve requested page of overall user history
+        ActivityRecordSet<ActivityRecord> history = applyPage(
+                applyCriteria(userContext.getUserHistory(),
+                        requiredContents, sortPredicates), after, limit);
 
         // Convert record set to collection of API user records
         List<APIActivityRecord> apiRecords = new ArrayList<APIActivityRecord>();
@@ -173,4 +368,61 @@ public class HistoryResource {
 
     }
 
+    /**
+     * Exports the complete login history for all users, restricted by
+     * optional filter parameters. Unlike getUserHistory(), the export is not
+     * limited in size, and is streamed to the client as it is retrieved.
+     *
+     * @param requiredContents
+     *     The set of strings that each must occur somewhere within the
+     *     exported user records, as accepted by getUserHistory().
+     *
+     * @param sortPredicates
+     *     A list of predicates to apply while sorting the exported user
+     *     records.
+     *
+     * @param formatName
+     *     The format of the export, either "csv" or "ndjson". If omitted, CSV
+     *     is used.
+     *
+     * @return
+     *     A response whose body is the requested export.
+     *
+     * @throws GuacamoleException
+     *     If the requested format is not supported.
+     */
+    @GET
+    @Path("users/export")
+    @Produces(MediaType.WILDCARD)
+    public Response exportUserHistory(
+            @QueryParam("contains") List<String> requiredContents,
+            @QueryParam("order") List<APISortPredicate> sortPredicates,
+            @QueryParam("format") String formatName)
+            throws GuacamoleException {
+
+        ActivityRecordExport.Format format = ActivityRecordExport.Format.fromName(formatName);
+        ActivityRecordExport<ActivityRecord, APIActivityRecord> export =
+                new ActivityRecordExport<ActivityRecord, APIActivityRecord>(
+                        format, getMapper(), requiredContents, sortPredicates) {
+
+            @Override
+            protected ActivityRecordSet<ActivityRecord> getHistory()
+                    throws GuacamoleException {
+                return userContext.getUserHistory();
+            }
+
+            @Override
+            protected APIActivityRecord toExternalRecord(ActivityRecord record) {
+                return new APIActivityRecord(record);
+            }
+
+        };
+
+        return Response.ok(export, format.getMediaType())
+                .header("Content-Disposition", "attachment; filename=\"user-history."
+                        + format.getName() + "\"")
+                .build();
+
+    }
+
 }
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.rest.metrics;
+
+import com.google.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.StreamingOutput;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleSecurityException;
+import org.apache.guacamole.GuacamoleSession;
+import org.apache.guacamole.environment.Environment;
+import org.apache.guacamole.metrics.MetricsService;
+import org.apache.guacamole.net.auth.UserContext;
+import org.apache.guacamole.net.auth.permission.SystemPermission;
+import org.apache.guacamole.properties.StringGuacamoleProperty;
+import org.apache.guacamole.rest.auth.AuthenticationService;
+
+/**
+ * A REST service which exposes the metrics recorded by the MetricsService in
+ * the Prometheus text exposition format. Access requires either the auth
+ * token of a user having administrative permission, or the static bearer
+ * token defined by the "metrics-token" property, which allows metrics to be
+ * scraped without maintaining a session.
+ */
+@Path("/metrics")
+public class MetricsRESTService {
+
+    /**
+     * The content type of the Prometheus text exposition format.
+     */
+    private static final String PROMETHEUS_TEXT_FORMAT =
+            "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * The prefix of the value of an Authorization header which provides a
+     * bearer token.
+     */
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * A secret which, if provided as a bearer token within the Authorization
+     * header, grants access to metrics without requiring a session. If
+     * unset, only administrative users may access metrics.
+     */
+    private static final StringGuacamoleProperty METRICS_TOKEN =
+            new StringGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "metrics-token"; }
+
+    };
+
+    /**
+     * The Guacamole server environment.
+     */
+    @Inject
+    private Environment environment;
+
+    /**
+     * A service for authenticating users from auth tokens.
+     */
+    @Inject
+    private AuthenticationService authenticationService;
+
+    /**
+     * Service for recording metrics.
+     */
+    @Inject
+    private MetricsService metricsService;
+
+    /**
+     * Returns whether the given Authorization header provides the bearer
+     * token defined by the "metrics-token" property.
+     *
+     * @param authorization
+     *     The value of the Authorization header, or null if no such header
+     *     was provided.
+     *
+     * @return
+     *     true if the header provides the configured metrics token, false
+     *     otherwise, including if no metrics token is configured.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read.
+     */
+    private boolean hasMetricsToken(String authorization)
+            throws GuacamoleException {
+
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX))
+            return false;
+
+        String metricsToken = environment.getProperty(METRICS_TOKEN);
+        if (metricsToken == null || metricsToken.isEmpty())
+            return false;
+
+        // Compare in constant time to avoid revealing the token via timing
+        return MessageDigest.isEqual(
+                metricsToken.getBytes(StandardCharsets.UTF_8),
+                authorization.substring(BEARER_PREFIX.length()).trim()
+                        .getBytes(StandardCharsets.UTF_8));
+
+    }
+
+    /**
+     * Returns whether the user associated with the given session has
+     * administrative permission within any of their UserContexts.
+     *
+     * @param session
+     *     The session of the user to check.
+     *
+     * @return
+     *     true if the user has administrative permission, false otherwise.
+     *
+     * @throws GuacamoleException
+     *     If the permissions of the user cannot be retrieved.
+     */
+    private boolean isAdministrator(GuacamoleSession session)
+            throws GuacamoleException {
+
+        for (UserContext userContext : session.getUserContexts()) {
+            if (userContext.self().getEffectivePermissions().getSystemPermissions()
+                    .hasPermission(SystemPermission.Type.ADMINISTER))
+                return true;
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Returns the current value of all metrics in the Prometheus text
+     * exposition format.
+     *
+     * @param authToken
+     *     The authentication token of an administrative user, or null if the
+     *     configured metrics token is provided instead.
+     *
+     * @param authorization
+     *     The value of the Authorization header, which may provide the
+     *     configured metrics token as a bearer token, or null if no such
+     *     header was provided.
+     *
+     * @return
+     *     The current value of all metrics in the Prometheus text exposition
+     *     format.
+     *
+     * @throws GuacamoleException
+     *     If the user is not authorized to access metrics.
+     */
+    @GET
+    @Produces(PROMETHEUS_TEXT_FORMAT)
+    public StreamingOutput getMetrics(@QueryParam("token") String authToken,
+            @HeaderParam(HttpHeaders.AUTHORIZATION) String authorization)
+            throws GuacamoleException {
+
+        // Require either the metrics token or an administrative session
+        if (!hasMetricsToken(authorization)
+                && !isAdministrator(authenticationService.getGuacamoleSession(authToken)))
+            throw new GuacamoleSecurityException("Permission to read metrics denied.");
+
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream output) throws IOException {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(
+                        output, StandardCharsets.UTF_8));
+                metricsService.writeMetrics(writer);
+                writer.flush();
+            }
+
+        };
+
+    }
+
+}
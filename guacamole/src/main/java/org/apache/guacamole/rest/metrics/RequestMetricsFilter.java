@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.guacamole.rest.metrics;
+
+import com.google.inject.Inject;
+import com.sun.jersey.api.core.ExtendedUriInfo;
+import com.sun.jersey.api.core.HttpContext;
+import com.sun.jersey.api.uri.UriTemplate;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import java.util.List;
+import javax.ws.rs.core.Context;
+import org.apache.guacamole.metrics.MetricsService;
+
+/**
+ * Jersey filter which records the duration of each REST API request with the
+ * MetricsService. Requests are grouped by the template of the matched
+ * resource, such as "/session/data/{dataSource}/users/{username}", rather
+ * than by the concrete request path. This filter must be registered as both
+ * a request and response filter, and is deliberately not bound with Guice
+ * such that Jersey will instantiate it and inject its context.
+ */
+public class RequestMetricsFilter
+        implements ContainerRequestFilter, ContainerResponseFilter {
+
+    /**
+     * The name of the request property which stores the value of
+     * System.nanoTime() at the time the request was received.
+     */
+    private static final String START_TIME_PROPERTY =
+            RequestMetricsFilter.class.getName() + ".startTime";
+
+    /**
+     * The resource reported for requests which did not match any resource.
+     */
+    private static final String UNMATCHED_RESOURCE = "(unmatched)";
+
+    /**
+     * Service for recording metrics.
+     */
+    @Inject
+    private MetricsService metricsService;
+
+    /**
+     * The context of the current request.
+     */
+    @Context
+    private HttpContext context;
+
+    /**
+     * Returns the template of the resource which handled the current request,
+     * built from the templates of each matched resource and sub-resource.
+     *
+     * @return
+     *     The template of the resource which handled the current request.
+     */
+    private String getResource() {
+
+        ExtendedUriInfo uriInfo = context.getUriInfo();
+        List<UriTemplate> templates = uriInfo.getMatchedTemplates();
+        if (templates.isEmpty())
+            return UNMATCHED_RESOURCE;
+
+        // Matched templates are ordered from the last match to the first
+        StringBuilder resource = new StringBuilder();
+        for (int i = templates.size() - 1; i >= 0; i--) {
+
+            String template = templates.get(i).getTemplate();
+            for (int j = 0; j < template.length(); j++) {
+
+                // Collapse the empty segments of templates like "/"
+                char c = template.charAt(j);
+                if (c == '/' && resource.length() > 0
+                        && resource.charAt(resource.length() - 1) == '/')
+                    continue;
+
+                resource.append(c);
+
+            }
+
+            if (resource.length() == 0 || resource.charAt(resource.length() - 1) != '/')
+                resource.append('/');
+
+        }
+
+        // Omit trailing slash (unless the resource is the root itself)
+        if (resource.length() > 1)
+            resource.setLength(resource.length() - 1);
+
+        return resource.toString();
+
+    }
+
+    @Override
+    public ContainerRequest filter(ContainerRequest request) {
+        request.getProperties().put(START_TIME_PROPERTY, System.nanoTime());
+        return request;
+    }
+
+    @Override
+    public ContainerResponse filter(ContainerRequest request,
+            ContainerResponse response) {
+
+        Object startTime = request.getProperties().get(START_TIME_PROPERTY);
+        if (startTime instanceof Long)
+            metricsService.recordRequest(request.getMethod(), getResource(),
+                    System.nanoTime() - (Long) startTime);
+
+        return response;
+
+    }
+
+}
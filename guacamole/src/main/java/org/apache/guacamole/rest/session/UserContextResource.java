@@ -46,6 +46,7 @@ import org.apache.guacamole.rest.schema.SchemaResource;
 import org.apache.guacamole.rest.sharingprofile.APISharingProfile;
 import org.apache.guacamole.rest.user.APIUser;
 import org.apache.guacamole.rest.usergroup.APIUserGroup;
+import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
 
 /**
  * A REST resource which exposes the contents of a particular UserContext.
@@ -111,6 +112,13 @@ public class UserContextResource {
     @Inject
     private DirectoryResourceFactory<UserGroup, APIUserGroup> userGroupDirectoryResourceFactory;
 
+    /**
+     * The provider used by Jersey to serialize JSON responses, from which the
+     * ObjectMapper used to serialize exported history is obtained.
+     */
+    @Inject
+    private JacksonJsonProvider jsonProvider;
+
     /**
      * Creates a new UserContextResource which exposes the data within the
      * given UserContext.
@@ -262,7 +270,7 @@ public class UserContextResource {
      */
     @Path("history")
     public HistoryResource getHistoryResource() {
-        return new HistoryResource(userContext);
+        return new HistoryResource(userContext, jsonProvider);
     }
 
     /**
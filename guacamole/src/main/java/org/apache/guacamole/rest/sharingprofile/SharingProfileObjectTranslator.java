@@ -65,4 +65,9 @@ public class SharingProfileObjectTranslator
 
     }
 
+    @Override
+    public boolean matches(SharingProfile object, String filter) {
+        return super.matches(object, filter) || contains(object.getName(), filter);
+    }
+
 }
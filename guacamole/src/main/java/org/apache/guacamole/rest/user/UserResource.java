@@ -19,6 +19,7 @@
 
 package org.apache.guacamole.rest.user;
 
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import java.util.ArrayList;
@@ -30,7 +31,10 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.GuacamoleSecurityException;
 import org.apache.guacamole.net.auth.ActivityRecord;
@@ -40,12 +44,15 @@ import org.apache.guacamole.net.auth.User;
 import org.apache.guacamole.net.auth.Directory;
 import org.apache.guacamole.net.auth.UserContext;
 import org.apache.guacamole.net.auth.credentials.GuacamoleCredentialsException;
+import org.apache.guacamole.rest.EntityTags;
+import org.apache.guacamole.rest.auth.CredentialVerificationCache;
 import org.apache.guacamole.rest.directory.DirectoryObjectResource;
 import org.apache.guacamole.rest.directory.DirectoryObjectTranslator;
 import org.apache.guacamole.rest.history.APIActivityRecord;
 import org.apache.guacamole.rest.identifier.RelatedObjectSetResource;
 import org.apache.guacamole.rest.permission.APIPermissionSet;
 import org.apache.guacamole.rest.permission.PermissionSetResource;
+import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
 
 /**
  * A REST resource which abstracts the operations available on an existing
@@ -73,6 +80,19 @@ public class UserResource
      */
     private final User user;
 
+    /**
+     * Cache of recently-rejected credentials, which must be cleared of any
+     * rejections for this user if the user changes.
+     */
+    private final CredentialVerificationCache credentialCache;
+
+    /**
+     * The provider used by Jersey to serialize JSON responses, used to
+     * serialize responses whose ETags are derived from their content.
+     */
+    @Inject
+    private JacksonJsonProvider jsonProvider;
+
     /**
      * Creates a new UserResource which exposes the operations and subresources
      * available for the given User.
@@ -88,16 +108,21 @@ public class UserResource
      *
      * @param translator
      *     A DirectoryObjectTranslator implementation which handles Users.
+     *
+     * @param credentialCache
+     *     The cache of recently-rejected credentials.
      */
     @AssistedInject
     public UserResource(@Assisted UserContext userContext,
             @Assisted Directory<User> directory,
             @Assisted User user,
-            DirectoryObjectTranslator<User, APIUser> translator) {
+            DirectoryObjectTranslator<User, APIUser> translator,
+            CredentialVerificationCache credentialCache) {
         super(userContext, directory, user, translator);
         this.userContext = userContext;
         this.directory = directory;
         this.user = user;
+        this.credentialCache = credentialCache;
     }
 
     /**
@@ -133,7 +158,14 @@ public class UserResource
             throw new GuacamoleSecurityException("Permission denied.");
 
         super.updateObject(modifiedObject);
+        credentialCache.invalidate(user.getIdentifier());
+
+    }
 
+    @Override
+    public void deleteObject() throws GuacamoleException {
+        super.deleteObject();
+        credentialCache.invalidate(user.getIdentifier());
     }
 
     /**
@@ -173,6 +205,7 @@ public class UserResource
         // Set password to the newly provided one
         user.setPassword(userPasswordUpdate.getNewPassword());
         directory.update(user);
+        credentialCache.invalidate(user.getIdentifier());
 
     }
 
@@ -192,19 +225,36 @@ public class UserResource
 
     /**
      * Returns a read-only view of the permissions effectively granted to this
-     * user, including permissions which may be inherited or implied.
+     * user, including permissions which may be inherited or implied. If the
+     * client already has the current version of these permissions, as
+     * indicated by the If-None-Match header, a "304 Not Modified" response is
+     * returned instead.
+     *
+     * @param request
+     *     The request being handled, for the sake of evaluating any
+     *     If-None-Match header.
      *
      * @return
-     *     A read-only view of the permissions effectively granted to this
-     *     user.
+     *     A response containing a read-only view of the permissions
+     *     effectively granted to this user, or a "304 Not Modified" response.
      *
      * @throws GuacamoleException
      *     If the effective permissions for this user cannot be retrieved.
      */
     @GET
     @Path("effectivePermissions")
-    public APIPermissionSet getEffectivePermissions() throws GuacamoleException {
-        return new APIPermissionSet(user.getEffectivePermissions());
+    public Response getEffectivePermissions(@Context Request request)
+            throws GuacamoleException {
+
+        // Skip retrieval entirely if the client's copy is current
+        EntityTag tag = EntityTags.getVersionTag(userContext);
+        Response notModified = EntityTags.evaluate(request, tag);
+        if (notModified != null)
+            return notModified;
+
+        return EntityTags.respond(request, jsonProvider, tag,
+                new APIPermissionSet(user.getEffectivePermissions()));
+
     }
 
     /**
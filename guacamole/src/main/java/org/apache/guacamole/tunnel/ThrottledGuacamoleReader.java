@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleServerException;
+import org.apache.guacamole.io.GuacamoleReader;
+import org.apache.guacamole.protocol.GuacamoleInstruction;
+
+/**
+ * GuacamoleReader which limits the rate at which instruction data may be read
+ * from an underlying GuacamoleReader. Data read is charged against an
+ * optional per-tunnel TokenBucket and an optional TokenBucket shared by all
+ * tunnels. Reads which fit within a small per-tunnel interactive allowance
+ * are charged against the shared bucket without waiting, such that
+ * low-bandwidth, latency-sensitive sessions (keyboard echo, cursor updates)
+ * are not delayed behind bulk flows. Because read() blocks while throttled,
+ * excess data remains buffered within the underlying socket, pushing back on
+ * guacd rather than accumulating within the web application.
+ */
+public class ThrottledGuacamoleReader implements GuacamoleReader {
+
+    /**
+     * The wrapped GuacamoleReader.
+     */
+    private final GuacamoleReader reader;
+
+    /**
+     * The bucket limiting the bandwidth of this tunnel alone, or null if
+     * this tunnel has no bandwidth limit of its own.
+     */
+    private final TokenBucket tunnelBucket;
+
+    /**
+     * The bucket limiting the combined bandwidth of all tunnels, or null if
+     * there is no such limit.
+     */
+    private final TokenBucket sharedBucket;
+
+    /**
+     * The bucket tracking the interactive allowance of this tunnel. Reads
+     * which can be satisfied from this bucket are considered interactive and
+     * are not delayed by contention for the shared bucket. This will be null
+     * if there is no shared bucket.
+     */
+    private final TokenBucket interactiveBucket;
+
+    /**
+     * The service which should be informed of any delay imposed by this
+     * reader.
+     */
+    private final TunnelBandwidthService bandwidthService;
+
+    /**
+     * Creates a new ThrottledGuacamoleReader which wraps the given reader,
+     * limiting the rate of data read using the given buckets.
+     *
+     * @param reader
+     *     The GuacamoleReader to wrap.
+     *
+     * @param tunnelBucket
+     *     The bucket limiting the bandwidth of the tunnel being read, or null
+     *     if that tunnel has no bandwidth limit of its own.
+     *
+     * @param sharedBucket
+     *     The bucket limiting the combined bandwidth of all tunnels, or null
+     *     if there is no such limit.
+     *
+     * @param interactiveBucket
+     *     The bucket defining the interactive allowance of the tunnel being
+     *     read, or null if reads should never be considered interactive.
+     *
+     * @param bandwidthService
+     *     The service which should be informed of any delay imposed by this
+     *     reader.
+     */
+    public ThrottledGuacamoleReader(GuacamoleReader reader,
+            TokenBucket tunnelBucket, TokenBucket sharedBucket,
+            TokenBucket interactiveBucket,
+            TunnelBandwidthService bandwidthService) {
+        this.reader = reader;
+        this.tunnelBucket = tunnelBucket;
+        this.sharedBucket = sharedBucket;
+        this.interactiveBucket = interactiveBucket;
+        this.bandwidthService = bandwidthService;
+    }
+
+    /**
+     * Charges the given number of characters against all applicable buckets,
+     * blocking for as long as necessary to remain within the configured
+     * limits.
+     *
+     * @param length
+     *     The number of characters read.
+     *
+     * @throws GuacamoleException
+     *     If the current thread is interrupted while waiting.
+     */
+    private void throttle(int length) throws GuacamoleException {
+
+        long delay = 0;
+
+        // Per-tunnel limit always applies
+        if (tunnelBucket != null)
+            delay = tunnelBucket.consume(length);
+
+        // Interactive reads are charged against the shared limit, but only
+        // bulk reads wait for it
+        if (sharedBucket != null) {
+            if (interactiveBucket != null && interactiveBucket.tryConsume(length))
+                sharedBucket.consume(length);
+            else
+                delay = Math.max(delay, sharedBucket.consume(length));
+        }
+
+        // Nothing further to do if within limits
+        if (delay == 0)
+            return;
+
+        bandwidthService.recordThrottle(delay);
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GuacamoleServerException("Interrupted while throttling tunnel.", e);
+        }
+
+    }
+
+    @Override
+    public boolean available() throws GuacamoleException {
+        return reader.available();
+    }
+
+    @Override
+    public char[] read() throws GuacamoleException {
+
+        char[] buffer = reader.read();
+        if (buffer != null)
+            throttle(buffer.length);
+
+        return buffer;
+
+    }
+
+    @Override
+    public GuacamoleInstruction readInstruction() throws GuacamoleException {
+
+        GuacamoleInstruction instruction = reader.readInstruction();
+        if (instruction != null)
+            throttle(instruction.toString().length());
+
+        return instruction;
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel;
+
+import org.apache.guacamole.io.GuacamoleReader;
+import org.apache.guacamole.net.DelegatingGuacamoleTunnel;
+import org.apache.guacamole.net.GuacamoleTunnel;
+
+/**
+ * GuacamoleTunnel implementation which limits the rate at which data may be
+ * read from the wrapped tunnel, as defined by the TokenBuckets provided upon
+ * construction.
+ *
+ * @see ThrottledGuacamoleReader
+ */
+public class ThrottledGuacamoleTunnel extends DelegatingGuacamoleTunnel {
+
+    /**
+     * The bucket limiting the bandwidth of this tunnel alone, or null if
+     * this tunnel has no bandwidth limit of its own.
+     */
+    private final TokenBucket tunnelBucket;
+
+    /**
+     * The bucket limiting the combined bandwidth of all tunnels, or null if
+     * there is no such limit.
+     */
+    private final TokenBucket sharedBucket;
+
+    /**
+     * The bucket tracking the interactive allowance of this tunnel, or null
+     * if reads from this tunnel should never be considered interactive.
+     */
+    private final TokenBucket interactiveBucket;
+
+    /**
+     * The service which should be informed of any delay imposed while
+     * reading from this tunnel.
+     */
+    private final TunnelBandwidthService bandwidthService;
+
+    /**
+     * Creates a new ThrottledGuacamoleTunnel which wraps the given tunnel,
+     * limiting the rate at which data may be read using the given buckets.
+     *
+     * @param tunnel
+     *     The GuacamoleTunnel to wrap.
+     *
+     * @param tunnelBucket
+     *     The bucket limiting the bandwidth of this tunnel alone, or null if
+     *     this tunnel has no bandwidth limit of its own.
+     *
+     * @param sharedBucket
+     *     The bucket limiting the combined bandwidth of all tunnels, or null
+     *     if there is no such limit.
+     *
+     * @param interactiveBucket
+     *     The bucket defining the interactive allowance of this tunnel, or
+     *     null if reads should never be considered interactive.
+     *
+     * @param bandwidthService
+     *     The service which should be informed of any delay imposed while
+     *     reading from this tunnel.
+     */
+    public ThrottledGuacamoleTunnel(GuacamoleTunnel tunnel,
+            TokenBucket tunnelBucket, TokenBucket sharedBucket,
+            TokenBucket interactiveBucket,
+            TunnelBandwidthService bandwidthService) {
+        super(tunnel);
+        this.tunnelBucket = tunnelBucket;
+        this.sharedBucket = sharedBucket;
+        this.interactiveBucket = interactiveBucket;
+        this.bandwidthService = bandwidthService;
+    }
+
+    @Override
+    public GuacamoleReader acquireReader() {
+        return new ThrottledGuacamoleReader(super.acquireReader(),
+                tunnelBucket, sharedBucket, interactiveBucket,
+                bandwidthService);
+    }
+
+}
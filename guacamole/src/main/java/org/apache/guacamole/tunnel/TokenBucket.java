@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel;
+
+/**
+ * A token bucket which limits the rate at which some quantity (such as
+ * characters of Guacamole protocol data) may be consumed. Tokens are refilled
+ * continuously at a fixed rate up to a fixed capacity. Consumption is
+ * implemented through reservation: consuming more tokens than are available
+ * places the bucket into debt, and the caller is informed how long it must
+ * wait before that debt is repaid. Waiting is left to the caller such that no
+ * lock is held while sleeping.
+ */
+public class TokenBucket {
+
+    /**
+     * The number of nanoseconds in one second.
+     */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /**
+     * The number of tokens added to this bucket per second.
+     */
+    private final long rate;
+
+    /**
+     * The maximum number of tokens this bucket may hold.
+     */
+    private final long capacity;
+
+    /**
+     * The number of tokens currently within this bucket. This value may be
+     * negative if more tokens have been reserved than were available.
+     */
+    private double tokens;
+
+    /**
+     * The value of System.nanoTime() at the time this bucket was last
+     * refilled.
+     */
+    private long lastRefill;
+
+    /**
+     * Creates a new TokenBucket which refills at the given rate and holds at
+     * most the given number of tokens. The bucket is initially full.
+     *
+     * @param rate
+     *     The number of tokens added to the bucket per second. This value
+     *     must be positive.
+     *
+     * @param capacity
+     *     The maximum number of tokens the bucket may hold, and thus the
+     *     largest burst which may be consumed without waiting. This value
+     *     must be positive.
+     */
+    public TokenBucket(long rate, long capacity) {
+
+        if (rate <= 0)
+            throw new IllegalArgumentException("Token bucket rate must be positive.");
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Token bucket capacity must be positive.");
+
+        this.rate = rate;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+
+    }
+
+    /**
+     * Returns the number of tokens added to this bucket per second.
+     *
+     * @return
+     *     The number of tokens added to this bucket per second.
+     */
+    public long getRate() {
+        return rate;
+    }
+
+    /**
+     * Returns the maximum number of tokens this bucket may hold.
+     *
+     * @return
+     *     The maximum number of tokens this bucket may hold.
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds any tokens accumulated since the last refill, up to the capacity
+     * of this bucket. This function must be invoked while synchronized on
+     * this bucket.
+     */
+    private void refill() {
+
+        long now = System.nanoTime();
+        long elapsed = now - lastRefill;
+        lastRefill = now;
+
+        tokens = Math.min(capacity, tokens + (double) elapsed * rate / NANOS_PER_SECOND);
+
+    }
+
+    /**
+     * Attempts to consume the given number of tokens without entering debt.
+     * If insufficient tokens are available, the state of this bucket is left
+     * unchanged.
+     *
+     * @param amount
+     *     The number of tokens to consume.
+     *
+     * @return
+     *     true if the tokens were available and have been consumed, false
+     *     otherwise.
+     */
+    public synchronized boolean tryConsume(long amount) {
+
+        refill();
+
+        if (tokens < amount)
+            return false;
+
+        tokens -= amount;
+        return true;
+
+    }
+
+    /**
+     * Consumes the given number of tokens unconditionally, entering debt if
+     * insufficient tokens are available, and returns the amount of time the
+     * caller should wait before the consumed tokens would have been
+     * available. Any debt incurred here will also delay future consumers.
+     *
+     * @param amount
+     *     The number of tokens to consume.
+     *
+     * @return
+     *     The number of nanoseconds the caller should wait before proceeding,
+     *     or zero if the tokens were available immediately.
+     */
+    public synchronized long consume(long amount) {
+
+        refill();
+        tokens -= amount;
+
+        // No need to wait if bucket is not in debt
+        if (tokens >= 0)
+            return 0;
+
+        return (long) (-tokens * NANOS_PER_SECOND / rate);
+
+    }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.environment.Environment;
+import org.apache.guacamole.net.GuacamoleTunnel;
+import org.apache.guacamole.net.auth.Attributes;
+import org.apache.guacamole.net.auth.Connectable;
+import org.apache.guacamole.properties.LongGuacamoleProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service which applies bandwidth limits to newly-connected tunnels. Limits
+ * may be defined for each tunnel individually, through the
+ * "tunnel-bandwidth-limit" property or the "bandwidth-limit" attribute of the
+ * connection or connection group being connected to, and for all tunnels
+ * combined, through the "total-tunnel-bandwidth-limit" property. All limits
+ * are expressed in characters of Guacamole protocol data per second.
+ */
+@Singleton
+public class TunnelBandwidthService {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(TunnelBandwidthService.class);
+
+    /**
+     * The name of the connection or connection group attribute which
+     * overrides the per-tunnel bandwidth limit, in characters per second. A
+     * value of zero disables the per-tunnel limit for that connection or
+     * connection group.
+     */
+    public static final String BANDWIDTH_LIMIT_ATTRIBUTE = "bandwidth-limit";
+
+    /**
+     * The default interactive allowance of each tunnel, in characters per
+     * second, if not specified within guacamole.properties.
+     */
+    private static final long DEFAULT_INTERACTIVE_BANDWIDTH = 32768;
+
+    /**
+     * The maximum bandwidth of each tunnel, in characters per second, unless
+     * overridden by the "bandwidth-limit" attribute. By default, tunnels
+     * have no individual limit.
+     */
+    private final LongGuacamoleProperty TUNNEL_BANDWIDTH_LIMIT =
+            new LongGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "tunnel-bandwidth-limit"; }
+
+    };
+
+    /**
+     * The maximum combined bandwidth of all tunnels, in characters per
+     * second. By default, there is no combined limit.
+     */
+    private final LongGuacamoleProperty TOTAL_TUNNEL_BANDWIDTH_LIMIT =
+            new LongGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "total-tunnel-bandwidth-limit"; }
+
+    };
+
+    /**
+     * The rate, in characters per second, at which a tunnel may read data
+     * while still being considered interactive. Reads from interactive
+     * tunnels are not delayed by the combined bandwidth limit.
+     */
+    private final LongGuacamoleProperty TUNNEL_INTERACTIVE_BANDWIDTH =
+            new LongGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "tunnel-interactive-bandwidth"; }
+
+    };
+
+    /**
+     * The default per-tunnel bandwidth limit, in characters per second, or
+     * zero if tunnels have no individual limit by default.
+     */
+    private final long defaultTunnelLimit;
+
+    /**
+     * The interactive allowance of each tunnel, in characters per second, or
+     * zero if tunnels are never considered interactive.
+     */
+    private final long interactiveBandwidth;
+
+    /**
+     * The bucket shared by all tunnels, or null if there is no combined
+     * bandwidth limit.
+     */
+    private final TokenBucket sharedBucket;
+
+    /**
+     * The total number of reads which have been delayed due to bandwidth
+     * limits.
+     */
+    private final LongAdder throttleCount = new LongAdder();
+
+    /**
+     * The total amount of time reads have been delayed due to bandwidth
+     * limits, in nanoseconds.
+     */
+    private final LongAdder throttleTime = new LongAdder();
+
+    /**
+     * Creates a new TunnelBandwidthService which applies the bandwidth limits
+     * defined within guacamole.properties.
+     *
+     * @param environment
+     *     The Guacamole server environment.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read or the configured limits are
+     *     invalid.
+     */
+    @Inject
+    public TunnelBandwidthService(Environment environment)
+            throws GuacamoleException {
+
+        defaultTunnelLimit = environment.getProperty(TUNNEL_BANDWIDTH_LIMIT, 0L);
+        interactiveBandwidth = environment.getProperty(TUNNEL_INTERACTIVE_BANDWIDTH,
+                DEFAULT_INTERACTIVE_BANDWIDTH);
+
+        // Allow up to one second of burst for the combined limit
+        long totalLimit = environment.getProperty(TOTAL_TUNNEL_BANDWIDTH_LIMIT, 0L);
+        if (totalLimit > 0) {
+            sharedBucket = new TokenBucket(totalLimit, totalLimit);
+            logger.info("Combined tunnel bandwidth will be limited to {} "
+                    + "characters per second.", totalLimit);
+        }
+        else
+            sharedBucket = null;
+
+    }
+
+    /**
+     * Returns the per-tunnel bandwidth limit which applies to tunnels
+     * connected to the given object, taking the "bandwidth-limit" attribute
+     * into account.
+     *
+     * @param connectable
+     *     The connection, connection group, or active connection being
+     *     connected to.
+     *
+     * @return
+     *     The per-tunnel bandwidth limit, in characters per second, or zero
+     *     if no per-tunnel limit applies.
+     */
+    private long getTunnelLimit(Connectable connectable) {
+
+        // Only connections and groups may override the default
+        if (!(connectable instanceof Attributes))
+            return defaultTunnelLimit;
+
+        Map<String, String> attributes = ((Attributes) connectable).getAttributes();
+        if (attributes == null)
+            return defaultTunnelLimit;
+
+        String value = attributes.get(BANDWIDTH_LIMIT_ATTRIBUTE);
+        if (value == null || value.isEmpty())
+            return defaultTunnelLimit;
+
+        try {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e) {
+            logger.warn("Ignoring invalid \"{}\" attribute value \"{}\".",
+                    BANDWIDTH_LIMIT_ATTRIBUTE, value);
+            return defaultTunnelLimit;
+        }
+
+    }
+
+    /**
+     * Wraps the given tunnel such that reads are limited by the bandwidth
+     * limits which apply to the given connection, connection group, or
+     * active connection. If no limits apply, the tunnel is returned as-is.
+     *
+     * @param connectable
+     *     The connection, connection group, or active connection that the
+     *     given tunnel is connected to.
+     *
+     * @param tunnel
+     *     The tunnel to wrap.
+     *
+     * @return
+     *     A tunnel which delegates to the given tunnel while applying all
+     *     relevant bandwidth limits, or the given tunnel if no limits apply.
+     */
+    public GuacamoleTunnel limit(Connectable connectable, GuacamoleTunnel tunnel) {
+
+        long tunnelLimit = getTunnelLimit(connectable);
+
+        // Skip throttling entirely if there are no limits
+        if (tunnelLimit <= 0 && sharedBucket == null)
+            return tunnel;
+
+        // Allow up to one second of burst for each tunnel
+        TokenBucket tunnelBucket = null;
+        if (tunnelLimit > 0)
+            tunnelBucket = new TokenBucket(tunnelLimit, tunnelLimit);
+
+        // Interactive allowance is only meaningful if tunnels compete for a
+        // combined limit
+        TokenBucket interactiveBucket = null;
+        if (sharedBucket != null && interactiveBandwidth > 0)
+            interactiveBucket = new TokenBucket(interactiveBandwidth, interactiveBandwidth);
+
+        logger.debug("Tunnel \"{}\" will be limited to {} characters per "
+                + "second.", tunnel.getUUID(), tunnelLimit > 0 ? tunnelLimit : "unlimited");
+
+        return new ThrottledGuacamoleTunnel(tunnel, tunnelBucket, sharedBucket,
+                interactiveBucket, this);
+
+    }
+
+    /**
+     * Records that a read has been delayed by the given amount of time due to
+     * bandwidth limits.
+     *
+     * @param delay
+     *     The amount of time the read was delayed, in nanoseconds.
+     */
+    public void recordThrottle(long delay) {
+        throttleCount.increment();
+        throttleTime.add(delay);
+    }
+
+    /**
+     * Returns the total number of tunnel reads which have been delayed due to
+     * bandwidth limits.
+     *
+     * @return
+     *     The total number of tunnel reads which have been delayed.
+     */
+    public long getThrottleCount() {
+        return throttleCount.sum();
+    }
+
+    /**
+     * Returns the total amount of time tunnel reads have been delayed due to
+     * bandwidth limits.
+     *
+     * @return
+     *     The total amount of time tunnel reads have been delayed, in
+     *     milliseconds.
+     */
+    public long getThrottleTime() {
+        return TimeUnit.NANOSECONDS.toMillis(throttleTime.sum());
+    }
+
+}
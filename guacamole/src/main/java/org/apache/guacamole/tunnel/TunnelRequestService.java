@@ -27,6 +27,7 @@ import org.apache.guacamole.GuacamoleException;
 import org.apache.guacamole.GuacamoleResourceNotFoundException;
 import org.apache.guacamole.GuacamoleSession;
 import org.apache.guacamole.GuacamoleUnauthorizedException;
+import org.apache.guacamole.metrics.MetricsService;
 import org.apache.guacamole.net.GuacamoleTunnel;
 import org.apache.guacamole.net.auth.AuthenticatedUser;
 import org.apache.guacamole.net.auth.Connectable;
@@ -34,9 +35,11 @@ import org.apache.guacamole.net.auth.Credentials;
 import org.apache.guacamole.net.auth.UserContext;
 import org.apache.guacamole.net.event.TunnelCloseEvent;
 import org.apache.guacamole.net.event.TunnelConnectEvent;
+import org.apache.guacamole.rest.activeconnection.ActiveConnectionChangeFeed;
 import org.apache.guacamole.rest.auth.AuthenticationService;
 import org.apache.guacamole.protocol.GuacamoleClientInformation;
 import org.apache.guacamole.rest.event.ListenerService;
+import org.apache.guacamole.tunnel.recording.SessionRecordingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,6 +70,32 @@ public class TunnelRequestService {
     @Inject
     private ListenerService listenerService;
 
+    /**
+     * A service for applying bandwidth limits to connected tunnels.
+     */
+    @Inject
+    private TunnelBandwidthService bandwidthService;
+
+    /**
+     * A service for recording the protocol data sent along connected
+     * tunnels.
+     */
+    @Inject
+    private SessionRecordingService recordingService;
+
+    /**
+     * The feed of changes to active connections, which must be notified of
+     * each tunnel connected or closed.
+     */
+    @Inject
+    private ActiveConnectionChangeFeed changeFeed;
+
+    /**
+     * Service for recording the number of open tunnels.
+     */
+    @Inject
+    private MetricsService metricsService;
+
     /**
      * Notifies bound listeners that a new tunnel has been connected.
      * Listeners may veto a connected tunnel by throwing any GuacamoleException.
@@ -216,7 +245,12 @@ public class TunnelRequestService {
         GuacamoleTunnel tunnel = connectable.connect(info, tokens);
         logger.info("User \"{}\" connected to {} \"{}\".",
                 context.self().getIdentifier(), type.NAME, id);
-        return tunnel;
+
+        // Apply any bandwidth limits to the connected tunnel
+        tunnel = bandwidthService.limit(connectable, tunnel);
+
+        // Record connected tunnel, if enabled
+        return recordingService.record(tunnel);
 
     }
 
@@ -287,8 +321,16 @@ public class TunnelRequestService {
                 try {
 
                     // Close and clean up tunnel
-                    session.removeTunnel(getUUID().toString());
-                    super.close();
+                    String uuid = getUUID().toString();
+                    boolean removed = session.removeTunnel(uuid);
+                    try {
+                        super.close();
+                    }
+                    finally {
+                        changeFeed.disconnected(uuid);
+                        if (removed)
+                            metricsService.tunnelClosed();
+                    }
 
                 }
 
@@ -351,7 +393,12 @@ public class TunnelRequestService {
             fireTunnelConnectEvent(authenticatedUser, authenticatedUser.getCredentials(), tunnel);
 
             // Associate tunnel with session
-            return createAssociatedTunnel(tunnel, authToken, session, userContext, type, id);
+            GuacamoleTunnel associatedTunnel = createAssociatedTunnel(tunnel,
+                    authToken, session, userContext, type, id);
+
+            changeFeed.connected(associatedTunnel.getUUID().toString());
+            metricsService.tunnelOpened();
+            return associatedTunnel;
 
         }
 
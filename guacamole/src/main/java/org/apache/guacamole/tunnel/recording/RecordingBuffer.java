@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel.recording;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free ring buffer of bytes supporting exactly one producer
+ * thread and exactly one consumer thread. The producer appends data with
+ * write(), while the consumer removes data with drainTo(), writing directly
+ * from the backing array to a channel without further copies.
+ */
+public class RecordingBuffer {
+
+    /**
+     * The array backing this ring buffer. The length of this array is always
+     * a power of two.
+     */
+    private final byte[] buffer;
+
+    /**
+     * Bitmask which maps an absolute position to an offset within the
+     * backing array.
+     */
+    private final int mask;
+
+    /**
+     * The absolute position at which the producer will next write. Only the
+     * producer modifies this value.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The absolute position from which the consumer will next read. Only the
+     * consumer modifies this value.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates a new RecordingBuffer which can hold at least the given number
+     * of bytes. The actual capacity is rounded up to the nearest power of
+     * two.
+     *
+     * @param capacity
+     *     The minimum number of bytes the buffer must be able to hold.
+     */
+    public RecordingBuffer(int capacity) {
+
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Buffer capacity must be positive.");
+
+        // Round up to nearest power of two
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        this.buffer = new byte[size];
+        this.mask = size - 1;
+
+    }
+
+    /**
+     * Returns the total number of bytes this buffer can hold.
+     *
+     * @return
+     *     The total number of bytes this buffer can hold.
+     */
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Returns the number of bytes currently stored within this buffer and
+     * awaiting removal by the consumer.
+     *
+     * @return
+     *     The number of bytes currently stored within this buffer.
+     */
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    /**
+     * Returns the number of bytes which may currently be written without
+     * overwriting data not yet removed by the consumer. As only the consumer
+     * may remove data, the value returned to the producer can only grow until
+     * the producer writes.
+     *
+     * @return
+     *     The number of bytes which may currently be written.
+     */
+    public int remaining() {
+        return buffer.length - size();
+    }
+
+    /**
+     * Writes as many of the given bytes as will currently fit within this
+     * buffer. This function may only be invoked by the producer thread.
+     *
+     * @param data
+     *     The array containing the bytes to write.
+     *
+     * @param offset
+     *     The offset of the first byte to write.
+     *
+     * @param length
+     *     The number of bytes to write.
+     *
+     * @return
+     *     The number of bytes actually written, which may be less than the
+     *     number requested if the buffer is full.
+     */
+    public int write(byte[] data, int offset, int length) {
+
+        long position = head.get();
+        int written = Math.min(length, buffer.length - (int) (position - tail.get()));
+        if (written <= 0)
+            return 0;
+
+        // Copy data, wrapping around the end of the backing array if needed
+        int start = (int) (position & mask);
+        int firstPart = Math.min(written, buffer.length - start);
+        System.arraycopy(data, offset, buffer, start, firstPart);
+        System.arraycopy(data, offset + firstPart, buffer, 0, written - firstPart);
+
+        // Publish written data to consumer
+        head.lazySet(position + written);
+        return written;
+
+    }
+
+    /**
+     * Removes all bytes currently stored within this buffer, writing them to
+     * the given channel. Data is written directly from the backing array in
+     * at most two writes. This function may only be invoked by the consumer
+     * thread.
+     *
+     * @param channel
+     *     The channel to write all stored bytes to.
+     *
+     * @return
+     *     The number of bytes written to the channel.
+     *
+     * @throws IOException
+     *     If an error occurs while writing to the channel.
+     */
+    public int drainTo(WritableByteChannel channel) throws IOException {
+
+        long position = tail.get();
+        int length = (int) (head.get() - position);
+        if (length == 0)
+            return 0;
+
+        // Write data, wrapping around the end of the backing array if needed
+        int start = (int) (position & mask);
+        int firstPart = Math.min(length, buffer.length - start);
+        writeFully(channel, ByteBuffer.wrap(buffer, start, firstPart));
+        if (firstPart < length)
+            writeFully(channel, ByteBuffer.wrap(buffer, 0, length - firstPart));
+
+        // Release space to producer
+        tail.lazySet(position + length);
+        return length;
+
+    }
+
+    /**
+     * Writes the entire contents of the given ByteBuffer to the given
+     * channel, blocking until all data has been written.
+     *
+     * @param channel
+     *     The channel to write to.
+     *
+     * @param data
+     *     The data to write.
+     *
+     * @throws IOException
+     *     If an error occurs while writing to the channel.
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer data)
+            throws IOException {
+        while (data.hasRemaining())
+            channel.write(data);
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel.recording;
+
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.io.GuacamoleReader;
+import org.apache.guacamole.protocol.GuacamoleInstruction;
+
+/**
+ * GuacamoleReader which copies all data read from an underlying
+ * GuacamoleReader into a SessionRecording.
+ */
+public class RecordingGuacamoleReader implements GuacamoleReader {
+
+    /**
+     * The wrapped GuacamoleReader.
+     */
+    private final GuacamoleReader reader;
+
+    /**
+     * The recording receiving a copy of all data read.
+     */
+    private final SessionRecording recording;
+
+    /**
+     * Creates a new RecordingGuacamoleReader which wraps the given reader,
+     * copying all data read into the given recording.
+     *
+     * @param reader
+     *     The GuacamoleReader to wrap.
+     *
+     * @param recording
+     *     The recording which should receive a copy of all data read.
+     */
+    public RecordingGuacamoleReader(GuacamoleReader reader,
+            SessionRecording recording) {
+        this.reader = reader;
+        this.recording = recording;
+    }
+
+    @Override
+    public boolean available() throws GuacamoleException {
+        return reader.available();
+    }
+
+    @Override
+    public char[] read() throws GuacamoleException {
+
+        char[] buffer = reader.read();
+        if (buffer != null)
+            recording.append(buffer);
+
+        return buffer;
+
+    }
+
+    @Override
+    public GuacamoleInstruction readInstruction() throws GuacamoleException {
+
+        GuacamoleInstruction instruction = reader.readInstruction();
+        if (instruction != null)
+            recording.append(instruction.toString().toCharArray());
+
+        return instruction;
+
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel.recording;
+
+/**
+ * All behaviors which may be applied when a session recording cannot keep up
+ * with the tunnel being recorded.
+ */
+public enum RecordingOverflowPolicy {
+
+    /**
+     * Data which does not fit within the recording buffer is dropped from
+     * the recording and counted. The tunnel itself is never delayed.
+     */
+    DROP,
+
+    /**
+     * The tunnel waits until sufficient space is available within the
+     * recording buffer, such that no data is ever dropped from the
+     * recording.
+     */
+    BLOCK
+
+}
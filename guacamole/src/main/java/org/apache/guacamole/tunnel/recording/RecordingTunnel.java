@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel.recording;
+
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.io.GuacamoleReader;
+import org.apache.guacamole.net.DelegatingGuacamoleTunnel;
+import org.apache.guacamole.net.GuacamoleTunnel;
+
+/**
+ * GuacamoleTunnel implementation which copies all data read from the wrapped
+ * tunnel into a SessionRecording. The recording is closed when the tunnel is
+ * closed.
+ */
+public class RecordingTunnel extends DelegatingGuacamoleTunnel {
+
+    /**
+     * The recording receiving a copy of all data read from this tunnel.
+     */
+    private final SessionRecording recording;
+
+    /**
+     * Creates a new RecordingTunnel which wraps the given tunnel, copying all
+     * data read into the given recording.
+     *
+     * @param tunnel
+     *     The GuacamoleTunnel to wrap.
+     *
+     * @param recording
+     *     The recording which should receive a copy of all data read.
+     */
+    public RecordingTunnel(GuacamoleTunnel tunnel, SessionRecording recording) {
+        super(tunnel);
+        this.recording = recording;
+    }
+
+    @Override
+    public GuacamoleReader acquireReader() {
+        return new RecordingGuacamoleReader(super.acquireReader(), recording);
+    }
+
+    @Override
+    public void close() throws GuacamoleException {
+        try {
+            super.close();
+        }
+        finally {
+            recording.close();
+        }
+    }
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel.recording;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The recording of a single tunnel. Protocol data read from the tunnel is
+ * appended to a RecordingBuffer by the thread reading the tunnel, and later
+ * drained to the recording file by the writer thread of the
+ * SessionRecordingService. Appending never performs I/O.
+ */
+public class SessionRecording {
+
+    /**
+     * The amount of time to wait between attempts to append data to a full
+     * buffer when the BLOCK overflow policy is in effect, in nanoseconds.
+     */
+    private static final long BLOCK_WAIT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The initial size of the buffer used to encode appended data, in bytes.
+     */
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 8192;
+
+    /**
+     * The name of the file being written, for the sake of logging.
+     */
+    private final String name;
+
+    /**
+     * The ring buffer containing data which has been appended but not yet
+     * written.
+     */
+    private final RecordingBuffer buffer;
+
+    /**
+     * The behavior to apply if data cannot be appended because the buffer is
+     * full.
+     */
+    private final RecordingOverflowPolicy overflowPolicy;
+
+    /**
+     * The channel to which all recorded data is ultimately written.
+     */
+    private final WritableByteChannel output;
+
+    /**
+     * The service which owns the writer thread draining this recording.
+     */
+    private final SessionRecordingService recordingService;
+
+    /**
+     * The encoder used to convert appended protocol data to UTF-8. This
+     * encoder is used only by the producer thread.
+     */
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * Reusable buffer into which appended data is encoded prior to being
+     * copied into the ring buffer. This buffer is used only by the producer
+     * thread, and grows as necessary.
+     */
+    private ByteBuffer encoded = ByteBuffer.allocate(INITIAL_ENCODE_BUFFER_SIZE);
+
+    /**
+     * Whether the tunnel being recorded has been closed, such that no further
+     * data will be appended.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Whether the output channel of this recording has been closed, such
+     * that any further data should be discarded.
+     */
+    private volatile boolean finished = false;
+
+    /**
+     * Creates a new SessionRecording which writes all appended data to the
+     * given channel.
+     *
+     * @param name
+     *     A human-readable name for the recording, such as its filename.
+     *
+     * @param output
+     *     The channel to which all recorded data should be written.
+     *
+     * @param bufferSize
+     *     The number of bytes which may be appended before the writer thread
+     *     must catch up.
+     *
+     * @param overflowPolicy
+     *     The behavior to apply if data cannot be appended because the
+     *     buffer is full.
+     *
+     * @param recordingService
+     *     The service which owns the writer thread draining this recording.
+     */
+    public SessionRecording(String name, WritableByteChannel output,
+            int bufferSize, RecordingOverflowPolicy overflowPolicy,
+            SessionRecordingService recordingService) {
+        this.name = name;
+        this.output = output;
+        this.buffer = new RecordingBuffer(bufferSize);
+        this.overflowPolicy = overflowPolicy;
+        this.recordingService = recordingService;
+    }
+
+    /**
+     * Returns the human-readable name of this recording.
+     *
+     * @return
+     *     The human-readable name of this recording.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Encodes the given protocol data as UTF-8 into the reusable encoding
+     * buffer, growing that buffer if necessary.
+     *
+     * @param data
+     *     The protocol data to encode.
+     */
+    private void encode(char[] data) {
+
+        int maxLength = (int) Math.ceil(data.length * (double) encoder.maxBytesPerChar());
+        if (encoded.capacity() < maxLength)
+            encoded = ByteBuffer.allocate(maxLength);
+
+        encoded.clear();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(data), encoded, true);
+        encoder.flush(encoded);
+
+    }
+
+    /**
+     * Appends the given protocol data to this recording. Depending on the
+     * overflow policy, this function will either drop the data or wait if
+     * the buffer is full. This function may only be invoked by the thread
+     * reading from the recorded tunnel.
+     *
+     * @param data
+     *     The protocol data to append.
+     */
+    public void append(char[] data) {
+
+        if (closed || finished)
+            return;
+
+        encode(data);
+        byte[] bytes = encoded.array();
+        int length = encoded.position();
+
+        // Drop entire reads rather than fragments of instructions
+        if (overflowPolicy == RecordingOverflowPolicy.DROP) {
+            if (buffer.remaining() < length) {
+                recordingService.recordDropped(length);
+                recordingService.wakeWriter();
+                return;
+            }
+            buffer.write(bytes, 0, length);
+        }
+
+        // Otherwise, wait for the writer to make room
+        else {
+            int offset = 0;
+            while (offset < length && !closed && !finished) {
+                int written = buffer.write(bytes, offset, length - offset);
+                offset += written;
+                if (written == 0) {
+                    recordingService.wakeWriter();
+                    LockSupport.parkNanos(BLOCK_WAIT);
+                }
+            }
+        }
+
+        // Proactively wake writer if buffer is filling up
+        if (buffer.size() > buffer.getCapacity() / 2)
+            recordingService.wakeWriter();
+
+    }
+
+    /**
+     * Writes all data currently buffered within this recording to the
+     * output channel. This function may only be invoked by the writer
+     * thread.
+     *
+     * @return
+     *     The number of bytes written.
+     *
+     * @throws IOException
+     *     If an error occurs while writing to the output channel.
+     */
+    public int drain() throws IOException {
+        return buffer.drainTo(output);
+    }
+
+    /**
+     * Marks this recording as closed. No further data will be appended, and
+     * the writer thread will close the output channel once all buffered data
+     * has been written.
+     */
+    public void close() {
+        closed = true;
+        recordingService.wakeWriter();
+    }
+
+    /**
+     * Returns whether this recording has been closed.
+     *
+     * @return
+     *     true if this recording has been closed, false otherwise.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the output channel of this recording. Any further data appended
+     * to this recording is discarded. This function may only be invoked by
+     * the writer thread.
+     *
+     * @throws IOException
+     *     If an error occurs while closing the output channel.
+     */
+    public void closeOutput() throws IOException {
+        finished = true;
+        output.close();
+    }
+
+}
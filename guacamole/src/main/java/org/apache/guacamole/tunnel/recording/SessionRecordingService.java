@@ -0,0 +1,437 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.guacamole.tunnel.recording;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+import org.apache.guacamole.GuacamoleException;
+import org.apache.guacamole.GuacamoleServerException;
+import org.apache.guacamole.environment.Environment;
+import org.apache.guacamole.net.GuacamoleTunnel;
+import org.apache.guacamole.properties.BooleanGuacamoleProperty;
+import org.apache.guacamole.properties.FileGuacamoleProperty;
+import org.apache.guacamole.properties.IntegerGuacamoleProperty;
+import org.apache.guacamole.properties.StringGuacamoleProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Service which records the Guacamole protocol data sent along each tunnel to
+ * a file within the directory specified by the "recording-path" property.
+ * Data is copied into a per-tunnel ring buffer by the thread reading the
+ * tunnel and written to disk by a single background thread, such that
+ * recording does not perform I/O within the tunnel's read loop. If
+ * "recording-path" is not specified, tunnels are not recorded.
+ */
+@Singleton
+public class SessionRecordingService {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(SessionRecordingService.class);
+
+    /**
+     * The default size of each recording buffer, in bytes, if not specified
+     * within guacamole.properties.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 1048576;
+
+    /**
+     * The size of the buffer used when compressing recordings, in bytes.
+     */
+    private static final int COMPRESSION_BUFFER_SIZE = 65536;
+
+    /**
+     * The maximum amount of time the writer thread will wait before checking
+     * for buffered data, in nanoseconds.
+     */
+    private static final long FLUSH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * The maximum amount of time to wait for the writer thread to finish
+     * writing all buffered data during shutdown, in milliseconds.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 10000;
+
+    /**
+     * The directory in which session recordings should be written. If not
+     * specified, sessions are not recorded.
+     */
+    private final FileGuacamoleProperty RECORDING_PATH =
+            new FileGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "recording-path"; }
+
+    };
+
+    /**
+     * The size of the buffer allocated for each recording, in bytes.
+     */
+    private final IntegerGuacamoleProperty RECORDING_BUFFER_SIZE =
+            new IntegerGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "recording-buffer-size"; }
+
+    };
+
+    /**
+     * The behavior to apply if a recording buffer is full, either "drop" or
+     * "block".
+     */
+    private final StringGuacamoleProperty RECORDING_OVERFLOW_POLICY =
+            new StringGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "recording-overflow-policy"; }
+
+    };
+
+    /**
+     * Whether recordings should be compressed with gzip.
+     */
+    private final BooleanGuacamoleProperty RECORDING_COMPRESS =
+            new BooleanGuacamoleProperty() {
+
+        @Override
+        public String getName() { return "recording-compress"; }
+
+    };
+
+    /**
+     * The directory in which session recordings should be written, or null
+     * if sessions are not recorded.
+     */
+    private final File recordingPath;
+
+    /**
+     * The size of the buffer allocated for each recording, in bytes.
+     */
+    private final int bufferSize;
+
+    /**
+     * The behavior to apply if a recording buffer is full.
+     */
+    private final RecordingOverflowPolicy overflowPolicy;
+
+    /**
+     * Whether recordings should be compressed with gzip.
+     */
+    private final boolean compress;
+
+    /**
+     * All recordings which have not yet been completely written.
+     */
+    private final Set<SessionRecording> recordings = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The total number of bytes dropped from recordings because their
+     * buffers were full.
+     */
+    private final LongAdder droppedBytes = new LongAdder();
+
+    /**
+     * The total number of bytes written to recording files, prior to any
+     * compression.
+     */
+    private final LongAdder writtenBytes = new LongAdder();
+
+    /**
+     * The thread which writes all buffered recording data to disk, or null
+     * if sessions are not recorded.
+     */
+    private final Thread writerThread;
+
+    /**
+     * Whether the writer thread should continue running.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new SessionRecordingService configured using the properties
+     * within guacamole.properties. If recording is enabled, the background
+     * writer thread is started immediately.
+     *
+     * @param environment
+     *     The Guacamole server environment.
+     *
+     * @throws GuacamoleException
+     *     If guacamole.properties cannot be read or contains invalid
+     *     recording settings.
+     */
+    @Inject
+    public SessionRecordingService(Environment environment)
+            throws GuacamoleException {
+
+        recordingPath = environment.getProperty(RECORDING_PATH);
+        bufferSize = environment.getProperty(RECORDING_BUFFER_SIZE, DEFAULT_BUFFER_SIZE);
+        compress = environment.getProperty(RECORDING_COMPRESS, false);
+
+        String policy = environment.getProperty(RECORDING_OVERFLOW_POLICY, "drop");
+        try {
+            overflowPolicy = RecordingOverflowPolicy.valueOf(policy.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            throw new GuacamoleServerException("Property \""
+                    + RECORDING_OVERFLOW_POLICY.getName() + "\" must be "
+                    + "either \"drop\" or \"block\".", e);
+        }
+
+        // Do not start writer if recording is disabled
+        if (recordingPath == null) {
+            writerThread = null;
+            return;
+        }
+
+        logger.info("Sessions will be recorded to \"{}\".", recordingPath);
+
+        writerThread = new Thread(new RecordingWriter(), "guacamole-recording-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+    }
+
+    /**
+     * Wraps the given tunnel such that all data read from the tunnel is
+     * recorded. If recording is disabled, the tunnel is returned as-is. If
+     * the recording cannot be created, the tunnel is closed.
+     *
+     * @param tunnel
+     *     The tunnel to record.
+     *
+     * @return
+     *     A tunnel which delegates to the given tunnel while recording all
+     *     data read, or the given tunnel if recording is disabled.
+     *
+     * @throws GuacamoleException
+     *     If the recording file cannot be created.
+     */
+    public GuacamoleTunnel record(GuacamoleTunnel tunnel)
+            throws GuacamoleException {
+
+        if (recordingPath == null)
+            return tunnel;
+
+        String filename = tunnel.getUUID() + (compress ? ".guac.gz" : ".guac");
+        File file = new File(recordingPath, filename);
+
+        WritableByteChannel output;
+        try {
+
+            FileChannel channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+            // Compress within the writer thread, if requested
+            if (compress)
+                output = Channels.newChannel(new GZIPOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel),
+                                COMPRESSION_BUFFER_SIZE), COMPRESSION_BUFFER_SIZE));
+            else
+                output = channel;
+
+        }
+
+        // Refuse to continue unrecorded
+        catch (IOException e) {
+            tunnel.close();
+            throw new GuacamoleServerException("Unable to create session "
+                    + "recording \"" + file + "\".", e);
+        }
+
+        SessionRecording recording = new SessionRecording(file.getName(),
+                output, bufferSize, overflowPolicy, this);
+        recordings.add(recording);
+
+        logger.debug("Recording tunnel \"{}\" to \"{}\".", tunnel.getUUID(), file);
+        return new RecordingTunnel(tunnel, recording);
+
+    }
+
+    /**
+     * Wakes the writer thread, such that any buffered recording data is
+     * written as soon as possible.
+     */
+    public void wakeWriter() {
+        if (writerThread != null)
+            LockSupport.unpark(writerThread);
+    }
+
+    /**
+     * Records that the given number of bytes were dropped from a recording
+     * because its buffer was full.
+     *
+     * @param length
+     *     The number of bytes dropped.
+     */
+    public void recordDropped(int length) {
+        droppedBytes.add(length);
+    }
+
+    /**
+     * Returns the total number of bytes dropped from recordings because their
+     * buffers were full.
+     *
+     * @return
+     *     The total number of bytes dropped from recordings.
+     */
+    public long getDroppedBytes() {
+        return droppedBytes.sum();
+    }
+
+    /**
+     * Returns the total number of bytes written to recording files, prior to
+     * any compression.
+     *
+     * @return
+     *     The total number of bytes written to recording files.
+     */
+    public long getWrittenBytes() {
+        return writtenBytes.sum();
+    }
+
+    /**
+     * Returns the number of recordings which have not yet been completely
+     * written.
+     *
+     * @return
+     *     The number of recordings which have not yet been completely
+     *     written.
+     */
+    public int getActiveRecordings() {
+        return recordings.size();
+    }
+
+    /**
+     * Stops the writer thread, waiting a limited amount of time for all
+     * buffered recording data to be written.
+     */
+    public void shutdown() {
+
+        if (writerThread == null)
+            return;
+
+        running = false;
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Task which continuously writes buffered data from all recordings to
+     * disk, closing each recording once its tunnel has closed and all of its
+     * data has been written.
+     */
+    private class RecordingWriter implements Runnable {
+
+        /**
+         * Writes all currently-buffered data from all recordings, closing
+         * any recordings which are complete.
+         *
+         * @param finish
+         *     Whether all recordings should be closed regardless of whether
+         *     their tunnels have closed, as during shutdown.
+         *
+         * @return
+         *     The total number of bytes written.
+         */
+        private long writeAll(boolean finish) {
+
+            long total = 0;
+
+            for (SessionRecording recording : recordings) {
+
+                // Check for closure before draining, such that all data
+                // appended prior to closure is written
+                boolean complete = finish || recording.isClosed();
+
+                try {
+
+                    total += recording.drain();
+
+                    if (complete) {
+                        recordings.remove(recording);
+                        recording.closeOutput();
+                        logger.debug("Recording \"{}\" complete.", recording.getName());
+                    }
+
+                }
+                catch (IOException e) {
+
+                    logger.error("Session recording \"{}\" failed: {}",
+                            recording.getName(), e.getMessage());
+                    logger.debug("Unable to write session recording.", e);
+
+                    // Abandon recording entirely
+                    recordings.remove(recording);
+                    try {
+                        recording.closeOutput();
+                    }
+                    catch (IOException ignored) {
+                        // Already failed
+                    }
+
+                }
+
+            }
+
+            writtenBytes.add(total);
+            return total;
+
+        }
+
+        @Override
+        public void run() {
+
+            // Write continuously, sleeping only when there is nothing to do
+            while (running) {
+                if (writeAll(false) == 0)
+                    LockSupport.parkNanos(FLUSH_INTERVAL);
+            }
+
+            // Write any remaining data
+            writeAll(true);
+
+        }
+
+    }
+
+}